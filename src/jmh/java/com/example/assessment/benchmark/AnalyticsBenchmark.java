@@ -0,0 +1,139 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.analytics.DeviceColumns;
+import com.example.assessment.model.AnalyticsDimension;
+import com.example.assessment.model.AnalyticsInterval;
+import com.example.assessment.model.DeviceAnalyticsQuery;
+import com.example.assessment.model.DeviceState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// A query of /api/v1/devices/analytics on `rows` generated devices (60 brands, the states 70/20/10, created over five
+// years): DeviceColumns against the same group-by over a list of rows, which is what counting loaded devices would
+// come to. The queries: by brand and state, by month for one state, and by age in weeks for brands starting with "S"
+// (a brand filter over the dictionary). columnarWithChanges adds the 10000 devices changed since the snapshot that
+// DeviceAnalyticsService keeps at most (device.analytics.max-changes), counted row by row.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 1, 0, 0);
+    private static final int CHANGES = 10_000;
+
+    @Param({"1000000", "5000000"})
+    private int rows;
+
+    @Param({"brandState", "monthInUse", "ageOfSBrands"})
+    private String query;
+
+    private DeviceColumns columns;
+    private List<DeviceColumns.Row> list;
+    private List<DeviceColumns.Row> changed;
+    private DeviceAnalyticsQuery analyticsQuery;
+    private ExecutorService executor;
+    private int parallelism;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] brands = new String[60];
+        for (int i = 0; i < brands.length; i++) {
+            brands[i] = (char) ('A' + i % 26) + "brand" + i;
+        }
+        DeviceColumns.Builder builder = new DeviceColumns.Builder();
+        list = new ArrayList<>(rows);
+        for (int id = 1; id <= rows; id++) {
+            int state = random.nextInt(10);
+            DeviceColumns.Row row = new DeviceColumns.Row("Device " + (id % 50_000), brands[random.nextInt(brands.length)],
+                    state < 7 ? DeviceState.AVAILABLE : state < 9 ? DeviceState.IN_USE : DeviceState.INACTIVE,
+                    NOW.minusMinutes(random.nextInt(5 * 365 * 24 * 60)));
+            builder.add(id, row);
+            list.add(row);
+        }
+        columns = builder.build();
+        changed = new ArrayList<>(CHANGES);
+        for (int i = 0; i < CHANGES; i++) {
+            changed.add(new DeviceColumns.Row("Renamed " + i, brands[random.nextInt(brands.length)], DeviceState.IN_USE,
+                    NOW.minusMinutes(random.nextInt(5 * 365 * 24 * 60))));
+        }
+
+        analyticsQuery = new DeviceAnalyticsQuery();
+        switch (query) {
+            case "brandState" -> analyticsQuery.setGroupBy(List.of(AnalyticsDimension.BRAND, AnalyticsDimension.STATE));
+            case "monthInUse" -> {
+                analyticsQuery.setGroupBy(List.of(AnalyticsDimension.CREATED));
+                analyticsQuery.setState(List.of(DeviceState.IN_USE));
+            }
+            case "ageOfSBrands" -> {
+                analyticsQuery.setGroupBy(List.of(AnalyticsDimension.BRAND, AnalyticsDimension.AGE));
+                analyticsQuery.setInterval(AnalyticsInterval.WEEK);
+                analyticsQuery.setBrand(List.of(brands[18], brands[44]));
+            }
+            default -> throw new IllegalArgumentException(query);
+        }
+        parallelism = Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public DeviceColumns.Counts columnar() {
+        return columns.aggregate(analyticsQuery, List.of(), NOW, executor, parallelism);
+    }
+
+    @Benchmark
+    public DeviceColumns.Counts columnarWithChanges() {
+        return columns.aggregate(analyticsQuery, changed, NOW, executor, parallelism);
+    }
+
+    @Benchmark
+    public Map<List<Object>, Long> rows() {
+        return list.stream()
+                .filter(row -> analyticsQuery.getState() == null || analyticsQuery.getState().contains(row.state()))
+                .filter(row -> analyticsQuery.getBrand() == null || analyticsQuery.getBrand().contains(row.brand()))
+                .collect(Collectors.groupingBy(this::key, Collectors.counting()));
+    }
+
+    private List<Object> key(DeviceColumns.Row row) {
+        List<Object> key = new ArrayList<>(2);
+        for (AnalyticsDimension dimension : analyticsQuery.getGroupBy()) {
+            key.add(switch (dimension) {
+                case BRAND -> row.brand();
+                case STATE -> row.state();
+                case CREATED -> row.creationTime().truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+                case AGE -> ChronoUnit.WEEKS.between(row.creationTime(), NOW);
+            });
+        }
+        return key;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.cache.DeviceCache;
+import com.example.assessment.controller.DeviceController;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.service.DeviceService;
+import com.example.assessment.service.DeviceStatsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+
+// Wires the controller and service the way the application context does, minus the database.
+final class BenchmarkFixtures {
+
+    // same modules and date handling as the ObjectMapper Spring Boot auto-configures
+    static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private BenchmarkFixtures() {
+    }
+
+    static DeviceService deviceService(DeviceRepository repository, boolean cacheEnabled) {
+        DeviceCache cache = new DeviceCache(cacheEnabled, 100_000, Duration.ofMinutes(5), DeviceCache.Store.HEAP, new SimpleMeterRegistry());
+        return new DeviceService(repository, cache, event -> {
+        });
+    }
+
+    static DeviceController deviceController(DeviceService deviceService, DeviceRepository repository) {
+        return new DeviceController(deviceService, null, new DeviceStatsService(repository, null), null, OBJECT_MAPPER);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.cache.DeviceCache;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// The device cache filled with `devices` devices, on the heap and off it: DeviceCache.get for random ids (all cached,
+// what GET /{id} does on a hit) and put for a random id with a new version (a write). Setup prints the heap the filled
+// cache retains and how long a full collection of that heap pauses; every iteration prints the collections it caused
+// and their total time. Run with -prof gc for allocation rates.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-XX:MaxDirectMemorySize=2g"})
+@State(Scope.Benchmark)
+public class CacheFootprintBenchmark {
+
+    private static final String[] BRANDS = {"Apple", "Samsung", "Google", "Lenovo", "Dell", "HP", "Microsoft", "Sony"};
+
+    @Param({"1000000", "3000000"})
+    private int devices;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    private DeviceCache.Store store;
+
+    private DeviceCache cache;
+    private SplittableRandom random;
+    private long version;
+    private long gcCount;
+    private long gcMillis;
+
+    @Setup
+    public void setUp() {
+        long before = usedHeapAfterGc();
+        cache = new DeviceCache(true, devices, Duration.ofHours(1), store, new SimpleMeterRegistry());
+        random = new SplittableRandom(42);
+        LocalDateTime created = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (long id = 1; id <= devices; id++) {
+            cache.put(device(id, created.plusSeconds(id * 17)));
+        }
+        long retained = usedHeapAfterGc() - before;
+        long start = System.nanoTime();
+        System.gc();
+        System.out.printf("%n%s, %d devices: %d MB retained on the heap (%d bytes a device), full GC %d ms%n", store, devices,
+                retained >> 20, retained / devices, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        gcCount = gcCount();
+        gcMillis = gcMillis();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        System.out.printf("  %d collections, %d ms%n", gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    @Benchmark
+    public DeviceDTO get() {
+        return cache.get(1 + (long) random.nextInt(devices), id -> {
+            throw new IllegalStateException("Device " + id + " isn't cached");
+        });
+    }
+
+    @Benchmark
+    public void put() {
+        DeviceDTO device = device(1 + (long) random.nextInt(devices), LocalDateTime.of(2025, 6, 1, 12, 0));
+        device.setVersion(++version);
+        cache.put(device);
+    }
+
+    private DeviceDTO device(long id, LocalDateTime created) {
+        DeviceDTO device = new DeviceDTO();
+        device.setId(id);
+        device.setName("Device " + id + " " + (random.nextBoolean() ? "Pro" : "Max"));
+        device.setBrand(BRANDS[(int) (id % BRANDS.length)]);
+        device.setState(DeviceState.values()[(int) (id % 3)]);
+        device.setCreationTime(created);
+        device.setVersion(0L);
+        return device;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.service.DeviceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// DeviceService end to end against the in-memory repository: validation, mapping, cache and event publishing,
+// without JDBC. Reads cycle through the whole data set so the cached case isn't one hot entry.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceServiceBenchmark {
+
+    private static final int DEVICES = 10_000;
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    private DeviceService deviceService;
+    private DeviceDTO newDevice;
+    private DeviceDTO replacement;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        DeviceRepository repository = InMemoryDeviceRepository.create(DEVICES);
+        deviceService = BenchmarkFixtures.deviceService(repository, cacheEnabled);
+        newDevice = new DeviceDTO();
+        newDevice.setName("New device");
+        newDevice.setBrand("Apple");
+        newDevice.setState(DeviceState.AVAILABLE);
+        replacement = new DeviceDTO();
+        replacement.setName("Replaced device");
+        replacement.setBrand("Google");
+        replacement.setState(DeviceState.AVAILABLE);
+    }
+
+    @Benchmark
+    public DeviceDTO getDeviceById() {
+        return deviceService.getDeviceById(nextId());
+    }
+
+    @Benchmark
+    public DevicePage<DeviceDTO> getAllDevices() {
+        return deviceService.getAllDevices(PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public DeviceDTO updateDevice() {
+        return deviceService.updateDevice(nextId(), replacement);
+    }
+
+    @Benchmark
+    public DeviceDTO checkOutAndIn() {
+        long id = nextId();
+        deviceService.checkOutDevice(id);
+        return deviceService.checkInDevice(id);
+    }
+
+    // paired with a delete so the store doesn't grow across iterations
+    @Benchmark
+    public DeviceDTO createAndDelete() {
+        DeviceDTO created = deviceService.createDevice(newDevice);
+        deviceService.deleteDevice(created.getId());
+        return created;
+    }
+
+    private long nextId() {
+        next = next % DEVICES + 1;
+        return next;
+    }
+}
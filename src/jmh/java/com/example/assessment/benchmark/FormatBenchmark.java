@@ -0,0 +1,113 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.controller.DeviceController;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceResponse;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.web.DeviceProtobufHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Bytes on the wire against CPU per response format: a device (devices = 1) or a page written by the converter the
+// Accept header picks, optionally compressed the way ResponseCompressionFilter does. The encoded size of every
+// combination is printed when its trial starts, the score is the cost of producing it.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String format;
+
+    @Param({"none", "gzip", "zstd"})
+    private String compression;
+
+    @Param({"1", "20", "1000"})
+    private int devices;
+
+    private GenericHttpMessageConverter<Object> converter;
+    private Object body;
+    private Type type;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setUp() throws IOException {
+        DeviceRepository repository = InMemoryDeviceRepository.create(1000);
+        DeviceController controller = BenchmarkFixtures.deviceController(BenchmarkFixtures.deviceService(repository, false), repository);
+        if (devices == 1) {
+            body = controller.getDevice(1L, null).getBody();
+            type = DeviceResponse.class;
+        } else {
+            body = controller.getAllDevices(PageRequest.of(0, devices), true).getBody();
+            type = ResolvableType.forClassWithGenerics(DevicePage.class, DeviceResponse.class).getType();
+        }
+        converter = switch (format) {
+            case "json" -> new MappingJackson2HttpMessageConverter(BenchmarkFixtures.OBJECT_MAPPER);
+            case "smile" -> new MappingJackson2SmileHttpMessageConverter(BenchmarkFixtures.OBJECT_MAPPER.copyWith(new SmileFactory()));
+            case "cbor" -> new MappingJackson2CborHttpMessageConverter(BenchmarkFixtures.OBJECT_MAPPER.copyWith(new CBORFactory()));
+            case "protobuf" -> new DeviceProtobufHttpMessageConverter();
+            default -> throw new IllegalArgumentException(format);
+        };
+        System.out.printf("%n%s/%s, %d device(s): %d bytes%n", format, compression, devices, write());
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        buffer.reset();
+        OutputStream out = switch (compression) {
+            case "gzip" -> new GZIPOutputStream(buffer, 8192, true);
+            case "zstd" -> new ZstdOutputStreamNoFinalizer(buffer, 3);
+            default -> buffer;
+        };
+        converter.write(body, type, null, new OutputMessage(out));
+        out.close();
+        return buffer.size();
+    }
+
+    private record OutputMessage(OutputStream body, HttpHeaders headers) implements HttpOutputMessage {
+
+        OutputMessage(OutputStream body) {
+            this(body, new HttpHeaders());
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
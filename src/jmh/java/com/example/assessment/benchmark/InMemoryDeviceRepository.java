@@ -0,0 +1,157 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DevicePatchResult;
+import com.example.assessment.repository.DeviceRepository;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Map-backed stand-in for DeviceRepository so the service and controller can be measured without a database.
+// Only the methods DeviceService calls on its hot paths are implemented; everything else throws.
+final class InMemoryDeviceRepository {
+
+    private static final String[] BRANDS = {"Apple", "Samsung", "Google", "Lenovo", "Dell", "HP", "Xiaomi", "Sony"};
+
+    private final ConcurrentSkipListMap<Long, DeviceEntity> devices = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private InMemoryDeviceRepository() {
+    }
+
+    static DeviceRepository create(int size) {
+        InMemoryDeviceRepository store = new InMemoryDeviceRepository();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            DeviceEntity entity = new DeviceEntity();
+            entity.setName("Device " + i);
+            entity.setBrand(BRANDS[i % BRANDS.length]);
+            entity.setState(DeviceState.AVAILABLE);
+            entity.setCreationTime(start.plusMinutes(i));
+            store.save(entity);
+        }
+        return (DeviceRepository) Proxy.newProxyInstance(DeviceRepository.class.getClassLoader(),
+                new Class<?>[]{DeviceRepository.class}, (proxy, method, args) -> store.invoke(method, args));
+    }
+
+    private Object invoke(Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "findById" -> Optional.ofNullable(devices.get((Long) args[0]));
+            case "existsById" -> devices.containsKey((Long) args[0]);
+            case "findAll" -> findAll((Pageable) args[0]);
+            case "findSliceBy" -> findSlice((Pageable) args[0]);
+            case "count" -> (long) devices.size();
+            case "save", "saveAndFlush" -> save((DeviceEntity) args[0]);
+            case "deleteById" -> devices.remove((Long) args[0]);
+            case "updateNameAndBrandIfNotInUse" -> updateNameAndBrand((Long) args[0], (String) args[1], (String) args[2], (Long) args[3]);
+            case "findVersionById" -> Optional.ofNullable(devices.get((Long) args[0])).map(DeviceEntity::getVersion);
+            case "transitionState" -> transitionState((Long) args[0], (String) args[1], (String) args[2]);
+            case "hashCode" -> System.identityHashCode(this);
+            case "equals" -> false;
+            case "toString" -> "InMemoryDeviceRepository[" + devices.size() + "]";
+            default -> throw new UnsupportedOperationException(method.toString());
+        };
+    }
+
+    private PageImpl<DeviceEntity> findAll(Pageable pageable) {
+        List<DeviceEntity> content = devices.values().stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
+        return new PageImpl<>(content, pageable, devices.size());
+    }
+
+    private SliceImpl<DeviceEntity> findSlice(Pageable pageable) {
+        PageImpl<DeviceEntity> page = findAll(pageable);
+        return new SliceImpl<>(page.getContent(), pageable, page.hasNext());
+    }
+
+    private DeviceEntity save(DeviceEntity entity) {
+        if (entity.getId() == null) {
+            entity.setId(sequence.incrementAndGet());
+        }
+        entity.setVersion(entity.getVersion() == null ? 0L : entity.getVersion() + 1);
+        devices.put(entity.getId(), entity);
+        return entity;
+    }
+
+    private Optional<DevicePatchResult> updateNameAndBrand(Long id, String name, String brand, long expectedVersion) {
+        DeviceEntity entity = devices.get(id);
+        if (entity == null || entity.getState() == DeviceState.IN_USE
+                || (expectedVersion >= 0 && entity.getVersion() != expectedVersion)) {
+            return Optional.empty();
+        }
+        String previousName = entity.getName();
+        String previousBrand = entity.getBrand();
+        if (name != null) {
+            entity.setName(name);
+        }
+        if (brand != null) {
+            entity.setBrand(brand);
+        }
+        entity.setVersion(entity.getVersion() + 1);
+        return Optional.of(new PatchResult(entity, previousName, previousBrand));
+    }
+
+    private Optional<DeviceEntity> transitionState(Long id, String from, String to) {
+        DeviceEntity entity = devices.get(id);
+        if (entity == null || entity.getState() != DeviceState.valueOf(from)) {
+            return Optional.empty();
+        }
+        entity.setState(DeviceState.valueOf(to));
+        entity.setVersion(entity.getVersion() + 1);
+        return Optional.of(entity);
+    }
+
+    private record PatchResult(DeviceEntity entity, String previousName, String previousBrand) implements DevicePatchResult {
+
+        @Override
+        public Long getId() {
+            return entity.getId();
+        }
+
+        @Override
+        public String getName() {
+            return entity.getName();
+        }
+
+        @Override
+        public String getBrand() {
+            return entity.getBrand();
+        }
+
+        @Override
+        public DeviceState getState() {
+            return entity.getState();
+        }
+
+        @Override
+        public LocalDateTime getCreationTime() {
+            return entity.getCreationTime();
+        }
+
+        @Override
+        public Long getVersion() {
+            return entity.getVersion();
+        }
+
+        @Override
+        public String getPreviousName() {
+            return previousName;
+        }
+
+        @Override
+        public String getPreviousBrand() {
+            return previousBrand;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.controller.DeviceController;
+import com.example.assessment.model.DeviceResponse;
+import com.example.assessment.repository.DeviceRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// entity -> DeviceDTO -> DeviceResponse for a single device and for a page. The cache is off so every call maps.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private DeviceController controller;
+
+    @State(Scope.Benchmark)
+    public static class Pages {
+
+        @Param({"20", "100", "1000"})
+        private int pageSize;
+
+        private PageRequest pageRequest;
+
+        @Setup
+        public void setUp() {
+            pageRequest = PageRequest.of(0, pageSize);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        DeviceRepository repository = InMemoryDeviceRepository.create(1000);
+        controller = BenchmarkFixtures.deviceController(BenchmarkFixtures.deviceService(repository, false), repository);
+    }
+
+    @Benchmark
+    public DeviceResponse single() {
+        return controller.getDevice(1L, null).getBody();
+    }
+
+    // the page converts its content while it's written out, consuming every element here does the same
+    @Benchmark
+    public void page(Pages pages, Blackhole blackhole) {
+        controller.getAllDevices(pages.pageRequest, true).getBody().getContent().forEach(blackhole::consume);
+    }
+}
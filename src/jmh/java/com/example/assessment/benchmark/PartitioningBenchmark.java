@@ -0,0 +1,198 @@
+package com.example.assessment.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// The queries DeviceRepository issues with a state, on the devices table as V1-V3 create it ("flat") and as the
+// opt-in db/partitioning/V4 leaves it ("partitioned"), in an embedded Postgres seeded with `rows` devices: 70% AVAILABLE,
+// 20% INACTIVE, 10% IN_USE. The lookups by id are the other side, they read one partition per state: findById (GET
+// /{id} on a cache miss), findVersionById, existsById, the rename's UPDATE ... FROM (SELECT ... FOR UPDATE) and a
+// batch chunk's findAllById. They don't depend on the state parameter.
+// Statements are prepared like the application's, so after a few executions Postgres may switch to a generic plan
+// and prune at run time. Each layout prints its table and index sizes when it starts.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PartitioningBenchmark {
+
+    private static final int BRANDS = 50;
+    // ids a batch chunk looks up at once
+    private static final int CHUNK_IDS = 100;
+
+    @Param({"flat", "partitioned"})
+    private String layout;
+
+    @Param({"IN_USE", "AVAILABLE"})
+    private String state;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private EmbeddedPostgres postgres;
+    private Connection connection;
+    private PreparedStatement scroll;
+    private PreparedStatement count;
+    private PreparedStatement byBrand;
+    private PreparedStatement byId;
+    private PreparedStatement versionById;
+    private PreparedStatement existsById;
+    private PreparedStatement rename;
+    private PreparedStatement allById;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .schemas(layout)
+                .locations("classpath:db/migration", "classpath:db/partitioning")
+                .target(layout.equals("flat") ? "3" : "latest")
+                // as in application.properties: V2's CREATE INDEX CONCURRENTLY would wait for the lock's transaction
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        connection = postgres.getPostgresDatabase().getConnection();
+        connection.setSchema(layout);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO devices (id, name, brand, state, creation_time, version) "
+                    + "SELECT g, 'Device ' || g, 'brand-' || (g % " + BRANDS + "), "
+                    + "CASE WHEN g % 10 < 7 THEN 'AVAILABLE' WHEN g % 10 < 9 THEN 'INACTIVE' ELSE 'IN_USE' END, "
+                    + "timestamp '2024-01-01' + g * interval '1 second', 0 "
+                    + "FROM generate_series(1, " + rows + ") g");
+            // the visibility map lets the counts use index-only scans, as on a table autovacuum keeps up with
+            statement.execute("VACUUM ANALYZE devices");
+            // the leaf tables, or the table itself when it isn't partitioned
+            try (ResultSet sizes = statement.executeQuery("SELECT sum(pg_table_size(relid)), sum(pg_indexes_size(relid)), "
+                    + "max(pg_total_relation_size(relid)), count(*) FROM (SELECT relid FROM pg_partition_tree('devices') WHERE isleaf "
+                    + "UNION SELECT oid FROM pg_class WHERE oid = 'devices'::regclass AND relkind = 'r') leaves")) {
+                sizes.next();
+                System.out.printf("%n%s: table %d MB, indexes %d MB, largest of %d table(s) %d MB%n", layout,
+                        sizes.getLong(1) >> 20, sizes.getLong(2) >> 20, sizes.getLong(4), sizes.getLong(3) >> 20);
+            }
+        }
+        // keyset scrolling within a state (/scroll, findByState pages)
+        scroll = connection.prepareStatement("SELECT id, name, brand, state, creation_time, version FROM devices "
+                + "WHERE state = ? AND id > ? ORDER BY id LIMIT 20");
+        // the per-state count of the stats
+        count = connection.prepareStatement("SELECT count(*) FROM devices WHERE state = ?");
+        // /filter?brand=&state= ordered by creation time
+        byBrand = connection.prepareStatement("SELECT id, name, brand, state, creation_time, version FROM devices "
+                + "WHERE brand = ? AND state = ? ORDER BY creation_time LIMIT 20");
+        byId = connection.prepareStatement("SELECT id, name, brand, state, creation_time, version FROM devices WHERE id = ?");
+        versionById = connection.prepareStatement("SELECT version FROM devices WHERE id = ?");
+        existsById = connection.prepareStatement("SELECT id FROM devices WHERE id = ? FETCH FIRST 1 ROWS ONLY");
+        // DeviceRepository.renameDevice, as a PATCH of the name runs it
+        rename = connection.prepareStatement("UPDATE devices d SET name = COALESCE(?, d.name), brand = COALESCE(?, d.brand), "
+                + "version = d.version + 1 FROM (SELECT id, name, brand FROM devices WHERE id = ? AND state <> 'IN_USE' FOR UPDATE) old "
+                + "WHERE d.id = ? AND d.id = old.id AND d.state <> 'IN_USE' RETURNING d.id, d.name, old.name");
+        allById = connection.prepareStatement("SELECT id, name, brand, state, creation_time, version FROM devices WHERE id IN ("
+                + String.join(", ", Collections.nCopies(CHUNK_IDS, "?")) + ")");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        connection.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public long scrollByState() throws SQLException {
+        scroll.setString(1, state);
+        scroll.setLong(2, ThreadLocalRandom.current().nextLong(rows - rows / 100));
+        return consume(scroll);
+    }
+
+    @Benchmark
+    public long countByState() throws SQLException {
+        count.setString(1, state);
+        try (ResultSet result = count.executeQuery()) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    @Benchmark
+    public long findByBrandAndState() throws SQLException {
+        byBrand.setString(1, "brand-" + ThreadLocalRandom.current().nextInt(BRANDS));
+        byBrand.setString(2, state);
+        return consume(byBrand);
+    }
+
+    @Benchmark
+    public long findById() throws SQLException {
+        byId.setLong(1, 1 + ThreadLocalRandom.current().nextLong(rows));
+        return consume(byId);
+    }
+
+    @Benchmark
+    public long findVersionById() throws SQLException {
+        versionById.setLong(1, 1 + ThreadLocalRandom.current().nextLong(rows));
+        try (ResultSet result = versionById.executeQuery()) {
+            return result.next() ? result.getLong(1) : -1;
+        }
+    }
+
+    @Benchmark
+    public boolean existsById() throws SQLException {
+        existsById.setLong(1, 1 + ThreadLocalRandom.current().nextLong(rows));
+        try (ResultSet result = existsById.executeQuery()) {
+            return result.next();
+        }
+    }
+
+    @Benchmark
+    public long renameById() throws SQLException {
+        long id = 1 + ThreadLocalRandom.current().nextLong(rows);
+        rename.setString(1, "Renamed " + id);
+        rename.setNull(2, Types.VARCHAR);
+        rename.setLong(3, id);
+        rename.setLong(4, id);
+        // IN_USE devices aren't renamed and return no row
+        return consume(rename);
+    }
+
+    @Benchmark
+    public long findAllById() throws SQLException {
+        for (int i = 1; i <= CHUNK_IDS; i++) {
+            allById.setLong(i, 1 + ThreadLocalRandom.current().nextLong(rows));
+        }
+        return consume(allById);
+    }
+
+    private static long consume(PreparedStatement statement) throws SQLException {
+        long sum = 0;
+        try (ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                sum += result.getLong(1) + result.getString(2).length();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.controller.DeviceController;
+import com.example.assessment.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// A PATCH request as the controller sees it: parse the merge document, apply it, write the response body.
+// "rename" takes the single-statement path, "state" the read-modify-write one.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatchBenchmark {
+
+    @Param({"rename", "state"})
+    private String patch;
+
+    private final ObjectMapper objectMapper = BenchmarkFixtures.OBJECT_MAPPER;
+    private DeviceController controller;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        DeviceRepository repository = InMemoryDeviceRepository.create(1000);
+        controller = BenchmarkFixtures.deviceController(BenchmarkFixtures.deviceService(repository, true), repository);
+        String json = patch.equals("rename")
+                ? "{\"name\":\"Renamed device\",\"brand\":\"Samsung\"}"
+                : "{\"state\":\"INACTIVE\"}";
+        body = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] patch() throws IOException {
+        return objectMapper.writeValueAsBytes(controller.partialUpdateDevice(1L, null, objectMapper.readTree(body)).getBody());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.search.DeviceSearchIndex;
+import com.example.assessment.search.SearchTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// DeviceSearchIndex.search for the first page (21 hits) of /api/v1/devices/search, on an index of `rows` devices named
+// like an inventory: "<model> <variant> <storage> #<asset number>" with one of 20 brands, so besides a few hundred
+// words there's a distinct number per device. Sample time, so the results have percentiles (p0.99 is the target).
+// The queries: a brand that matches a tenth of the devices, a prefix, a typo, and two words with prefixes and typos.
+// With `changes`, that many devices were renamed since the index was built, the most DeviceSearchService keeps before
+// it rebuilds early (device.search.max-changes): they're hidden in the index and matched one by one.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final String[][] BRANDS = {
+            {"Apple", "iPhone", "iPad", "MacBook", "Watch"},
+            {"Samsung", "Galaxy", "Tab", "Book", "Buds"},
+            {"Google", "Pixel", "Nest", "Chromebook", "Fold"},
+            {"Lenovo", "ThinkPad", "IdeaPad", "Yoga", "Legion"},
+            {"Dell", "Latitude", "Inspiron", "Precision", "Vostro"},
+            {"HP", "EliteBook", "ProBook", "Spectre", "Envy"},
+            {"Microsoft", "Surface", "Laptop", "Studio", "Duo"},
+            {"Sony", "Xperia", "Vaio", "Walkman", "Bravia"},
+            {"Xiaomi", "Redmi", "Poco", "Mi", "Pad"},
+            {"OnePlus", "Nord", "Open", "Buds", "Pad"},
+            {"Motorola", "Razr", "Edge", "Moto", "Defy"},
+            {"Nokia", "Lumia", "Xr", "Magic", "Tablet"},
+            {"Asus", "ZenBook", "VivoBook", "ROG", "Chromebox"},
+            {"Acer", "Aspire", "Swift", "Predator", "Nitro"},
+            {"Huawei", "MateBook", "Mate", "Nova", "Watch"},
+            {"Honor", "Magic", "MagicBook", "Pad", "Band"},
+            {"Oppo", "Reno", "Find", "Pad", "Enco"},
+            {"Zebra", "TC52", "MC9300", "ET40", "WT6300"},
+            {"Garmin", "Fenix", "Forerunner", "Venu", "Edge"},
+            {"Fairphone", "Fairbuds", "Fairphone5", "Fairphone4", "Case"}
+    };
+    private static final String[] VARIANTS = {"Pro", "Max", "Ultra", "Plus", "Mini", "Lite", "Air", "Standard"};
+    private static final String[] STORAGE = {"64GB", "128GB", "256GB", "512GB", "1TB"};
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    @Param({"samsung", "pix", "thinkpda", "galxy ultr"})
+    private String query;
+
+    @Param({"0", "1000"})
+    private int changes;
+
+    private DeviceSearchIndex index;
+    private Map<Long, List<String>> changed;
+    private List<String> tokens;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        DeviceSearchIndex.Builder builder = new DeviceSearchIndex.Builder();
+        for (int id = 1; id <= rows; id++) {
+            String[] brand = BRANDS[random.nextInt(BRANDS.length)];
+            builder.add(id, name(brand, id, random), brand[0]);
+        }
+        long start = System.nanoTime();
+        index = builder.build();
+        System.out.printf("%n%d devices, %d terms, built in %d ms%n", index.size(), index.terms(), (System.nanoTime() - start) / 1_000_000);
+        Map<Long, List<String>> renamed = new HashMap<>();
+        while (renamed.size() < changes) {
+            long id = 1 + random.nextInt(rows);
+            String[] brand = BRANDS[random.nextInt(BRANDS.length)];
+            renamed.put(id, SearchTokens.tokenize(name(brand, id, random), brand[0]));
+            index.hide(id);
+        }
+        // as DeviceSearchService hands them over
+        changed = Map.copyOf(renamed);
+        tokens = SearchTokens.tokenize(query);
+    }
+
+    private static String name(String[] brand, long id, SplittableRandom random) {
+        return brand[1 + random.nextInt(brand.length - 1)] + " " + (1 + random.nextInt(30)) + " "
+                + VARIANTS[random.nextInt(VARIANTS.length)] + " " + STORAGE[random.nextInt(STORAGE.length)] + " #" + (1_000_000 + id);
+    }
+
+    @Benchmark
+    public List<DeviceSearchIndex.Hit> search() {
+        return index.search(tokens, 21, changed);
+    }
+}
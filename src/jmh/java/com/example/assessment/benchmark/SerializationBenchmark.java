@@ -0,0 +1,69 @@
+package com.example.assessment.benchmark;
+
+import com.example.assessment.controller.DeviceController;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceResponse;
+import com.example.assessment.repository.DeviceRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// Jackson cost of the response bodies alone: the objects are built once in setUp.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private final ObjectWriter writer = BenchmarkFixtures.OBJECT_MAPPER.writer();
+    private DeviceResponse device;
+
+    @State(Scope.Benchmark)
+    public static class Pages {
+
+        @Param({"20", "100", "1000"})
+        private int pageSize;
+
+        private DevicePage<DeviceResponse> page;
+
+        @Setup
+        public void setUp() {
+            page = controller().getAllDevices(PageRequest.of(0, pageSize), true).getBody();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        device = controller().getDevice(1L, null).getBody();
+    }
+
+    @Benchmark
+    public byte[] single() throws JsonProcessingException {
+        return writer.writeValueAsBytes(device);
+    }
+
+    @Benchmark
+    public byte[] page(Pages pages) throws JsonProcessingException {
+        return writer.writeValueAsBytes(pages.page);
+    }
+
+    private static DeviceController controller() {
+        DeviceRepository repository = InMemoryDeviceRepository.create(1000);
+        return BenchmarkFixtures.deviceController(BenchmarkFixtures.deviceService(repository, false), repository);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.assessment.loadtest;
+
+import com.example.assessment.AssessmentApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Boots the application against an embedded (or the given) Postgres, seeds devices through the batch endpoint and
+// drives a weighted mix of requests from concurrent virtual users. Prints p50/p90/p99/p99.9 per endpoint, writes
+// the same table plus full .hgrm distributions to the report directory, and exits with 1 when an SLO is missed.
+// With --base-url it drives an application that is already running instead, e.g. the reactive variant.
+//
+//   mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--devices=50000 --users=64 --duration=2m --slo-p99=50"
+public final class DeviceLoadTest {
+
+    static final String[] BRANDS = {"Apple", "Samsung", "Google", "Lenovo", "Dell", "HP", "Xiaomi", "Sony"};
+
+    private static final int SEED_CHUNK = 1000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private DeviceLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.println("Load test: " + options);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        if (!options.baseUrl.isEmpty()) {
+            System.exit(run(client, options.baseUrl, options));
+        }
+
+        EmbeddedPostgres postgres = null;
+        String jdbcUrl = options.jdbcUrl;
+        if (jdbcUrl.isEmpty()) {
+            postgres = EmbeddedPostgres.builder().start();
+            try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+                connection.createStatement().execute("CREATE DATABASE assessment");
+            }
+            jdbcUrl = postgres.getJdbcUrl("postgres", "assessment") + "&reWriteBatchedInserts=true";
+        }
+
+        // the restart classloader would boot the application a second time
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int exitCode;
+        List<String> applicationArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=" + options.jdbcUsername,
+                "--spring.datasource.password=" + options.jdbcPassword,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN"));
+        applicationArgs.addAll(options.applicationArgs);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AssessmentApplication.class)
+                .run(applicationArgs.toArray(new String[0]))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            exitCode = run(client, "http://localhost:" + port, options);
+        } finally {
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(HttpClient client, String baseUri, LoadTestOptions options) throws Exception {
+        long[] ids = seed(client, baseUri, options);
+        System.out.printf("Seeded %d devices, running %d users for %s after a %s warmup%n",
+                ids.length, options.users, options.duration, options.warmup);
+
+        LatencyReport report = runUsers(client, baseUri, ids, options);
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(table, true, StandardCharsets.UTF_8);
+        report.print(out, options.duration);
+        printApplicationFootprint(client, baseUri, out);
+        System.out.print(table.toString(StandardCharsets.UTF_8));
+
+        Files.createDirectories(options.reportDir);
+        Files.write(options.reportDir.resolve("report.txt"), table.toByteArray());
+        report.writeDistributions(options.reportDir);
+        System.out.println("Report written to " + options.reportDir.toAbsolutePath());
+
+        List<String> violations = report.violations(options.sloP99, options.sloP999);
+        violations.forEach(v -> System.out.println("SLO violated: " + v));
+        return violations.isEmpty() ? 0 : 1;
+    }
+
+    // heap and thread count of the application right after the run, read from its actuator metrics
+    private static void printApplicationFootprint(HttpClient client, String baseUri, PrintStream out) {
+        try {
+            out.printf("%nApplication: heap used %.1f MB, %d live threads%n",
+                    metric(client, baseUri, "jvm.memory.used?tag=area:heap") / (1024 * 1024),
+                    (long) metric(client, baseUri, "jvm.threads.live"));
+        } catch (IOException | RuntimeException e) {
+            out.printf("%nApplication footprint unavailable: %s%n", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double metric(HttpClient client, String baseUri, String name) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/actuator/metrics/" + name)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(name + " returned " + response.statusCode());
+        }
+        return MAPPER.readTree(response.body()).get("measurements").get(0).get("value").asDouble();
+    }
+
+    // through the batch endpoint, or one POST per device when the application doesn't have it (the reactive variant)
+    private static long[] seed(HttpClient client, String baseUri, LoadTestOptions options) throws Exception {
+        int devices = options.devices;
+        long[] ids = new long[devices];
+        int seeded = 0;
+        while (seeded < devices) {
+            int size = Math.min(SEED_CHUNK, devices - seeded);
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < size; i++) {
+                int n = seeded + i;
+                body.append(i == 0 ? "" : ",")
+                        .append("{\"op\":\"CREATE\",").append(deviceJson(n).substring(1));
+            }
+            body.append(']');
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/v1/devices:batch"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (seeded == 0 && (response.statusCode() == 404 || response.statusCode() == 405)) {
+                return seedOneByOne(client, baseUri, options);
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode result : MAPPER.readTree(response.body()).get("results")) {
+                if (result.get("status").asInt() != 201) {
+                    throw new IllegalStateException("Seeding failed: " + result);
+                }
+                ids[seeded++] = result.get("id").asLong();
+            }
+        }
+        return ids;
+    }
+
+    private static long[] seedOneByOne(HttpClient client, String baseUri, LoadTestOptions options) throws Exception {
+        long[] ids = new long[options.devices];
+        List<Future<?>> creates = new ArrayList<>();
+        Semaphore inFlight = new Semaphore(Math.min(options.users, 64));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < ids.length; i++) {
+                int n = i;
+                inFlight.acquire();
+                creates.add(executor.submit(() -> {
+                    try {
+                        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/v1/devices"))
+                                        .header("Content-Type", "application/json")
+                                        .POST(HttpRequest.BodyPublishers.ofString(deviceJson(n)))
+                                        .build(),
+                                HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+                        }
+                        ids[n] = MAPPER.readTree(response.body()).get("id").asLong();
+                        return null;
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> create : creates) {
+                create.get();
+            }
+        }
+        return ids;
+    }
+
+    private static String deviceJson(int n) {
+        return "{\"name\":\"Device " + n + "\",\"brand\":\"" + BRANDS[n % BRANDS.length]
+                + "\",\"state\":\"" + (n % 10 == 0 ? "INACTIVE" : "AVAILABLE") + "\"}";
+    }
+
+    private static LatencyReport runUsers(HttpClient client, String baseUri, long[] ids, LoadTestOptions options) throws Exception {
+        long measureFrom = System.nanoTime() + options.warmup.toNanos();
+        long stopAt = measureFrom + options.duration.toNanos();
+        List<Future<LatencyReport>> users = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.users; i++) {
+                users.add(executor.submit(new VirtualUser(client, baseUri, ids, options.mix, measureFrom, stopAt, i)));
+            }
+            LatencyReport merged = new LatencyReport();
+            for (Future<LatencyReport> user : users) {
+                merged.merge(user.get(options.warmup.plus(options.duration).plus(Duration.ofMinutes(1)).toMillis(),
+                        TimeUnit.MILLISECONDS));
+            }
+            return merged;
+        }
+    }
+}
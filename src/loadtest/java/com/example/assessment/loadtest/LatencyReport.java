@@ -0,0 +1,99 @@
+package com.example.assessment.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Latencies per endpoint in microseconds. Each virtual user records into its own report; they're merged at the end
+// so recording never contends.
+final class LatencyReport {
+
+    // one hour, 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = 3_600_000_000L;
+
+    private final Map<String, Endpoint> endpoints = new TreeMap<>();
+
+    void record(String endpoint, long micros, int status) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        stats.histogram.recordValue(Math.min(Math.max(micros, 1), HIGHEST_TRACKABLE_MICROS));
+        if (status >= 200 && status < 300) {
+            stats.ok++;
+        } else if (status >= 400 && status < 500) {
+            // business rejections (checkout races, renaming a device that's in use), not failures of the service
+            stats.rejected++;
+        } else {
+            stats.errors++;
+        }
+    }
+
+    void merge(LatencyReport other) {
+        other.endpoints.forEach((name, stats) -> {
+            Endpoint merged = endpoints.computeIfAbsent(name, e -> new Endpoint());
+            merged.histogram.add(stats.histogram);
+            merged.ok += stats.ok;
+            merged.rejected += stats.rejected;
+            merged.errors += stats.errors;
+        });
+    }
+
+    void print(PrintStream out, Duration measured) {
+        double seconds = measured.toMillis() / 1000.0;
+        out.printf("%-42s %9s %8s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "4xx", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.forEach((name, stats) -> {
+            Histogram h = stats.histogram;
+            out.printf("%-42s %9d %8.1f %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, h.getTotalCount(), h.getTotalCount() / seconds, stats.rejected, stats.errors,
+                    millis(h, 50), millis(h, 90), millis(h, 99), millis(h, 99.9), h.getMaxValue() / 1000.0);
+        });
+    }
+
+    // full percentile distribution per endpoint, plot with HdrHistogram's histogram plotter
+    void writeDistributions(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            String file = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "") + ".hgrm";
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(file)))) {
+                entry.getValue().histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    // endpoints whose p99 / p99.9 exceed the given limits in ms (0 disables a limit), or that had server errors
+    List<String> violations(double p99Limit, double p999Limit) {
+        List<String> violations = new ArrayList<>();
+        endpoints.forEach((name, stats) -> {
+            double p99 = millis(stats.histogram, 99);
+            double p999 = millis(stats.histogram, 99.9);
+            if (p99Limit > 0 && p99 > p99Limit) {
+                violations.add(String.format("%s p99 %.2f ms > %.2f ms", name, p99, p99Limit));
+            }
+            if (p999Limit > 0 && p999 > p999Limit) {
+                violations.add(String.format("%s p99.9 %.2f ms > %.2f ms", name, p999, p999Limit));
+            }
+            if (stats.errors > 0) {
+                violations.add(String.format("%s had %d errors", name, stats.errors));
+            }
+        });
+        return violations;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static final class Endpoint {
+        private final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private long ok;
+        private long rejected;
+        private long errors;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.assessment.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// --name=value command line options of DeviceLoadTest
+final class LoadTestOptions {
+
+    final int devices;
+    final int users;
+    final Duration warmup;
+    final Duration duration;
+    final Map<Operation, Integer> mix;
+    // an application that is already running (either stack), empty means boot one in-process
+    final String baseUrl;
+    // empty means start an embedded Postgres
+    final String jdbcUrl;
+    final String jdbcUsername;
+    final String jdbcPassword;
+    final Path reportDir;
+    // p99/p99.9 limits in ms applied to every endpoint, 0 means no limit
+    final double sloP99;
+    final double sloP999;
+    // --app.<property>=value, passed to the application as --<property>=value
+    final List<String> applicationArgs = new ArrayList<>();
+
+    private LoadTestOptions(Map<String, String> args) {
+        devices = Integer.parseInt(args.getOrDefault("devices", "10000"));
+        users = Integer.parseInt(args.getOrDefault("users", "32"));
+        warmup = DurationStyle.detectAndParse(args.getOrDefault("warmup", "10s"));
+        duration = DurationStyle.detectAndParse(args.getOrDefault("duration", "60s"));
+        mix = parseMix(args.getOrDefault("mix", "read=45,page=10,scroll=5,filter=15,patch=10,checkout=5,create=5,stats=5"));
+        baseUrl = args.getOrDefault("base-url", "");
+        jdbcUrl = args.getOrDefault("jdbc-url", "");
+        jdbcUsername = args.getOrDefault("jdbc-username", "postgres");
+        jdbcPassword = args.getOrDefault("jdbc-password", "postgres");
+        reportDir = Path.of(args.getOrDefault("report-dir", "target/loadtest"));
+        sloP99 = Double.parseDouble(args.getOrDefault("slo-p99", "0"));
+        sloP999 = Double.parseDouble(args.getOrDefault("slo-p999", "0"));
+        args.forEach((name, value) -> {
+            if (name.startsWith("app.")) {
+                applicationArgs.add("--" + name.substring(4) + "=" + value);
+            }
+        });
+        if (devices < 1 || users < 1) {
+            throw new IllegalArgumentException("devices and users must be positive");
+        }
+    }
+
+    static LoadTestOptions parse(String[] argv) {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            args.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return new LoadTestOptions(args);
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] weight = part.trim().split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in mix, got: " + part);
+            }
+            int w = Integer.parseInt(weight[1].trim());
+            if (w > 0) {
+                mix.put(Operation.valueOf(weight[0].trim().toUpperCase()), w);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("mix has no operation with a positive weight");
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "devices=" + devices + ", users=" + users + ", warmup=" + warmup + ", duration=" + duration
+                + ", mix=" + mix
+                + (baseUrl.isEmpty() ? ", database=" + (jdbcUrl.isEmpty() ? "embedded" : jdbcUrl) : ", target=" + baseUrl)
+                + (applicationArgs.isEmpty() ? "" : ", application=" + applicationArgs);
+    }
+}
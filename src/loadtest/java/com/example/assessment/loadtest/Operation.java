@@ -0,0 +1,21 @@
+package com.example.assessment.loadtest;
+
+// Units of work a virtual user picks from, weighted by the --mix option
+enum Operation {
+    // GET /api/v1/devices/{id}
+    READ,
+    // GET /api/v1/devices?page=..&size=20
+    PAGE,
+    // GET /api/v1/devices/scroll, following nextCursor
+    SCROLL,
+    // GET /api/v1/devices/filter?brand=..&state=..
+    FILTER,
+    // PATCH /api/v1/devices/{id} renaming the device
+    PATCH,
+    // POST /api/v1/devices/{id}/checkout, then checkin if it succeeded
+    CHECKOUT,
+    // POST /api/v1/devices
+    CREATE,
+    // GET /api/v1/devices/stats
+    STATS
+}
@@ -0,0 +1,139 @@
+package com.example.assessment.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+// Closed loop: sends the next request as soon as the previous one completed, so the latencies are service times
+// under the offered concurrency. Requests completing before the end of the warmup aren't recorded.
+final class VirtualUser implements Callable<LatencyReport> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] STATES = {"AVAILABLE", "IN_USE", "INACTIVE"};
+
+    private final HttpClient client;
+    private final String baseUri;
+    private final long[] deviceIds;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final long measureFrom;
+    private final long stopAt;
+    private final SplittableRandom random;
+    private final LatencyReport report = new LatencyReport();
+    private String scrollCursor;
+
+    VirtualUser(HttpClient client, String baseUri, long[] deviceIds, Map<Operation, Integer> mix,
+                long measureFrom, long stopAt, long seed) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.deviceIds = deviceIds;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.measureFrom = measureFrom;
+        this.stopAt = stopAt;
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public LatencyReport call() {
+        while (System.nanoTime() < stopAt) {
+            execute(nextOperation());
+        }
+        return report;
+    }
+
+    private Operation nextOperation() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private void execute(Operation operation) {
+        long id = deviceIds[random.nextInt(deviceIds.length)];
+        switch (operation) {
+            case READ -> send("GET /devices/{id}", get("/api/v1/devices/" + id));
+            case PAGE -> send("GET /devices", get("/api/v1/devices?size=20&page=" + random.nextInt(50)));
+            case SCROLL -> scroll();
+            case FILTER -> send("GET /devices/filter", get("/api/v1/devices/filter?size=20&brand="
+                    + URLEncoder.encode(DeviceLoadTest.BRANDS[random.nextInt(DeviceLoadTest.BRANDS.length)], StandardCharsets.UTF_8)
+                    + "&state=" + STATES[random.nextInt(STATES.length)]));
+            case PATCH -> send("PATCH /devices/{id}", json("/api/v1/devices/" + id, "PATCH",
+                    "{\"name\":\"Device " + id + " rev " + random.nextInt(1000) + "\"}"));
+            case CHECKOUT -> {
+                HttpResponse<String> checkout = send("POST /devices/{id}/checkout", json("/api/v1/devices/" + id + "/checkout", "POST", ""));
+                if (checkout != null && checkout.statusCode() == 200) {
+                    send("POST /devices/{id}/checkin", json("/api/v1/devices/" + id + "/checkin", "POST", ""));
+                }
+            }
+            case CREATE -> send("POST /devices", json("/api/v1/devices", "POST",
+                    "{\"name\":\"Load device\",\"brand\":\"" + DeviceLoadTest.BRANDS[random.nextInt(DeviceLoadTest.BRANDS.length)]
+                            + "\",\"state\":\"AVAILABLE\"}"));
+            case STATS -> send("GET /devices/stats", get("/api/v1/devices/stats"));
+        }
+    }
+
+    private void scroll() {
+        String uri = "/api/v1/devices/scroll?size=20"
+                + (scrollCursor != null ? "&cursor=" + URLEncoder.encode(scrollCursor, StandardCharsets.UTF_8) : "");
+        HttpResponse<String> response = send("GET /devices/scroll", get(uri));
+        scrollCursor = null;
+        if (response != null && response.statusCode() == 200) {
+            try {
+                JsonNode next = MAPPER.readTree(response.body()).get("nextCursor");
+                scrollCursor = next != null && !next.isNull() ? next.asText() : null;
+            } catch (IOException e) {
+                // start over from the first page
+            }
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path)).GET().build();
+    }
+
+    private HttpRequest json(String path, String method, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .header("Content-Type", "application/json")
+                .method(method, body.isEmpty() ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        HttpResponse<String> response = null;
+        int status;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            status = response.statusCode();
+        } catch (IOException e) {
+            status = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+        long end = System.nanoTime();
+        if (end >= measureFrom && end < stopAt) {
+            report.record(endpoint, (end - start) / 1000, status);
+        }
+        return response;
+    }
+}
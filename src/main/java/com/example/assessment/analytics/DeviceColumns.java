@@ -0,0 +1,697 @@
+package com.example.assessment.analytics;
+
+import com.example.assessment.exception.InvalidAnalyticsQueryException;
+import com.example.assessment.model.AnalyticsDimension;
+import com.example.assessment.model.AnalyticsInterval;
+import com.example.assessment.model.DeviceAnalytics;
+import com.example.assessment.model.DeviceAnalyticsQuery;
+import com.example.assessment.model.DeviceState;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// The devices table as columns, for counting by brand, state and creation time without loading a row: brands and names
+// as codes into sorted dictionaries, the state as a byte, the creation time as epoch milliseconds (of the local time,
+// read as UTC) and the ids, ascending, to find a device's row. About 25 bytes a device plus the distinct strings.
+// Immutable after it's built except for hiding the rows of devices that changed since (see DeviceAnalyticsService).
+//
+// Counting runs a block of rows at a time: the rows that pass the filters go into a selection vector, every group-by
+// column adds its code to the block's keys, and the keys index a dense array of counts. The table is split into
+// ranges that are counted in parallel and summed.
+public final class DeviceColumns {
+
+    public static final DeviceColumns EMPTY = new Builder().build();
+
+    // dense counts are allocated per range, a query can't ask for more groups than this
+    static final int MAX_GROUPS = 1 << 17;
+    private static final int BLOCK = 2048;
+    // ranges below this aren't worth a task of their own
+    private static final int MIN_RANGE = 1 << 16;
+    private static final int NONE = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long DAY = Duration.ofDays(1).toMillis();
+    // months and years are looked up by day up to this many days, about 270 years
+    private static final int MAX_DAYS = 100_000;
+    private static final DeviceState[] STATES = DeviceState.values();
+
+    private final long[] ids;
+    private final String[] brands;
+    private final int[] brandCodes;
+    private final String[] names;
+    private final int[] nameCodes;
+    private final byte[] states;
+    private final long[] createdAt;
+    private final long minCreatedAt;
+    private final long maxCreatedAt;
+    private final AtomicLongArray hidden;
+
+    private DeviceColumns(long[] ids, String[] brands, int[] brandCodes, String[] names, int[] nameCodes, byte[] states,
+                          long[] createdAt) {
+        this.ids = ids;
+        this.brands = brands;
+        this.brandCodes = brandCodes;
+        this.names = names;
+        this.nameCodes = nameCodes;
+        this.states = states;
+        this.createdAt = createdAt;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long time : createdAt) {
+            if (time != NO_TIME) {
+                min = Math.min(min, time);
+                max = Math.max(max, time);
+            }
+        }
+        this.minCreatedAt = min;
+        this.maxCreatedAt = max;
+        this.hidden = new AtomicLongArray((ids.length + 63) >>> 6);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // leaves the device out of every count from now on; a no-op for devices the snapshot doesn't have
+    public void hide(long id) {
+        int row = Arrays.binarySearch(ids, id);
+        if (row >= 0) {
+            hidden.getAndUpdate(row >>> 6, bits -> bits | 1L << row);
+        }
+    }
+
+    // Counts of the visible rows plus the extra ones (devices changed since the snapshot) by the query's dimensions.
+    // now is what AGE is measured from. Ranges run on the executor, up to parallelism of them.
+    public Counts aggregate(DeviceAnalyticsQuery query, Collection<Row> extra, LocalDateTime now, Executor executor,
+                            int parallelism) {
+        Plan plan = new Plan(query, extra, now);
+        int ranges = Math.max(1, Math.min(parallelism, ids.length / MIN_RANGE));
+        long[] counts;
+        if (ranges == 1) {
+            counts = plan.count(0, ids.length);
+        } else {
+            List<CompletableFuture<long[]>> parts = new ArrayList<>(ranges);
+            for (int i = 0; i < ranges; i++) {
+                int from = (int) ((long) ids.length * i / ranges);
+                int to = (int) ((long) ids.length * (i + 1) / ranges);
+                parts.add(CompletableFuture.supplyAsync(() -> plan.count(from, to), executor));
+            }
+            counts = parts.get(0).join();
+            for (int i = 1; i < ranges; i++) {
+                long[] part = parts.get(i).join();
+                for (int key = 0; key < counts.length; key++) {
+                    counts[key] += part[key];
+                }
+            }
+        }
+        for (Row row : extra) {
+            int key = plan.key(row);
+            if (key >= 0) {
+                counts[key]++;
+            }
+        }
+        return plan.groups(counts);
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_TIME;
+    }
+
+    private static LocalDateTime localDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    // a device as the snapshot sees it
+    public record Row(String name, String brand, DeviceState state, LocalDateTime creationTime) {
+    }
+
+    public record Counts(List<DeviceAnalytics.Group> groups, long total) {
+    }
+
+    // One query against these columns: the filters and the group-by dimensions with their codes worked out, for the
+    // snapshot's rows and for the extra ones.
+    private final class Plan {
+
+        private final boolean[] brandAllowed;
+        private final boolean[] stateAllowed;
+        private final Set<String> brandFilter;
+        private final long createdFrom;
+        private final long createdTo;
+        private final String namePrefix;
+        private final int nameFrom;
+        private final int nameTo;
+        private final Dimension[] dimensions;
+        private final int[] strides;
+        private final int groups;
+
+        private Plan(DeviceAnalyticsQuery query, Collection<Row> extra, LocalDateTime now) {
+            List<AnalyticsDimension> groupBy = query.getGroupBy();
+            if (groupBy == null || groupBy.isEmpty()) {
+                throw new InvalidAnalyticsQueryException("groupBy needs at least one of " + Arrays.toString(AnalyticsDimension.values()));
+            }
+            if (groupBy.size() != groupBy.stream().distinct().count()) {
+                throw new InvalidAnalyticsQueryException("groupBy lists a dimension twice: " + groupBy);
+            }
+            brandFilter = query.getBrand() != null && !query.getBrand().isEmpty() ? new HashSet<>(query.getBrand()) : null;
+            brandAllowed = new boolean[brands.length];
+            for (int code = 0; code < brands.length; code++) {
+                brandAllowed[code] = brandFilter == null || brandFilter.contains(brands[code]);
+            }
+            stateAllowed = new boolean[STATES.length];
+            for (DeviceState state : STATES) {
+                stateAllowed[state.ordinal()] = query.getState() == null || query.getState().isEmpty() || query.getState().contains(state);
+            }
+            createdFrom = query.getCreatedFrom() != null ? epochMillis(query.getCreatedFrom()) : NO_TIME;
+            createdTo = query.getCreatedTo() != null ? epochMillis(query.getCreatedTo()) : NO_TIME;
+            namePrefix = query.getNamePrefix() != null && !query.getNamePrefix().isEmpty() ? query.getNamePrefix() : null;
+            if (namePrefix != null) {
+                // names are sorted, the ones starting with the prefix are a range of codes
+                int from = Arrays.binarySearch(names, namePrefix);
+                nameFrom = from >= 0 ? from : -from - 1;
+                int to = nameFrom;
+                while (to < names.length && names[to].startsWith(namePrefix)) {
+                    to++;
+                }
+                nameTo = to;
+            } else {
+                nameFrom = 0;
+                nameTo = names.length;
+            }
+
+            AnalyticsInterval interval = query.getInterval() != null ? query.getInterval() : AnalyticsInterval.MONTH;
+            long minTime = minCreatedAt;
+            long maxTime = maxCreatedAt;
+            for (Row row : extra) {
+                long time = epochMillis(row.creationTime());
+                if (time != NO_TIME) {
+                    minTime = Math.min(minTime, time);
+                    maxTime = Math.max(maxTime, time);
+                }
+            }
+            dimensions = new Dimension[groupBy.size()];
+            for (int i = 0; i < dimensions.length; i++) {
+                dimensions[i] = switch (groupBy.get(i)) {
+                    case BRAND -> BrandDimension.of(brands, brandCodes, extra);
+                    case STATE -> new StateDimension(states);
+                    case CREATED -> CreatedDimension.of(createdAt, interval, minTime, maxTime);
+                    case AGE -> AgeDimension.of(createdAt, interval, epochMillis(now), minTime);
+                };
+            }
+            // the first dimension varies slowest, so the counts come out ordered by the keys in groupBy order
+            strides = new int[dimensions.length];
+            long product = 1;
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                strides[i] = (int) product;
+                product *= dimensions[i].cardinality;
+                if (product > MAX_GROUPS) {
+                    throw new InvalidAnalyticsQueryException("Grouping by " + groupBy + " makes more than " + MAX_GROUPS
+                            + " groups, use a coarser interval or fewer dimensions");
+                }
+            }
+            groups = (int) product;
+        }
+
+        private long[] count(int from, int to) {
+            long[] counts = new long[groups];
+            int[] selection = new int[BLOCK];
+            int[] keys = new int[BLOCK];
+            for (int start = from; start < to; start += BLOCK) {
+                int size = select(start, Math.min(start + BLOCK, to), selection);
+                if (size == 0) {
+                    continue;
+                }
+                Arrays.fill(keys, 0, size, 0);
+                for (int i = 0; i < dimensions.length; i++) {
+                    dimensions[i].addCodes(selection, size, keys, strides[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    counts[keys[i]]++;
+                }
+            }
+            return counts;
+        }
+
+        // the rows of [from, to) that are visible and pass every filter, one column at a time
+        private int select(int from, int to, int[] selection) {
+            int size = 0;
+            for (int row = from; row < to; row++) {
+                if ((hidden.get(row >>> 6) & 1L << row) == 0) {
+                    selection[size++] = row;
+                }
+            }
+            if (brandFilter != null) {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    int code = brandCodes[selection[i]];
+                    if (code != NONE && brandAllowed[code]) {
+                        selection[kept++] = selection[i];
+                    }
+                }
+                size = kept;
+            }
+            if (stateFiltered()) {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    int state = states[selection[i]];
+                    if (state != NONE && stateAllowed[state]) {
+                        selection[kept++] = selection[i];
+                    }
+                }
+                size = kept;
+            }
+            if (createdFrom != NO_TIME || createdTo != NO_TIME) {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (inCreatedRange(createdAt[selection[i]])) {
+                        selection[kept++] = selection[i];
+                    }
+                }
+                size = kept;
+            }
+            if (namePrefix != null) {
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    int code = nameCodes[selection[i]];
+                    if (code >= nameFrom && code < nameTo) {
+                        selection[kept++] = selection[i];
+                    }
+                }
+                size = kept;
+            }
+            return size;
+        }
+
+        // the extra row's key into the counts, -1 if it's filtered out
+        private int key(Row row) {
+            if (brandFilter != null && (row.brand() == null || !brandFilter.contains(row.brand()))) {
+                return -1;
+            }
+            if (stateFiltered() && (row.state() == null || !stateAllowed[row.state().ordinal()])) {
+                return -1;
+            }
+            if ((createdFrom != NO_TIME || createdTo != NO_TIME) && !inCreatedRange(epochMillis(row.creationTime()))) {
+                return -1;
+            }
+            if (namePrefix != null && (row.name() == null || !row.name().startsWith(namePrefix))) {
+                return -1;
+            }
+            int key = 0;
+            for (int i = 0; i < dimensions.length; i++) {
+                key += dimensions[i].code(row) * strides[i];
+            }
+            return key;
+        }
+
+        private boolean stateFiltered() {
+            for (boolean allowed : stateAllowed) {
+                if (!allowed) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean inCreatedRange(long time) {
+            return time != NO_TIME && (createdFrom == NO_TIME || time >= createdFrom) && (createdTo == NO_TIME || time < createdTo);
+        }
+
+        private Counts groups(long[] counts) {
+            List<DeviceAnalytics.Group> result = new ArrayList<>();
+            long total = 0;
+            for (int key = 0; key < counts.length; key++) {
+                if (counts[key] == 0) {
+                    continue;
+                }
+                Map<String, Object> labels = new LinkedHashMap<>();
+                for (int i = 0; i < dimensions.length; i++) {
+                    labels.put(dimensions[i].name, dimensions[i].label(key / strides[i] % dimensions[i].cardinality));
+                }
+                result.add(new DeviceAnalytics.Group(labels, counts[key]));
+                total += counts[key];
+            }
+            return new Counts(result, total);
+        }
+    }
+
+    // Codes 0 to cardinality - 1, the last one for rows without a value.
+    private abstract static class Dimension {
+
+        final String name;
+        final int cardinality;
+
+        Dimension(AnalyticsDimension dimension, int cardinality) {
+            this.name = dimension.name().toLowerCase(Locale.ROOT);
+            this.cardinality = cardinality;
+        }
+
+        // keys[i] += code of row selection[i] * stride
+        abstract void addCodes(int[] selection, int size, int[] keys, int stride);
+
+        abstract int code(Row row);
+
+        abstract Object label(int code);
+    }
+
+    // the snapshot's brands and the ones only the extra rows have, sorted together
+    private static final class BrandDimension extends Dimension {
+
+        private final String[] labels;
+        private final int[] brandCodes;
+        // snapshot code to code in labels
+        private final int[] codes;
+
+        BrandDimension(String[] brands, int[] brandCodes, String[] labels) {
+            super(AnalyticsDimension.BRAND, labels.length + 1);
+            this.labels = labels;
+            this.brandCodes = brandCodes;
+            this.codes = new int[brands.length];
+            for (int code = 0; code < brands.length; code++) {
+                codes[code] = Arrays.binarySearch(labels, brands[code]);
+            }
+        }
+
+        static BrandDimension of(String[] brands, int[] brandCodes, Collection<Row> extra) {
+            TreeSet<String> labels = new TreeSet<>(Arrays.asList(brands));
+            for (Row row : extra) {
+                if (row.brand() != null) {
+                    labels.add(row.brand());
+                }
+            }
+            return new BrandDimension(brands, brandCodes, labels.toArray(String[]::new));
+        }
+
+        @Override
+        void addCodes(int[] selection, int size, int[] keys, int stride) {
+            int missing = labels.length * stride;
+            for (int i = 0; i < size; i++) {
+                int code = brandCodes[selection[i]];
+                keys[i] += code == NONE ? missing : codes[code] * stride;
+            }
+        }
+
+        @Override
+        int code(Row row) {
+            return row.brand() == null ? labels.length : Arrays.binarySearch(labels, row.brand());
+        }
+
+        @Override
+        Object label(int code) {
+            return code < labels.length ? labels[code] : null;
+        }
+    }
+
+    private static final class StateDimension extends Dimension {
+
+        private final byte[] states;
+
+        StateDimension(byte[] states) {
+            super(AnalyticsDimension.STATE, STATES.length + 1);
+            this.states = states;
+        }
+
+        @Override
+        void addCodes(int[] selection, int size, int[] keys, int stride) {
+            for (int i = 0; i < size; i++) {
+                int state = states[selection[i]];
+                keys[i] += (state == NONE ? STATES.length : state) * stride;
+            }
+        }
+
+        @Override
+        int code(Row row) {
+            return row.state() == null ? STATES.length : row.state().ordinal();
+        }
+
+        @Override
+        Object label(int code) {
+            return code < STATES.length ? STATES[code] : null;
+        }
+    }
+
+    // Calendar buckets from the one of the oldest device to the one of the newest. Days and weeks have a fixed
+    // length, so the bucket is a division; months and years are looked up among their start times.
+    private static final class CreatedDimension extends Dimension {
+
+        private final long[] createdAt;
+        private final int buckets;
+        private final long origin;
+        private final long width;
+        private final long[] starts;
+        // the month or year of each day from origin on, when there aren't too many days
+        private final int[] dayBuckets;
+
+        private CreatedDimension(long[] createdAt, int buckets, long origin, long width, long[] starts) {
+            super(AnalyticsDimension.CREATED, buckets + 1);
+            this.createdAt = createdAt;
+            this.buckets = buckets;
+            this.origin = origin;
+            this.width = width;
+            this.starts = starts;
+            this.dayBuckets = starts != null ? dayBuckets(starts) : null;
+        }
+
+        private static int[] dayBuckets(long[] starts) {
+            long days = (starts[starts.length - 1] - starts[0]) / DAY + 366;
+            if (days > MAX_DAYS) {
+                return null;
+            }
+            int[] dayBuckets = new int[(int) days];
+            for (int day = 0, bucket = 0; day < dayBuckets.length; day++) {
+                while (bucket + 1 < starts.length && starts[bucket + 1] <= starts[0] + day * DAY) {
+                    bucket++;
+                }
+                dayBuckets[day] = bucket;
+            }
+            return dayBuckets;
+        }
+
+        static CreatedDimension of(long[] createdAt, AnalyticsInterval interval, long min, long max) {
+            if (min > max) {
+                return new CreatedDimension(createdAt, 0, 0, 0, null);
+            }
+            LocalDateTime first = localDateTime(min).truncatedTo(ChronoUnit.DAYS);
+            LocalDateTime last = localDateTime(max);
+            ChronoUnit unit = switch (interval) {
+                case DAY -> ChronoUnit.DAYS;
+                case WEEK -> ChronoUnit.WEEKS;
+                case MONTH -> ChronoUnit.MONTHS;
+                case YEAR -> ChronoUnit.YEARS;
+            };
+            first = switch (interval) {
+                case DAY -> first;
+                case WEEK -> first.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> first.withDayOfMonth(1);
+                case YEAR -> first.withDayOfYear(1);
+            };
+            long buckets = unit.between(first, last) + 1;
+            if (buckets > MAX_GROUPS) {
+                throw new InvalidAnalyticsQueryException("Creation times span more than " + MAX_GROUPS + " " + unit
+                        + ", use a coarser interval");
+            }
+            if (interval == AnalyticsInterval.DAY || interval == AnalyticsInterval.WEEK) {
+                return new CreatedDimension(createdAt, (int) buckets, epochMillis(first), unit.getDuration().toMillis(), null);
+            }
+            long[] starts = new long[(int) buckets];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = epochMillis(first.plus(i, unit));
+            }
+            return new CreatedDimension(createdAt, (int) buckets, starts[0], 0, starts);
+        }
+
+        private int code(long time) {
+            if (time == NO_TIME) {
+                return buckets;
+            }
+            if (starts == null) {
+                return (int) Math.floorDiv(time - origin, width);
+            }
+            if (dayBuckets != null) {
+                return dayBuckets[(int) ((time - origin) / DAY)];
+            }
+            int found = Arrays.binarySearch(starts, time);
+            return found >= 0 ? found : -found - 2;
+        }
+
+        @Override
+        void addCodes(int[] selection, int size, int[] keys, int stride) {
+            for (int i = 0; i < size; i++) {
+                keys[i] += code(createdAt[selection[i]]) * stride;
+            }
+        }
+
+        @Override
+        int code(Row row) {
+            return code(epochMillis(row.creationTime()));
+        }
+
+        @Override
+        Object label(int code) {
+            if (code == buckets) {
+                return null;
+            }
+            return localDateTime(starts == null ? origin + code * width : starts[code]);
+        }
+    }
+
+    // whole intervals between creation and now, from 0 to the age of the oldest device; created in the future is 0
+    private static final class AgeDimension extends Dimension {
+
+        private final long[] createdAt;
+        private final int buckets;
+        private final long now;
+        private final long width;
+
+        private AgeDimension(long[] createdAt, int buckets, long now, long width) {
+            super(AnalyticsDimension.AGE, buckets + 1);
+            this.createdAt = createdAt;
+            this.buckets = buckets;
+            this.now = now;
+            this.width = width;
+        }
+
+        static AgeDimension of(long[] createdAt, AnalyticsInterval interval, long now, long min) {
+            long width = switch (interval) {
+                case DAY -> Duration.ofDays(1).toMillis();
+                case WEEK -> Duration.ofDays(7).toMillis();
+                case MONTH -> Duration.ofDays(30).toMillis();
+                case YEAR -> Duration.ofDays(365).toMillis();
+            };
+            long buckets = min == Long.MAX_VALUE ? 0 : Math.max(0, Math.floorDiv(now - min, width)) + 1;
+            if (buckets > MAX_GROUPS) {
+                throw new InvalidAnalyticsQueryException("Ages span more than " + MAX_GROUPS + " intervals, use a coarser interval");
+            }
+            return new AgeDimension(createdAt, (int) buckets, now, width);
+        }
+
+        private int code(long time) {
+            if (time == NO_TIME) {
+                return buckets;
+            }
+            return (int) Math.min(buckets - 1, Math.max(0, Math.floorDiv(now - time, width)));
+        }
+
+        @Override
+        void addCodes(int[] selection, int size, int[] keys, int stride) {
+            for (int i = 0; i < size; i++) {
+                keys[i] += code(createdAt[selection[i]]) * stride;
+            }
+        }
+
+        @Override
+        int code(Row row) {
+            return code(epochMillis(row.creationTime()));
+        }
+
+        @Override
+        Object label(int code) {
+            return code < buckets ? code : null;
+        }
+    }
+
+    // Rows can come in any order, they're sorted by id when the columns are built.
+    public static final class Builder {
+
+        private final Map<String, Integer> brandIds = new HashMap<>();
+        private final List<String> brandList = new ArrayList<>();
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final List<String> nameList = new ArrayList<>();
+        private long[] ids = new long[1024];
+        private int[] brandCodes = new int[1024];
+        private int[] nameCodes = new int[1024];
+        private byte[] states = new byte[1024];
+        private long[] createdAt = new long[1024];
+        private int rows;
+
+        public Builder add(long id, Row row) {
+            if (rows == ids.length) {
+                int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                brandCodes = Arrays.copyOf(brandCodes, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+                states = Arrays.copyOf(states, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+            }
+            ids[rows] = id;
+            brandCodes[rows] = code(row.brand(), brandIds, brandList);
+            nameCodes[rows] = code(row.name(), nameIds, nameList);
+            states[rows] = (byte) (row.state() != null ? row.state().ordinal() : NONE);
+            createdAt[rows] = epochMillis(row.creationTime());
+            rows++;
+            return this;
+        }
+
+        public DeviceColumns build() {
+            String[] brands = brandList.toArray(String[]::new);
+            String[] names = nameList.toArray(String[]::new);
+            int[] brandRank = sortedRanks(brands);
+            int[] nameRank = sortedRanks(names);
+            // rows in id order
+            Integer[] order = new Integer[rows];
+            for (int i = 0; i < rows; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+            long[] sortedIds = new long[rows];
+            int[] sortedBrandCodes = new int[rows];
+            int[] sortedNameCodes = new int[rows];
+            byte[] sortedStates = new byte[rows];
+            long[] sortedCreatedAt = new long[rows];
+            for (int row = 0; row < rows; row++) {
+                int from = order[row];
+                if (row > 0 && ids[from] == sortedIds[row - 1]) {
+                    throw new IllegalArgumentException("Device " + ids[from] + " was added twice");
+                }
+                sortedIds[row] = ids[from];
+                sortedBrandCodes[row] = brandCodes[from] == NONE ? NONE : brandRank[brandCodes[from]];
+                sortedNameCodes[row] = nameCodes[from] == NONE ? NONE : nameRank[nameCodes[from]];
+                sortedStates[row] = states[from];
+                sortedCreatedAt[row] = createdAt[from];
+            }
+            Arrays.sort(brands);
+            Arrays.sort(names);
+            return new DeviceColumns(sortedIds, brands, sortedBrandCodes, names, sortedNameCodes, sortedStates, sortedCreatedAt);
+        }
+
+        private static int code(String value, Map<String, Integer> codes, List<String> values) {
+            if (value == null) {
+                return NONE;
+            }
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        // the position of each value once they're sorted
+        private static int[] sortedRanks(String[] values) {
+            Integer[] order = new Integer[values.length];
+            for (int i = 0; i < values.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> values[a].compareTo(values[b]));
+            int[] ranks = new int[values.length];
+            for (int rank = 0; rank < order.length; rank++) {
+                ranks[order[rank]] = rank;
+            }
+            return ranks;
+        }
+    }
+}
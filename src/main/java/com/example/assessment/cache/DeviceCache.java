@@ -0,0 +1,174 @@
+package com.example.assessment.cache;
+
+import com.example.assessment.datasource.ReadRouting;
+import com.example.assessment.model.DeviceDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// In-process read-through cache of devices by id (size-bounded, expire after write), on the heap in Caffeine
+// (W-TinyLFU eviction) or in direct memory in an OffHeapDeviceStore (CLOCK eviction).
+// Writes are applied after the surrounding transaction commits, and a cached copy is only ever replaced by one
+// with the same or a newer @Version, so a slow writer can't overwrite a fresher entry.
+@Component
+public class DeviceCache {
+
+    public enum Store {
+        HEAP,
+        OFF_HEAP
+    }
+
+    private final boolean enabled;
+    // one of the two, by store
+    private final Cache<Long, DeviceDTO> cache;
+    private final OffHeapDeviceStore offHeap;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public DeviceCache(@Value("${device.cache.enabled:true}") boolean enabled,
+                       @Value("${device.cache.maximum-size:100000}") long maximumSize,
+                       @Value("${device.cache.ttl:5m}") Duration ttl,
+                       @Value("${device.cache.store:heap}") Store store,
+                       MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        if (store == Store.OFF_HEAP) {
+            this.cache = null;
+            this.offHeap = new OffHeapDeviceStore(Math.toIntExact(maximumSize), ttl);
+            monitor(meterRegistry, offHeap);
+        } else {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .build();
+            this.offHeap = null;
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "devices");
+        }
+    }
+
+    // The loader runs outside the cache's locks: it waits for a pool connection, while committing transactions
+    // update the cache with their connection still held, so loading under the entry lock can starve the pool.
+    // A loaded copy is only stored if no eviction happened since the load started. It's loaded from the primary:
+    // every reader gets it until it expires, so it can't come from a replica that hasn't seen a delete yet.
+    public DeviceDTO get(Long id, Function<Long, DeviceDTO> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        DeviceDTO cached = offHeap != null ? offHeap.get(id) : cache.getIfPresent(id);
+        if (cached != null) {
+            // the off-heap store hands out a new one every time
+            return offHeap != null ? cached : copy(cached);
+        }
+        long generation = evictions.get();
+        DeviceDTO loaded;
+        try (ReadRouting.Pin ignored = ReadRouting.pinToPrimary()) {
+            loaded = loader.apply(id);
+        }
+        if (offHeap != null) {
+            offHeap.put(loaded, () -> evictions.get() == generation);
+            return loaded;
+        }
+        DeviceDTO snapshot = copy(loaded);
+        cache.asMap().compute(id, (key, current) -> {
+            if (evictions.get() != generation) {
+                return current;
+            }
+            return current == null ? snapshot : newer(current, snapshot);
+        });
+        return loaded;
+    }
+
+    // null when the device isn't cached
+    public Long versionIfPresent(Long id) {
+        if (!enabled) {
+            return null;
+        }
+        if (offHeap != null) {
+            return offHeap.version(id);
+        }
+        DeviceDTO cached = cache.getIfPresent(id);
+        return cached == null ? null : cached.getVersion();
+    }
+
+    public void put(DeviceDTO device) {
+        if (!enabled || device.getId() == null) {
+            return;
+        }
+        DeviceDTO snapshot = copy(device);
+        if (offHeap != null) {
+            afterCommit(() -> offHeap.put(snapshot, () -> true));
+            return;
+        }
+        afterCommit(() -> cache.asMap().merge(snapshot.getId(), snapshot, DeviceCache::newer));
+    }
+
+    public void evict(Long id) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            // bumped before invalidating, so a load that read the row before this commit no longer stores it
+            evictions.incrementAndGet();
+            if (offHeap != null) {
+                offHeap.remove(id);
+            } else {
+                cache.invalidate(id);
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // the same meters CaffeineCacheMetrics publishes for the heap store, plus the direct memory taken
+    private static void monitor(MeterRegistry meterRegistry, OffHeapDeviceStore store) {
+        Tags tags = Tags.of("cache", "devices");
+        Gauge.builder("cache.size", store, OffHeapDeviceStore::size).tags(tags).register(meterRegistry);
+        FunctionCounter.builder("cache.gets", store, OffHeapDeviceStore::hits).tags(tags).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("cache.gets", store, OffHeapDeviceStore::misses).tags(tags).tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("cache.puts", store, OffHeapDeviceStore::puts).tags(tags).register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", store, OffHeapDeviceStore::evictions).tags(tags).register(meterRegistry);
+        Gauge.builder("cache.off.heap.memory", store, OffHeapDeviceStore::offHeapBytes).tags(tags).baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static DeviceDTO newer(DeviceDTO cached, DeviceDTO candidate) {
+        if (cached.getVersion() == null || candidate.getVersion() == null) {
+            return candidate;
+        }
+        return candidate.getVersion() >= cached.getVersion() ? candidate : cached;
+    }
+
+    // callers get their own instance, the DTO is mutable
+    private static DeviceDTO copy(DeviceDTO source) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(source.getId());
+        dto.setName(source.getName());
+        dto.setBrand(source.getBrand());
+        dto.setState(source.getState());
+        dto.setCreationTime(source.getCreationTime());
+        dto.setVersion(source.getVersion());
+        return dto;
+    }
+}
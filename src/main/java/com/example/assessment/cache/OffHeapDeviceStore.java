@@ -0,0 +1,396 @@
+package com.example.assessment.cache;
+
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+// Devices by id in direct memory, for DeviceCache with device.cache.store=off-heap: the heap holds a few buffers and
+// the distinct brands instead of a DTO, a boxed id, two strings and a LocalDateTime per device, so a large cache
+// costs the collector next to nothing to trace.
+//
+// Three buffers: fixed-size records (id, version, creation time as epoch seconds and nanos, write time, the brand as
+// an id into the interned brands, the state ordinal and where the name is), a slab of UTF-8 names the records point
+// into, and an open-addressing table from id to record with linear probing. A name that doesn't fit where the old one
+// was is appended; the slab is compacted (or grown) once it's full. At maximumSize devices the CLOCK hand evicts the
+// first device not read since it last passed, or an expired one.
+//
+// Reads share a lock, writes hold it exclusively.
+public final class OffHeapDeviceStore {
+
+    private static final int ID = 0;
+    private static final int VERSION = 8;
+    private static final int CREATED_SECONDS = 16;
+    private static final int WRITTEN = 24;
+    private static final int CREATED_NANOS = 32;
+    private static final int NAME_OFFSET = 36;
+    private static final int NAME_LENGTH = 40;
+    private static final int BRAND = 44;
+    private static final int STATE = 48;
+    private static final int FLAGS = 49;
+    private static final int RECORD = 56;
+
+    private static final int SLOT = 12;
+    // the name slab starts at this much a device, up to 64 MB, and grows as needed
+    private static final int INITIAL_NAME_BYTES = 16;
+    private static final int MAX_INITIAL_NAMES = 1 << 26;
+
+    private static final byte LIVE = 1;
+    private static final byte REFERENCED = 2;
+    private static final int NONE = -1;
+    private static final long NO_VERSION = Long.MIN_VALUE;
+    private static final DeviceState[] STATES = DeviceState.values();
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+    private final StampedLock lock = new StampedLock();
+
+    private final ByteBuffer records;
+    // slot: id, then record + 1 (0 for an empty slot)
+    private final ByteBuffer table;
+    private final int mask;
+    private ByteBuffer names;
+    private int namesUsed;
+    // bytes of names that no record points to any more
+    private int namesGarbage;
+
+    private final Map<String, Integer> brandIds = new HashMap<>();
+    private final List<String> brands = new ArrayList<>();
+
+    private final int[] freeRecords;
+    private int freeCount;
+    // records below this have been used at least once
+    private int highWater;
+    private int size;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OffHeapDeviceStore(int maximumSize, Duration ttl) {
+        this(maximumSize, ttl, System::nanoTime);
+    }
+
+    OffHeapDeviceStore(int maximumSize, Duration ttl, LongSupplier ticker) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        this.records = ByteBuffer.allocateDirect(Math.multiplyExact(maximumSize, RECORD));
+        // at most half full
+        int slots = Integer.highestOneBit(Math.max(2, maximumSize) * 2 - 1) << 1;
+        this.table = ByteBuffer.allocateDirect(Math.multiplyExact(slots, SLOT));
+        this.mask = slots - 1;
+        this.names = ByteBuffer.allocateDirect((int) Math.min(MAX_INITIAL_NAMES, (long) maximumSize * INITIAL_NAME_BYTES));
+        this.freeRecords = new int[maximumSize];
+    }
+
+    // a new DTO, null if the device isn't there or has expired
+    public DeviceDTO get(long id) {
+        long stamp = lock.readLock();
+        try {
+            int record = find(id);
+            if (record == NONE || expired(record)) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            // readers may race on this, they all set the same bit
+            int base = record * RECORD;
+            records.put(base + FLAGS, (byte) (records.get(base + FLAGS) | REFERENCED));
+            return read(record);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // null if the device isn't there, has expired or has no version
+    public Long version(long id) {
+        long stamp = lock.readLock();
+        try {
+            int record = find(id);
+            if (record == NONE || expired(record)) {
+                return null;
+            }
+            long version = records.getLong(record * RECORD + VERSION);
+            return version == NO_VERSION ? null : version;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Stores the device unless condition says otherwise or the stored copy has a newer version; both are checked
+    // under the write lock. True if it was stored.
+    public boolean put(DeviceDTO device, BooleanSupplier condition) {
+        long id = device.getId();
+        byte[] name = device.getName() != null ? device.getName().getBytes(StandardCharsets.UTF_8) : null;
+        long stamp = lock.writeLock();
+        try {
+            if (!condition.getAsBoolean()) {
+                return false;
+            }
+            int record = find(id);
+            if (record != NONE && !expired(record)) {
+                long stored = records.getLong(record * RECORD + VERSION);
+                if (stored != NO_VERSION && device.getVersion() != null && device.getVersion() < stored) {
+                    return false;
+                }
+            }
+            if (record == NONE) {
+                record = allocate();
+                insert(id, record);
+            }
+            write(record, device, name);
+            puts.increment();
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int record = find(id);
+            if (record != NONE) {
+                release(record);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // expired devices count until they're written again, removed or evicted
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // direct memory held by the buffers
+    public long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) records.capacity() + table.capacity() + names.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long puts() {
+        return puts.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    private boolean expired(int record) {
+        return ticker.getAsLong() - records.getLong(record * RECORD + WRITTEN) >= ttlNanos;
+    }
+
+    private DeviceDTO read(int record) {
+        int base = record * RECORD;
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(records.getLong(base + ID));
+        long version = records.getLong(base + VERSION);
+        dto.setVersion(version == NO_VERSION ? null : version);
+        int nanos = records.getInt(base + CREATED_NANOS);
+        if (nanos != NONE) {
+            dto.setCreationTime(LocalDateTime.ofEpochSecond(records.getLong(base + CREATED_SECONDS), nanos, ZoneOffset.UTC));
+        }
+        int nameLength = records.getInt(base + NAME_LENGTH);
+        if (nameLength != NONE) {
+            byte[] name = new byte[nameLength];
+            names.get(records.getInt(base + NAME_OFFSET), name);
+            dto.setName(new String(name, StandardCharsets.UTF_8));
+        }
+        int brand = records.getInt(base + BRAND);
+        dto.setBrand(brand == NONE ? null : brands.get(brand));
+        int state = records.get(base + STATE);
+        dto.setState(state == NONE ? null : STATES[state]);
+        return dto;
+    }
+
+    private void write(int record, DeviceDTO device, byte[] name) {
+        int base = record * RECORD;
+        records.putLong(base + ID, device.getId());
+        records.putLong(base + VERSION, device.getVersion() != null ? device.getVersion() : NO_VERSION);
+        LocalDateTime creationTime = device.getCreationTime();
+        records.putLong(base + CREATED_SECONDS, creationTime != null ? creationTime.toEpochSecond(ZoneOffset.UTC) : 0);
+        records.putInt(base + CREATED_NANOS, creationTime != null ? creationTime.getNano() : NONE);
+        records.putLong(base + WRITTEN, ticker.getAsLong());
+        writeName(base, name);
+        records.putInt(base + BRAND, device.getBrand() != null ? brandId(device.getBrand()) : NONE);
+        records.put(base + STATE, (byte) (device.getState() != null ? device.getState().ordinal() : NONE));
+        records.put(base + FLAGS, LIVE);
+    }
+
+    // in place if it fits where the current name is, appended otherwise
+    private void writeName(int base, byte[] name) {
+        int oldLength = records.getInt(base + NAME_LENGTH);
+        if (name == null) {
+            namesGarbage += Math.max(0, oldLength);
+            records.putInt(base + NAME_LENGTH, NONE);
+            return;
+        }
+        if (oldLength != NONE && name.length <= oldLength) {
+            names.put(records.getInt(base + NAME_OFFSET), name);
+            namesGarbage += oldLength - name.length;
+            records.putInt(base + NAME_LENGTH, name.length);
+            return;
+        }
+        // what compacting drops doesn't include this record's old name, it's still pointed to
+        if (namesUsed + name.length > names.capacity()) {
+            compactNames(name.length);
+        }
+        names.put(namesUsed, name);
+        namesGarbage += Math.max(0, oldLength);
+        records.putInt(base + NAME_OFFSET, namesUsed);
+        records.putInt(base + NAME_LENGTH, name.length);
+        namesUsed += name.length;
+    }
+
+    // copies the live names to the start of a new slab, twice the size if that leaves less than half of it free
+    private void compactNames(int needed) {
+        long live = namesUsed - namesGarbage;
+        long capacity = names.capacity();
+        while (live + needed > capacity / 2) {
+            capacity *= 2;
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.toIntExact(capacity));
+        int used = 0;
+        for (int record = 0; record < highWater; record++) {
+            int base = record * RECORD;
+            int length = records.getInt(base + NAME_LENGTH);
+            if ((records.get(base + FLAGS) & LIVE) != 0 && length != NONE) {
+                compacted.put(used, names, records.getInt(base + NAME_OFFSET), length);
+                records.putInt(base + NAME_OFFSET, used);
+                used += length;
+            }
+        }
+        names = compacted;
+        namesUsed = used;
+        namesGarbage = 0;
+    }
+
+    private int brandId(String brand) {
+        return brandIds.computeIfAbsent(brand, b -> {
+            brands.add(b);
+            return brands.size() - 1;
+        });
+    }
+
+    // a free record, evicting one when the store is full
+    private int allocate() {
+        if (size == maximumSize) {
+            evict();
+        }
+        size++;
+        if (freeCount > 0) {
+            return freeRecords[--freeCount];
+        }
+        records.putInt(highWater * RECORD + NAME_LENGTH, NONE);
+        return highWater++;
+    }
+
+    private void evict() {
+        while (true) {
+            int base = hand * RECORD;
+            byte flags = records.get(base + FLAGS);
+            if ((flags & REFERENCED) != 0 && !expired(hand)) {
+                records.put(base + FLAGS, (byte) (flags & ~REFERENCED));
+            } else if ((flags & LIVE) != 0) {
+                release(hand);
+                evictions.increment();
+                hand = (hand + 1) % maximumSize;
+                return;
+            }
+            hand = (hand + 1) % maximumSize;
+        }
+    }
+
+    private void release(int record) {
+        int base = record * RECORD;
+        delete(records.getLong(base + ID));
+        namesGarbage += Math.max(0, records.getInt(base + NAME_LENGTH));
+        records.putInt(base + NAME_LENGTH, NONE);
+        records.put(base + FLAGS, (byte) 0);
+        freeRecords[freeCount++] = record;
+        size--;
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    private int find(long id) {
+        for (int slot = hash(id) & mask; ; slot = slot + 1 & mask) {
+            int value = table.getInt(slot * SLOT + 8);
+            if (value == 0) {
+                return NONE;
+            }
+            if (table.getLong(slot * SLOT) == id) {
+                return value - 1;
+            }
+        }
+    }
+
+    private void insert(long id, int record) {
+        int slot = hash(id) & mask;
+        while (table.getInt(slot * SLOT + 8) != 0) {
+            slot = slot + 1 & mask;
+        }
+        table.putLong(slot * SLOT, id);
+        table.putInt(slot * SLOT + 8, record + 1);
+    }
+
+    // Linear probing without tombstones: the entries after the removed one move back into the hole if their probe
+    // sequence passes through it.
+    private void delete(long id) {
+        int slot = hash(id) & mask;
+        while (table.getLong(slot * SLOT) != id || table.getInt(slot * SLOT + 8) == 0) {
+            slot = slot + 1 & mask;
+        }
+        int hole = slot;
+        for (int next = hole + 1 & mask; table.getInt(next * SLOT + 8) != 0; next = next + 1 & mask) {
+            int home = hash(table.getLong(next * SLOT)) & mask;
+            // can next move to hole: is hole cyclically within [home, next)?
+            if ((next - home & mask) >= (next - hole & mask)) {
+                table.putLong(hole * SLOT, table.getLong(next * SLOT));
+                table.putInt(hole * SLOT + 8, table.getInt(next * SLOT + 8));
+                hole = next;
+            }
+        }
+        table.putInt(hole * SLOT + 8, 0);
+    }
+}
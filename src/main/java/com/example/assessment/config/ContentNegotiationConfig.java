@@ -0,0 +1,63 @@
+package com.example.assessment.config;
+
+import com.example.assessment.web.DeviceProtobufHttpMessageConverter;
+import com.example.assessment.web.ResponseCompressionFilter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Binary representations next to JSON: Accept: application/x-jackson-smile, application/cbor or
+// application/x-protobuf. Smile and CBOR carry the same properties as the JSON and get the same ObjectMapper
+// settings; protobuf follows proto/device.proto. They go after the JSON converter, so Accept: */* and clients that
+// send no Accept keep getting JSON. Responses above device.compression.min-response-size are compressed.
+@Configuration(proxyBeanMethods = false)
+public class ContentNegotiationConfig implements WebMvcConfigurer {
+
+    // the builder is a prototype, every getObject() starts from Boot's settings
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+    public ContentNegotiationConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+        this.objectMapperBuilders = objectMapperBuilders;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // the defaults Spring adds when the formats are on the classpath use a plain ObjectMapper
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new SmileFactory()).build()));
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new CBORFactory()).build()));
+        converters.add(new DeviceProtobufHttpMessageConverter());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "device.compression.enabled", matchIfMissing = true)
+    FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter(
+            @Value("${device.compression.min-response-size:2KB}") DataSize minResponseSize,
+            @Value("${device.compression.mime-types:application/json,application/x-ndjson,text/csv}") List<String> mimeTypes,
+            @Value("${device.compression.zstd-level:3}") int zstdLevel) {
+        FilterRegistrationBean<ResponseCompressionFilter> registration = new FilterRegistrationBean<>(
+                new ResponseCompressionFilter(Math.toIntExact(minResponseSize.toBytes()), mimeTypes, zstdLevel));
+        // outside everything that writes the body, inside the observation filter so compression counts towards the request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registration;
+    }
+}
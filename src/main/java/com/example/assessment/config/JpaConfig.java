@@ -0,0 +1,39 @@
+package com.example.assessment.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.sql.SQLException;
+
+// An update that changes a device's state moves its row to another partition (V4__partition_devices). A transaction
+// that was waiting to update, delete or lock that row then fails with a serialization failure (40001) instead of
+// finding it changed. That's a write lost against a concurrent one, so it's reported like the others: as an optimistic
+// lock failure (409, reload and retry) rather than a database error.
+@Configuration(proxyBeanMethods = false)
+public class JpaConfig {
+
+    static final String SERIALIZATION_FAILURE = "40001";
+
+    @Bean
+    static BeanPostProcessor serializationFailureTranslation() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HibernateJpaVendorAdapter adapter) {
+                    // exceptions this returns null for go through Hibernate's own translation
+                    adapter.getJpaDialect().setJdbcExceptionTranslator(JpaConfig::translate);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static OptimisticLockingFailureException translate(String task, String sql, SQLException ex) {
+        return SERIALIZATION_FAILURE.equals(ex.getSQLState())
+                ? new OptimisticLockingFailureException(task + ": " + ex.getMessage(), ex)
+                : null;
+    }
+}
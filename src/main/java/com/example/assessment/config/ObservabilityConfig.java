@@ -0,0 +1,91 @@
+package com.example.assessment.config;
+
+import com.example.assessment.datasource.QueryPlanCapture;
+import com.example.assessment.datasource.QueryStatistics;
+import com.example.assessment.datasource.SlowQueryLogger;
+import com.example.assessment.observation.DeviceServiceFailureMetrics;
+import com.example.assessment.observation.DeviceServiceObservationInterceptor;
+import com.example.assessment.observation.SlowQueriesEndpoint;
+import com.example.assessment.service.DeviceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+
+// Service-level observations. Every public DeviceService method is wrapped in a device.service observation; the
+// advisor is ordered just ahead of the transaction interceptor, so a call's timer and span include its commit and a
+// failure at commit is counted. HTTP requests, repository calls (spring.data.repository.invocations), the Hikari
+// pool and JDBC queries are instrumented by their auto-configurations. management.observations.enable.device.service
+// =false turns the service observations into no-ops.
+@Configuration(proxyBeanMethods = false)
+public class ObservabilityConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor deviceServiceObservationAdvisor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return method.getDeclaringClass() == DeviceService.class && Modifier.isPublic(method.getModifiers());
+            }
+        };
+        pointcut.setClassFilter(new RootClassFilter(DeviceService.class));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new DeviceServiceObservationInterceptor(observationRegistry));
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return advisor;
+    }
+
+    // The statement listeners below are picked up by the JDBC observation proxy. QueryStatistics times every
+    // statement per normalized query; SlowQueryLogger logs the ones over the threshold and hands slow SELECTs to
+    // QueryPlanCapture for their EXPLAIN (ANALYZE, BUFFERS). /actuator/slowqueries shows both.
+    @Bean
+    @ConditionalOnProperty(name = "device.sql.statistics.enabled", matchIfMissing = true)
+    QueryStatistics queryStatistics(@Value("${device.sql.slow-query.threshold:500ms}") Duration threshold,
+                                    @Value("${device.sql.statistics.max-queries:200}") int maxQueries) {
+        return new QueryStatistics(threshold, maxQueries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "device.sql.slow-query.explain.enabled", matchIfMissing = true)
+    QueryPlanCapture queryPlanCapture(ObjectProvider<DataSource> dataSource,
+                                      @Value("${device.sql.slow-query.explain.interval:5m}") Duration interval,
+                                      @Value("${device.sql.slow-query.explain.timeout:10s}") Duration timeout,
+                                      @Value("${device.sql.statistics.max-queries:200}") int maxQueries) {
+        return new QueryPlanCapture(dataSource, interval, timeout, maxQueries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "device.sql.slow-query.enabled", matchIfMissing = true)
+    SlowQueryLogger slowQueryLogger(@Value("${device.sql.slow-query.threshold:500ms}") Duration threshold,
+                                    ObjectProvider<QueryPlanCapture> planCapture) {
+        return new SlowQueryLogger(threshold, planCapture.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    @ConditionalOnProperty(name = "device.sql.statistics.enabled", matchIfMissing = true)
+    SlowQueriesEndpoint slowQueriesEndpoint(QueryStatistics statistics, ObjectProvider<QueryPlanCapture> planCapture) {
+        return new SlowQueriesEndpoint(statistics, planCapture.getIfAvailable());
+    }
+
+    @Bean
+    DeviceServiceFailureMetrics deviceServiceFailureMetrics(MeterRegistry meterRegistry) {
+        return new DeviceServiceFailureMetrics(meterRegistry);
+    }
+}
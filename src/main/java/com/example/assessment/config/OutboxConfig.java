@@ -0,0 +1,29 @@
+package com.example.assessment.config;
+
+import com.example.assessment.outbox.DeviceEventSink;
+import com.example.assessment.outbox.FileDeviceEventSink;
+import com.example.assessment.outbox.InMemoryDeviceEventSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+// The sink the outbox relay delivers to, picked with device.outbox.sink. Both built-in ones are local; connecting
+// another system means declaring a DeviceEventSink bean, which replaces this one.
+@Configuration(proxyBeanMethods = false)
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    DeviceEventSink deviceEventSink(@Value("${device.outbox.sink:memory}") String sink,
+                                    @Value("${device.outbox.file:device-events.ndjson}") Path file,
+                                    @Value("${device.outbox.memory-capacity:10000}") int memoryCapacity) {
+        return switch (sink) {
+            case "memory" -> new InMemoryDeviceEventSink(memoryCapacity);
+            case "file" -> new FileDeviceEventSink(file);
+            default -> throw new IllegalArgumentException("Unknown device.outbox.sink '" + sink + "', expected memory or file");
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.assessment.config;
+
+import com.example.assessment.datasource.ReplicaRoutingDataSource;
+import com.example.assessment.datasource.ReplicaRoutingTransactionManager;
+import com.example.assessment.web.ReadYourWritesFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Active with device.datasource.replica.urls set. Read-only transactions (the DeviceService reads, the export)
+// then run on the replicas, everything else on the primary configured with spring.datasource.*. The replicas get
+// their own Hikari pools, with the primary's credentials unless device.datasource.replica.username/password are
+// set, and a write request keeps its client on the primary for device.datasource.replica.read-your-writes-window.
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "device.datasource.replica.urls")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    static ReplicaRoutingPostProcessor replicaRoutingDataSourcePostProcessor(Environment environment) {
+        return new ReplicaRoutingPostProcessor(environment);
+    }
+
+    // in place of Boot's JpaTransactionManager, which backs off
+    @Bean
+    ReplicaRoutingTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaRoutingTransactionManager transactionManager = new ReplicaRoutingTransactionManager();
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    MeterBinder replicaRoutingMetrics(DataSource dataSource) {
+        return registry -> {
+            ReplicaRoutingDataSource routing;
+            try {
+                routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+            } catch (SQLException e) {
+                throw new IllegalStateException("DataSource is not wrapped in a ReplicaRoutingDataSource", e);
+            }
+            routing.bindTo(registry);
+            // hikaricp.* for the replica pools too, tagged with their pool name
+            MicrometerMetricsTrackerFactory trackers = new MicrometerMetricsTrackerFactory(registry);
+            for (ReplicaRoutingDataSource.Replica replica : routing.getReplicas()) {
+                if (replica.getDataSource() instanceof HikariDataSource hikari) {
+                    hikari.setMetricsTrackerFactory(trackers);
+                }
+            }
+        };
+    }
+
+    // the replica pools and the monitor close with the context; the JDBC observation proxy around the data source
+    // doesn't pass close on
+    @Bean
+    DisposableBean replicaRoutingShutdown(DataSource dataSource) throws SQLException {
+        return dataSource.unwrap(ReplicaRoutingDataSource.class)::close;
+    }
+
+    @Bean
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${device.datasource.replica.read-your-writes-window:3s}") Duration window) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        registration.setDispatcherTypes(DispatcherType.REQUEST);
+        return registration;
+    }
+
+    // Ordered after the concurrency limiter (VirtualThreadConfig), which wraps the Hikari pool itself, and before
+    // the JDBC observation proxy, which then times the statements on the replicas too. The bean method returns this
+    // type so the order is known before the post-processor is created.
+    static class ReplicaRoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final Environment environment;
+
+        ReplicaRoutingPostProcessor(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource primary) || bean instanceof ReplicaRoutingDataSource) {
+                return bean;
+            }
+            HikariDataSource primaryPool;
+            try {
+                if (!primary.isWrapperFor(HikariDataSource.class)) {
+                    return bean;
+                }
+                primaryPool = primary.unwrap(HikariDataSource.class);
+            } catch (SQLException e) {
+                return bean;
+            }
+            List<String> urls = List.of(environment.getRequiredProperty("device.datasource.replica.urls", String[].class));
+            List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+            for (int i = 0; i < urls.size(); i++) {
+                String name = "replica-" + (i + 1);
+                replicas.add(new ReplicaRoutingDataSource.Replica(name, replicaPool(name, urls.get(i).trim(), primaryPool)));
+            }
+            ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas,
+                    environment.getProperty("device.datasource.replica.max-lag", Duration.class, Duration.ofSeconds(1)),
+                    environment.getProperty("device.datasource.replica.connection-timeout", Duration.class, Duration.ofSeconds(1)));
+            routing.startMonitor(environment.getProperty("device.datasource.replica.check-interval", Duration.class, Duration.ofSeconds(1)));
+            return routing;
+        }
+
+        private HikariDataSource replicaPool(String name, String url, HikariDataSource primaryPool) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(name);
+            pool.setJdbcUrl(url);
+            pool.setDriverClassName(primaryPool.getDriverClassName());
+            pool.setUsername(environment.getProperty("device.datasource.replica.username", primaryPool.getUsername()));
+            pool.setPassword(environment.getProperty("device.datasource.replica.password", primaryPool.getPassword()));
+            pool.setMaximumPoolSize(environment.getProperty("device.datasource.replica.maximum-pool-size", Integer.class,
+                    primaryPool.getMaximumPoolSize()));
+            // a read waits at most this long for a replica that's gone before it moves on to the next one
+            pool.setConnectionTimeout(environment.getProperty("device.datasource.replica.connection-timeout", Duration.class,
+                    Duration.ofSeconds(1)).toMillis());
+            pool.setReadOnly(true);
+            // the pool starts with the first connection, and a replica that's down then doesn't fail it
+            pool.setInitializationFailTimeout(-1);
+            return pool;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 1;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.assessment.config;
+
+import com.example.assessment.datasource.ConcurrencyLimitedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+// Active with spring.threads.virtual.enabled=true. Tomcat then runs every request on its own virtual thread, so
+// nothing bounds how many of them reach the connection pool at once. The Hikari pool is wrapped in a fair
+// semaphore with as many permits as the pool has connections (device.db.limiter.max-concurrency overrides that),
+// and requests beyond that wait on the semaphore.
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "device.db.limiter.enabled", matchIfMissing = true)
+public class VirtualThreadConfig {
+
+    @Bean
+    static ConcurrencyLimitingPostProcessor concurrencyLimitedDataSourcePostProcessor(Environment environment) {
+        return new ConcurrencyLimitingPostProcessor(environment);
+    }
+
+    @Bean
+    MeterBinder concurrencyLimitedDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            try {
+                dataSource.unwrap(ConcurrencyLimitedDataSource.class).bindTo(registry);
+            } catch (SQLException e) {
+                throw new IllegalStateException("DataSource is not wrapped in a ConcurrencyLimitedDataSource", e);
+            }
+        };
+    }
+
+    // Ordered so it runs before the unordered JDBC observation post-processor: the limiter has to wrap the Hikari pool
+    // itself, and the observation proxy then wraps the limiter. The bean method returns this type so the order is
+    // known before the post-processor is created.
+    static class ConcurrencyLimitingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final Environment environment;
+
+        ConcurrencyLimitingPostProcessor(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikari) {
+                int maxConcurrency = environment.getProperty("device.db.limiter.max-concurrency", Integer.class,
+                        hikari.getMaximumPoolSize());
+                return new ConcurrencyLimitedDataSource(hikari, maxConcurrency, Duration.ofMillis(hikari.getConnectionTimeout()));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.assessment.controller;
+
+import com.example.assessment.model.DeviceAnalytics;
+import com.example.assessment.model.DeviceAnalyticsQuery;
+import com.example.assessment.service.DeviceAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Group-by counts over the in-memory snapshot of DeviceAnalyticsService, only there with device.analytics.enabled=true
+@RestController
+@RequestMapping("/api/v1/devices")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "device.analytics.enabled", havingValue = "true")
+@Tag(name = "Devices", description = "APIs for managing devices (v1)")
+public class DeviceAnalyticsController {
+
+    private final DeviceAnalyticsService deviceAnalyticsService;
+
+    @GetMapping("/analytics")
+    @Operation(summary = "Device analytics", description = "Number of devices per combination of the groupBy dimensions "
+            + "(brand, state, creation-time bucket, age in intervals) among the ones passing the filters. Served from a "
+            + "columnar in-memory snapshot that follows this instance's writes and is re-read from the database periodically")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Non-empty groups with their counts",
+                    content = @Content(schema = @Schema(implementation = DeviceAnalytics.class))),
+            @ApiResponse(responseCode = "400", description = "No or repeated groupBy dimensions, or too many groups")
+    })
+    public ResponseEntity<DeviceAnalytics> getAnalytics(@ParameterObject DeviceAnalyticsQuery query) {
+        return ResponseEntity.ok(deviceAnalyticsService.analyze(query));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.assessment.controller;
+
+import com.example.assessment.exception.InvalidBatchOperationException;
+import com.example.assessment.model.DeviceBatchItemResult;
+import com.example.assessment.model.DeviceBatchOperation;
+import com.example.assessment.model.DeviceBatchResponse;
+import com.example.assessment.service.DeviceBatchService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Tag(name = "Devices", description = "APIs for managing devices (v1)")
+public class DeviceBatchController {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final DeviceBatchService deviceBatchService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping(value = "/devices:batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Apply a batch of device operations",
+            description = "Creates, updates (partial) and deletes devices in bulk. Every operation gets its own result; "
+                    + "a rejected operation does not stop the others")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Per-operation results",
+                    content = @Content(schema = @Schema(implementation = DeviceBatchResponse.class)))
+    })
+    public ResponseEntity<DeviceBatchResponse> applyBatch(
+            @RequestBody(
+                    description = "Array of operations",
+                    required = true,
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = DeviceBatchOperation.class)),
+                            examples = {@ExampleObject(value = "[{\"op\":\"CREATE\",\"name\":\"iPhone 16\",\"brand\":\"Apple\",\"state\":\"AVAILABLE\"},"
+                                    + "{\"op\":\"UPDATE\",\"id\":1,\"state\":\"INACTIVE\"},{\"op\":\"DELETE\",\"id\":2}]")}
+                    )
+            )
+            @org.springframework.web.bind.annotation.RequestBody List<DeviceBatchOperation> operations) {
+        return ResponseEntity.ok(deviceBatchService.applyAll(operations));
+    }
+
+    @PostMapping(value = "/devices:batch", consumes = NDJSON)
+    @Operation(summary = "Apply a stream of device operations",
+            description = "Same as the JSON variant, but reads one operation per line and streams one result per line "
+                    + "back as each chunk is committed, so arbitrarily large batches never sit in memory. A line that isn't a valid "
+                    + "operation gets a 400 result of its own")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Per-operation results, one per line",
+                    content = @Content(mediaType = NDJSON, schema = @Schema(implementation = DeviceBatchItemResult.class)))
+    })
+    public void applyBatchStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        ServletOutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(DeviceBatchItemResult.class);
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            deviceBatchService.apply(new NdjsonOperations(lines, objectMapper.readerFor(DeviceBatchOperation.class)
+                    .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)), results -> {
+                try {
+                    for (DeviceBatchItemResult result : results) {
+                        out.write(writer.writeValueAsBytes(result));
+                        out.write('\n');
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // One operation per non-blank line. Lines are parsed one at a time, so a line that isn't a valid operation fails
+    // on its own (next() throws InvalidBatchOperationException, reported as that line's result) and reading goes on
+    // with the next one.
+    static final class NdjsonOperations implements Iterator<DeviceBatchOperation> {
+
+        private final BufferedReader lines;
+        private final ObjectReader reader;
+        private String pending;
+        private long lineNumber;
+
+        NdjsonOperations(BufferedReader lines, ObjectReader reader) {
+            this.lines = lines;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (pending == null) {
+                    String line = lines.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    lineNumber++;
+                    if (!line.isBlank()) {
+                        pending = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public DeviceBatchOperation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = pending;
+            pending = null;
+            try {
+                return reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new InvalidBatchOperationException("Line " + lineNumber + " is not a valid operation: " + e.getOriginalMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.assessment.controller;
+
+import com.example.assessment.exception.ChangesExpiredException;
+import com.example.assessment.model.DeviceChange;
+import com.example.assessment.model.DeviceChangeBatch;
+import com.example.assessment.service.DeviceChangeFeed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Committed device changes, as a Server-Sent Events stream or by long polling. Waiting happens on virtual threads,
+// so neither an open stream nor a pending poll holds a request thread.
+@RestController
+@RequestMapping("/api/v1/devices")
+@Tag(name = "Devices", description = "APIs for managing devices (v1)")
+public class DeviceChangesController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceChangesController.class);
+
+    private static final int MAX_POLL_LIMIT = 1000;
+    private static final int MAX_POLL_TIMEOUT_SECONDS = 60;
+    private static final int STREAM_BATCH = 256;
+
+    private final DeviceChangeFeed deviceChangeFeed;
+    private final Duration streamTimeout;
+    private final Duration heartbeat;
+    private final ExecutorService waiters = Executors.newVirtualThreadPerTaskExecutor();
+
+    public DeviceChangesController(DeviceChangeFeed deviceChangeFeed,
+                                   @Value("${device.changes.stream-timeout:30m}") Duration streamTimeout,
+                                   @Value("${device.changes.heartbeat:15s}") Duration heartbeat) {
+        this.deviceChangeFeed = deviceChangeFeed;
+        this.streamTimeout = streamTimeout;
+        this.heartbeat = heartbeat;
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream device changes",
+            description = "Server-Sent Events, one event per committed create/update/delete. The event id is the change's sequence; "
+                    + "reconnecting with Last-Event-ID (or ?after=) resumes right after it. A 'reset' event means the requested "
+                    + "changes are no longer retained and the devices have to be re-read")
+    public SseEmitter streamChanges(@Parameter(hidden = true) @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @Parameter(description = "Sequence to resume after, defaults to now")
+                                    @RequestParam(required = false) Long after) {
+        long from = lastEventId != null ? lastEventId : after != null ? after : deviceChangeFeed.latestSequence();
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Future<?> pump = waiters.submit(() -> pump(emitter, from));
+        emitter.onCompletion(() -> pump.cancel(true));
+        emitter.onTimeout(() -> pump.cancel(true));
+        emitter.onError(e -> pump.cancel(true));
+        return emitter;
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Poll device changes",
+            description = "Returns the changes after the given sequence, waiting up to timeout for the first one. "
+                    + "Without after it returns right away with the current sequence to start polling from")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Changes, possibly none",
+                    content = @Content(schema = @Schema(implementation = DeviceChangeBatch.class))),
+            @ApiResponse(responseCode = "410", description = "The changes after that sequence are no longer retained")
+    })
+    public DeferredResult<DeviceChangeBatch> pollChanges(@RequestParam(required = false) Long after,
+                                                         @RequestParam(defaultValue = "100") int limit,
+                                                         @Parameter(description = "Seconds to wait for the first change")
+                                                         @RequestParam(name = "timeout", defaultValue = "30") int timeoutSeconds) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_POLL_LIMIT));
+        Duration boundedTimeout = Duration.ofSeconds(Math.max(0, Math.min(timeoutSeconds, MAX_POLL_TIMEOUT_SECONDS)));
+        // longer than the wait itself, the servlet container's default async timeout may be shorter than that
+        DeferredResult<DeviceChangeBatch> result = new DeferredResult<>(boundedTimeout.plusSeconds(5).toMillis());
+        if (after == null) {
+            result.setResult(new DeviceChangeBatch(List.of(), deviceChangeFeed.latestSequence()));
+            return result;
+        }
+        Future<?> wait = waiters.submit(() -> {
+            try {
+                result.setResult(deviceChangeFeed.awaitAfter(after, boundedLimit, boundedTimeout));
+            } catch (ChangesExpiredException e) {
+                result.setErrorResult(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // client went away or the request timed out
+        result.onCompletion(() -> wait.cancel(true));
+        return result;
+    }
+
+    @PreDestroy
+    void stopWaiting() {
+        waiters.shutdownNow();
+    }
+
+    private void pump(SseEmitter emitter, long after) {
+        long cursor = after;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                DeviceChangeBatch batch = deviceChangeFeed.awaitAfter(cursor, STREAM_BATCH, heartbeat);
+                if (batch.getChanges().isEmpty()) {
+                    // also how a closed connection is noticed
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                    continue;
+                }
+                for (DeviceChange change : batch.getChanges()) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(change.getSequence()))
+                            .name(change.getType().name())
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+                cursor = batch.getLastSequence();
+            }
+        } catch (ChangesExpiredException e) {
+            try {
+                emitter.send(SseEmitter.event().name("reset")
+                        .data(Map.of("message", e.getMessage(), "sequence", deviceChangeFeed.latestSequence()), MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException | IllegalStateException ignored) {
+                // client already gone
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Change stream closed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.assessment.controller;
 
+import com.example.assessment.exception.DeviceVersionMismatchException;
 import com.example.assessment.model.*;
+import com.example.assessment.service.DeviceExportService;
+import com.example.assessment.service.DeviceSearchService;
 import com.example.assessment.service.DeviceService;
+import com.example.assessment.service.DeviceStatsService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,13 +18,19 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,7 +40,12 @@ import java.util.stream.Collectors;
 @Tag(name = "Devices", description = "APIs for managing devices (v1)")
 public class DeviceController {
 
+    private static final int MAX_SCROLL_SIZE = 1000;
+
     private final DeviceService deviceService;
+    private final DeviceExportService deviceExportService;
+    private final DeviceStatsService deviceStatsService;
+    private final DeviceSearchService deviceSearchService;
     private final ObjectMapper objectMapper;
 
     @PostMapping
@@ -55,7 +69,7 @@ public class DeviceController {
         dto.setBrand(request.getBrand());
         dto.setState(request.getState());
         DeviceDTO saved = deviceService.createDevice(dto);
-        return ResponseEntity.ok(mapToResponse(saved));
+        return ResponseEntity.ok().eTag(DeviceETags.strong(saved.getVersion())).body(mapToResponse(saved));
     }
 
     @GetMapping
@@ -63,39 +77,143 @@ public class DeviceController {
             parameters = {
                     @Parameter(name = "page", in = ParameterIn.QUERY, description = "Page index (0..)", example = "0"),
                     @Parameter(name = "size", in = ParameterIn.QUERY, description = "Page size", example = "20"),
-                    @Parameter(name = "sort", in = ParameterIn.QUERY, description = "Sort, e.g. name,asc", example = "name,asc")
+                    @Parameter(name = "sort", in = ParameterIn.QUERY, description = "Sort, e.g. name,asc", example = "name,asc"),
+                    @Parameter(name = "includeTotal", in = ParameterIn.QUERY, description = "Return totalElements and totalPages. "
+                            + "false skips the count query, hasNext still tells whether another page follows", example = "true")
             }
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "List of devices",
-                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = DeviceResponse.class))))
+            @ApiResponse(responseCode = "200", description = "Page of devices",
+                    content = @Content(schema = @Schema(implementation = DevicePage.class)))
     })
-    public ResponseEntity<Page<DeviceResponse>> getAllDevices(Pageable pageable) {
-        Page<DeviceDTO> page = deviceService.getAllDevices(pageable);
-        org.springframework.data.domain.Page<DeviceResponse> mapped = page.map(this::mapToResponse);
-        return ResponseEntity.ok(mapped);
+    public ResponseEntity<DevicePage<DeviceResponse>> getAllDevices(Pageable pageable, @RequestParam(defaultValue = "true") boolean includeTotal) {
+        DevicePage<DeviceDTO> page = deviceService.getAllDevices(pageable, includeTotal);
+        // a matching If-None-Match turns this into a 304 before the page is serialized
+        return ResponseEntity.ok()
+                .eTag(DeviceETags.weak(page.getContent(), page.getTotalElements(), page.isHasNext()))
+                .body(page.map(this::mapToResponse));
+    }
+
+    @GetMapping("/filter")
+    @Operation(summary = "Filter devices", description = "Returns a pageable list of devices matching all of the given criteria",
+            parameters = {
+                    @Parameter(name = "page", in = ParameterIn.QUERY, description = "Page index (0..)", example = "0"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "Page size", example = "20"),
+                    @Parameter(name = "sort", in = ParameterIn.QUERY, description = "Sort, e.g. creationTime,desc", example = "creationTime,desc"),
+                    @Parameter(name = "includeTotal", in = ParameterIn.QUERY, description = "Return totalElements and totalPages. "
+                            + "false skips the count query, hasNext still tells whether another page follows", example = "true")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Matching devices",
+                    content = @Content(schema = @Schema(implementation = DevicePage.class)))
+    })
+    public ResponseEntity<DevicePage<DeviceResponse>> filterDevices(@ParameterObject DeviceFilter filter,
+                                                                    @Parameter(hidden = true) Pageable pageable,
+                                                                    @RequestParam(defaultValue = "true") boolean includeTotal) {
+        DevicePage<DeviceDTO> page = deviceService.filterDevices(filter, pageable, includeTotal);
+        return ResponseEntity.ok()
+                .eTag(DeviceETags.weak(page.getContent(), page.getTotalElements(), page.isHasNext()))
+                .body(page.map(this::mapToResponse));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search devices", description = "Devices whose name or brand match every word of q: exactly, as the start "
+            + "of a word or with a typo (two in words of 8 letters or more), best matches first and then by id. Served from an "
+            + "in-memory index that follows this instance's writes and is rebuilt from the database periodically. "
+            + "Pages reach down to the best device.search.max-results matches and have no totals",
+            parameters = {
+                    @Parameter(name = "q", in = ParameterIn.QUERY, description = "Words to search for", required = true, example = "galaxy s24"),
+                    @Parameter(name = "page", in = ParameterIn.QUERY, description = "Page index (0..)", example = "0"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "Page size", example = "20")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Matching devices, best first",
+                    content = @Content(schema = @Schema(implementation = DevicePage.class)))
+    })
+    public ResponseEntity<DevicePage<DeviceResponse>> searchDevices(@Parameter(hidden = true) @RequestParam String q,
+                                                                    @Parameter(hidden = true) Pageable pageable) {
+        DevicePage<DeviceDTO> page = deviceSearchService.search(q, pageable);
+        return ResponseEntity.ok()
+                .eTag(DeviceETags.weak(page.getContent(), page.getTotalElements(), page.isHasNext()))
+                .body(page.map(this::mapToResponse));
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll through devices", description = "Returns a cursor-based page of devices. Pass the returned nextCursor to fetch the following page",
+            parameters = {
+                    @Parameter(name = "cursor", in = ParameterIn.QUERY, description = "Continuation token from the previous response, omit for the first page"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "Page size", example = "20"),
+                    @Parameter(name = "sort", in = ParameterIn.QUERY, description = "Sort, e.g. name,asc. Must stay the same across pages", example = "name,asc"),
+                    @Parameter(name = "includeTotal", in = ParameterIn.QUERY, description = "Also return the total number of devices (runs a count query)", example = "false")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Page of devices",
+                    content = @Content(schema = @Schema(implementation = CursorPage.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or unsupported sort property")
+    })
+    public ResponseEntity<CursorPage<DeviceResponse>> scrollDevices(@RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = "20") int size,
+                                                                    @Parameter(hidden = true) @SortDefault(sort = "id") Sort sort,
+                                                                    @RequestParam(defaultValue = "false") boolean includeTotal) {
+        int boundedSize = Math.max(1, Math.min(size, MAX_SCROLL_SIZE));
+        CursorPage<DeviceDTO> page = deviceService.scrollDevices(cursor, boundedSize, sort, includeTotal);
+        List<DeviceResponse> content = page.getContent().stream().map(this::mapToResponse).collect(Collectors.toList());
+        return ResponseEntity.ok()
+                .eTag(DeviceETags.weak(page.getContent(), page.getNextCursor(), page.getTotalElements()))
+                .body(new CursorPage<>(content, page.getNextCursor(), page.isHasNext(), page.getTotalElements()));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export all devices", description = "Streams the full device inventory as NDJSON (one device per line) or CSV")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Device inventory",
+                    content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")})
+    })
+    public void exportDevices(@Parameter(description = "Export format", schema = @Schema(implementation = ExportFormat.class))
+                              @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                              HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"devices." + format.getFileExtension() + "\"");
+        deviceExportService.exportDevices(format, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get a device by id", description = "Fetches a single device by its id")
+    @Operation(summary = "Get a device by id", description = "Fetches a single device by its id. The ETag is the device's version, "
+            + "suffixed with the format and content coding when the body isn't uncompressed JSON (\"3-cbor\", \"3-gzip\"); "
+            + "with a matching If-None-Match the response is a 304 without a body")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Device found",
                     content = @Content(schema = @Schema(implementation = DeviceResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Device unchanged since the given ETag"),
             @ApiResponse(responseCode = "404", description = "Device not found")
     })
-    public ResponseEntity<DeviceResponse> getDevice(@Parameter(description = "ID of the device", required = true) @PathVariable Long id) {
+    public ResponseEntity<DeviceResponse> getDevice(@Parameter(description = "ID of the device", required = true) @PathVariable Long id,
+                                                    @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // revalidation only needs the version, the device itself is loaded when it changed
+        if (ifNoneMatch != null) {
+            String matching = DeviceETags.matching(ifNoneMatch, deviceService.getDeviceVersion(id));
+            if (matching != null) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(matching).build();
+            }
+        }
         DeviceDTO deviceDTO = deviceService.getDeviceById(id);
-        return ResponseEntity.ok(mapToResponse(deviceDTO));
+        return ResponseEntity.ok().eTag(DeviceETags.strong(deviceDTO.getVersion())).body(mapToResponse(deviceDTO));
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update a device", description = "Fully updates an existing device")
+    @Operation(summary = "Update a device", description = "Fully updates an existing device, keeping its state when none is given. With If-Match only if the device is still at that ETag")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Device updated",
                     content = @Content(schema = @Schema(implementation = DeviceResponse.class))),
-            @ApiResponse(responseCode = "404", description = "Device not found")
+            @ApiResponse(responseCode = "404", description = "Device not found"),
+            @ApiResponse(responseCode = "412", description = "Device changed since the If-Match ETag")
     })
     public ResponseEntity<DeviceResponse> updateDevice(@Parameter(description = "ID of the device to update", required = true) @PathVariable Long id,
+                                                       @Parameter(description = "ETag the device must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                                        @RequestBody(
                                                                description = "Full device payload for replace",
                                                                required = true,
@@ -110,18 +228,20 @@ public class DeviceController {
         dto.setBrand(request.getBrand());
         dto.setState(request.getState());
         // ignore creationTime from request
-        DeviceDTO updated = deviceService.updateDevice(id, dto);
-        return ResponseEntity.ok(mapToResponse(updated));
+        DeviceDTO updated = deviceService.updateDevice(id, dto, expectedVersion(id, ifMatch));
+        return ResponseEntity.ok().eTag(DeviceETags.strong(updated.getVersion())).body(mapToResponse(updated));
     }
 
     @PatchMapping("/{id}")
-    @Operation(summary = "Partially update a device", description = "Applies partial updates to a device")
+    @Operation(summary = "Partially update a device", description = "Applies partial updates to a device. With If-Match only if the device is still at that ETag")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Device partially updated",
                     content = @Content(schema = @Schema(implementation = DeviceResponse.class))),
-            @ApiResponse(responseCode = "404", description = "Device not found")
+            @ApiResponse(responseCode = "404", description = "Device not found"),
+            @ApiResponse(responseCode = "412", description = "Device changed since the If-Match ETag")
     })
     public ResponseEntity<DeviceResponse> partialUpdateDevice(@Parameter(description = "ID of the device to patch", required = true) @PathVariable Long id,
+                                                               @Parameter(description = "ETag the device must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                                                @RequestBody(
                                                                        description = "Partial JSON payload. Only include fields to change. Example: {\"name\":\"New name\"}",
                                                                        required = true,
@@ -131,29 +251,57 @@ public class DeviceController {
                                                                        )
                                                                )
                                                                @org.springframework.web.bind.annotation.RequestBody JsonNode patch) {
-        // Load existing DTO
-        DeviceDTO existing = deviceService.getDeviceById(id);
+        // Prevent creationTime changes
+        if (patch.has("creationTime")) {
+            throw new IllegalArgumentException("creationTime cannot be updated");
+        }
+        DeviceDTO changes;
         try {
-            // Merge patch into existing DTO using Jackson
-            DeviceDTO merged = objectMapper.readerForUpdating(existing).readValue(patch);
-            // Prevent creationTime changes
-            if (patch.has("creationTime")) {
-                // reject
-                throw new IllegalArgumentException("creationTime cannot be updated");
-            }
-            DeviceDTO updated = deviceService.partialUpdateDevice(id, merged);
-            return ResponseEntity.ok(mapToResponse(updated));
-        } catch (IllegalArgumentException ex) {
-            throw ex;
+            // only the fields present in the patch end up non-null, the service applies exactly those
+            changes = objectMapper.treeToValue(patch, DeviceDTO.class);
         } catch (Exception e) {
             throw new RuntimeException("Failed to apply patch", e);
         }
+        DeviceDTO updated = deviceService.partialUpdateDevice(id, changes, expectedVersion(id, ifMatch));
+        return ResponseEntity.ok().eTag(DeviceETags.strong(updated.getVersion())).body(mapToResponse(updated));
+    }
+
+    @PostMapping("/{id}/checkout")
+    @Operation(summary = "Check out a device", description = "Atomically moves an AVAILABLE device to IN_USE")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Device checked out",
+                    content = @Content(schema = @Schema(implementation = DeviceResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Device not found"),
+            @ApiResponse(responseCode = "409", description = "Device is not AVAILABLE")
+    })
+    public ResponseEntity<DeviceResponse> checkOutDevice(@Parameter(description = "ID of the device to check out", required = true) @PathVariable Long id) {
+        DeviceDTO device = deviceService.checkOutDevice(id);
+        return ResponseEntity.ok().eTag(DeviceETags.strong(device.getVersion())).body(mapToResponse(device));
+    }
+
+    @PostMapping("/{id}/checkin")
+    @Operation(summary = "Check in a device", description = "Atomically moves an IN_USE device back to AVAILABLE")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Device checked in",
+                    content = @Content(schema = @Schema(implementation = DeviceResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Device not found"),
+            @ApiResponse(responseCode = "409", description = "Device is not IN_USE")
+    })
+    public ResponseEntity<DeviceResponse> checkInDevice(@Parameter(description = "ID of the device to check in", required = true) @PathVariable Long id) {
+        DeviceDTO device = deviceService.checkInDevice(id);
+        return ResponseEntity.ok().eTag(DeviceETags.strong(device.getVersion())).body(mapToResponse(device));
     }
 
     @DeleteMapping("/{id}")
-    @Operation(summary = "Delete a device", description = "Deletes a device by id if it is not in use")
-    public ResponseEntity<Void> deleteDevice(@Parameter(description = "ID of the device to delete", required = true) @PathVariable Long id) {
-        deviceService.deleteDevice(id);
+    @Operation(summary = "Delete a device", description = "Deletes a device by id if it is not in use. With If-Match only if the device is still at that ETag")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Device deleted"),
+            @ApiResponse(responseCode = "404", description = "Device not found"),
+            @ApiResponse(responseCode = "412", description = "Device changed since the If-Match ETag")
+    })
+    public ResponseEntity<Void> deleteDevice(@Parameter(description = "ID of the device to delete", required = true) @PathVariable Long id,
+                                             @Parameter(description = "ETag the device must still have") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        deviceService.deleteDevice(id, expectedVersion(id, ifMatch));
         return ResponseEntity.noContent().build();
     }
 
@@ -161,7 +309,7 @@ public class DeviceController {
     public ResponseEntity<List<DeviceResponse>> getDevicesByBrand(@Parameter(description = "Brand to filter by", required = true) @PathVariable String brand) {
         List<DeviceDTO> deviceDTOS = deviceService.getDevicesByBrand(brand);
         List<DeviceResponse> responses = deviceDTOS.stream().map(this::mapToResponse).collect(Collectors.toList());
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok().eTag(DeviceETags.weak(deviceDTOS)).body(responses);
     }
 
     @GetMapping("/state/{state}")
@@ -169,7 +317,35 @@ public class DeviceController {
             schema = @Schema(implementation = DeviceState.class)) @PathVariable DeviceState state) {
         List<DeviceDTO> deviceDTOS = deviceService.getDevicesByState(state);
         List<DeviceResponse> responses = deviceDTOS.stream().map(this::mapToResponse).collect(Collectors.toList());
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok().eTag(DeviceETags.weak(deviceDTOS)).body(responses);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Device counts", description = "Number of devices by state, by brand and by brand and state. "
+            + "Served from in-memory counters that are reconciled with the database periodically.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Device counts",
+                    content = @Content(schema = @Schema(implementation = DeviceStats.class)))
+    })
+    public ResponseEntity<DeviceStats> getStats() {
+        return ResponseEntity.ok(deviceStatsService.getStats());
+    }
+
+    // The version a conditional write has to find, null without If-Match or for If-Match: *. With several tags the
+    // current version picks the one to hold the write to.
+    private Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        List<Long> versions = DeviceETags.versions(ifMatch);
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+        Long current = deviceService.getDeviceVersion(id);
+        if (!versions.contains(current)) {
+            throw new DeviceVersionMismatchException("Device with id: " + id + " is at version " + current + ", not " + ifMatch);
+        }
+        return current;
     }
 
     private DeviceResponse mapToResponse(DeviceDTO dto) {
@@ -179,6 +355,7 @@ public class DeviceController {
         r.setBrand(dto.getBrand());
         r.setState(dto.getState());
         r.setCreationTime(dto.getCreationTime());
+        r.setVersion(dto.getVersion());
         return r;
     }
 }
@@ -0,0 +1,88 @@
+package com.example.assessment.controller;
+
+import com.example.assessment.model.DeviceDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Entity tags from @Version. A single device's tag is strong, "<version>": every write bumps the version, so equal
+// tags mean equal devices. Representations other than identity JSON carry suffixes, "<version>-cbor-gzip" (see
+// NegotiatedRepresentationAdvice), which name the same version when a client sends them back. A list gets a weak tag
+// hashed from the ids and versions it contains plus whatever else shapes the response (total count, next cursor), so
+// it changes whenever any listed device does, without serializing anything.
+final class DeviceETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private DeviceETags() {
+    }
+
+    static String strong(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    static String weak(Collection<DeviceDTO> devices, Object... shape) {
+        long hash = FNV_OFFSET;
+        for (DeviceDTO device : devices) {
+            hash = mix(hash, device.getId() == null ? 0 : device.getId());
+            hash = mix(hash, device.getVersion() == null ? -1 : device.getVersion());
+        }
+        for (Object part : shape) {
+            hash = mix(hash, part == null ? 0 : part.hashCode());
+        }
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+
+    // Versions named by the strong tags of an If-Match header. If-Match uses the strong comparison, so weak tags
+    // and tags that aren't ours never match and are left out.
+    static List<Long> versions(String ifMatch) {
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            Long version = version(tag.trim());
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        return versions;
+    }
+
+    // The tag of an If-None-Match header that names version, as the client sent it, or null. If-None-Match uses the
+    // weak comparison, so W/ is ignored.
+    static String matching(String ifNoneMatch, long version) {
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*")) {
+                return strong(version);
+            }
+            Long tagged = version(trimmed.startsWith("W/") ? trimmed.substring(2) : trimmed);
+            if (tagged != null && tagged == version) {
+                return trimmed;
+            }
+        }
+        return null;
+    }
+
+    // "<version>" or "<version>-<suffix>..."; null for weak tags and tags that aren't ours
+    private static Long version(String tag) {
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return null;
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        int suffix = value.indexOf('-');
+        try {
+            return Long.parseLong(suffix < 0 ? value : value.substring(0, suffix));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.assessment.datasource;
+
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Captures the EXPLAIN (ANALYZE, BUFFERS) plan of slow SELECTs, with the parameter values they ran with, on a
+// background thread. ANALYZE runs the query again, so the capture runs in a read-only transaction that is rolled back,
+// under a statement_timeout, at most once per normalized query and interval, and one at a time; captures that
+// don't fit the small queue are dropped. It connects below the JDBC proxy so its own statements aren't timed.
+public class QueryPlanCapture implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanCapture.class);
+    private static final Pattern NEXTVAL = Pattern.compile("\\bnextval\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private final Supplier<DataSource> dataSource;
+    private final long intervalMillis;
+    private final long timeoutMillis;
+    private final int maxQueries;
+    private final Map<String, Long> attempts = new ConcurrentHashMap<>();
+    private final Map<String, QueryPlan> plans = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    // the data source is looked up on the first capture, this is created while the data source is being proxied
+    public QueryPlanCapture(ObjectProvider<DataSource> dataSource, Duration interval, Duration timeout, int maxQueries) {
+        this.dataSource = SingletonSupplier.of(() -> unproxied(dataSource.getObject()));
+        this.intervalMillis = interval.toMillis();
+        this.timeoutMillis = timeout.toMillis();
+        this.maxQueries = maxQueries;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "query-plan-capture");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    // the observation proxy is either a ProxyDataSource or a reflective proxy, depending on jdbc.datasource-proxy.type
+    private static DataSource unproxied(DataSource dataSource) {
+        if (dataSource instanceof ProxyDataSource proxy) {
+            return proxy.getDataSource();
+        }
+        return dataSource instanceof ProxyJdbcObject proxy ? (DataSource) proxy.getTarget() : dataSource;
+    }
+
+    public void capture(String sql, List<ParameterSetOperation> parameters) {
+        if (!isSelect(sql)) {
+            return;
+        }
+        String query = QueryStatistics.normalize(sql);
+        long now = System.currentTimeMillis();
+        Long previous = attempts.get(query);
+        if (previous != null ? now - previous < intervalMillis || !attempts.replace(query, previous, now)
+                : attempts.size() >= maxQueries || attempts.putIfAbsent(query, now) != null) {
+            return;
+        }
+        // the operations are reused by the statement, take them as they are now
+        List<ParameterSetOperation> bound = List.copyOf(parameters);
+        executor.execute(() -> explain(query, sql, bound));
+    }
+
+    // sequence calls are SELECTs too, but can't run in a read-only transaction and have no plan worth reading
+    private static boolean isSelect(String sql) {
+        String trimmed = sql.stripLeading();
+        return (trimmed.regionMatches(true, 0, "select", 0, 6) || trimmed.regionMatches(true, 0, "with", 0, 4))
+                && !NEXTVAL.matcher(trimmed).find();
+    }
+
+    private void explain(String query, String sql, List<ParameterSetOperation> parameters) {
+        try (Connection connection = dataSource.get().getConnection()) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET LOCAL statement_timeout = " + timeoutMillis);
+                }
+                try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+                    for (ParameterSetOperation parameter : parameters) {
+                        parameter.getMethod().invoke(statement, parameter.getArgs());
+                    }
+                    StringBuilder plan = new StringBuilder();
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            plan.append(rows.getString(1)).append('\n');
+                        }
+                    }
+                    plans.put(query, new QueryPlan(sql, Instant.now(), plan.toString(), null));
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Could not capture the plan of {}", sql, e);
+            plans.put(query, new QueryPlan(sql, Instant.now(), null, e.getMessage()));
+        }
+    }
+
+    public QueryPlan planFor(String normalizedQuery) {
+        return plans.get(normalizedQuery);
+    }
+
+    public void reset() {
+        attempts.clear();
+        plans.clear();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // plan is null and error says why when the capture failed
+    public record QueryPlan(String sql, Instant capturedAt, String plan, String error) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.assessment.datasource;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Times every statement that goes through the JDBC proxy, per normalized query: literals become ?, IN lists of any
+// length become (?) and whitespace is collapsed, so the executions of one repository method end up in one entry.
+// Each entry has a histogram in microseconds for the percentiles, and counts the executions over the slow-query
+// threshold. Normalizing is cached by the raw SQL, so a statement seen before costs a map lookup and a histogram
+// record. At most maxQueries queries are tracked; statements that would need a new entry after that are not counted.
+public class QueryStatistics implements QueryExecutionListener {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long slowMicros;
+    private final int maxQueries;
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+    private final Map<String, Query> bySql = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> started = ThreadLocal.withInitial(() -> new long[1]);
+
+    public QueryStatistics(Duration slowThreshold, int maxQueries) {
+        this.slowMicros = TimeUnit.NANOSECONDS.toMicros(slowThreshold.toNanos());
+        this.maxQueries = maxQueries;
+    }
+
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        started.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return;
+        }
+        long micros = (System.nanoTime() - started.get()[0]) / 1000;
+        // a batch is timed as a whole, under its first statement
+        Query query = queryFor(queryInfoList.get(0).getQuery());
+        if (query != null) {
+            query.record(micros, micros >= slowMicros);
+        }
+    }
+
+    private Query queryFor(String sql) {
+        Query query = bySql.get(sql);
+        if (query != null) {
+            return query;
+        }
+        String normalized = normalize(sql);
+        query = queries.get(normalized);
+        if (query == null) {
+            if (queries.size() >= maxQueries) {
+                return null;
+            }
+            query = queries.computeIfAbsent(normalized, Query::new);
+        }
+        // raw variants are bounded too, an IN list of every length is still one query
+        if (bySql.size() < maxQueries * 10) {
+            bySql.put(sql, query);
+        }
+        return query;
+    }
+
+    // the queries with the highest p99 first
+    public List<Summary> top(int limit) {
+        return queries.values().stream()
+                .map(Query::summary)
+                .sorted(Comparator.comparingDouble(Summary::p99Millis).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        bySql.clear();
+        queries.clear();
+    }
+
+    public record Summary(String query, long count, long slowCount, double meanMillis, double p50Millis,
+                          double p95Millis, double p99Millis, double maxMillis, double totalMillis) {
+    }
+
+    private static final class Query {
+
+        private final String query;
+        private final Histogram micros = new ConcurrentHistogram(2);
+        private final LongAdder totalMicros = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+
+        private Query(String query) {
+            this.query = query;
+        }
+
+        void record(long elapsedMicros, boolean isSlow) {
+            micros.recordValue(Math.max(elapsedMicros, 0));
+            totalMicros.add(elapsedMicros);
+            if (isSlow) {
+                slow.increment();
+            }
+        }
+
+        Summary summary() {
+            // a copy, the live histogram may be recorded into meanwhile
+            Histogram snapshot = micros.copy();
+            return new Summary(query, snapshot.getTotalCount(), slow.sum(), snapshot.getMean() / 1000,
+                    snapshot.getValueAtPercentile(50) / 1000.0, snapshot.getValueAtPercentile(95) / 1000.0,
+                    snapshot.getValueAtPercentile(99) / 1000.0, snapshot.getMaxValue() / 1000.0, totalMicros.sum() / 1000.0);
+        }
+    }
+}
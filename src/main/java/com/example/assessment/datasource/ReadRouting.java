@@ -0,0 +1,34 @@
+package com.example.assessment.datasource;
+
+// Read-only transactions go to a replica unless the current thread is pinned to the primary: for the rest of a
+// client's read-your-writes window, or for reads that must not be behind (ones whose result outlives the request).
+// Pins nest, closing one restores what was there before. Without replicas configured this has no effect.
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static Pin pinToPrimary() {
+        Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                PINNED.remove();
+            } else {
+                PINNED.set(previous);
+            }
+        };
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    public interface Pin extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
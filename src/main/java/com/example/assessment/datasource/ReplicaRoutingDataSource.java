@@ -0,0 +1,249 @@
+package com.example.assessment.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Gives read-only transactions a replica connection and everything else a primary one. The transaction manager has
+// to be a ReplicaRoutingTransactionManager, which marks the read-only transactions while they take their connection.
+// Replicas take turns, skipping the ones that are down, not streaming from the primary or more than maxLag behind; a
+// replica whose connection fails is taken out right away and the next one is tried. Reads go to the primary when the
+// thread is pinned to it (ReadRouting) or no replica is available. The monitor checks every replica's lag on a background thread; a failed
+// check takes the replica out, a passing one puts it back in.
+public class ReplicaRoutingDataSource extends DelegatingDataSource implements MeterBinder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // how far a standby's replay is behind, and whether its WAL receiver is streaming from the primary. A streaming
+    // standby that has replayed everything it received is 0 behind, so an idle primary doesn't make it look behind;
+    // one that lost the primary has replayed everything it received too, so it is as far behind as its last replayed
+    // transaction and doesn't count as streaming. A server that isn't a standby at all (a stand-in replica) is 0
+    // behind. The receiver's status needs pg_read_all_stats, without it a standby never counts as streaming.
+    static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0"
+            + " WHEN streaming AND pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END,"
+            + " NOT pg_is_in_recovery() OR streaming"
+            + " FROM (SELECT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming') AS streaming) receiver";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final int checkTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService monitor;
+    private Counter pinnedReads;
+    private Counter unavailableReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, Duration maxLag, Duration checkTimeout) {
+        super(primary);
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is needed");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkTimeoutSeconds = (int) Math.max(1, checkTimeout.toSeconds());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return isReadOnly() ? readConnection() : primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return isReadOnly() ? readConnection() : primary.getConnection(username, password);
+    }
+
+    private static boolean isReadOnly() {
+        return ReplicaRoutingTransactionManager.isBeginningReadOnly() || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    // replicas get no reads until their first check has passed
+    public void startMonitor(Duration checkInterval) {
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(this::checkReplicas, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean wasAvailable = isAvailable(replica);
+            replica.check(checkTimeoutSeconds);
+            boolean available = isAvailable(replica);
+            if (available && !wasAvailable) {
+                logger.info("Replica {} is available, {} ms behind", replica.name, replica.lagMillis);
+            } else if (!available && wasAvailable && replica.up && !replica.streaming) {
+                logger.warn("Replica {} isn't streaming from the primary; its reads go elsewhere until it is", replica.name);
+            } else if (!available && wasAvailable && replica.up) {
+                logger.warn("Replica {} is {} ms behind, over the {} ms limit; its reads go elsewhere until it catches up",
+                        replica.name, replica.lagMillis, maxLagMillis);
+            }
+        }
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public boolean isAvailable(Replica replica) {
+        return replica.up && replica.streaming && replica.lagMillis <= maxLagMillis;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            TimeGauge.builder("device.db.replica.lag", replica, TimeUnit.MILLISECONDS, r -> r.lagMillis)
+                    .description("How far the replica's replay was behind at the last check")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("device.db.replica.available", replica, r -> isAvailable(r) ? 1 : 0)
+                    .description("Whether the replica is up, streaming and within the lag limit")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            replica.reads = reads(registry, replica.name, "replica");
+            replica.failures = Counter.builder("device.db.replica.failures")
+                    .description("Read connections the replica failed to give, which took it out")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+        pinnedReads = reads(registry, "primary", "pinned");
+        unavailableReads = reads(registry, "primary", "no_replica");
+    }
+
+    private static Counter reads(MeterRegistry registry, String target, String reason) {
+        return Counter.builder("device.db.reads")
+                .description("Read-only transactions by where they ran and why")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    // closes the replica pools, the primary belongs to whoever created it
+    @Override
+    public void close() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.debug("Could not close replica {}", replica.name, e);
+                }
+            }
+        }
+    }
+
+    private Connection readConnection() throws SQLException {
+        if (ReadRouting.isPinnedToPrimary()) {
+            increment(pinnedReads);
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!isAvailable(replica)) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                increment(replica.reads);
+                return connection;
+            } catch (SQLException e) {
+                increment(replica.failures);
+                replica.markDown(e);
+            }
+        }
+        increment(unavailableReads);
+        return primary.getConnection();
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean up;
+        private volatile boolean checked;
+        private volatile long lagMillis;
+        private volatile boolean streaming;
+        private Counter reads;
+        private Counter failures;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        public boolean isUp() {
+            return up;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+
+        public boolean isStreaming() {
+            return streaming;
+        }
+
+        void check(int timeoutSeconds) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(timeoutSeconds);
+                try (ResultSet rows = statement.executeQuery(LAG_QUERY)) {
+                    rows.next();
+                    lagMillis = rows.getLong(1);
+                    streaming = rows.getBoolean(2);
+                }
+                up = true;
+            } catch (SQLException | RuntimeException e) {
+                markDown(e);
+            }
+            checked = true;
+        }
+
+        void markDown(Exception cause) {
+            if (up || !checked) {
+                logger.warn("Replica {} is down, its reads go elsewhere until it passes a check: {}", name, cause.getMessage());
+            }
+            up = false;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.assessment.datasource;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+// Marks the thread while a read-only transaction begins. JPA takes the transaction's connection in doBegin, before
+// Spring records the transaction as read-only, so this is how ReplicaRoutingDataSource knows to give it a replica's.
+public class ReplicaRoutingTransactionManager extends JpaTransactionManager {
+
+    private static final ThreadLocal<Boolean> BEGINNING_READ_ONLY = new ThreadLocal<>();
+
+    static boolean isBeginningReadOnly() {
+        return BEGINNING_READ_ONLY.get() != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        if (!definition.isReadOnly()) {
+            super.doBegin(transaction, definition);
+            return;
+        }
+        BEGINNING_READ_ONLY.set(Boolean.TRUE);
+        try {
+            super.doBegin(transaction, definition);
+        } finally {
+            BEGINNING_READ_ONLY.remove();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.assessment.datasource;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Logs the statements that took longer than the threshold, with their SQL (without parameter values) and time, in
+// place of logging every statement. Registered with the JDBC observation proxy, which times each statement anyway,
+// so a fast statement costs one comparison. The logger is sampled (logback-spring.xml) so a slow database doesn't
+// turn into a flood of lines. With a QueryPlanCapture, the plan of a slow SELECT is captured in the background too.
+public class SlowQueryLogger implements QueryExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLogger.class);
+
+    private final long thresholdMillis;
+    private final QueryPlanCapture planCapture;
+
+    public SlowQueryLogger(Duration threshold, QueryPlanCapture planCapture) {
+        this.thresholdMillis = threshold.toMillis();
+        this.planCapture = planCapture;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (execInfo.getElapsedTime() < thresholdMillis) {
+            return;
+        }
+        String sql = queryInfoList.size() == 1 ? queryInfoList.get(0).getQuery()
+                : queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        if (execInfo.isBatch()) {
+            logger.warn("Slow statement batch ({} ms, {} statements): {}", execInfo.getElapsedTime(), execInfo.getBatchSize(), sql);
+        } else {
+            logger.warn("Slow statement ({} ms): {}", execInfo.getElapsedTime(), sql);
+            if (planCapture != null && execInfo.isSuccess()) {
+                List<List<ParameterSetOperation>> parameters = queryInfoList.get(0).getParametersList();
+                planCapture.capture(sql, parameters.isEmpty() ? List.of() : parameters.get(0));
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.assessment.entity;
 import com.example.assessment.model.DeviceState;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.PartitionKey;
 import java.time.LocalDateTime;
 
 @Entity
@@ -11,13 +12,18 @@ import java.time.LocalDateTime;
 public class DeviceEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY so Hibernate can assign ids up front and batch the INSERTs
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_seq")
+    @SequenceGenerator(name = "devices_seq", sequenceName = "devices_seq", allocationSize = 50)
     private Long id;
 
     private String name;
 
     private String brand;
 
+    // the devices table is partitioned by state (V4): Hibernate adds it to the WHERE clause of its updates and deletes,
+    // with the value it loaded, so they only touch the device's partition
+    @PartitionKey
     @Enumerated(EnumType.STRING)
     private DeviceState state;
 
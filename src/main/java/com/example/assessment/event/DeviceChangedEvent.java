@@ -0,0 +1,34 @@
+package com.example.assessment.event;
+
+import com.example.assessment.model.DeviceDTO;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+// Published by every write path once the change has been applied (inside the transaction, if there is one).
+// before is null for CREATED and after is null for DELETED.
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class DeviceChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final DeviceDTO before;
+    private final DeviceDTO after;
+
+    public static DeviceChangedEvent created(DeviceDTO after) {
+        return new DeviceChangedEvent(Type.CREATED, null, after);
+    }
+
+    public static DeviceChangedEvent updated(DeviceDTO before, DeviceDTO after) {
+        return new DeviceChangedEvent(Type.UPDATED, before, after);
+    }
+
+    public static DeviceChangedEvent deleted(DeviceDTO before) {
+        return new DeviceChangedEvent(Type.DELETED, before, null);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.assessment.exception;
+
+public class DeviceStateConflictException extends RuntimeException {
+    public DeviceStateConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.assessment.exception;
+
+public class DeviceVersionMismatchException extends RuntimeException {
+    public DeviceVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.assessment.exception;
+
+public class InvalidAnalyticsQueryException extends RuntimeException {
+    public InvalidAnalyticsQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.assessment.exception;
+
+public class InvalidBatchOperationException extends RuntimeException {
+    public InvalidBatchOperationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.assessment.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps the lines the listed loggers write per second; beyond maxPerSecond the rest of that second's lines below ERROR
+// are dropped. The decision comes before logback creates the event, so a dropped line costs a map lookup and an
+// increment, no event, no formatting and no slot in the async queue. Meant for loggers that fire per request or
+// per statement (404s, slow queries, SQL), where a burst would otherwise flood the queue and the output.
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final Set<String> loggers = new LinkedHashSet<>();
+    private int maxPerSecond = 50;
+    private Map<String, Budget> budgets = Map.of();
+
+    // comma-separated logger names
+    public void setLoggers(String loggers) {
+        for (String logger : loggers.split(",")) {
+            if (!logger.isBlank()) {
+                this.loggers.add(logger.trim());
+            }
+        }
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public void start() {
+        Map<String, Budget> budgets = new HashMap<>();
+        for (String logger : loggers) {
+            budgets.put(logger, new Budget());
+        }
+        this.budgets = budgets;
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format is null for isXxxEnabled() checks, which shouldn't use up the budget
+        if (format == null || level.isGreaterOrEqual(Level.ERROR) || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Budget budget = budgets.get(logger.getName());
+        if (budget == null || budget.tryAcquire(maxPerSecond)) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+
+    public long getDropped(String logger) {
+        Budget budget = budgets.get(logger);
+        return budget == null ? 0 : budget.dropped.get();
+    }
+
+    private static final class Budget {
+
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicInteger used = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+
+        // a line can slip into the wrong second when the window turns over concurrently, which sampling can live with
+        boolean tryAcquire(int maxPerSecond) {
+            long now = System.currentTimeMillis() / 1000;
+            long current = second.get();
+            if (now != current && second.compareAndSet(current, now)) {
+                used.set(0);
+            }
+            if (used.incrementAndGet() <= maxPerSecond) {
+                return true;
+            }
+            dropped.incrementAndGet();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.assessment.model;
+
+// What /api/v1/devices/analytics can group by. CREATED buckets the creation time by calendar interval (the bucket's
+// start is the key), AGE by how many intervals ago the device was created.
+public enum AnalyticsDimension {
+    BRAND, STATE, CREATED, AGE
+}
@@ -0,0 +1,7 @@
+package com.example.assessment.model;
+
+// Bucket width for AnalyticsDimension.CREATED and AGE. Creation times are bucketed by calendar (weeks start on
+// Monday), ages in fixed steps: a MONTH of age is 30 days, a YEAR 365.
+public enum AnalyticsInterval {
+    DAY, WEEK, MONTH, YEAR
+}
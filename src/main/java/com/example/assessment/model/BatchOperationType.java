@@ -0,0 +1,7 @@
+package com.example.assessment.model;
+
+public enum BatchOperationType {
+    CREATE,
+    UPDATE,
+    DELETE
+}
@@ -0,0 +1,32 @@
+package com.example.assessment.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceAnalytics {
+    private List<AnalyticsDimension> groupBy;
+    private AnalyticsInterval interval;
+    private long total;
+    // non-empty groups only, ordered by key: brands alphabetically, states in declaration order, buckets ascending,
+    // missing values last
+    private List<Group> groups;
+    // counts come from a snapshot of the table read at this time, plus this instance's writes since
+    private LocalDateTime snapshotAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Group {
+        // per dimension: the brand, the state, the start of the creation-time bucket, or the age in intervals
+        private Map<String, Object> key;
+        private long count;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.assessment.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class DeviceAnalyticsQuery {
+    @Schema(description = "Dimensions to count by, in the order of the group keys", example = "BRAND,STATE")
+    private List<AnalyticsDimension> groupBy;
+
+    @Schema(description = "Bucket width for CREATED and AGE", defaultValue = "MONTH")
+    private AnalyticsInterval interval = AnalyticsInterval.MONTH;
+
+    @Schema(description = "Only these brands (exact)", example = "Apple,Samsung")
+    private List<String> brand;
+
+    @Schema(description = "Only these states")
+    private List<DeviceState> state;
+
+    @Schema(description = "Case-sensitive name prefix", example = "iPhone")
+    private String namePrefix;
+
+    @Schema(description = "Created at or after (inclusive), ISO date-time", example = "2025-01-01T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @Schema(description = "Created before (exclusive), ISO date-time", example = "2026-01-01T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+}
@@ -0,0 +1,19 @@
+package com.example.assessment.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeviceBatchItemResult {
+    // position of the operation in the request
+    private long index;
+    private BatchOperationType op;
+    private int status;
+    private Long id;
+    private String error;
+}
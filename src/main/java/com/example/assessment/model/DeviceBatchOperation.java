@@ -0,0 +1,13 @@
+package com.example.assessment.model;
+
+import lombok.Data;
+
+@Data
+public class DeviceBatchOperation {
+    private BatchOperationType op;
+    // required for UPDATE and DELETE, ignored for CREATE
+    private Long id;
+    private String name;
+    private String brand;
+    private DeviceState state;
+}
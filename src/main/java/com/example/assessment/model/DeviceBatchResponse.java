@@ -0,0 +1,17 @@
+package com.example.assessment.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceBatchResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<DeviceBatchItemResult> results;
+}
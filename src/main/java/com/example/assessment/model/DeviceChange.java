@@ -0,0 +1,22 @@
+package com.example.assessment.model;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceChange {
+    private long sequence;
+    private DeviceChangedEvent.Type type;
+    private Long id;
+    // changes to the same device can be sequenced out of commit order, a lower version than already seen is stale
+    private Long version;
+    // the device after the change; for DELETED, the device as it was
+    private DeviceResponse device;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,16 @@
+package com.example.assessment.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceChangeBatch {
+    private List<DeviceChange> changes;
+    // pass as ?after= on the next poll
+    private long lastSequence;
+}
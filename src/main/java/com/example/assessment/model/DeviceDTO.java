@@ -21,4 +21,6 @@ public class DeviceDTO {
 
     private LocalDateTime creationTime;
 
+    private Long version;
+
 }
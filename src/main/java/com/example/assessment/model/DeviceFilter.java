@@ -0,0 +1,27 @@
+package com.example.assessment.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+public class DeviceFilter {
+    @Schema(description = "Exact brand", example = "Apple")
+    private String brand;
+
+    @Schema(description = "Device state")
+    private DeviceState state;
+
+    @Schema(description = "Case-sensitive name prefix", example = "iPhone")
+    private String namePrefix;
+
+    @Schema(description = "Created at or after (inclusive), ISO date-time", example = "2025-01-01T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @Schema(description = "Created before (exclusive), ISO date-time", example = "2026-01-01T00:00:00")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+}
@@ -0,0 +1,73 @@
+package com.example.assessment.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+// One page of an offset-paged listing as it goes over the wire: content, number and size of the page, whether
+// another page follows, and the totals unless the caller skipped the count (null then, and left out of the JSON).
+// Unlike PageImpl it has no pageable and sort to walk. map() doesn't copy the content, it returns a view that
+// converts each element as DevicePageSerializer streams it out.
+@Getter
+@JsonSerialize(using = DevicePageSerializer.class)
+public class DevicePage<T> {
+
+    private final List<T> content;
+    private final int number;
+    private final int size;
+    private final boolean hasNext;
+    private final Long totalElements;
+
+    public DevicePage(List<T> content, int number, int size, boolean hasNext, Long totalElements) {
+        this.content = content;
+        this.number = number;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.totalElements = totalElements;
+    }
+
+    // the total comes along if the slice is a Page, i.e. if it was counted
+    public static <T> DevicePage<T> of(Slice<T> slice) {
+        Long total = slice instanceof Page<T> page ? page.getTotalElements() : null;
+        return new DevicePage<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(), total);
+    }
+
+    public Integer getTotalPages() {
+        if (totalElements == null) {
+            return null;
+        }
+        return size == 0 ? 1 : (int) Math.ceil((double) totalElements / size);
+    }
+
+    public <R> DevicePage<R> map(Function<? super T, ? extends R> mapper) {
+        return new DevicePage<>(new MappedList<>(content, mapper), number, size, hasNext, totalElements);
+    }
+
+    // converts on every get, so iterating twice converts twice
+    private static final class MappedList<S, R> extends AbstractList<R> implements RandomAccess {
+
+        private final List<S> source;
+        private final Function<? super S, ? extends R> mapper;
+
+        private MappedList(List<S> source, Function<? super S, ? extends R> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public R get(int index) {
+            return mapper.apply(source.get(index));
+        }
+
+        @Override
+        public int size() {
+            return source.size();
+        }
+    }
+}
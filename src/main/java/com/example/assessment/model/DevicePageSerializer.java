@@ -0,0 +1,63 @@
+package com.example.assessment.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+// Writes a DevicePage field by field with pre-encoded names. The content is streamed element by element with the
+// serializer of the element type, looked up once per page rather than per element, so a mapped page is converted
+// as it's written and never collected into a list first.
+public class DevicePageSerializer extends StdSerializer<DevicePage<?>> {
+
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString NUMBER = new SerializedString("number");
+    private static final SerializedString SIZE = new SerializedString("size");
+    private static final SerializedString HAS_NEXT = new SerializedString("hasNext");
+    private static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializedString TOTAL_PAGES = new SerializedString("totalPages");
+
+    @SuppressWarnings("unchecked")
+    public DevicePageSerializer() {
+        super((Class<DevicePage<?>>) (Class<?>) DevicePage.class);
+    }
+
+    @Override
+    public void serialize(DevicePage<?> page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        List<?> content = page.getContent();
+        gen.writeStartObject(page);
+        gen.writeFieldName(CONTENT);
+        gen.writeStartArray(content, content.size());
+        Class<?> elementType = null;
+        JsonSerializer<Object> elementSerializer = null;
+        for (Object element : content) {
+            if (element == null) {
+                provider.defaultSerializeNull(gen);
+                continue;
+            }
+            if (element.getClass() != elementType) {
+                elementType = element.getClass();
+                elementSerializer = provider.findValueSerializer(elementType);
+            }
+            elementSerializer.serialize(element, gen, provider);
+        }
+        gen.writeEndArray();
+        gen.writeFieldName(NUMBER);
+        gen.writeNumber(page.getNumber());
+        gen.writeFieldName(SIZE);
+        gen.writeNumber(page.getSize());
+        gen.writeFieldName(HAS_NEXT);
+        gen.writeBoolean(page.isHasNext());
+        if (page.getTotalElements() != null) {
+            gen.writeFieldName(TOTAL_ELEMENTS);
+            gen.writeNumber(page.getTotalElements());
+            gen.writeFieldName(TOTAL_PAGES);
+            gen.writeNumber(page.getTotalPages());
+        }
+        gen.writeEndObject();
+    }
+}
@@ -10,5 +10,7 @@ public class DeviceResponse {
     private String brand;
     private DeviceState state;
     private LocalDateTime creationTime;
+    // also sent as the ETag, clients echo it in If-Match for conditional updates
+    private Long version;
 }
 
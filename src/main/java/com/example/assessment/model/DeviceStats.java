@@ -0,0 +1,20 @@
+package com.example.assessment.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceStats {
+    private long total;
+    private Map<DeviceState, Long> byState;
+    private Map<String, Long> byBrand;
+    private Map<String, Map<DeviceState, Long>> byBrandAndState;
+    // counters are kept current by the write paths and checked against the database at this time
+    private LocalDateTime reconciledAt;
+}
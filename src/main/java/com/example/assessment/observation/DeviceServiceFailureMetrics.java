@@ -0,0 +1,71 @@
+package com.example.assessment.observation;
+
+import com.example.assessment.exception.DeviceInUseException;
+import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.exception.DeviceVersionMismatchException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+// Counts the device.service calls that failed for a reason clients run into, as device.service.failures by reason:
+// not_found, in_use, state_conflict (a checkout/checkin that lost), version_mismatch (an If-Match that didn't match)
+// and optimistic_lock (a write that lost against a concurrent one, also when that only shows at commit).
+// The counters are registered up front so counting is one increment.
+public class DeviceServiceFailureMetrics implements ObservationHandler<Observation.Context> {
+
+    private final Counter notFound;
+    private final Counter inUse;
+    private final Counter stateConflict;
+    private final Counter versionMismatch;
+    private final Counter optimisticLock;
+
+    public DeviceServiceFailureMetrics(MeterRegistry meterRegistry) {
+        this.notFound = counter(meterRegistry, "not_found");
+        this.inUse = counter(meterRegistry, "in_use");
+        this.stateConflict = counter(meterRegistry, "state_conflict");
+        this.versionMismatch = counter(meterRegistry, "version_mismatch");
+        this.optimisticLock = counter(meterRegistry, "optimistic_lock");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(DeviceServiceObservationInterceptor.OBSERVATION_NAME + ".failures")
+                .description("DeviceService calls that failed, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onError(Observation.Context context) {
+        Counter counter = counterFor(context.getError());
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private Counter counterFor(Throwable error) {
+        if (error instanceof DeviceNotFoundException) {
+            return notFound;
+        }
+        if (error instanceof DeviceInUseException) {
+            return inUse;
+        }
+        if (error instanceof DeviceStateConflictException) {
+            return stateConflict;
+        }
+        if (error instanceof DeviceVersionMismatchException) {
+            return versionMismatch;
+        }
+        if (error instanceof OptimisticLockingFailureException) {
+            return optimisticLock;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return DeviceServiceObservationInterceptor.OBSERVATION_NAME.equals(context.getName());
+    }
+}
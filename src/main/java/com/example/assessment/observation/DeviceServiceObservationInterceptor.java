@@ -0,0 +1,46 @@
+package com.example.assessment.observation;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.util.function.Supplier;
+
+// Runs a DeviceService call in a "device.service" observation tagged with the method. The meter handler records it
+// as the device.service timer (tagged with the exception, if any), the tracing handler as a span under the request's,
+// and the JDBC spans of its queries hang below it.
+public class DeviceServiceObservationInterceptor implements MethodInterceptor {
+
+    public static final String OBSERVATION_NAME = "device.service";
+
+    // the advisor is created before the registry has its handlers, so it's looked up on the first call
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    public DeviceServiceObservationInterceptor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = SingletonSupplier.of(() -> observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ObservationRegistry registry = observationRegistry.get();
+        if (registry.isNoop()) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+        Observation observation = Observation.createNotStarted(OBSERVATION_NAME, registry)
+                .lowCardinalityKeyValue("method", method)
+                .contextualName("device-service " + method)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.assessment.observation;
+
+import com.example.assessment.datasource.QueryPlanCapture;
+import com.example.assessment.datasource.QueryStatistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+// /actuator/slowqueries: the normalized queries with the highest p99, with counts, percentiles and the last captured
+// plan if one was slow enough to get one. DELETE starts over.
+@Endpoint(id = "slowqueries")
+public class SlowQueriesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final QueryStatistics statistics;
+    private final QueryPlanCapture planCapture;
+
+    public SlowQueriesEndpoint(QueryStatistics statistics, @Nullable QueryPlanCapture planCapture) {
+        this.statistics = statistics;
+        this.planCapture = planCapture;
+    }
+
+    @ReadOperation
+    public List<SlowQuery> slowQueries(@Nullable Integer limit) {
+        return statistics.top(limit != null && limit > 0 ? limit : DEFAULT_LIMIT).stream()
+                .map(summary -> new SlowQuery(summary, planCapture != null ? planCapture.planFor(summary.query()) : null))
+                .toList();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statistics.reset();
+        if (planCapture != null) {
+            planCapture.reset();
+        }
+    }
+
+    public record SlowQuery(QueryStatistics.Summary statistics, QueryPlanCapture.QueryPlan plan) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.assessment.outbox;
+
+import java.util.List;
+
+// Where the outbox relay delivers device events. publish gets the messages of one batch in id order and either
+// delivers all of them or throws; on an exception the whole batch stays in the outbox and is offered again, so a
+// sink sees messages at least once. Declare a bean of this type to replace the built-in ones.
+public interface DeviceEventSink {
+
+    void publish(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,80 @@
+package com.example.assessment.outbox;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.DeviceDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes every device change to the device_outbox table as part of the transaction that made it, so the event is
+// stored if and only if the change commits. Events of one transaction are collected and inserted in a single JDBC
+// batch right before the commit; a bulk chunk of 500 operations costs one extra round trip, not 500.
+@Component
+public class DeviceOutbox {
+
+    static final String INSERT = "INSERT INTO device_outbox (device_id, event_type, payload) VALUES (?, ?, CAST(? AS json))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public DeviceOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    // A plain listener runs inside the publishing transaction, unlike the @TransactionalEventListener ones. Without
+    // one the change has already committed on its own and the event can't join it, so that's a bug in the publisher.
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Device event " + event.getType() + " published outside a transaction");
+        }
+        Object[] row = toRow(event);
+        @SuppressWarnings("unchecked")
+        List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Object[]> rows = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, rows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    jdbcTemplate.batchUpdate(INSERT, rows);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DeviceOutbox.this);
+                }
+            });
+            pending = rows;
+        }
+        pending.add(row);
+    }
+
+    private Object[] toRow(DeviceChangedEvent event) {
+        DeviceDTO device = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", event.getType());
+        payload.put("deviceId", device.getId());
+        payload.put("version", device.getVersion());
+        payload.put("before", event.getBefore());
+        payload.put("after", event.getAfter());
+        payload.put("occurredAt", LocalDateTime.now());
+        try {
+            return new Object[]{device.getId(), event.getType().name(), objectMapper.writeValueAsString(payload)};
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize device event for device " + device.getId(), e);
+        }
+    }
+}
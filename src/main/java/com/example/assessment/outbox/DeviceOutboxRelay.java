@@ -0,0 +1,155 @@
+package com.example.assessment.outbox;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains device_outbox into the DeviceEventSink. Each batch is claimed, delivered and deleted in one transaction:
+// the DELETE takes the oldest rows nobody else holds (FOR UPDATE SKIP LOCKED), so any number of instances can relay
+// side by side without handing out a row twice, and a failed delivery rolls the delete back. After a failure the
+// relay backs off, doubling the pause up to device.outbox.max-backoff.
+@Component
+@ConditionalOnProperty(name = "device.outbox.relay.enabled", matchIfMissing = true)
+public class DeviceOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceOutboxRelay.class);
+
+    static final String CLAIM_BATCH = """
+            DELETE FROM device_outbox
+            WHERE id IN (SELECT id FROM device_outbox ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+            RETURNING id, device_id, event_type, payload::text AS payload, created_at,
+                      (extract(epoch FROM clock_timestamp() - created_at) * 1000)::bigint AS age_ms
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DeviceEventSink sink;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration pollInterval;
+    private final Duration maxBackoff;
+
+    private final DistributionSummary batchSizes;
+    private final Timer lag;
+    private final Counter failures;
+    // age of the oldest message known to be waiting, 0 once the outbox has been drained
+    private final AtomicLong backlogAgeMillis = new AtomicLong();
+
+    private Duration backoff = Duration.ZERO;
+    private long retryAt;
+
+    public DeviceOutboxRelay(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             DeviceEventSink sink, MeterRegistry meterRegistry,
+                             @Value("${device.outbox.batch-size:500}") int batchSize,
+                             @Value("${device.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+                             @Value("${device.outbox.poll-interval:200ms}") Duration pollInterval,
+                             @Value("${device.outbox.max-backoff:30s}") Duration maxBackoff) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pollInterval = pollInterval;
+        this.maxBackoff = maxBackoff;
+        this.batchSizes = DistributionSummary.builder("device.outbox.batch.size")
+                .description("Messages delivered per relay batch")
+                .baseUnit("messages")
+                .register(meterRegistry);
+        this.lag = Timer.builder("device.outbox.lag")
+                .description("Time from writing a device event to the outbox until the sink accepted it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.failures = Counter.builder("device.outbox.failures")
+                .description("Relay batches that could not be delivered and were left in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("device.outbox.backlog.age", backlogAgeMillis, age -> age.get() / 1000.0)
+                .description("Age of the oldest device event still waiting in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${device.outbox.poll-interval:200ms}")
+    public void relay() {
+        if (System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        // a full batch means there's probably more; the cap leaves room for the other scheduled tasks
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            int delivered;
+            try {
+                delivered = relayBatch();
+            } catch (RuntimeException e) {
+                failures.increment();
+                backoff = backoff.isZero() ? pollInterval : min(backoff.multipliedBy(2), maxBackoff);
+                retryAt = System.currentTimeMillis() + backoff.toMillis();
+                logger.warn("Relaying device events failed, retrying in {}", backoff, e);
+                return;
+            }
+            backoff = Duration.ZERO;
+            if (delivered < batchSize) {
+                return;
+            }
+        }
+    }
+
+    // returns the number of messages delivered
+    int relayBatch() {
+        Integer delivered = transactionTemplate.execute(status -> {
+            List<Claimed> claimed = jdbcTemplate.query(CLAIM_BATCH, (rs, rowNum) -> new Claimed(
+                    new OutboxMessage(rs.getLong("id"), rs.getLong("device_id"),
+                            DeviceChangedEvent.Type.valueOf(rs.getString("event_type")), rs.getString("payload"),
+                            rs.getTimestamp("created_at").toInstant()),
+                    rs.getLong("age_ms")), batchSize);
+            if (claimed.isEmpty()) {
+                backlogAgeMillis.set(0);
+                return 0;
+            }
+            // RETURNING gives no order guarantee
+            claimed.sort(Comparator.comparingLong(c -> c.message().getId()));
+            // stays set if delivery fails and the batch goes back to the outbox
+            backlogAgeMillis.set(claimed.get(0).ageMillis());
+            List<OutboxMessage> messages = new ArrayList<>(claimed.size());
+            claimed.forEach(c -> messages.add(c.message()));
+            long started = System.nanoTime();
+            try {
+                sink.publish(messages);
+            } catch (Exception e) {
+                throw new IllegalStateException("Device event sink rejected a batch of " + messages.size(), e);
+            }
+            long deliveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            claimed.forEach(c -> lag.record(c.ageMillis() + deliveryMillis, TimeUnit.MILLISECONDS));
+            batchSizes.record(messages.size());
+            return messages.size();
+        });
+        if (delivered != null && delivered < batchSize) {
+            backlogAgeMillis.set(0);
+        }
+        return delivered == null ? 0 : delivered;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private record Claimed(OutboxMessage message, long ageMillis) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.assessment.outbox;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+    // increases with every write, but a lower id can commit after a higher one; consumers dedupe on it
+    private long id;
+    private Long deviceId;
+    private DeviceChangedEvent.Type type;
+    // JSON with type, deviceId, version, before, after and occurredAt
+    private String payload;
+    private Instant createdAt;
+}
@@ -0,0 +1,12 @@
+package com.example.assessment.repository;
+
+import com.example.assessment.model.DeviceState;
+
+public interface BrandStateCount {
+
+    String getBrand();
+
+    DeviceState getState();
+
+    long getCount();
+}
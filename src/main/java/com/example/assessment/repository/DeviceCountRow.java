@@ -0,0 +1,7 @@
+package com.example.assessment.repository;
+
+import com.example.assessment.model.DeviceState;
+
+// What stats reconciliation reads of a device it saw change while counting
+public record DeviceCountRow(Long id, String brand, DeviceState state, Long version) {
+}
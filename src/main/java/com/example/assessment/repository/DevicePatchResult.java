@@ -0,0 +1,25 @@
+package com.example.assessment.repository;
+
+import com.example.assessment.model.DeviceState;
+
+import java.time.LocalDateTime;
+
+// Row returned by DeviceRepository.updateNameAndBrandIfNotInUse
+public interface DevicePatchResult {
+
+    Long getId();
+
+    String getName();
+
+    String getBrand();
+
+    DeviceState getState();
+
+    LocalDateTime getCreationTime();
+
+    Long getVersion();
+
+    String getPreviousName();
+
+    String getPreviousBrand();
+}
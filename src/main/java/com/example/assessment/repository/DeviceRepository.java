@@ -1,12 +1,95 @@
 package com.example.assessment.repository;
 
 import com.example.assessment.entity.DeviceEntity;
-import com.example.assessment.model.DeviceState;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface DeviceRepository extends JpaRepository<DeviceEntity, Long> {
-    List<DeviceEntity> findByBrand(String brand);
-    List<DeviceEntity> findByState(DeviceState state);
+// Filtering (brand, state, name prefix, creation time) goes through DeviceSpecifications.
+public interface DeviceRepository extends JpaRepository<DeviceEntity, Long>, JpaSpecificationExecutor<DeviceEntity> {
+
+    // keyset scrolling: seeks past the last (sort key, id) instead of using OFFSET and never issues a count query.
+    // keys null starts from the beginning. DeviceSpecifications.after splits the rest into the non-null values of the
+    // first sort column and its nulls, which are read in sort order until the page is full
+    default List<DeviceEntity> findAfter(Map<String, Object> keys, Sort sort, int limit) {
+        List<DeviceEntity> rows = new ArrayList<>();
+        for (Specification<DeviceEntity> part : DeviceSpecifications.after(keys, sort)) {
+            int remaining = limit - rows.size();
+            rows.addAll(findBy(part, query -> query.sortBy(sort).limit(remaining).all()));
+            if (rows.size() >= limit) {
+                break;
+            }
+        }
+        return rows;
+    }
+
+    // a page without the count query: reads one row past the page to tell whether another one follows
+    Slice<DeviceEntity> findSliceBy(Pageable pageable);
+
+    // forward-only cursor, must be consumed inside a transaction so the driver fetches in chunks instead of buffering the whole table
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select d from DeviceEntity d order by d.id")
+    Stream<DeviceEntity> streamAllBy();
+
+    // the same cursor over just what the search index needs; DTOs aren't managed, so nothing piles up in the persistence context
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.assessment.repository.DeviceSearchText(d.id, d.name, d.brand) from DeviceEntity d order by d.id")
+    Stream<DeviceSearchText> streamSearchTextBy();
+
+    // and over the columns of the analytics snapshot
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.assessment.repository.DeviceSnapshotRow(d.id, d.name, d.brand, d.state, d.creationTime) "
+            + "from DeviceEntity d order by d.id")
+    Stream<DeviceSnapshotRow> streamSnapshotRowsBy();
+
+    // Single round trip for the common PATCH: applies the rename only if the device isn't in use and hands back the
+    // updated row together with the name and brand it had before. Empty means the device is missing, in use or not at
+    // expectedVersion; null name or brand leave the column unchanged, a negative expectedVersion matches any version.
+    // Both sides repeat the id and the state condition, which keeps each of them to one partition per state.
+    @Query(value = "UPDATE devices d SET name = COALESCE(:name, d.name), brand = COALESCE(:brand, d.brand), version = d.version + 1 "
+            + "FROM (SELECT id, name, brand FROM devices WHERE id = :id AND state <> 'IN_USE' FOR UPDATE) old "
+            + "WHERE d.id = :id AND d.id = old.id AND d.state <> 'IN_USE' AND (:expectedVersion < 0 OR d.version = :expectedVersion) "
+            + "RETURNING d.id, d.name, d.brand, d.state, d.creation_time AS \"creationTime\", d.version, "
+            + "old.name AS \"previousName\", old.brand AS \"previousBrand\"", nativeQuery = true)
+    Optional<DevicePatchResult> updateNameAndBrandIfNotInUse(@Param("id") Long id, @Param("name") String name, @Param("brand") String brand,
+                                                             @Param("expectedVersion") long expectedVersion);
+
+    // conditional GETs only need to know whether the version changed. Read-only like the inherited finders (a
+    // declared query isn't on its own), so with replicas configured it runs on one
+    @Transactional(readOnly = true)
+    @Query("select d.version from DeviceEntity d where d.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Compare-and-set on the state column: only one of several concurrent transitions on the same device matches,
+    // the others get an empty result instead of an optimistic lock failure. With id and state it touches a single
+    // partition; the ones that waited for the winner fail once it moved the row (see DeviceService.transitionState).
+    @Query(value = "UPDATE devices SET state = :to, version = version + 1 WHERE id = :id AND state = :from RETURNING *",
+            nativeQuery = true)
+    Optional<DeviceEntity> transitionState(@Param("id") Long id, @Param("from") String from, @Param("to") String to);
+
+    @Query("select d.brand as brand, d.state as state, count(d) as count from DeviceEntity d group by d.brand, d.state")
+    List<BrandStateCount> countByBrandAndState();
+
+    @Query("select new com.example.assessment.repository.DeviceCountRow(d.id, d.brand, d.state, d.version) "
+            + "from DeviceEntity d where d.id in :ids")
+    List<DeviceCountRow> findCountRowsByIdIn(@Param("ids") Collection<Long> ids);
 }
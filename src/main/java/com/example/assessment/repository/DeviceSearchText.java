@@ -0,0 +1,5 @@
+package com.example.assessment.repository;
+
+// What the search index reads of a device
+public record DeviceSearchText(Long id, String name, String brand) {
+}
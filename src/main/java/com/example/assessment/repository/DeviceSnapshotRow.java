@@ -0,0 +1,9 @@
+package com.example.assessment.repository;
+
+import com.example.assessment.model.DeviceState;
+
+import java.time.LocalDateTime;
+
+// What the analytics snapshot reads of a device
+public record DeviceSnapshotRow(Long id, String name, String brand, DeviceState state, LocalDateTime creationTime) {
+}
@@ -0,0 +1,122 @@
+package com.example.assessment.repository;
+
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.model.DeviceFilter;
+import com.example.assessment.model.DeviceState;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Plain equality / prefix / range predicates only, so every combination stays sargable for the indexes in V2.
+public final class DeviceSpecifications {
+
+    private DeviceSpecifications() {
+    }
+
+    public static Specification<DeviceEntity> matching(DeviceFilter filter) {
+        List<Specification<DeviceEntity>> specs = new ArrayList<>();
+        if (filter.getBrand() != null) {
+            specs.add(hasBrand(filter.getBrand()));
+        }
+        if (filter.getState() != null) {
+            specs.add(hasState(filter.getState()));
+        }
+        if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+            specs.add(nameStartsWith(filter.getNamePrefix()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            specs.add(createdAtOrAfter(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            specs.add(createdBefore(filter.getCreatedTo()));
+        }
+        return Specification.allOf(specs);
+    }
+
+    public static Specification<DeviceEntity> hasBrand(String brand) {
+        return (root, query, cb) -> cb.equal(root.get("brand"), brand);
+    }
+
+    public static Specification<DeviceEntity> hasState(DeviceState state) {
+        return (root, query, cb) -> cb.equal(root.get("state"), state);
+    }
+
+    public static Specification<DeviceEntity> nameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("name"), escapeLike(prefix) + "%", '\\');
+    }
+
+    public static Specification<DeviceEntity> createdAtOrAfter(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("creationTime"), from);
+    }
+
+    public static Specification<DeviceEntity> createdBefore(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.get("creationTime"), to);
+    }
+
+    // Keyset seek: the rows strictly after keys in sort order, where nulls sort last ascending and first descending
+    // (Postgres' default for an ORDER BY without NULLS FIRST/LAST). Name, brand, state and creation time are nullable,
+    // and a plain col > :value would skip every row whose column is null. An OR with col IS NULL would keep them but
+    // turn the seek into a filter over the whole index, so the rows are returned as up to two parts, each one a range
+    // of the first sort column to read in order: the non-null values and the nulls. Within a part the first column is
+    // bounded on its own (col >= :value AND (col > :value OR col = :value AND ...)), which is the index range the scan
+    // starts at; id is never null and gets a plain comparison. No keys means from the start, in one part.
+    public static List<Specification<DeviceEntity>> after(Map<String, Object> keys, Sort sort) {
+        if (keys == null) {
+            return List.of(Specification.allOf());
+        }
+        List<Sort.Order> orders = sort.toList();
+        Sort.Order order = orders.get(0);
+        String property = order.getProperty();
+        Specification<DeviceEntity> nulls = (root, query, cb) -> cb.isNull(root.get(property));
+        Specification<DeviceEntity> values = (root, query, cb) -> cb.isNotNull(root.get(property));
+        if (keys.get(property) == null) {
+            Specification<DeviceEntity> tied = orders.size() == 1
+                    ? (root, query, cb) -> cb.disjunction()
+                    : nulls.and((root, query, cb) -> after(root, cb, orders, 1, keys));
+            // descending, the non-null values come after the nulls
+            return order.isAscending() ? List.of(tied) : List.of(tied, values);
+        }
+        Specification<DeviceEntity> seek = (root, query, cb) -> seek(root, cb, orders, 0, keys);
+        return order.isAscending() && !"id".equals(property) ? List.of(seek, nulls) : List.of(seek);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate after(Root<DeviceEntity> root, CriteriaBuilder cb, List<Sort.Order> orders, int i,
+                                   Map<String, Object> keys) {
+        Sort.Order order = orders.get(i);
+        Expression<Comparable> column = root.get(order.getProperty());
+        if (keys.get(order.getProperty()) == null) {
+            Predicate tied = i == orders.size() - 1 ? cb.disjunction() : cb.and(cb.isNull(column), after(root, cb, orders, i + 1, keys));
+            return order.isAscending() ? tied : cb.or(cb.isNotNull(column), tied);
+        }
+        Predicate seek = seek(root, cb, orders, i, keys);
+        return order.isAscending() && !"id".equals(order.getProperty()) ? cb.or(seek, cb.isNull(column)) : seek;
+    }
+
+    // the non-null rows after a non-null key
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate seek(Root<DeviceEntity> root, CriteriaBuilder cb, List<Sort.Order> orders, int i,
+                                  Map<String, Object> keys) {
+        Sort.Order order = orders.get(i);
+        Expression<Comparable> column = root.get(order.getProperty());
+        Comparable value = (Comparable) keys.get(order.getProperty());
+        Predicate beyond = order.isAscending() ? cb.greaterThan(column, value) : cb.lessThan(column, value);
+        if (i == orders.size() - 1) {
+            return beyond;
+        }
+        Predicate bound = order.isAscending() ? cb.greaterThanOrEqualTo(column, value) : cb.lessThanOrEqualTo(column, value);
+        return cb.and(bound, cb.or(beyond, cb.and(cb.equal(column, value), after(root, cb, orders, i + 1, keys))));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,512 @@
+package com.example.assessment.search;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// An inverted index over device names and brands, built once from the whole table and immutable after that except
+// for hiding devices that changed since (their current version is looked up elsewhere, see DeviceSearchService).
+// Everything is in flat arrays, a few dozen bytes per device: the sorted terms with their postings (the devices that
+// contain them) and, per device, the terms it contains. Devices are numbered in id order, so every posting list and
+// every scan runs in id order too.
+//
+// A query is a list of tokens, all of which a device has to match. A device scores the sum of how well it matches
+// each token (SearchTokens.EXACT, PREFIX or FUZZY), results are ordered by score, then id.
+public final class DeviceSearchIndex {
+
+    public static final DeviceSearchIndex EMPTY = new Builder().build();
+
+    private static final Comparator<Hit> RANKING =
+            Comparator.comparingInt(Hit::score).reversed().thenComparingLong(Hit::id);
+
+    // up to this many posting lists are merged, more go through a bitmap: one bit per device, but no heap to maintain
+    private static final int MAX_MERGED_TERMS = 64;
+
+    private final long[] ids;
+    // term t is termChars[termStarts[t], termStarts[t + 1]), terms sorted
+    private final char[] termChars;
+    private final int[] termStarts;
+    // the terms made only of letters, the ones typos are looked for in
+    private final int[] wordTerms;
+    // the devices containing term t are postings[postingStarts[t], postingStarts[t + 1]), ascending
+    private final int[] postingStarts;
+    private final int[] postings;
+    // the terms of device d are docTerms[docStarts[d], docStarts[d + 1])
+    private final int[] docStarts;
+    private final int[] docTerms;
+    private final AtomicLongArray hidden;
+
+    private DeviceSearchIndex(long[] ids, char[] termChars, int[] termStarts, int[] wordTerms, int[] postingStarts,
+                              int[] postings, int[] docStarts, int[] docTerms) {
+        this.ids = ids;
+        this.termChars = termChars;
+        this.termStarts = termStarts;
+        this.wordTerms = wordTerms;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+        this.docStarts = docStarts;
+        this.docTerms = docTerms;
+        this.hidden = new AtomicLongArray((ids.length + 63) >>> 6);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int terms() {
+        return termStarts.length - 1;
+    }
+
+    // leaves the device out of every search from now on; a no-op for devices the index doesn't have
+    public void hide(long id) {
+        int doc = Arrays.binarySearch(ids, id);
+        if (doc >= 0) {
+            hidden.getAndUpdate(doc >>> 6, bits -> bits | 1L << doc);
+        }
+    }
+
+    private boolean isHidden(int doc) {
+        return (hidden.get(doc >>> 6) & 1L << doc) != 0;
+    }
+
+    // The best limit devices, best first. Devices that match every token at its best possible score can't be
+    // beaten by a later one, so the scan stops once limit of them are found.
+    public List<Hit> search(List<String> tokens, int limit) {
+        if (tokens.isEmpty() || limit <= 0 || ids.length == 0) {
+            return List.of();
+        }
+        TokenMatch[] matches = new TokenMatch[tokens.size()];
+        TokenMatch driver = null;
+        int bestScore = 0;
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = match(tokens.get(i));
+            if (matches[i].best == SearchTokens.NONE) {
+                return List.of();
+            }
+            bestScore += matches[i].best;
+            if (driver == null || matches[i].postingCount < driver.postingCount) {
+                driver = matches[i];
+            }
+        }
+        TopHits top = new TopHits(limit, bestScore);
+        // the devices of the token with the fewest, in id order: merged straight from the posting lists if there
+        // are a few of them, through a bitmap of all devices otherwise
+        if (driver.termCount() <= MAX_MERGED_TERMS) {
+            mergePostings(driver.terms(), matches, top);
+        } else {
+            long[] candidates = new long[(ids.length + 63) >>> 6];
+            addPostings(candidates, driver.from, driver.to);
+            for (int term : driver.fuzzyTerms) {
+                addPostings(candidates, term, term + 1);
+            }
+            scan:
+            for (int word = 0; word < candidates.length; word++) {
+                long bits = candidates[word];
+                while (bits != 0) {
+                    int doc = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (!offer(doc, matches, top)) {
+                        break scan;
+                    }
+                }
+            }
+        }
+        return top.hits(ids);
+    }
+
+    // The same, with the devices changed since the index was built: they're hidden in it and passed in with their
+    // current terms, each matched on its own. That is linear in their number, whoever keeps them keeps it small.
+    public List<Hit> search(List<String> tokens, int limit, Map<Long, List<String>> changed) {
+        if (changed.isEmpty()) {
+            return search(tokens, limit);
+        }
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<Hit> hits = new ArrayList<>(search(tokens, limit));
+        for (Map.Entry<Long, List<String>> entry : changed.entrySet()) {
+            int score = 0;
+            for (String token : tokens) {
+                int tokenScore = SearchTokens.match(token, entry.getValue());
+                if (tokenScore == SearchTokens.NONE) {
+                    score = 0;
+                    break;
+                }
+                score += tokenScore;
+            }
+            if (score > 0) {
+                hits.add(new Hit(entry.getKey(), score));
+            }
+        }
+        hits.sort(RANKING);
+        return hits.size() > limit ? hits.subList(0, limit) : hits;
+    }
+
+    private void addPostings(long[] bitmap, int fromTerm, int toTerm) {
+        for (int p = postingStarts[fromTerm]; p < postingStarts[toTerm]; p++) {
+            bitmap[postings[p] >>> 6] |= 1L << postings[p];
+        }
+    }
+
+    // a k-way merge over a heap of the lists' positions, ordered by the device at each
+    private void mergePostings(int[] terms, TokenMatch[] matches, TopHits top) {
+        int[] positions = new int[terms.length];
+        int[] ends = new int[terms.length];
+        int size = 0;
+        for (int term : terms) {
+            if (postingStarts[term] < postingStarts[term + 1]) {
+                positions[size] = postingStarts[term];
+                ends[size] = postingStarts[term + 1];
+                siftUp(positions, ends, size++);
+            }
+        }
+        int last = -1;
+        while (size > 0) {
+            int doc = postings[positions[0]];
+            // a device with several of the terms comes up once per term
+            if (doc != last && !offer(doc, matches, top)) {
+                return;
+            }
+            last = doc;
+            if (++positions[0] == ends[0]) {
+                size--;
+                positions[0] = positions[size];
+                ends[0] = ends[size];
+            }
+            siftDown(positions, ends, size);
+        }
+    }
+
+    private void siftUp(int[] positions, int[] ends, int i) {
+        while (i > 0 && postings[positions[(i - 1) / 2]] > postings[positions[i]]) {
+            swap(positions, ends, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void siftDown(int[] positions, int[] ends, int size) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && postings[positions[child + 1]] < postings[positions[child]]) {
+                child++;
+            }
+            if (postings[positions[i]] <= postings[positions[child]]) {
+                return;
+            }
+            swap(positions, ends, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] positions, int[] ends, int i, int j) {
+        int position = positions[i];
+        positions[i] = positions[j];
+        positions[j] = position;
+        int end = ends[i];
+        ends[i] = ends[j];
+        ends[j] = end;
+    }
+
+    // false once nothing after this device can make it into the results
+    private boolean offer(int doc, TokenMatch[] matches, TopHits top) {
+        if (isHidden(doc)) {
+            return true;
+        }
+        int score = 0;
+        for (TokenMatch match : matches) {
+            int tokenScore = SearchTokens.NONE;
+            for (int i = docStarts[doc]; i < docStarts[doc + 1] && tokenScore < match.best; i++) {
+                tokenScore = Math.max(tokenScore, match.score(docTerms[i]));
+            }
+            if (tokenScore == SearchTokens.NONE) {
+                return true;
+            }
+            score += tokenScore;
+        }
+        return top.add(doc, score);
+    }
+
+    // the terms a query token matches: those starting with it (the token itself first, if it's a term) are a range
+    // of the sorted terms, those within its typo distance are looked for among the words
+    private TokenMatch match(String token) {
+        int from = lowerBound(token);
+        int to = prefixEnd(from, token);
+        int exact = from < to && termLength(from) == token.length() ? from : -1;
+        int maxEdits = SearchTokens.maxEdits(token);
+        int[] fuzzy = new int[0];
+        if (maxEdits > 0) {
+            CharBuffer chars = CharBuffer.wrap(termChars);
+            int count = 0;
+            for (int term : wordTerms) {
+                if ((term < from || term >= to) && SearchTokens.prefixDistance(token, chars,
+                        termStarts[term], termStarts[term + 1], maxEdits) <= maxEdits) {
+                    if (count == fuzzy.length) {
+                        fuzzy = Arrays.copyOf(fuzzy, Math.max(8, count * 2));
+                    }
+                    fuzzy[count++] = term;
+                }
+            }
+            fuzzy = Arrays.copyOf(fuzzy, count);
+        }
+        long postingCount = postingStarts[to] - postingStarts[from];
+        for (int term : fuzzy) {
+            postingCount += postingStarts[term + 1] - postingStarts[term];
+        }
+        return new TokenMatch(exact, from, to, fuzzy, postingCount);
+    }
+
+    // the first term not smaller than token
+    private int lowerBound(String token) {
+        int low = 0;
+        int high = terms();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, token) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // the first term from on that doesn't start with token
+    private int prefixEnd(int from, String token) {
+        int low = from;
+        int high = terms();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startsWith(mid, token)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int term, String token) {
+        int start = termStarts[term];
+        int length = termLength(term);
+        int common = Math.min(length, token.length());
+        for (int i = 0; i < common; i++) {
+            int diff = termChars[start + i] - token.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - token.length();
+    }
+
+    private boolean startsWith(int term, String token) {
+        if (termLength(term) < token.length()) {
+            return false;
+        }
+        int start = termStarts[term];
+        for (int i = 0; i < token.length(); i++) {
+            if (termChars[start + i] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int termLength(int term) {
+        return termStarts[term + 1] - termStarts[term];
+    }
+
+    public record Hit(long id, int score) {
+    }
+
+    private static final class TokenMatch {
+
+        private final int exact;
+        private final int from;
+        private final int to;
+        private final int[] fuzzyTerms;
+        private final long postingCount;
+        // the best score a device can get for this token
+        private final int best;
+
+        private TokenMatch(int exact, int from, int to, int[] fuzzyTerms, long postingCount) {
+            this.exact = exact;
+            this.from = from;
+            this.to = to;
+            this.fuzzyTerms = fuzzyTerms;
+            this.postingCount = postingCount;
+            if (exact >= 0) {
+                best = SearchTokens.EXACT;
+            } else if (from < to) {
+                best = SearchTokens.PREFIX;
+            } else {
+                best = fuzzyTerms.length > 0 ? SearchTokens.FUZZY : SearchTokens.NONE;
+            }
+        }
+
+        private int termCount() {
+            return to - from + fuzzyTerms.length;
+        }
+
+        private int[] terms() {
+            int[] terms = new int[termCount()];
+            for (int t = from; t < to; t++) {
+                terms[t - from] = t;
+            }
+            System.arraycopy(fuzzyTerms, 0, terms, to - from, fuzzyTerms.length);
+            return terms;
+        }
+
+        private int score(int term) {
+            if (term == exact) {
+                return SearchTokens.EXACT;
+            }
+            if (term >= from && term < to) {
+                return SearchTokens.PREFIX;
+            }
+            return Arrays.binarySearch(fuzzyTerms, term) >= 0 ? SearchTokens.FUZZY : SearchTokens.NONE;
+        }
+    }
+
+    // The best limit devices seen so far, one list per score. Devices come in id order, so within a score the ones
+    // already in the list have the smaller ids: a new device only gets in with a higher score than the lowest one, and
+    // pushes out the last device of that score.
+    private static final class TopHits {
+
+        private final int limit;
+        private final int bestScore;
+        private final int[][] byScore;
+        private final int[] counts;
+        private int size;
+        private int lowest = Integer.MAX_VALUE;
+
+        private TopHits(int limit, int bestScore) {
+            this.limit = limit;
+            this.bestScore = bestScore;
+            this.byScore = new int[bestScore + 1][];
+            this.counts = new int[bestScore + 1];
+        }
+
+        private boolean add(int doc, int score) {
+            if (size == limit) {
+                if (score <= lowest) {
+                    return true;
+                }
+                counts[lowest]--;
+                size--;
+                while (size > 0 && counts[lowest] == 0) {
+                    lowest++;
+                }
+                if (size == 0) {
+                    lowest = Integer.MAX_VALUE;
+                }
+            }
+            if (byScore[score] == null) {
+                byScore[score] = new int[Math.min(limit, 64)];
+            } else if (counts[score] == byScore[score].length) {
+                byScore[score] = Arrays.copyOf(byScore[score], Math.min(limit, counts[score] * 2));
+            }
+            byScore[score][counts[score]++] = doc;
+            size++;
+            lowest = Math.min(lowest, score);
+            return size < limit || lowest < bestScore;
+        }
+
+        private List<Hit> hits(long[] ids) {
+            List<Hit> hits = new ArrayList<>(size);
+            for (int score = bestScore; score >= 0; score--) {
+                for (int i = 0; i < counts[score]; i++) {
+                    hits.add(new Hit(ids[byScore[score][i]], score));
+                }
+            }
+            return hits;
+        }
+    }
+
+    // Devices have to be added in ascending id order, as the table is streamed.
+    public static final class Builder {
+
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+        private long[] ids = new long[1024];
+        private int[] docStarts = new int[1025];
+        private int[] docTerms = new int[4096];
+        private int docs;
+
+        public Builder add(long id, String name, String brand) {
+            if (docs > 0 && id <= ids[docs - 1]) {
+                throw new IllegalArgumentException("Devices must be added in ascending id order, " + id + " after " + ids[docs - 1]);
+            }
+            if (docs == ids.length) {
+                ids = Arrays.copyOf(ids, docs * 2);
+                docStarts = Arrays.copyOf(docStarts, docs * 2 + 1);
+            }
+            int position = docStarts[docs];
+            for (String token : SearchTokens.tokenize(name, brand)) {
+                Integer term = termIds.get(token);
+                if (term == null) {
+                    term = terms.size();
+                    termIds.put(token, term);
+                    terms.add(token);
+                }
+                if (position == docTerms.length) {
+                    docTerms = Arrays.copyOf(docTerms, position * 2);
+                }
+                docTerms[position++] = term;
+            }
+            ids[docs++] = id;
+            docStarts[docs] = position;
+            return this;
+        }
+
+        public DeviceSearchIndex build() {
+            // number the terms in sorted order
+            Integer[] order = new Integer[terms.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> terms.get(a).compareTo(terms.get(b)));
+            int[] rank = new int[order.length];
+            int[] termStarts = new int[order.length + 1];
+            for (int t = 0; t < order.length; t++) {
+                rank[order[t]] = t;
+                termStarts[t + 1] = termStarts[t] + terms.get(order[t]).length();
+            }
+            char[] termChars = new char[termStarts[order.length]];
+            int words = 0;
+            int[] wordTerms = new int[order.length];
+            for (int t = 0; t < order.length; t++) {
+                String term = terms.get(order[t]);
+                term.getChars(0, term.length(), termChars, termStarts[t]);
+                if (SearchTokens.isWord(term)) {
+                    wordTerms[words++] = t;
+                }
+            }
+            int termCount = docStarts[docs];
+            int[] sortedDocTerms = new int[termCount];
+            int[] postingStarts = new int[order.length + 1];
+            for (int i = 0; i < termCount; i++) {
+                sortedDocTerms[i] = rank[docTerms[i]];
+                postingStarts[sortedDocTerms[i] + 1]++;
+            }
+            for (int t = 0; t < order.length; t++) {
+                postingStarts[t + 1] += postingStarts[t];
+            }
+            // devices in order, so every posting list comes out sorted
+            int[] postings = new int[termCount];
+            int[] next = Arrays.copyOf(postingStarts, order.length);
+            for (int doc = 0; doc < docs; doc++) {
+                for (int i = docStarts[doc]; i < docStarts[doc + 1]; i++) {
+                    postings[next[sortedDocTerms[i]]++] = doc;
+                }
+            }
+            return new DeviceSearchIndex(Arrays.copyOf(ids, docs), termChars, termStarts, Arrays.copyOf(wordTerms, words),
+                    postingStarts, postings, Arrays.copyOf(docStarts, docs + 1), sortedDocTerms);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.assessment.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// How device names, brands and search queries are cut into tokens, and how well a query token matches a term.
+// Tokens are runs of letters and digits, lower-cased and without accents ("Galaxy S24-Ultra" is galaxy, s24, ultra).
+// A query token matches a term exactly, as a prefix of it, or within a few typos of the term or one of its prefixes;
+// typos are only forgiven in tokens made of letters, 12345 and 12346 are different asset numbers.
+public final class SearchTokens {
+
+    public static final int EXACT = 3;
+    public static final int PREFIX = 2;
+    public static final int FUZZY = 1;
+    public static final int NONE = 0;
+
+    private SearchTokens() {
+    }
+
+    // distinct tokens in the order they first appear
+    public static List<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(text, tokens);
+        return new ArrayList<>(tokens);
+    }
+
+    // what a device is found by
+    public static List<String> tokenize(String name, String brand) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(name, tokens);
+        addTokens(brand, tokens);
+        return new ArrayList<>(tokens);
+    }
+
+    private static void addTokens(String text, Set<String> tokens) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+    }
+
+    // one typo from 4 letters on, two from 8: shorter tokens have too many neighbours to guess which one was meant
+    public static int maxEdits(String token) {
+        if (!isWord(token) || token.length() < 4) {
+            return 0;
+        }
+        return token.length() < 8 ? 1 : 2;
+    }
+
+    public static boolean isWord(CharSequence term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isLetter(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // EXACT, PREFIX, FUZZY or NONE for the best of the terms
+    public static int match(String token, List<String> terms) {
+        int maxEdits = maxEdits(token);
+        int best = NONE;
+        for (String term : terms) {
+            if (term.equals(token)) {
+                return EXACT;
+            }
+            if (term.startsWith(token)) {
+                best = PREFIX;
+            } else if (best == NONE && maxEdits > 0 && isWord(term)
+                    && prefixDistance(token, term, 0, term.length(), maxEdits) <= maxEdits) {
+                best = FUZZY;
+            }
+        }
+        return best;
+    }
+
+    // Edit distance between token and the closest prefix of term[from, to) (the term itself included), counting an
+    // insertion, deletion, substitution or swap of two neighbouring characters as one edit. Anything over max comes
+    // back as max + 1, the rows stop as soon as none of them can get back under it.
+    static int prefixDistance(String token, CharSequence term, int from, int to, int max) {
+        int n = token.length();
+        int m = to - from;
+        if (m < n - max) {
+            return max + 1;
+        }
+        // rows of the distance matrix: token[0, i) against every prefix of the term
+        int[] twoBack = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] row = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            row[0] = i;
+            int rowMin = i;
+            char tc = token.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char c = term.charAt(from + j - 1);
+                int cost = tc == c ? 0 : 1;
+                int d = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && tc == term.charAt(from + j - 2) && token.charAt(i - 2) == c) {
+                    d = Math.min(d, twoBack[j - 2] + 1);
+                }
+                row[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = twoBack;
+            twoBack = previous;
+            previous = row;
+            row = recycled;
+        }
+        int best = max + 1;
+        for (int j = 0; j <= m; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+}
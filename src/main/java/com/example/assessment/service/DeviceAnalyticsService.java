@@ -0,0 +1,127 @@
+package com.example.assessment.service;
+
+import com.example.assessment.analytics.DeviceColumns;
+import com.example.assessment.datasource.ReadRouting;
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.AnalyticsInterval;
+import com.example.assessment.model.DeviceAnalytics;
+import com.example.assessment.model.DeviceAnalyticsQuery;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.repository.DeviceSnapshotRow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Counts for /api/v1/devices/analytics, answered from memory: DeviceColumns read from the whole table, plus the devices
+// this instance changed since, which are hidden in the columns and counted one by one instead (see SnapshotWithChanges).
+// The snapshot is re-read periodically, and early once more than max-changes devices changed since the last read. Off
+// unless device.analytics.enabled=true, the snapshot takes memory in proportion to the table.
+@Service
+@ConditionalOnProperty(name = "device.analytics.enabled", havingValue = "true")
+public class DeviceAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceAnalyticsService.class);
+
+    private final DeviceRepository deviceRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int parallelism;
+    // platform threads: the scans are CPU-bound
+    private final ExecutorService scans;
+    private final int maxChanges;
+    private final SnapshotWithChanges<DeviceColumns, DeviceColumns.Row> snapshot;
+
+    public DeviceAnalyticsService(DeviceRepository deviceRepository, PlatformTransactionManager transactionManager,
+                                  @Value("${device.analytics.parallelism:0}") int parallelism,
+                                  @Value("${device.analytics.max-changes:10000}") int maxChanges) {
+        this.deviceRepository = deviceRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        this.scans = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "device-analytics-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxChanges = maxChanges;
+        this.snapshot = new SnapshotWithChanges<>(DeviceColumns.EMPTY, DeviceColumns::hide, maxChanges,
+                this::rebuildEarly);
+    }
+
+    public DeviceAnalytics analyze(DeviceAnalyticsQuery query) {
+        SnapshotWithChanges.Segment<DeviceColumns, DeviceColumns.Row> segment = snapshot.current();
+        long start = System.nanoTime();
+        DeviceColumns.Counts counts = segment.snapshot().aggregate(query, segment.changes().values(), LocalDateTime.now(),
+                scans, parallelism);
+        logger.debug("Counted {} devices by {} into {} groups in {} µs", counts.total(), query.getGroupBy(),
+                counts.groups().size(), (System.nanoTime() - start) / 1000);
+        AnalyticsInterval interval = query.getInterval() != null ? query.getInterval() : AnalyticsInterval.MONTH;
+        return new DeviceAnalytics(query.getGroupBy(), interval, counts.total(), counts.groups(), segment.readAt());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        DeviceDTO after = event.getAfter();
+        if (after != null) {
+            snapshot.apply(after.getId(), version(after),
+                    new DeviceColumns.Row(after.getName(), after.getBrand(), after.getState(), after.getCreationTime()));
+        } else {
+            // ids aren't reused, nothing comes after a delete
+            snapshot.apply(event.getBefore().getId(), Long.MAX_VALUE, null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${device.analytics.rebuild-interval:10m}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        DeviceColumns columns;
+        // on the primary: a replica behind it would miss changes this instance already counted
+        try (ReadRouting.Pin ignored = ReadRouting.pinToPrimary()) {
+            columns = snapshot.read(() -> readOnlyTransaction.execute(status -> {
+                DeviceColumns.Builder builder = new DeviceColumns.Builder();
+                try (Stream<DeviceSnapshotRow> devices = deviceRepository.streamSnapshotRowsBy()) {
+                    devices.forEach(device -> builder.add(device.id(),
+                            new DeviceColumns.Row(device.name(), device.brand(), device.state(), device.creationTime())));
+                }
+                return builder.build();
+            }));
+        } catch (RuntimeException e) {
+            logger.warn("Reading the analytics snapshot failed, keeping the current one", e);
+            return;
+        }
+        if (columns == null) {
+            logger.debug("The analytics snapshot is already being read");
+            return;
+        }
+        logger.info("Analytics snapshot read with {} devices in {} ms", columns.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // off the thread of the write that went over the limit, which has already committed and is waiting to respond
+    private void rebuildEarly() {
+        logger.info("More than {} devices changed since the analytics snapshot was read, reading it early", maxChanges);
+        Thread.ofVirtual().name("device-analytics-rebuild").start(this::rebuild);
+    }
+
+    @PreDestroy
+    void stopScans() {
+        scans.shutdownNow();
+    }
+
+    private static long version(DeviceDTO device) {
+        return device.getVersion() != null ? device.getVersion() : 0;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.assessment.service;
+
+import com.example.assessment.cache.DeviceCache;
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.exception.InvalidBatchOperationException;
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.model.BatchOperationType;
+import com.example.assessment.model.DeviceBatchItemResult;
+import com.example.assessment.model.DeviceBatchOperation;
+import com.example.assessment.model.DeviceBatchResponse;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DeviceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+public class DeviceBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceBatchService.class);
+
+    private final DeviceRepository deviceRepository;
+    private final DeviceCache deviceCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public DeviceBatchService(DeviceRepository deviceRepository,
+                              DeviceCache deviceCache,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${device.batch.chunk-size:500}") int chunkSize) {
+        this.deviceRepository = deviceRepository;
+        this.deviceCache = deviceCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public DeviceBatchResponse applyAll(List<DeviceBatchOperation> operations) {
+        List<DeviceBatchItemResult> results = new ArrayList<>(operations.size());
+        apply(operations.iterator(), results::addAll);
+        int failed = (int) results.stream().filter(r -> !isSuccess(r)).count();
+        return new DeviceBatchResponse(results.size(), results.size() - failed, failed, results);
+    }
+
+    // Operations are applied in chunks, each in its own transaction. A rejected item doesn't affect the rest of its
+    // chunk; a database failure rolls back the whole chunk and every item in it is reported as failed. An operation
+    // the iterator can't read (InvalidBatchOperationException from next()) is reported as a 400 in its place.
+    public long apply(Iterator<DeviceBatchOperation> operations, Consumer<List<DeviceBatchItemResult>> chunkResults) {
+        long start = System.nanoTime();
+        long applied = 0;
+        List<DeviceBatchOperation> chunk = new ArrayList<>(chunkSize);
+        // positions in the chunk of the unreadable operations, with the reason
+        Map<Integer, String> unreadable = new HashMap<>();
+        while (operations.hasNext()) {
+            try {
+                chunk.add(operations.next());
+            } catch (InvalidBatchOperationException e) {
+                unreadable.put(chunk.size(), e.getMessage());
+                chunk.add(null);
+            }
+            if (chunk.size() == chunkSize) {
+                chunkResults.accept(applyChunk(chunk, unreadable, applied));
+                applied += chunk.size();
+                chunk.clear();
+                unreadable.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkResults.accept(applyChunk(chunk, unreadable, applied));
+            applied += chunk.size();
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.debug("Applied batch of {} device operations in {} ms ({} rows/s)", applied, elapsedMillis, applied * 1000 / elapsedMillis);
+        return applied;
+    }
+
+    private List<DeviceBatchItemResult> applyChunk(List<DeviceBatchOperation> chunk, Map<Integer, String> unreadable,
+                                                   long firstIndex) {
+        DeviceBatchItemResult[] results = new DeviceBatchItemResult[chunk.size()];
+        unreadable.forEach((i, reason) -> results[i] = failure(firstIndex + i, null, null, HttpStatus.BAD_REQUEST, reason));
+        try {
+            transactionTemplate.executeWithoutResult(status -> stageChunk(chunk, firstIndex, results));
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Batch chunk starting at {} hit a concurrent modification", firstIndex);
+            failStaged(chunk, firstIndex, results, HttpStatus.CONFLICT, "Concurrent modification, no operations of this chunk were applied");
+        } catch (DataAccessException e) {
+            logger.error("Batch chunk starting at {} failed", firstIndex, e);
+            failStaged(chunk, firstIndex, results, HttpStatus.INTERNAL_SERVER_ERROR, "Database error, no operations of this chunk were applied");
+        }
+        return Arrays.asList(results);
+    }
+
+    private void stageChunk(List<DeviceBatchOperation> chunk, long firstIndex, DeviceBatchItemResult[] results) {
+        Set<Long> ids = chunk.stream()
+                .filter(Objects::nonNull)
+                .filter(op -> op.getOp() == BatchOperationType.UPDATE || op.getOp() == BatchOperationType.DELETE)
+                .map(DeviceBatchOperation::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        // one SELECT for every device the chunk touches
+        Map<Long, DeviceEntity> existing = new HashMap<>();
+        deviceRepository.findAllById(ids).forEach(entity -> existing.put(entity.getId(), entity));
+        Map<Long, DeviceEntity> loaded = new HashMap<>(existing);
+
+        List<DeviceEntity> created = new ArrayList<>();
+        List<Integer> createdSlots = new ArrayList<>();
+        Map<Long, DeviceDTO> updated = new LinkedHashMap<>();
+        List<DeviceEntity> deleted = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            DeviceBatchOperation op = chunk.get(i);
+            long index = firstIndex + i;
+            if (op == null || op.getOp() == null) {
+                results[i] = failure(index, null, op != null ? op.getId() : null, HttpStatus.BAD_REQUEST, "Missing operation type");
+                continue;
+            }
+            results[i] = switch (op.getOp()) {
+                case CREATE -> stageCreate(op, index, i, created, createdSlots);
+                case UPDATE -> stageUpdate(op, index, existing, updated);
+                case DELETE -> stageDelete(op, index, existing, deleted);
+            };
+        }
+
+        // sequence ids are assigned on persist, the INSERTs, UPDATEs and DELETEs go out as JDBC batches on flush
+        List<DeviceEntity> saved = deviceRepository.saveAll(created);
+        for (int i = 0; i < saved.size(); i++) {
+            results[createdSlots.get(i)].setId(saved.get(i).getId());
+        }
+        deviceRepository.deleteAll(deleted);
+        deviceRepository.flush();
+
+        // after the flush, so ids and versions are the ones written
+        saved.forEach(entity -> eventPublisher.publishEvent(DeviceChangedEvent.created(toDto(entity))));
+        // a device updated and then deleted in the same chunk only gets the delete, carrying its original state
+        Set<Long> deletedIds = deleted.stream().map(DeviceEntity::getId).collect(Collectors.toSet());
+        updated.forEach((id, before) -> {
+            if (!deletedIds.contains(id)) {
+                eventPublisher.publishEvent(DeviceChangedEvent.updated(before, toDto(loaded.get(id))));
+            }
+        });
+        deleted.forEach(entity -> eventPublisher.publishEvent(DeviceChangedEvent.deleted(
+                updated.getOrDefault(entity.getId(), toDto(entity)))));
+    }
+
+    private DeviceBatchItemResult stageCreate(DeviceBatchOperation op, long index, int slot,
+                                              List<DeviceEntity> created, List<Integer> createdSlots) {
+        if (isBlank(op.getName()) || isBlank(op.getBrand()) || op.getState() == null) {
+            return failure(index, op.getOp(), null, HttpStatus.BAD_REQUEST, "name, brand and state are required");
+        }
+        DeviceEntity entity = new DeviceEntity();
+        entity.setName(op.getName());
+        entity.setBrand(op.getBrand());
+        entity.setState(op.getState());
+        entity.setCreationTime(LocalDateTime.now());
+        created.add(entity);
+        createdSlots.add(slot);
+        return new DeviceBatchItemResult(index, op.getOp(), HttpStatus.CREATED.value(), null, null);
+    }
+
+    // UPDATE follows PATCH semantics: only the fields present are changed
+    private DeviceBatchItemResult stageUpdate(DeviceBatchOperation op, long index, Map<Long, DeviceEntity> existing,
+                                              Map<Long, DeviceDTO> updated) {
+        if (op.getId() == null) {
+            return failure(index, op.getOp(), null, HttpStatus.BAD_REQUEST, "id is required");
+        }
+        DeviceEntity entity = existing.get(op.getId());
+        if (entity == null) {
+            return failure(index, op.getOp(), op.getId(), HttpStatus.NOT_FOUND, "Device not found with id: " + op.getId());
+        }
+        if (op.getName() != null && entity.getState() == DeviceState.IN_USE) {
+            return failure(index, op.getOp(), op.getId(), HttpStatus.BAD_REQUEST, "Cannot update name when device is in use");
+        }
+        if (op.getBrand() != null && entity.getState() == DeviceState.IN_USE) {
+            return failure(index, op.getOp(), op.getId(), HttpStatus.BAD_REQUEST, "Cannot update brand when device is in use");
+        }
+        // the device as it was before the chunk touched it, for the change event
+        updated.computeIfAbsent(entity.getId(), id -> toDto(entity));
+        if (op.getName() != null) {
+            entity.setName(op.getName());
+        }
+        if (op.getBrand() != null) {
+            entity.setBrand(op.getBrand());
+        }
+        if (op.getState() != null) {
+            entity.setState(op.getState());
+        }
+        // evicted once the chunk commits
+        deviceCache.evict(op.getId());
+        return new DeviceBatchItemResult(index, op.getOp(), HttpStatus.OK.value(), op.getId(), null);
+    }
+
+    private DeviceBatchItemResult stageDelete(DeviceBatchOperation op, long index, Map<Long, DeviceEntity> existing,
+                                              List<DeviceEntity> deleted) {
+        if (op.getId() == null) {
+            return failure(index, op.getOp(), null, HttpStatus.BAD_REQUEST, "id is required");
+        }
+        DeviceEntity entity = existing.get(op.getId());
+        if (entity == null) {
+            return failure(index, op.getOp(), op.getId(), HttpStatus.NOT_FOUND, "Device not found with id: " + op.getId());
+        }
+        if (entity.getState() == DeviceState.IN_USE) {
+            return failure(index, op.getOp(), op.getId(), HttpStatus.BAD_REQUEST, "Cannot delete device in use");
+        }
+        // later operations in the same chunk must not see the device anymore
+        existing.remove(op.getId());
+        deleted.add(entity);
+        deviceCache.evict(op.getId());
+        return new DeviceBatchItemResult(index, op.getOp(), HttpStatus.NO_CONTENT.value(), op.getId(), null);
+    }
+
+    private void failStaged(List<DeviceBatchOperation> chunk, long firstIndex, DeviceBatchItemResult[] results,
+                            HttpStatus status, String message) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null || isSuccess(results[i])) {
+                DeviceBatchOperation op = chunk.get(i);
+                if (op == null) {
+                    results[i] = failure(firstIndex + i, null, null, HttpStatus.BAD_REQUEST, "Missing operation type");
+                    continue;
+                }
+                Long id = op.getOp() == BatchOperationType.CREATE ? null : op.getId();
+                results[i] = failure(firstIndex + i, op.getOp(), id, status, message);
+            }
+        }
+    }
+
+    private DeviceBatchItemResult failure(long index, BatchOperationType op, Long id, HttpStatus status, String message) {
+        return new DeviceBatchItemResult(index, op, status.value(), id, message);
+    }
+
+    private DeviceDTO toDto(DeviceEntity entity) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(entity.getId());
+        dto.setName(entity.getName());
+        dto.setBrand(entity.getBrand());
+        dto.setState(entity.getState());
+        dto.setCreationTime(entity.getCreationTime());
+        dto.setVersion(entity.getVersion());
+        return dto;
+    }
+
+    private static boolean isSuccess(DeviceBatchItemResult result) {
+        return result.getStatus() < 300;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.assessment.service;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.exception.ChangesExpiredException;
+import com.example.assessment.model.DeviceChange;
+import com.example.assessment.model.DeviceChangeBatch;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Committed device changes in a bounded ring buffer, numbered by a sequence that readers resume from. Only the last
+// device.changes.buffer-size changes are kept; a reader that asks for anything older gets ChangesExpiredException and
+// has to re-read the devices. Sequences start at the startup time in microseconds, so they keep increasing across
+// restarts and a position from before a restart is reported as expired instead of silently skipping changes.
+@Service
+public class DeviceChangeFeed {
+
+    private final DeviceChange[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+    // guarded by lock
+    private long latest;
+    private long oldest;
+
+    public DeviceChangeFeed(@Value("${device.changes.buffer-size:10000}") int bufferSize, MeterRegistry meterRegistry) {
+        this.ring = new DeviceChange[bufferSize];
+        this.latest = System.currentTimeMillis() * 1000;
+        this.oldest = latest + 1;
+        Gauge.builder("device.changes.waiting", waiting, AtomicInteger::get)
+                .description("Readers waiting for the next device change")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        DeviceDTO device = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        lock.lock();
+        try {
+            long sequence = ++latest;
+            ring[(int) (sequence % ring.length)] = new DeviceChange(sequence, event.getType(), device.getId(),
+                    device.getVersion(), toResponse(device), LocalDateTime.now());
+            if (sequence - oldest >= ring.length) {
+                oldest = sequence - ring.length + 1;
+            }
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long latestSequence() {
+        lock.lock();
+        try {
+            return latest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Up to limit changes after the given sequence, waiting up to timeout for the first one. An empty batch means
+    // nothing happened in the meantime.
+    public DeviceChangeBatch awaitAfter(long after, int limit, Duration timeout) throws InterruptedException {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        waiting.incrementAndGet();
+        try {
+            checkRetained(after);
+            while (latest <= after && remaining > 0) {
+                remaining = appended.awaitNanos(remaining);
+            }
+            // a reader slower than the writers can be overtaken while it waits
+            checkRetained(after);
+            List<DeviceChange> changes = new ArrayList<>();
+            for (long sequence = after + 1; sequence <= latest && changes.size() < limit; sequence++) {
+                changes.add(ring[(int) (sequence % ring.length)]);
+            }
+            return new DeviceChangeBatch(changes, changes.isEmpty() ? after : changes.get(changes.size() - 1).getSequence());
+        } finally {
+            waiting.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    private void checkRetained(long after) {
+        if (after < oldest - 1 || after > latest) {
+            throw new ChangesExpiredException("Changes after sequence " + after + " are no longer available, "
+                    + "re-read the devices and resume from sequence " + latest);
+        }
+    }
+
+    private static DeviceResponse toResponse(DeviceDTO dto) {
+        DeviceResponse r = new DeviceResponse();
+        r.setId(dto.getId());
+        r.setName(dto.getName());
+        r.setBrand(dto.getBrand());
+        r.setState(dto.getState());
+        r.setCreationTime(dto.getCreationTime());
+        r.setVersion(dto.getVersion());
+        return r;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.assessment.service;
+
+import com.example.assessment.exception.InvalidCursorException;
+import com.example.assessment.model.DeviceState;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Opaque continuation tokens for keyset scrolling. The token remembers the sort it was issued for,
+// so a cursor can't be replayed against a different ordering. Keys of devices without a name, brand or creation
+// time are kept as JSON null, which DeviceSpecifications.after reads as "among the nulls".
+final class DeviceCursorCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> TOKEN_TYPE = new TypeReference<>() {
+    };
+
+    private DeviceCursorCodec() {
+    }
+
+    static String encode(Map<String, Object> position, Sort sort) {
+        Map<String, String> keys = new LinkedHashMap<>();
+        position.forEach((property, value) -> keys.put(property, value != null ? value.toString() : null));
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put("s", describe(sort));
+        token.put("k", keys);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(token));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> decode(String cursor, Sort sort) {
+        Map<String, Object> token;
+        try {
+            token = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), TOKEN_TYPE);
+        } catch (Exception e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        if (!describe(sort).equals(token.get("s")) || !(token.get("k") instanceof Map)) {
+            throw new InvalidCursorException("Cursor does not match the requested sort");
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            Map<String, Object> encoded = (Map<String, Object>) token.get("k");
+            if (!encoded.containsKey(order.getProperty())) {
+                throw new InvalidCursorException("Cursor is missing key '" + order.getProperty() + "'");
+            }
+            Object raw = encoded.get(order.getProperty());
+            if (raw == null && order.getProperty().equals("id")) {
+                throw new InvalidCursorException("Cursor has invalid value for 'id'");
+            }
+            keys.put(order.getProperty(), raw != null ? parse(order.getProperty(), raw.toString()) : null);
+        }
+        return keys;
+    }
+
+    private static Object parse(String property, String value) {
+        try {
+            return switch (property) {
+                case "id" -> Long.valueOf(value);
+                case "state" -> DeviceState.valueOf(value);
+                case "creationTime" -> LocalDateTime.parse(value);
+                default -> value;
+            };
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Cursor has invalid value for '" + property + "'");
+        }
+    }
+
+    private static String describe(Sort sort) {
+        return sort.stream()
+                .map(order -> order.getProperty() + ":" + order.getDirection())
+                .collect(Collectors.joining(","));
+    }
+}
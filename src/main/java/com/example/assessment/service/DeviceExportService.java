@@ -0,0 +1,111 @@
+package com.example.assessment.service;
+
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.model.ExportFormat;
+import com.example.assessment.repository.DeviceRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class DeviceExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceExportService.class);
+
+    private static final String CSV_HEADER = "id,name,brand,state,creationTime\n";
+
+    private final DeviceRepository deviceRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    // Rows are written as they come off the cursor and detached right away, so heap use doesn't grow with the table.
+    @Transactional(readOnly = true)
+    public long exportDevices(ExportFormat format, OutputStream out) throws IOException {
+        logger.debug("Exporting devices as {}", format);
+        long count;
+        try (Stream<DeviceEntity> devices = deviceRepository.streamAllBy()) {
+            count = switch (format) {
+                case NDJSON -> writeNdjson(devices.iterator(), out);
+                case CSV -> writeCsv(devices.iterator(), out);
+            };
+        }
+        logger.debug("Exported {} devices as {}", count, format);
+        return count;
+    }
+
+    private long writeNdjson(Iterator<DeviceEntity> devices, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (devices.hasNext()) {
+                DeviceEntity device = devices.next();
+                generator.writeStartObject();
+                generator.writeNumberField("id", device.getId());
+                generator.writeStringField("name", device.getName());
+                generator.writeStringField("brand", device.getBrand());
+                generator.writeStringField("state", device.getState() != null ? device.getState().name() : null);
+                generator.writeStringField("creationTime", device.getCreationTime() != null
+                        ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(device.getCreationTime()) : null);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                entityManager.detach(device);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<DeviceEntity> devices, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        while (devices.hasNext()) {
+            DeviceEntity device = devices.next();
+            writer.write(String.valueOf(device.getId()));
+            writer.write(',');
+            writeCsvField(writer, device.getName());
+            writer.write(',');
+            writeCsvField(writer, device.getBrand());
+            writer.write(',');
+            writeCsvField(writer, device.getState() != null ? device.getState().name() : null);
+            writer.write(',');
+            writeCsvField(writer, device.getCreationTime() != null
+                    ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(device.getCreationTime()) : null);
+            writer.write('\n');
+            entityManager.detach(device);
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.assessment.service;
+
+import com.example.assessment.datasource.ReadRouting;
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.repository.DeviceSearchText;
+import com.example.assessment.search.DeviceSearchIndex;
+import com.example.assessment.search.SearchTokens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Search over device names and brands (/api/v1/devices/search), answered from memory: a DeviceSearchIndex built from
+// the whole table, plus the devices this instance changed since, which are hidden in the index and matched one by one
+// instead (see SnapshotWithChanges). The index is rebuilt periodically, and early once more than max-changes devices
+// changed since the last build. Only the page of results is read from the database.
+@Service
+public class DeviceSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceSearchService.class);
+
+    // further words of a query are ignored
+    static final int MAX_TOKENS = 8;
+
+    private final DeviceRepository deviceRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxResults;
+    private final int maxChanges;
+    private final SnapshotWithChanges<DeviceSearchIndex, List<String>> index;
+
+    public DeviceSearchService(DeviceRepository deviceRepository, PlatformTransactionManager transactionManager,
+                               @Value("${device.search.max-results:1000}") int maxResults,
+                               @Value("${device.search.max-changes:1000}") int maxChanges) {
+        this.deviceRepository = deviceRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxResults = maxResults;
+        this.maxChanges = maxChanges;
+        this.index = new SnapshotWithChanges<>(DeviceSearchIndex.EMPTY, DeviceSearchIndex::hide, maxChanges,
+                this::rebuildEarly);
+    }
+
+    // Pages go down to the maxResults best matches, there's no total: counting every match would mean scoring all of them.
+    public DevicePage<DeviceDTO> search(String query, Pageable pageable) {
+        List<String> tokens = SearchTokens.tokenize(query);
+        if (tokens.size() > MAX_TOKENS) {
+            tokens = tokens.subList(0, MAX_TOKENS);
+        }
+        int from = (int) Math.min(pageable.getOffset(), maxResults);
+        int to = Math.min(from + pageable.getPageSize(), maxResults);
+        // one more than the page to tell whether another one follows, unless this is the last one there is
+        SnapshotWithChanges.Segment<DeviceSearchIndex, List<String>> segment = index.current();
+        int limit = to < maxResults ? to + 1 : to;
+        List<DeviceSearchIndex.Hit> hits = segment.snapshot().search(tokens, limit, segment.changes());
+        List<Long> ids = hits.subList(Math.min(from, hits.size()), Math.min(to, hits.size())).stream()
+                .map(DeviceSearchIndex.Hit::id)
+                .toList();
+        logger.debug("Search for {} matched {} devices on page {}", tokens, ids.size(), pageable.getPageNumber());
+        return new DevicePage<>(load(ids), pageable.getPageNumber(), pageable.getPageSize(), hits.size() > to, null);
+    }
+
+    // in the order of the ids; a device deleted by another instance since the last rebuild is left out
+    private List<DeviceDTO> load(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, DeviceEntity> devices = deviceRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(DeviceEntity::getId, Function.identity()));
+        List<DeviceDTO> page = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            DeviceEntity entity = devices.get(id);
+            if (entity != null) {
+                page.add(mapToDto(entity));
+            }
+        }
+        return page;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        DeviceDTO before = event.getBefore();
+        DeviceDTO after = event.getAfter();
+        // state transitions don't change what a device is found by
+        if (before != null && after != null
+                && Objects.equals(before.getName(), after.getName()) && Objects.equals(before.getBrand(), after.getBrand())) {
+            return;
+        }
+        if (after != null) {
+            index.apply(after.getId(), version(after), SearchTokens.tokenize(after.getName(), after.getBrand()));
+        } else {
+            // ids aren't reused, nothing comes after a delete
+            index.apply(before.getId(), Long.MAX_VALUE, null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${device.search.rebuild-interval:10m}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        DeviceSearchIndex built;
+        // on the primary: a replica behind it would miss changes this instance already indexed
+        try (ReadRouting.Pin ignored = ReadRouting.pinToPrimary()) {
+            built = index.read(() -> readOnlyTransaction.execute(status -> {
+                DeviceSearchIndex.Builder builder = new DeviceSearchIndex.Builder();
+                try (Stream<DeviceSearchText> devices = deviceRepository.streamSearchTextBy()) {
+                    devices.forEach(device -> builder.add(device.id(), device.name(), device.brand()));
+                }
+                return builder.build();
+            }));
+        } catch (RuntimeException e) {
+            logger.warn("Rebuilding the search index failed, keeping the current one", e);
+            return;
+        }
+        if (built == null) {
+            logger.debug("The search index is already being rebuilt");
+            return;
+        }
+        logger.info("Search index rebuilt with {} devices and {} terms in {} ms", built.size(), built.terms(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // off the thread of the write that went over the limit, which has already committed and is waiting to respond
+    private void rebuildEarly() {
+        logger.info("More than {} devices changed since the search index was built, rebuilding it early", maxChanges);
+        Thread.ofVirtual().name("device-search-rebuild").start(this::rebuild);
+    }
+
+    private static long version(DeviceDTO device) {
+        return device.getVersion() != null ? device.getVersion() : 0;
+    }
+
+    private DeviceDTO mapToDto(DeviceEntity entity) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(entity.getId());
+        dto.setName(entity.getName());
+        dto.setBrand(entity.getBrand());
+        dto.setState(entity.getState());
+        dto.setCreationTime(entity.getCreationTime());
+        dto.setVersion(entity.getVersion());
+        return dto;
+    }
+}
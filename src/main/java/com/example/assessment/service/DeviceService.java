@@ -1,21 +1,40 @@
 package com.example.assessment.service;
 
+import com.example.assessment.cache.DeviceCache;
+import com.example.assessment.event.DeviceChangedEvent;
 import com.example.assessment.exception.DeviceInUseException;
 import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.exception.DeviceVersionMismatchException;
+import com.example.assessment.exception.InvalidCursorException;
+import com.example.assessment.model.CursorPage;
 import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceFilter;
+import com.example.assessment.model.DevicePage;
 import com.example.assessment.entity.DeviceEntity;
 import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DevicePatchResult;
 import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.repository.DeviceSpecifications;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,32 +43,91 @@ public class DeviceService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
 
+    private static final Set<String> SCROLLABLE_PROPERTIES = Set.of("id", "name", "brand", "state", "creationTime");
+
     private final DeviceRepository deviceRepository;
+    private final DeviceCache deviceCache;
+    private final ApplicationEventPublisher eventPublisher;
 
+    // one transaction for the INSERT and the outbox row of its event
+    @Transactional
     public DeviceDTO createDevice(DeviceDTO deviceDTO) {
-        logger.info("Creating device with name: {}", deviceDTO.getName());
         DeviceEntity entity = mapToEntity(deviceDTO);
         entity.setCreationTime(LocalDateTime.now());
         DeviceEntity saved = deviceRepository.save(entity);
-        logger.info("Device created successfully with id: {}", saved.getId());
-        return mapToDto(saved);
+        logger.debug("Created device with id: {}", saved.getId());
+        DeviceDTO created = mapToDto(saved);
+        deviceCache.put(created);
+        eventPublisher.publishEvent(DeviceChangedEvent.created(created));
+        return created;
     }
 
-    public List<DeviceDTO> getAllDevices() {
-        logger.debug("Fetching all devices");
-        return deviceRepository.findAll().stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    // Reads are read-only transactions, which run on a replica when replicas are configured. The writes read on the
+    // primary, inside their own transaction.
+    @Transactional(readOnly = true)
+    public DevicePage<DeviceDTO> getAllDevices(Pageable pageable) {
+        return getAllDevices(pageable, true);
+    }
+
+    // without the total no count(*) runs, the page comes from a slice query
+    @Transactional(readOnly = true)
+    public DevicePage<DeviceDTO> getAllDevices(Pageable pageable, boolean includeTotal) {
+        logger.debug("Fetching paged devices: {}, includeTotal={}", pageable, includeTotal);
+        Slice<DeviceEntity> page = includeTotal ? deviceRepository.findAll(pageable) : deviceRepository.findSliceBy(pageable);
+        return DevicePage.of(page.map(this::mapToDto));
+    }
+
+    @Transactional(readOnly = true)
+    public DevicePage<DeviceDTO> filterDevices(DeviceFilter filter, Pageable pageable) {
+        return filterDevices(filter, pageable, true);
     }
 
-    public Page<DeviceDTO> getAllDevices(Pageable pageable) {
-        logger.debug("Fetching paged devices: {}", pageable);
-        Page<DeviceEntity> page = deviceRepository.findAll(pageable);
-        List<DeviceDTO> dtos = page.stream().map(this::mapToDto).collect(Collectors.toList());
-        return new PageImpl<>(dtos, pageable, page.getTotalElements());
+    @Transactional(readOnly = true)
+    public DevicePage<DeviceDTO> filterDevices(DeviceFilter filter, Pageable pageable, boolean includeTotal) {
+        logger.debug("Filtering devices: {}, {}, includeTotal={}", filter, pageable, includeTotal);
+        Specification<DeviceEntity> specification = DeviceSpecifications.matching(filter);
+        Slice<DeviceEntity> page = includeTotal
+                ? deviceRepository.findAll(specification, pageable)
+                : deviceRepository.findBy(specification, query -> query.slice(pageable));
+        return DevicePage.of(page.map(this::mapToDto));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<DeviceDTO> scrollDevices(String cursor, int size, Sort sort, boolean includeTotal) {
+        logger.debug("Scrolling devices: cursor={}, size={}, sort={}", cursor, size, sort);
+        Sort keysetSort = toKeysetSort(sort);
+        Map<String, Object> after = cursor == null || cursor.isBlank()
+                ? null
+                : DeviceCursorCodec.decode(cursor, keysetSort);
+        // one more than the page to tell whether another one follows
+        List<DeviceEntity> rows = deviceRepository.findAfter(after, keysetSort, size + 1);
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+        List<DeviceDTO> dtos = rows.stream().map(this::mapToDto).collect(Collectors.toList());
+        String nextCursor = hasNext && !rows.isEmpty()
+                ? DeviceCursorCodec.encode(keysetKeys(rows.get(rows.size() - 1), keysetSort), keysetSort)
+                : null;
+        Long total = includeTotal ? deviceRepository.count() : null;
+        return new CursorPage<>(dtos, nextCursor, nextCursor != null, total);
     }
 
     public DeviceDTO getDeviceById(Long id) {
+        return deviceCache.get(id, this::loadDevice);
+    }
+
+    // Current @Version of a device without loading it, served from the cache when the device is there
+    public Long getDeviceVersion(Long id) {
+        Long cached = deviceCache.versionIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        return deviceRepository.findVersionById(id)
+                .orElseThrow(() -> new DeviceNotFoundException("Device not found with id: " + id));
+    }
+
+    private DeviceDTO loadDevice(Long id) {
         logger.debug("Fetching device with id: {}", id);
         DeviceEntity entity = deviceRepository.findById(id)
                 .orElseThrow(() -> {
@@ -59,13 +137,21 @@ public class DeviceService {
         return mapToDto(entity);
     }
 
+    @Transactional
     public DeviceDTO updateDevice(Long id, DeviceDTO deviceDTO) {
-        logger.info("Updating device with id: {}", id);
+        return updateDevice(id, deviceDTO, null);
+    }
+
+    // With an expectedVersion the update only applies to that version of the device. The check and the write are
+    // one unit: the flush fails with an optimistic lock error if the device changed in between.
+    @Transactional
+    public DeviceDTO updateDevice(Long id, DeviceDTO deviceDTO, Long expectedVersion) {
         DeviceEntity existing = deviceRepository.findById(id)
                 .orElseThrow(() -> {
                     logger.warn("Device not found with id: {} for update", id);
                     return new DeviceNotFoundException("Device not found with id: " + id);
                 });
+        checkVersion(existing, expectedVersion);
         if (deviceDTO.getName() != null && existing.getState() == DeviceState.IN_USE) {
             logger.warn("Attempted to update name of in-use device with id: {}", id);
             throw new DeviceInUseException("Cannot update name when device is in use");
@@ -74,22 +160,49 @@ public class DeviceService {
             logger.warn("Attempted to update brand of in-use device with id: {}", id);
             throw new DeviceInUseException("Cannot update brand when device is in use");
         }
+        DeviceDTO before = mapToDto(existing);
         existing.setName(deviceDTO.getName());
         existing.setBrand(deviceDTO.getBrand());
-        existing.setState(deviceDTO.getState());
-        // creationTime not updated
-        DeviceEntity saved = deviceRepository.save(existing);
-        logger.info("Device updated successfully with id: {}", id);
-        return mapToDto(saved);
+        // a PUT without a state keeps the current one, the column (and its partitions) has no room for null
+        if (deviceDTO.getState() != null) {
+            existing.setState(deviceDTO.getState());
+        }
+        // creationTime not updated; flushed here so the returned version is the new one
+        DeviceEntity saved = deviceRepository.saveAndFlush(existing);
+        logger.debug("Updated device with id: {}", id);
+        DeviceDTO updated = mapToDto(saved);
+        deviceCache.put(updated);
+        eventPublisher.publishEvent(DeviceChangedEvent.updated(before, updated));
+        return updated;
     }
 
+    @Transactional
     public DeviceDTO partialUpdateDevice(Long id, DeviceDTO deviceDTO) {
-        logger.info("Partially updating device with id: {}", id);
+        return partialUpdateDevice(id, deviceDTO, null);
+    }
+
+    // Only the non-null fields of deviceDTO are applied, and with an expectedVersion only to that version.
+    @Transactional
+    public DeviceDTO partialUpdateDevice(Long id, DeviceDTO deviceDTO, Long expectedVersion) {
+        if (deviceDTO.getState() == null && (deviceDTO.getName() != null || deviceDTO.getBrand() != null)) {
+            Optional<DevicePatchResult> patched = deviceRepository.updateNameAndBrandIfNotInUse(id, deviceDTO.getName(), deviceDTO.getBrand(),
+                    expectedVersion == null ? -1 : expectedVersion);
+            if (patched.isPresent()) {
+                logger.debug("Partially updated device with id: {}", id);
+                DeviceDTO updated = mapToDto(patched.get());
+                deviceCache.put(updated);
+                eventPublisher.publishEvent(DeviceChangedEvent.updated(previousOf(patched.get()), updated));
+                return updated;
+            }
+            // nothing matched, the read below tells a missing device apart from one in use or at another version
+        }
         DeviceEntity existing = deviceRepository.findById(id)
                 .orElseThrow(() -> {
                     logger.warn("Device not found with id: {} for partial update", id);
                     return new DeviceNotFoundException("Device not found with id: " + id);
                 });
+        checkVersion(existing, expectedVersion);
+        DeviceDTO before = mapToDto(existing);
         if (deviceDTO.getName() != null) {
             if (existing.getState() == DeviceState.IN_USE) {
                 logger.warn("Attempted to update name of in-use device with id: {}", id);
@@ -107,41 +220,129 @@ public class DeviceService {
         if (deviceDTO.getState() != null) {
             existing.setState(deviceDTO.getState());
         }
-        // creationTime not updated
-        DeviceEntity saved = deviceRepository.save(existing);
-        logger.info("Device partially updated successfully with id: {}", id);
-        return mapToDto(saved);
+        // creationTime not updated; flushed here so the returned version is the new one
+        DeviceEntity saved = deviceRepository.saveAndFlush(existing);
+        logger.debug("Partially updated device with id: {}", id);
+        DeviceDTO updated = mapToDto(saved);
+        deviceCache.put(updated);
+        eventPublisher.publishEvent(DeviceChangedEvent.updated(before, updated));
+        return updated;
     }
 
+    @Transactional
+    public DeviceDTO checkOutDevice(Long id) {
+        return transitionState(id, DeviceState.AVAILABLE, DeviceState.IN_USE);
+    }
+
+    @Transactional
+    public DeviceDTO checkInDevice(Long id) {
+        return transitionState(id, DeviceState.IN_USE, DeviceState.AVAILABLE);
+    }
+
+    private DeviceDTO transitionState(Long id, DeviceState from, DeviceState to) {
+        logger.debug("Moving device with id: {} from {} to {}", id, from, to);
+        Optional<DeviceEntity> transitioned;
+        try {
+            transitioned = deviceRepository.transitionState(id, from.name(), to.name());
+        } catch (OptimisticLockingFailureException e) {
+            // a concurrent transition moved the row to the partition of its new state while this one waited for it
+            logger.debug("Device with id: {} changed state concurrently, cannot move it to {}", id, to);
+            throw new DeviceStateConflictException("Device with id: " + id + " is not " + from);
+        }
+        DeviceEntity entity = transitioned
+                .orElseThrow(() -> {
+                    if (!deviceRepository.existsById(id)) {
+                        logger.warn("Device not found with id: {} for state transition", id);
+                        return new DeviceNotFoundException("Device not found with id: " + id);
+                    }
+                    logger.debug("Device with id: {} is not {}, cannot move it to {}", id, from, to);
+                    return new DeviceStateConflictException("Device with id: " + id + " is not " + from);
+                });
+        DeviceDTO dto = mapToDto(entity);
+        deviceCache.put(dto);
+        DeviceDTO before = mapToDto(entity);
+        before.setState(from);
+        before.setVersion(entity.getVersion() - 1);
+        eventPublisher.publishEvent(DeviceChangedEvent.updated(before, dto));
+        return dto;
+    }
+
+    @Transactional
     public void deleteDevice(Long id) {
-        logger.info("Deleting device with id: {}", id);
+        deleteDevice(id, null);
+    }
+
+    // transactional so the delete removes the entity that was checked, with its version in the WHERE clause
+    @Transactional
+    public void deleteDevice(Long id, Long expectedVersion) {
         DeviceEntity entity = deviceRepository.findById(id)
                 .orElseThrow(() -> {
                     logger.warn("Device not found with id: {} for deletion", id);
                     return new DeviceNotFoundException("Device not found with id: " + id);
                 });
+        checkVersion(entity, expectedVersion);
         if (entity.getState() == DeviceState.IN_USE) {
             logger.warn("Attempted to delete in-use device with id: {}", id);
             throw new DeviceInUseException("Cannot delete device in use");
         }
         deviceRepository.deleteById(id);
-        logger.info("Device deleted successfully with id: {}", id);
+        deviceCache.evict(id);
+        eventPublisher.publishEvent(DeviceChangedEvent.deleted(mapToDto(entity)));
+        logger.debug("Deleted device with id: {}", id);
     }
 
+    @Transactional(readOnly = true)
     public List<DeviceDTO> getDevicesByBrand(String brand) {
         logger.debug("Fetching devices by brand: {}", brand);
-        return deviceRepository.findByBrand(brand).stream()
+        return deviceRepository.findAll(DeviceSpecifications.hasBrand(brand)).stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<DeviceDTO> getDevicesByState(DeviceState state) {
         logger.debug("Fetching devices by state: {}", state);
-        return deviceRepository.findByState(state).stream()
+        return deviceRepository.findAll(DeviceSpecifications.hasState(state)).stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
     }
 
+    private void checkVersion(DeviceEntity entity, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+            logger.debug("Device with id: {} is at version {}, request expected {}", entity.getId(), entity.getVersion(), expectedVersion);
+            throw new DeviceVersionMismatchException("Device with id: " + entity.getId() + " is at version "
+                    + entity.getVersion() + ", not " + expectedVersion);
+        }
+    }
+
+    // id is always the last key so every (sort key, id) tuple is unique and the seek never skips or repeats rows
+    private Sort toKeysetSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!SCROLLABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new InvalidCursorException("Unsupported sort property: " + order.getProperty());
+            }
+        }
+        // nulls go where Postgres puts them by default, which DeviceSpecifications.after assumes (JPA criteria
+        // queries can't spell out NULLS FIRST/LAST)
+        return sort.getOrderFor("id") != null ? sort : sort.and(Sort.by("id"));
+    }
+
+    // the sort keys of the last row of a page, where the next one starts after
+    private static Map<String, Object> keysetKeys(DeviceEntity entity, Sort sort) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            keys.put(order.getProperty(), switch (order.getProperty()) {
+                case "id" -> entity.getId();
+                case "name" -> entity.getName();
+                case "brand" -> entity.getBrand();
+                case "state" -> entity.getState();
+                case "creationTime" -> entity.getCreationTime();
+                default -> throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            });
+        }
+        return keys;
+    }
+
     private DeviceDTO mapToDto(DeviceEntity entity) {
         DeviceDTO dto = new DeviceDTO();
         dto.setId(entity.getId());
@@ -149,6 +350,26 @@ public class DeviceService {
         dto.setBrand(entity.getBrand());
         dto.setState(entity.getState());
         dto.setCreationTime(entity.getCreationTime());
+        dto.setVersion(entity.getVersion());
+        return dto;
+    }
+
+    private DeviceDTO mapToDto(DevicePatchResult result) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(result.getId());
+        dto.setName(result.getName());
+        dto.setBrand(result.getBrand());
+        dto.setState(result.getState());
+        dto.setCreationTime(result.getCreationTime());
+        dto.setVersion(result.getVersion());
+        return dto;
+    }
+
+    private DeviceDTO previousOf(DevicePatchResult result) {
+        DeviceDTO dto = mapToDto(result);
+        dto.setName(result.getPreviousName());
+        dto.setBrand(result.getPreviousBrand());
+        dto.setVersion(result.getVersion() - 1);
         return dto;
     }
 
@@ -0,0 +1,257 @@
+package com.example.assessment.service;
+
+import com.example.assessment.datasource.ReadRouting;
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.model.DeviceStats;
+import com.example.assessment.repository.BrandStateCount;
+import com.example.assessment.repository.DeviceCountRow;
+import com.example.assessment.repository.DeviceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Device counts by brand and state, held in memory so /stats never queries the database. Every committed write
+// moves the device between counters; a periodic GROUP BY replaces them with the database's numbers to correct any
+// drift (writes from other instances, direct SQL, races between a write and its listener).
+@Service
+public class DeviceStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceStatsService.class);
+
+    private static final DeviceState[] STATES = DeviceState.values();
+    // ids per lookup of the devices that changed while reconciling
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final DeviceRepository deviceRepository;
+    private final TransactionTemplate snapshotTransaction;
+    // listeners apply changes under the read lock, reconciled counters are swapped in under the write lock
+    private final ReadWriteLock swap = new ReentrantReadWriteLock();
+
+    private volatile Counters current = new Counters(null);
+    // set while a reconciliation runs: the latest change to each device committed in the meantime
+    private volatile Map<Long, Change> pending;
+    private volatile Published published;
+
+    public DeviceStatsService(DeviceRepository deviceRepository, PlatformTransactionManager transactionManager) {
+        this.deviceRepository = deviceRepository;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        // the counts and the rows of the devices that changed meanwhile have to come from the same snapshot
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    // aggregated again only after a change, the calls in between share one instance
+    public DeviceStats getStats() {
+        Counters counters = current;
+        long modification = counters.modifications.get();
+        Published last = published;
+        if (last != null && last.counters() == counters && last.modification() == modification) {
+            return last.stats();
+        }
+        DeviceStats stats = counters.aggregate();
+        published = new Published(counters, modification, stats);
+        return stats;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        Lock lock = swap.readLock();
+        lock.lock();
+        try {
+            Map<Long, Change> reconciling = pending;
+            if (reconciling != null) {
+                record(reconciling, event);
+            }
+            apply(current, event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The changes committed while the GROUP BY runs may or may not be in its counts: each one is compared with the
+    // device's version in the same snapshot, and only the ones it doesn't have yet are applied on top.
+    @Scheduled(fixedDelayString = "${device.stats.reconcile-interval:5m}")
+    public void reconcile() {
+        Map<Long, Change> changes = new ConcurrentHashMap<>();
+        pending = changes;
+        Counters previous = current;
+        Counters reconciled;
+        // on the primary: a replica behind it would miss changes whose events were already counted
+        try (ReadRouting.Pin ignored = ReadRouting.pinToPrimary()) {
+            reconciled = snapshotTransaction.execute(status -> {
+                Counters counters = new Counters(LocalDateTime.now());
+                for (BrandStateCount row : deviceRepository.countByBrandAndState()) {
+                    counters.add(row.getBrand(), row.getState(), row.getCount());
+                }
+                Set<Long> lookedUp = new HashSet<>();
+                Map<Long, DeviceCountRow> counted = new HashMap<>();
+                lookUp(changes, lookedUp, counted);
+                Lock lock = swap.writeLock();
+                lock.lock();
+                try {
+                    // the ones committed since the lookup, usually none
+                    lookUp(changes, lookedUp, counted);
+                    changes.forEach((id, change) -> correct(counters, change, counted.get(id)));
+                    current = counters;
+                    pending = null;
+                } finally {
+                    lock.unlock();
+                }
+                return counters;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Device stats reconciliation failed, keeping the current counters", e);
+            pending = null;
+            return;
+        }
+        long drift = reconciled.total() - previous.total();
+        if (drift != 0) {
+            logger.info("Device stats reconciled, total was off by {}", drift);
+        }
+    }
+
+    private void lookUp(Map<Long, Change> changes, Set<Long> lookedUp, Map<Long, DeviceCountRow> counted) {
+        List<Long> ids = new ArrayList<>();
+        for (Long id : changes.keySet()) {
+            if (lookedUp.add(id)) {
+                ids.add(id);
+            }
+        }
+        for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + LOOKUP_CHUNK, ids.size()));
+            for (DeviceCountRow row : deviceRepository.findCountRowsByIdIn(chunk)) {
+                counted.put(row.id(), row);
+            }
+        }
+    }
+
+    // a change the snapshot already has stays as counted, any other replaces the device's row in the counts
+    private static void correct(Counters counters, Change change, DeviceCountRow counted) {
+        if (counted != null && change.device() != null && version(counted.version()) >= change.version()) {
+            return;
+        }
+        if (counted != null) {
+            counters.add(counted.brand(), counted.state(), -1);
+        }
+        if (change.device() != null) {
+            counters.add(change.device().brand(), change.device().state(), 1);
+        }
+    }
+
+    private static void record(Map<Long, Change> changes, DeviceChangedEvent event) {
+        DeviceDTO after = event.getAfter();
+        Change change = after != null
+                ? new Change(version(after.getVersion()),
+                        new DeviceCountRow(after.getId(), after.getBrand(), after.getState(), after.getVersion()))
+                // ids aren't reused, nothing comes after a delete
+                : new Change(Long.MAX_VALUE, null);
+        Long id = after != null ? after.getId() : event.getBefore().getId();
+        // two writes to the same device may commit in one order and get here in the other
+        changes.merge(id, change, (previous, next) -> next.version() >= previous.version() ? next : previous);
+    }
+
+    private static void apply(Counters counters, DeviceChangedEvent event) {
+        DeviceDTO before = event.getBefore();
+        DeviceDTO after = event.getAfter();
+        if (before != null) {
+            counters.add(before.getBrand(), before.getState(), -1);
+        }
+        if (after != null) {
+            counters.add(after.getBrand(), after.getState(), 1);
+        }
+    }
+
+    private static long version(Long version) {
+        return version != null ? version : 0;
+    }
+
+    // the device as of version, null once it's deleted
+    private record Change(long version, DeviceCountRow device) {
+    }
+
+    private record Published(Counters counters, long modification, DeviceStats stats) {
+    }
+
+    private static final class Counters {
+
+        // count per brand, indexed by DeviceState ordinal
+        private final Map<String, AtomicLongArray> byBrand = new ConcurrentHashMap<>();
+        private final AtomicLong modifications = new AtomicLong();
+        // null until the first reconciliation
+        private final LocalDateTime reconciledAt;
+
+        Counters(LocalDateTime reconciledAt) {
+            this.reconciledAt = reconciledAt;
+        }
+
+        void add(String brand, DeviceState state, long delta) {
+            // rows without a brand or state can't be attributed, they're left out of every count
+            if (brand == null || state == null) {
+                return;
+            }
+            byBrand.computeIfAbsent(brand, b -> new AtomicLongArray(STATES.length)).addAndGet(state.ordinal(), delta);
+            modifications.incrementAndGet();
+        }
+
+        long total() {
+            long total = 0;
+            for (AtomicLongArray counts : byBrand.values()) {
+                for (int i = 0; i < counts.length(); i++) {
+                    total += counts.get(i);
+                }
+            }
+            return total;
+        }
+
+        // read-only maps, the same instance goes to every caller until the next change
+        DeviceStats aggregate() {
+            Map<DeviceState, Long> byState = new EnumMap<>(DeviceState.class);
+            Map<String, Long> totals = new TreeMap<>();
+            Map<String, Map<DeviceState, Long>> byBrandAndState = new TreeMap<>();
+            long total = 0;
+            for (Map.Entry<String, AtomicLongArray> entry : byBrand.entrySet()) {
+                Map<DeviceState, Long> states = new EnumMap<>(DeviceState.class);
+                long brandTotal = 0;
+                for (DeviceState state : STATES) {
+                    long count = entry.getValue().get(state.ordinal());
+                    if (count != 0) {
+                        states.put(state, count);
+                        byState.merge(state, count, Long::sum);
+                        brandTotal += count;
+                    }
+                }
+                if (brandTotal != 0) {
+                    totals.put(entry.getKey(), brandTotal);
+                    byBrandAndState.put(entry.getKey(), Collections.unmodifiableMap(states));
+                    total += brandTotal;
+                }
+            }
+            return new DeviceStats(total, Collections.unmodifiableMap(byState), Collections.unmodifiableMap(totals),
+                    Collections.unmodifiableMap(byBrandAndState), reconciledAt);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.assessment.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+// A snapshot read from the whole devices table (the search index, the analytics columns), plus the devices this
+// instance changed since, which are hidden in the snapshot and kept here as they are now instead. The snapshot is
+// re-read periodically, which also brings in the writes of other instances and direct SQL; the changes committed
+// while it is read are collected for the new one as well. Changes stay until the next read and every query goes
+// through them, so once there are more than maxChanges the next read is asked for right away (readEarly).
+final class SnapshotWithChanges<S, V> {
+
+    private final ObjLongConsumer<S> hide;
+    private final int maxChanges;
+    private final Runnable readEarly;
+    private final AtomicBoolean earlyReadAsked = new AtomicBoolean();
+    private final ReentrantLock reading = new ReentrantLock();
+
+    private volatile Segment<S, V> current;
+    // set while the snapshot is read, collects the changes committed in the meantime
+    private volatile Segment<S, V> pending;
+
+    SnapshotWithChanges(S empty, ObjLongConsumer<S> hide, int maxChanges, Runnable readEarly) {
+        this.hide = hide;
+        this.maxChanges = maxChanges;
+        this.readEarly = readEarly;
+        this.current = new Segment<>(empty, null);
+    }
+
+    Segment<S, V> current() {
+        return current;
+    }
+
+    // value is the device as of version, null once it's deleted
+    void apply(Long id, long version, V value) {
+        Changed<V> change = new Changed<>(version, value);
+        // read pending first: if the swap happens in between, current is the new snapshot and already has it
+        Segment<S, V> rebuilding = pending;
+        Segment<S, V> segment = current;
+        if (rebuilding != null) {
+            rebuilding.apply(id, change, hide);
+        }
+        if (segment != rebuilding) {
+            segment.apply(id, change, hide);
+        }
+        if (segment.changed.size() > maxChanges && earlyReadAsked.compareAndSet(false, true)) {
+            readEarly.run();
+        }
+    }
+
+    // Reads a new snapshot and swaps it in, null without reading when another read is running. A failed read keeps
+    // the current snapshot and its changes.
+    S read(Supplier<S> reader) {
+        if (!reading.tryLock()) {
+            return null;
+        }
+        try {
+            Segment<S, V> rebuilt = new Segment<>(null, LocalDateTime.now());
+            pending = rebuilt;
+            S snapshot;
+            try {
+                snapshot = reader.get();
+            } finally {
+                pending = null;
+            }
+            rebuilt.complete(snapshot, hide);
+            current = rebuilt;
+            earlyReadAsked.set(false);
+            return snapshot;
+        } finally {
+            reading.unlock();
+        }
+    }
+
+    // the device as of version, null once it's deleted
+    private record Changed<V>(long version, V value) {
+    }
+
+    private record Changes<V>(long modification, Map<Long, V> devices) {
+    }
+
+    static final class Segment<S, V> {
+
+        // null until the read completes
+        private volatile S snapshot;
+        private final LocalDateTime readAt;
+        // devices changed since the snapshot was read, hidden in it
+        private final Map<Long, Changed<V>> changed = new ConcurrentHashMap<>();
+        private final AtomicLong modifications = new AtomicLong();
+        // what changes() handed out last, while nothing was applied since
+        private volatile Changes<V> changes;
+
+        private Segment(S snapshot, LocalDateTime readAt) {
+            this.snapshot = snapshot;
+            this.readAt = readAt;
+        }
+
+        S snapshot() {
+            return snapshot;
+        }
+
+        // null for the empty snapshot there is before the first read
+        LocalDateTime readAt() {
+            return readAt;
+        }
+
+        // the changed devices that still exist, as they are now; only copied again after another change
+        Map<Long, V> changes() {
+            long modification = modifications.get();
+            Changes<V> handedOut = changes;
+            if (handedOut != null && handedOut.modification() == modification) {
+                return handedOut.devices();
+            }
+            Map<Long, V> devices = new HashMap<>();
+            changed.forEach((id, change) -> {
+                if (change.value() != null) {
+                    devices.put(id, change.value());
+                }
+            });
+            Map<Long, V> copy = Map.copyOf(devices);
+            changes = new Changes<>(modification, copy);
+            return copy;
+        }
+
+        private void apply(Long id, Changed<V> change, ObjLongConsumer<S> hide) {
+            // two writes to the same device may commit in one order and get here in the other
+            changed.merge(id, change, (previous, next) -> next.version() >= previous.version() ? next : previous);
+            modifications.incrementAndGet();
+            S built = snapshot;
+            if (built != null) {
+                hide.accept(built, id);
+            }
+        }
+
+        // every change applied before the snapshot is set is hidden here, every one after by apply
+        private void complete(S built, ObjLongConsumer<S> hide) {
+            snapshot = built;
+            for (Long id : changed.keySet()) {
+                hide.accept(built, id);
+            }
+        }
+    }
+}
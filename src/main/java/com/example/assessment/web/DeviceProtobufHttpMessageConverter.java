@@ -0,0 +1,125 @@
+package com.example.assessment.web;
+
+import com.example.assessment.exception.ErrorResponse;
+import com.example.assessment.model.CursorPage;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+// Writes device responses as protobuf, with the messages of proto/device.proto. The message is picked from the
+// declared return type, so only DeviceResponse, pages, cursor pages and lists of DeviceResponse plus ErrorResponse
+// are offered as application/x-protobuf; everything else stays JSON. Write-only, requests are JSON.
+public class DeviceProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+    public static final String SCHEMA_LOCATION = "proto/device.proto";
+
+    private final ObjectWriter device;
+    private final ObjectWriter page;
+    private final ObjectWriter cursorPage;
+    private final ObjectWriter list;
+    private final ObjectWriter error;
+
+    public DeviceProtobufHttpMessageConverter() {
+        super(APPLICATION_PROTOBUF);
+        NativeProtobufSchema schema = loadSchema();
+        ProtobufMapper mapper = ProtobufMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                // a property added to DeviceResponse before device.proto knows about it is left out, not a 500
+                .enable(JsonGenerator.Feature.IGNORE_UNKNOWN)
+                .build();
+        this.device = mapper.writer(schema.forType("DeviceResponse"));
+        this.page = mapper.writer(schema.forType("DevicePage"));
+        this.cursorPage = mapper.writer(schema.forType("DeviceCursorPage"));
+        this.list = mapper.writer(schema.forType("DeviceList"));
+        this.error = mapper.writer(schema.forType("ErrorResponse"));
+    }
+
+    private static NativeProtobufSchema loadSchema() {
+        try (InputStream in = new ClassPathResource(SCHEMA_LOCATION).getInputStream()) {
+            return ProtobufSchemaLoader.std.loadNative(in, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + SCHEMA_LOCATION, e);
+        }
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(@Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return writerFor(type != null ? type : clazz) != null && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        // the same type canWrite accepted
+        ObjectWriter writer = writerFor(type != null ? type : value.getClass());
+        // a protobuf message can't be a bare list, DeviceList wraps it
+        Object message = writer == list ? Map.of("devices", value) : value;
+        writer.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), message);
+    }
+
+    @Nullable
+    private ObjectWriter writerFor(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> raw = resolved.toClass();
+        if (DeviceResponse.class.isAssignableFrom(raw)) {
+            return device;
+        }
+        if (ErrorResponse.class.isAssignableFrom(raw)) {
+            return error;
+        }
+        boolean ofDevices = resolved.getGeneric(0).toClass() == DeviceResponse.class;
+        if (ofDevices && DevicePage.class.isAssignableFrom(raw)) {
+            return page;
+        }
+        if (ofDevices && CursorPage.class.isAssignableFrom(raw)) {
+            return cursorPage;
+        }
+        if (ofDevices && List.class.isAssignableFrom(raw)) {
+            return list;
+        }
+        return null;
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+}
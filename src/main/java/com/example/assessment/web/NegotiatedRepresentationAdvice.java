@@ -0,0 +1,68 @@
+package com.example.assessment.web;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+// Every body the message converters write was picked by Accept (JSON, Smile, CBOR or protobuf), so caches have to key
+// on it: Vary: Accept. A strong ETag names one representation byte for byte, so outside JSON it gets the format as a
+// suffix, "<version>-cbor"; ResponseCompressionFilter adds the content coding the same way. Weak tags only promise
+// the same content and stay as they are.
+@ControllerAdvice(basePackages = "com.example.assessment.controller")
+public class NegotiatedRepresentationAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(@Nullable Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        if (!headers.getVary().contains(HttpHeaders.ACCEPT)) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String eTag = headers.getETag();
+        if (eTag != null && !isJson(selectedContentType)) {
+            String suffixed = withSuffix(eTag, format(selectedContentType));
+            // on a GET the not-modified check has already written the tag to the servlet response, and the headers
+            // here would only be added next to it
+            headers.remove(HttpHeaders.ETAG);
+            if (response instanceof ServletServerHttpResponse servletResponse) {
+                servletResponse.getServletResponse().setHeader(HttpHeaders.ETAG, suffixed);
+            } else {
+                headers.setETag(suffixed);
+            }
+        }
+        return body;
+    }
+
+    // "<tag>-<suffix>" for a strong tag, a weak one is returned as is
+    static String withSuffix(String eTag, String suffix) {
+        if (!eTag.startsWith("\"") || eTag.length() < 2) {
+            return eTag;
+        }
+        return eTag.substring(0, eTag.length() - 1) + "-" + suffix + "\"";
+    }
+
+    private static boolean isJson(MediaType mediaType) {
+        return MediaType.APPLICATION_JSON.isCompatibleWith(mediaType) || mediaType.getSubtype().endsWith("+json");
+    }
+
+    // application/x-jackson-smile -> smile, application/cbor -> cbor, application/x-protobuf -> protobuf
+    private static String format(MediaType mediaType) {
+        String subtype = mediaType.getSubtype().toLowerCase(Locale.ROOT);
+        return subtype.substring(subtype.lastIndexOf('-') + 1).replaceAll("[^a-z0-9.+]", "");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.assessment.web;
+
+import com.example.assessment.datasource.ReadRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Keeps a client reading from the primary for a while after its own write, so it doesn't get an older copy from a
+// replica that hasn't replayed the write yet. A write request (any method but GET, HEAD, OPTIONS and TRACE) runs
+// pinned to the primary and sets a cookie with the time the window ends; requests that bring the cookie back
+// before then run pinned too. The cookie is set before the write runs, the response can be committed by the time
+// it's done, so a write that fails pins the client for nothing.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "device-read-primary-until";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !isSafe(request.getMethod());
+        if (write) {
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(now + window.toMillis()))
+                    .path("/")
+                    .maxAge(Math.max(1, window.toSeconds()))
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString());
+        }
+        if (!write && pinnedUntil(request) <= now) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try (ReadRouting.Pin ignored = ReadRouting.pinToPrimary()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private static boolean isSafe(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || HttpMethod.OPTIONS.matches(method) || HttpMethod.TRACE.matches(method);
+    }
+
+    private static long pinnedUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,458 @@
+package com.example.assessment.web;
+
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+// Compresses responses with zstd or gzip, whichever the client accepts (zstd when both are), once they grow past
+// minResponseSize. The first minResponseSize bytes are held back: a response that ends within them goes out as is,
+// with a Content-Length, anything longer is compressed as it streams. Only the configured content types are
+// compressed, and never a response that already has a Content-Encoding. A strong ETag on a compressed response
+// gets the coding as a suffix, "<version>-gzip". A flush while the request is async (an SSE
+// event, an export written from another thread) settles the decision right away, so streamed writes aren't held back.
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    static final String ZSTD = "zstd";
+    static final String GZIP = "gzip";
+
+    private static final String RESPONSE_ATTRIBUTE = ResponseCompressionFilter.class.getName() + ".RESPONSE";
+
+    private final int minResponseSize;
+    private final Set<String> mimeTypes = new HashSet<>();
+    private final int zstdLevel;
+
+    public ResponseCompressionFilter(int minResponseSize, Collection<String> mimeTypes, int zstdLevel) {
+        this.minResponseSize = minResponseSize;
+        mimeTypes.forEach(type -> this.mimeTypes.add(withoutParameters(MediaType.parseMediaType(type))));
+        this.zstdLevel = zstdLevel;
+    }
+
+    // the async dispatch writes the DeferredResult and is where an async response gets finished
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (compressing == null) {
+            String encoding = negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (encoding == null || HttpMethod.HEAD.matches(request.getMethod())) {
+                chain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse(response, request, encoding);
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+            // an async dispatch gets the response the request started async with, which is already this one
+            response = compressing;
+        }
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (!completed) {
+                // the container writes the error, whatever the compressor still holds must not leak with it
+                compressing.release();
+            } else if (request.isAsyncStarted()) {
+                compressing.watch(request);
+            } else {
+                compressing.finish();
+            }
+        }
+    }
+
+    private static String withoutParameters(MediaType mediaType) {
+        return mediaType.getType() + "/" + mediaType.getSubtype();
+    }
+
+    // zstd if the client takes it at all, else gzip; null when it takes neither
+    @Nullable
+    static String negotiate(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        Double zstd = null;
+        Double gzip = null;
+        double wildcard = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            switch (name) {
+                case ZSTD -> zstd = quality;
+                case GZIP, "x-gzip" -> gzip = quality;
+                case "*" -> wildcard = quality;
+                default -> {
+                }
+            }
+        }
+        double zstdQuality = zstd != null ? zstd : wildcard;
+        double gzipQuality = gzip != null ? gzip : wildcard;
+        if (zstdQuality > 0 && zstdQuality >= gzipQuality) {
+            return ZSTD;
+        }
+        return gzipQuality > 0 ? GZIP : null;
+    }
+
+    private final class CompressingResponse extends HttpServletResponseWrapper implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final String encoding;
+        private ThresholdOutputStream stream;
+        private PrintWriter writer;
+        // held back until we know whether the body goes out compressed
+        private long contentLength = -1;
+        private boolean watching;
+
+        CompressingResponse(HttpServletResponse response, HttpServletRequest request, String encoding) {
+            super(response);
+            this.request = request;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            return stream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        private ThresholdOutputStream stream() {
+            if (stream == null) {
+                stream = new ThresholdOutputStream();
+            }
+            return stream;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (stream != null && stream.raw) {
+                super.setContentLengthLong(len);
+            } else {
+                contentLength = len;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value == null ? -1 : Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setHeader(name, value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (stream != null) {
+                stream.flush();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (stream != null) {
+                stream.discard();
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            contentLength = -1;
+            super.reset();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            stream().abandon();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            stream().abandon();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            stream().abandon();
+            super.sendRedirect(location);
+        }
+
+        void finish() throws IOException {
+            try {
+                if (writer != null) {
+                    writer.flush();
+                }
+            } finally {
+                stream().close();
+            }
+        }
+
+        // frees the compressor without finishing the response, when nothing more can be written to it
+        void release() {
+            if (stream != null) {
+                stream.release();
+            }
+        }
+
+        // an async response is finished by a later dispatch, unless it errors out or the client goes away first
+        void watch(HttpServletRequest request) {
+            if (!watching) {
+                watching = true;
+                request.getAsyncContext().addListener(this);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        // the timeout is followed by a dispatch that writes the timeout response, which a body that hasn't started
+        // can still become; one that is already compressed can only be ended
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (stream != null && stream.compressing()) {
+                release();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // starting async again drops the listeners
+            event.getAsyncContext().addListener(this);
+        }
+
+        private boolean compressible() {
+            if (getResponse().isCommitted() || containsHeader(HttpHeaders.CONTENT_ENCODING) || getContentType() == null) {
+                return false;
+            }
+            return mimeTypes.contains(withoutParameters(MediaType.parseMediaType(getContentType())));
+        }
+
+        private final class ThresholdOutputStream extends ServletOutputStream {
+
+            private ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(minResponseSize, 8192));
+            // null while the first minResponseSize bytes are being held back
+            private OutputStream target;
+            private boolean raw;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (target == null) {
+                    if (buffer.size() < minResponseSize) {
+                        buffer.write(b);
+                        return;
+                    }
+                    start(compressible());
+                }
+                target.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (target == null) {
+                    if (buffer.size() + len <= minResponseSize) {
+                        buffer.write(b, off, len);
+                        return;
+                    }
+                    start(compressible());
+                }
+                target.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (target == null) {
+                    // a synchronous response is finished by the filter; flushing it early would only cost the Content-Length
+                    if (!request.isAsyncStarted()) {
+                        return;
+                    }
+                    start(compressible());
+                }
+                target.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (target == null) {
+                    if (buffer.size() == 0) {
+                        // no body, leave the output stream alone
+                        if (contentLength >= 0) {
+                            CompressingResponse.super.setContentLengthLong(contentLength);
+                        }
+                        return;
+                    }
+                    start(false);
+                }
+                // also finishes the compressed frame
+                target.close();
+            }
+
+            private void start(boolean compress) throws IOException {
+                OutputStream body = getResponse().getOutputStream();
+                if (compress) {
+                    setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+                    addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                    // the compressed bytes are another representation than the identity ones
+                    String eTag = getHeader(HttpHeaders.ETAG);
+                    if (eTag != null) {
+                        setHeader(HttpHeaders.ETAG, NegotiatedRepresentationAdvice.withSuffix(eTag, encoding));
+                    }
+                    target = ZSTD.equals(encoding) ? new ZstdOutputStreamNoFinalizer(body, zstdLevel) : new GZIPOutputStream(body, 8192, true);
+                } else {
+                    raw = true;
+                    if (contentLength >= 0) {
+                        CompressingResponse.super.setContentLengthLong(contentLength);
+                    } else if (closed) {
+                        CompressingResponse.super.setContentLengthLong(buffer.size());
+                    }
+                    target = body;
+                }
+                buffer.writeTo(target);
+                buffer = null;
+            }
+
+            void discard() {
+                if (buffer != null) {
+                    buffer.reset();
+                }
+            }
+
+            // nothing held back goes out after sendError or sendRedirect, the container writes that response
+            void abandon() {
+                if (target == null) {
+                    buffer.reset();
+                    closed = true;
+                }
+            }
+
+            void release() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (target == null) {
+                    buffer.reset();
+                } else if (!raw) {
+                    try {
+                        // ends the compressor's native or Deflater state even when the write to the client fails
+                        target.close();
+                    } catch (IOException ignored) {
+                        // the client is gone or the response is broken, there is nobody left to tell
+                    }
+                    target = OutputStream.nullOutputStream();
+                }
+            }
+
+            boolean compressing() {
+                return target != null && !raw;
+            }
+
+            @Override
+            public boolean isReady() {
+                return target == null || !(target instanceof ServletOutputStream servletStream) || servletStream.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                if (target == null) {
+                    // the compressor's writes don't wait for isReady, so a non-blocking response goes out as is
+                    try {
+                        start(false);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not switch the response to non-blocking writes", e);
+                    }
+                }
+                if (!raw) {
+                    throw new IllegalStateException("Non-blocking writes must be set up before a response is compressed");
+                }
+                ((ServletOutputStream) target).setWriteListener(writeListener);
+            }
+        }
+    }
+}
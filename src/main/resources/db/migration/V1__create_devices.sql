@@ -0,0 +1,18 @@
+-- Baseline schema. IF NOT EXISTS keeps this safe on databases that were created by ddl-auto=update.
+CREATE SEQUENCE IF NOT EXISTS devices_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS devices (
+    id            BIGINT       NOT NULL PRIMARY KEY,
+    name          VARCHAR(255),
+    brand         VARCHAR(255),
+    state         VARCHAR(255),
+    creation_time TIMESTAMP(6),
+    version       BIGINT
+);
+
+-- Rows inserted through the old IDENTITY column may be ahead of devices_seq. Hibernate's pooled optimizer hands out
+-- (value - 49 .. value) for every nextval, so move the sequence far enough that the next block starts after max(id).
+SELECT setval('devices_seq', m.max_id + 50, false)
+FROM (SELECT MAX(id) AS max_id FROM devices) m, devices_seq s
+WHERE m.max_id IS NOT NULL
+  AND m.max_id >= s.last_value;
@@ -0,0 +1,17 @@
+-- Built CONCURRENTLY so existing tables stay writable; that's why this script runs outside a transaction
+-- (see the matching .sql.conf).
+
+-- (sort key, id) pairs for keyset scrolling on /api/v1/devices/scroll
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_name_id ON devices (name, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_brand_id ON devices (brand, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_state_id ON devices (state, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_creation_time_id ON devices (creation_time, id);
+
+-- /api/v1/devices/filter: brand [+ state] [+ creationTime range]
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_brand_state_creation_time ON devices (brand, state, creation_time);
+-- state [+ creationTime range] without a brand
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_state_creation_time ON devices (state, creation_time);
+-- name prefix (LIKE 'abc%'), text_pattern_ops makes it usable regardless of the database collation
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_name_prefix ON devices (name text_pattern_ops);
+-- checked-out devices per brand are a small, hot subset
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_devices_in_use_brand ON devices (brand, creation_time) WHERE state = 'IN_USE';
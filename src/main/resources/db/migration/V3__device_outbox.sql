@@ -0,0 +1,12 @@
+-- Device events waiting to be relayed to other systems. Rows are written in the same transaction as the device change
+-- and deleted once delivered, so the table only holds the backlog.
+CREATE TABLE IF NOT EXISTS device_outbox (
+    id         BIGINT       GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    device_id  BIGINT       NOT NULL,
+    event_type VARCHAR(16)  NOT NULL,
+    payload    JSON         NOT NULL,
+    created_at TIMESTAMPTZ  NOT NULL DEFAULT clock_timestamp()
+)
+-- every row is inserted and deleted once; vacuum after a fixed number of dead rows instead of a fraction of a table
+-- that is usually close to empty
+WITH (autovacuum_vacuum_scale_factor = 0, autovacuum_vacuum_threshold = 1000);
@@ -0,0 +1,107 @@
+-- Partitions devices by state, and every state by a hash of id. A query with a state (the state filters, findByState,
+-- the transitions) only touches that state's partitions, and one with an id as well only one of them. Each leaf
+-- table holds 1/8th of a state, so its indexes and vacuum runs stay small as the table grows. Updates that change
+-- the state move the row to the other state's partitions. A lookup by id alone reads one partition per state; see
+-- PartitioningBenchmark and the README for what that costs.
+--
+-- Opt-in: this location is only migrated when spring.flyway.locations includes classpath:db/partitioning. It copies
+-- the table inside the migration's transaction, with devices locked for the duration: on a large table, run it in a
+-- maintenance window.
+
+-- state is part of the primary key now, so it can't be NULL. Rows without one predate the validation on create and
+-- need a state someone chose for them, not one picked here.
+DO $$
+DECLARE
+    missing BIGINT;
+BEGIN
+    SELECT count(*) INTO missing FROM devices WHERE state IS NULL;
+    IF missing > 0 THEN
+        RAISE EXCEPTION '% device(s) have no state, devices can''t be partitioned by state', missing
+            USING HINT = 'Give them one (SELECT id FROM devices WHERE state IS NULL lists them) and run the migration again.';
+    END IF;
+END $$;
+
+ALTER TABLE devices RENAME TO devices_unpartitioned;
+
+CREATE TABLE devices (
+    id            BIGINT       NOT NULL,
+    name          VARCHAR(255),
+    brand         VARCHAR(255),
+    state         VARCHAR(255) NOT NULL,
+    creation_time TIMESTAMP(6),
+    version       BIGINT
+) PARTITION BY LIST (state);
+
+-- one partition per DeviceState; there's no default partition, which every lookup by id would have to read as well,
+-- so a new state needs a migration that adds its partition before the application writes it
+DO $$
+DECLARE
+    device_state TEXT;
+    remainder INT;
+BEGIN
+    FOREACH device_state IN ARRAY ARRAY['AVAILABLE', 'IN_USE', 'INACTIVE'] LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF devices FOR VALUES IN (%L) PARTITION BY HASH (id)',
+                       'devices_' || lower(device_state), device_state);
+        FOR remainder IN 0..7 LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES WITH (MODULUS 8, REMAINDER %s)',
+                           'devices_' || lower(device_state) || '_' || remainder, 'devices_' || lower(device_state), remainder);
+        END LOOP;
+    END LOOP;
+END $$;
+
+INSERT INTO devices (id, name, brand, state, creation_time, version)
+SELECT id, name, brand, state, creation_time, version
+FROM devices_unpartitioned;
+
+DROP TABLE devices_unpartitioned;
+
+-- unique per partition is all Postgres can enforce, so the key has to include the partition column
+ALTER TABLE devices ADD PRIMARY KEY (id, state);
+
+-- device_ids keeps id unique across the partitions: every id in devices has its row here, and a second row with the
+-- same id, in whichever partition, fails on its primary key. A row that moves to another state is deleted from its
+-- partition and inserted into the new one, so its id goes and comes back within the same statement.
+CREATE TABLE device_ids (
+    id BIGINT NOT NULL PRIMARY KEY
+);
+
+INSERT INTO device_ids (id)
+SELECT id FROM devices;
+
+CREATE FUNCTION devices_claim_id() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO device_ids (id) VALUES (NEW.id);
+    RETURN NULL;
+END $$;
+
+CREATE FUNCTION devices_release_id() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    DELETE FROM device_ids WHERE id = OLD.id;
+    RETURN NULL;
+END $$;
+
+CREATE FUNCTION devices_keep_id() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    RAISE EXCEPTION 'The id of device % can''t change', OLD.id;
+END $$;
+
+CREATE TRIGGER devices_claim_id AFTER INSERT ON devices FOR EACH ROW EXECUTE FUNCTION devices_claim_id();
+CREATE TRIGGER devices_release_id AFTER DELETE ON devices FOR EACH ROW EXECUTE FUNCTION devices_release_id();
+CREATE TRIGGER devices_keep_id BEFORE UPDATE OF id ON devices FOR EACH ROW WHEN (NEW.id <> OLD.id)
+    EXECUTE FUNCTION devices_keep_id();
+
+-- the V2 indexes, created on every partition
+CREATE INDEX idx_devices_name_id ON devices (name, id);
+CREATE INDEX idx_devices_brand_id ON devices (brand, id);
+CREATE INDEX idx_devices_state_id ON devices (state, id);
+CREATE INDEX idx_devices_creation_time_id ON devices (creation_time, id);
+CREATE INDEX idx_devices_name_prefix ON devices (name text_pattern_ops);
+-- a query with a state reads that state's partitions only, where brand and creation time are enough to search
+CREATE INDEX idx_devices_brand_creation_time ON devices (brand, creation_time);
+-- as in V2: state [+ creation time range] without a brand, and checked-out devices per brand, a small, hot subset
+CREATE INDEX idx_devices_state_creation_time ON devices (state, creation_time);
+CREATE INDEX idx_devices_in_use_brand ON devices (brand, creation_time) WHERE state = 'IN_USE';
+
+-- autovacuum analyzes the leaf tables but never the partitioned table itself, whose statistics the planner uses for
+-- queries across partitions
+ANALYZE devices;
@@ -0,0 +1,138 @@
+package com.example.assessment.reactive.controller;
+
+import com.example.assessment.exception.DeviceInUseException;
+import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.reactive.service.ReactiveDeviceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveDeviceController.class)
+class ReactiveDeviceControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReactiveDeviceService deviceService;
+
+    @Test
+    void getDevice_shouldReturnDevice() {
+        when(deviceService.getDeviceById(1L)).thenReturn(Mono.just(device(1L, DeviceState.AVAILABLE)));
+
+        webTestClient.get().uri("/api/v1/devices/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.state").isEqualTo("AVAILABLE")
+                .jsonPath("$.version").isEqualTo(0);
+    }
+
+    @Test
+    void getDevice_shouldReturn404WhenMissing() {
+        when(deviceService.getDeviceById(9L)).thenReturn(Mono.error(new DeviceNotFoundException("Device not found with id: 9")));
+
+        webTestClient.get().uri("/api/v1/devices/9")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Device not found with id: 9")
+                .jsonPath("$.path").isEqualTo("/api/v1/devices/9");
+    }
+
+    @Test
+    void getAllDevices_shouldReturnPageWithRequestedPageable() {
+        when(deviceService.getAllDevices(argThat((Pageable p) -> p.getPageNumber() == 1 && p.getPageSize() == 2)))
+                .thenReturn(Mono.just(DevicePage.of(new PageImpl<>(List.of(device(3L, DeviceState.AVAILABLE)), PageRequest.of(1, 2), 3))));
+
+        webTestClient.get().uri("/api/v1/devices?page=1&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].id").isEqualTo(3)
+                .jsonPath("$.totalElements").isEqualTo(3)
+                .jsonPath("$.number").isEqualTo(1)
+                .jsonPath("$.hasNext").isEqualTo(false)
+                .jsonPath("$.pageable").doesNotExist();
+    }
+
+    @Test
+    void getAllDevices_shouldStreamNdjsonWithoutEnvelope() {
+        when(deviceService.streamAllDevices(any())).thenReturn(Flux.just(device(1L, DeviceState.AVAILABLE), device(2L, DeviceState.IN_USE)));
+
+        webTestClient.get().uri("/api/v1/devices?size=2")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> assertEquals(2, body.strip().lines().count()));
+    }
+
+    @Test
+    void getDevicesByBrand_shouldReturnJsonArray() {
+        when(deviceService.getDevicesByBrand("Apple")).thenReturn(Flux.just(device(1L, DeviceState.AVAILABLE), device(2L, DeviceState.IN_USE)));
+
+        webTestClient.get().uri("/api/v1/devices/brand/Apple")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].state").isEqualTo("IN_USE");
+    }
+
+    @Test
+    void partialUpdateDevice_shouldReturn400WhenInUse() {
+        when(deviceService.partialUpdateDevice(eq(1L), any(DeviceDTO.class)))
+                .thenReturn(Mono.error(new DeviceInUseException("Cannot update name when device is in use")));
+
+        webTestClient.patch().uri("/api/v1/devices/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"New\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Cannot update name when device is in use");
+    }
+
+    @Test
+    void getDevice_shouldReturn400ForInvalidId() {
+        webTestClient.get().uri("/api/v1/devices/abc")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Parameter 'id' has invalid value 'abc'");
+    }
+
+    private static DeviceDTO device(Long id, DeviceState state) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(id);
+        dto.setName("Device " + id);
+        dto.setBrand("Apple");
+        dto.setState(state);
+        dto.setCreationTime(LocalDateTime.of(2024, 1, 1, 12, 0));
+        dto.setVersion(0L);
+        return dto;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.assessment.reactive.service;
+
+import com.example.assessment.exception.DeviceInUseException;
+import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.reactive.entity.DeviceRow;
+import com.example.assessment.reactive.repository.ReactiveDeviceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveDeviceServiceTest {
+
+    @Mock
+    private ReactiveDeviceRepository deviceRepository;
+
+    @InjectMocks
+    private ReactiveDeviceService deviceService;
+
+    @Test
+    void createDevice_shouldTakeIdFromSequence() {
+        when(deviceRepository.nextId()).thenReturn(Mono.just(51L));
+        when(deviceRepository.save(any(DeviceRow.class))).thenAnswer(invocation -> {
+            DeviceRow row = invocation.getArgument(0);
+            row.setVersion(0L);
+            return Mono.just(row);
+        });
+        DeviceDTO dto = new DeviceDTO();
+        dto.setName("Phone");
+        dto.setBrand("Apple");
+        dto.setState(DeviceState.AVAILABLE);
+
+        StepVerifier.create(deviceService.createDevice(dto))
+                .assertNext(created -> {
+                    assertEquals(51L, created.getId());
+                    assertEquals("Phone", created.getName());
+                    assertNotNull(created.getCreationTime());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getAllDevices_shouldCombineRowsAndCount() {
+        when(deviceRepository.findAllBy(any())).thenReturn(Flux.just(row(1L, DeviceState.AVAILABLE), row(2L, DeviceState.IN_USE)));
+        when(deviceRepository.count()).thenReturn(Mono.just(12L));
+
+        StepVerifier.create(deviceService.getAllDevices(PageRequest.of(0, 2)))
+                .assertNext(page -> {
+                    assertEquals(2, page.getContent().size());
+                    assertEquals(12L, page.getTotalElements());
+                    assertEquals(6, page.getTotalPages());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getDeviceById_shouldFailWhenMissing() {
+        when(deviceRepository.findById(9L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(deviceService.getDeviceById(9L))
+                .expectError(DeviceNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void updateDevice_shouldRejectRenameOfDeviceInUse() {
+        when(deviceRepository.findById(1L)).thenReturn(Mono.just(row(1L, DeviceState.IN_USE)));
+        DeviceDTO dto = new DeviceDTO();
+        dto.setName("New");
+        dto.setBrand("Brand");
+        dto.setState(DeviceState.IN_USE);
+
+        StepVerifier.create(deviceService.updateDevice(1L, dto))
+                .expectErrorMessage("Cannot update name when device is in use")
+                .verify();
+        verify(deviceRepository, never()).save(any());
+    }
+
+    @Test
+    void partialUpdateDevice_shouldUseSingleStatementForRename() {
+        DeviceRow renamed = row(1L, DeviceState.AVAILABLE);
+        renamed.setName("Renamed");
+        when(deviceRepository.updateNameAndBrandIfNotInUse(1L, "Renamed", null)).thenReturn(Mono.just(renamed));
+        DeviceDTO patch = new DeviceDTO();
+        patch.setName("Renamed");
+
+        StepVerifier.create(deviceService.partialUpdateDevice(1L, patch))
+                .assertNext(updated -> assertEquals("Renamed", updated.getName()))
+                .verifyComplete();
+        verify(deviceRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void partialUpdateDevice_shouldReportDeviceInUseWhenRenameMatchesNothing() {
+        when(deviceRepository.updateNameAndBrandIfNotInUse(1L, null, "Other")).thenReturn(Mono.empty());
+        when(deviceRepository.findById(1L)).thenReturn(Mono.just(row(1L, DeviceState.IN_USE)));
+        DeviceDTO patch = new DeviceDTO();
+        patch.setBrand("Other");
+
+        StepVerifier.create(deviceService.partialUpdateDevice(1L, patch))
+                .expectError(DeviceInUseException.class)
+                .verify();
+        verify(deviceRepository, never()).save(any());
+    }
+
+    @Test
+    void checkOutDevice_shouldTellConflictFromMissingDevice() {
+        when(deviceRepository.transitionState(anyLong(), eq("AVAILABLE"), eq("IN_USE"))).thenReturn(Mono.empty());
+        when(deviceRepository.existsById(1L)).thenReturn(Mono.just(true));
+        when(deviceRepository.existsById(2L)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(deviceService.checkOutDevice(1L))
+                .expectError(DeviceStateConflictException.class)
+                .verify();
+        StepVerifier.create(deviceService.checkOutDevice(2L))
+                .expectError(DeviceNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void deleteDevice_shouldRejectDeviceInUse() {
+        when(deviceRepository.findById(1L)).thenReturn(Mono.just(row(1L, DeviceState.IN_USE)));
+
+        StepVerifier.create(deviceService.deleteDevice(1L))
+                .expectErrorMessage("Cannot delete device in use")
+                .verify();
+        verify(deviceRepository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void deleteDevice_shouldDeleteAvailableDevice() {
+        when(deviceRepository.findById(1L)).thenReturn(Mono.just(row(1L, DeviceState.AVAILABLE)));
+        when(deviceRepository.deleteById(1L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(deviceService.deleteDevice(1L)).verifyComplete();
+        verify(deviceRepository).deleteById(1L);
+    }
+
+    private static DeviceRow row(Long id, DeviceState state) {
+        DeviceRow row = new DeviceRow();
+        row.setId(id);
+        row.setName("Device " + id);
+        row.setBrand("Apple");
+        row.setState(state);
+        row.setCreationTime(LocalDateTime.of(2024, 1, 1, 12, 0));
+        row.setVersion(0L);
+        return row;
+    }
+}
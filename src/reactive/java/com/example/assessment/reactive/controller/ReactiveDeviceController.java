@@ -0,0 +1,120 @@
+package com.example.assessment.reactive.controller;
+
+import com.example.assessment.model.CreateDeviceRequest;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceResponse;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.model.UpdateDeviceRequest;
+import com.example.assessment.reactive.service.ReactiveDeviceService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Same routes, payloads and status codes as DeviceController. The list, brand and state endpoints also stream
+// newline-delimited JSON for Accept: application/x-ndjson, one device per line as the rows arrive.
+@RestController
+@RequestMapping("/api/v1/devices")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDeviceController {
+
+    private final ReactiveDeviceService deviceService;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping
+    public Mono<ResponseEntity<DeviceResponse>> createDevice(@Valid @RequestBody CreateDeviceRequest request) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setName(request.getName());
+        dto.setBrand(request.getBrand());
+        dto.setState(request.getState());
+        return deviceService.createDevice(dto).map(saved -> ResponseEntity.ok(mapToResponse(saved)));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<DevicePage<DeviceResponse>>> getAllDevices(Pageable pageable) {
+        return deviceService.getAllDevices(pageable).map(page -> ResponseEntity.ok(page.map(this::mapToResponse)));
+    }
+
+    // the page's devices without the envelope and without the count query
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DeviceResponse> streamAllDevices(Pageable pageable) {
+        return deviceService.streamAllDevices(pageable).map(this::mapToResponse);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<DeviceResponse>> getDevice(@PathVariable Long id) {
+        return deviceService.getDeviceById(id).map(device -> ResponseEntity.ok(mapToResponse(device)));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<DeviceResponse>> updateDevice(@PathVariable Long id,
+                                                             @Valid @RequestBody UpdateDeviceRequest request) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setName(request.getName());
+        dto.setBrand(request.getBrand());
+        dto.setState(request.getState());
+        // ignore creationTime from request
+        return deviceService.updateDevice(id, dto).map(updated -> ResponseEntity.ok(mapToResponse(updated)));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<DeviceResponse>> partialUpdateDevice(@PathVariable Long id, @RequestBody JsonNode patch) {
+        // Prevent creationTime changes
+        if (patch.has("creationTime")) {
+            return Mono.error(new IllegalArgumentException("creationTime cannot be updated"));
+        }
+        DeviceDTO changes;
+        try {
+            // only the fields present in the patch end up non-null, the service applies exactly those
+            changes = objectMapper.treeToValue(patch, DeviceDTO.class);
+        } catch (Exception e) {
+            return Mono.error(new RuntimeException("Failed to apply patch", e));
+        }
+        return deviceService.partialUpdateDevice(id, changes).map(updated -> ResponseEntity.ok(mapToResponse(updated)));
+    }
+
+    @PostMapping("/{id}/checkout")
+    public Mono<ResponseEntity<DeviceResponse>> checkOutDevice(@PathVariable Long id) {
+        return deviceService.checkOutDevice(id).map(device -> ResponseEntity.ok(mapToResponse(device)));
+    }
+
+    @PostMapping("/{id}/checkin")
+    public Mono<ResponseEntity<DeviceResponse>> checkInDevice(@PathVariable Long id) {
+        return deviceService.checkInDevice(id).map(device -> ResponseEntity.ok(mapToResponse(device)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteDevice(@PathVariable Long id) {
+        return deviceService.deleteDevice(id).then(Mono.fromSupplier(() -> ResponseEntity.noContent().build()));
+    }
+
+    @GetMapping("/brand/{brand}")
+    public Flux<DeviceResponse> getDevicesByBrand(@PathVariable String brand) {
+        return deviceService.getDevicesByBrand(brand).map(this::mapToResponse);
+    }
+
+    @GetMapping("/state/{state}")
+    public Flux<DeviceResponse> getDevicesByState(@PathVariable DeviceState state) {
+        return deviceService.getDevicesByState(state).map(this::mapToResponse);
+    }
+
+    private DeviceResponse mapToResponse(DeviceDTO dto) {
+        DeviceResponse r = new DeviceResponse();
+        r.setId(dto.getId());
+        r.setName(dto.getName());
+        r.setBrand(dto.getBrand());
+        r.setState(dto.getState());
+        r.setCreationTime(dto.getCreationTime());
+        r.setVersion(dto.getVersion());
+        return r;
+    }
+}
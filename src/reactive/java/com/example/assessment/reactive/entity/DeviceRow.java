@@ -0,0 +1,30 @@
+package com.example.assessment.reactive.entity;
+
+import com.example.assessment.model.DeviceState;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+// R2DBC mapping of the devices table, column for column the same as DeviceEntity.
+@Data
+@Table("devices")
+public class DeviceRow {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String brand;
+
+    private DeviceState state;
+
+    private LocalDateTime creationTime;
+
+    @Version
+    private Long version;
+
+}
@@ -0,0 +1,103 @@
+package com.example.assessment.reactive.exception;
+
+import com.example.assessment.exception.DeviceInUseException;
+import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.exception.ErrorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Same ErrorResponse bodies and status codes as GlobalExceptionHandler for the reactive controllers.
+@RestControllerAdvice(basePackages = "com.example.assessment.reactive.controller")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    @ExceptionHandler(DeviceNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleDeviceNotFound(DeviceNotFoundException e, ServerHttpRequest request) {
+        log.debug("Device not found: {}", e.getMessage());
+        return error(HttpStatus.NOT_FOUND, e.getMessage(), request, null);
+    }
+
+    @ExceptionHandler(DeviceInUseException.class)
+    public ResponseEntity<ErrorResponse> handleDeviceInUse(DeviceInUseException e, ServerHttpRequest request) {
+        log.debug("Device in use: {}", e.getMessage());
+        return error(HttpStatus.BAD_REQUEST, e.getMessage(), request, null);
+    }
+
+    @ExceptionHandler(DeviceStateConflictException.class)
+    public ResponseEntity<ErrorResponse> handleStateConflict(DeviceStateConflictException e, ServerHttpRequest request) {
+        log.debug("Device state conflict: {}", e.getMessage());
+        return error(HttpStatus.CONFLICT, e.getMessage(), request, null);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLock(OptimisticLockingFailureException e, ServerHttpRequest request) {
+        log.debug("Concurrent modification: {}", e.getMessage());
+        return error(HttpStatus.CONFLICT, "Device was modified concurrently, reload it and retry", request, null);
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ErrorResponse> handleValidationErrors(WebExchangeBindException ex, ServerHttpRequest request) {
+        List<ErrorResponse.FieldError> fieldErrors = ex.getBindingResult().getFieldErrors().stream()
+                .map(fe -> new ErrorResponse.FieldError(fe.getField(), fe.getDefaultMessage()))
+                .collect(Collectors.toList());
+        log.debug("Validation failed: {}", fieldErrors);
+        return error(HttpStatus.BAD_REQUEST, "Validation failed", request, fieldErrors);
+    }
+
+    // malformed JSON, unconvertible path variables and missing parameters
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<ErrorResponse> handleInput(ServerWebInputException ex, ServerHttpRequest request) {
+        String msg;
+        if (ex.getCause() instanceof TypeMismatchException mismatch && ex.getMethodParameter() != null) {
+            msg = String.format("Parameter '%s' has invalid value '%s'", ex.getMethodParameter().getParameterName(), mismatch.getValue());
+        } else {
+            Throwable cause = ex.getMostSpecificCause();
+            msg = cause != ex && cause.getMessage() != null ? cause.getMessage() : ex.getReason();
+        }
+        log.debug("Invalid request input: {}", msg);
+        return error(HttpStatus.BAD_REQUEST, msg, request, null);
+    }
+
+    @ExceptionHandler(DataAccessException.class)
+    public ResponseEntity<ErrorResponse> handleDataAccess(DataAccessException ex, ServerHttpRequest request) {
+        log.error("Database error", ex);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Database error", request, null);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleGenericException(Exception ex, ServerHttpRequest request) {
+        log.error("Unhandled exception", ex);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error", request, null);
+    }
+
+    private ResponseEntity<ErrorResponse> error(HttpStatus status, String message, ServerHttpRequest request,
+                                                List<ErrorResponse.FieldError> fieldErrors) {
+        ErrorResponse body = new ErrorResponse(
+                LocalDateTime.now(),
+                status.value(),
+                status.getReasonPhrase(),
+                message,
+                request.getPath().value(),
+                fieldErrors
+        );
+        return ResponseEntity.status(status).body(body);
+    }
+}
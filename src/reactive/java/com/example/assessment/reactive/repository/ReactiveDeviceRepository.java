@@ -0,0 +1,31 @@
+package com.example.assessment.reactive.repository;
+
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.reactive.entity.DeviceRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Same statements as DeviceRepository. The Flux results are fetched in chunks of the connection's fetchSize as the
+// subscriber requests them, so a slow client holds back the query instead of buffering the rows.
+public interface ReactiveDeviceRepository extends ReactiveCrudRepository<DeviceRow, Long> {
+
+    Flux<DeviceRow> findAllBy(Pageable pageable);
+
+    Flux<DeviceRow> findByBrand(String brand);
+
+    Flux<DeviceRow> findByState(DeviceState state);
+
+    // empty means the device is missing or in use; null arguments leave the column unchanged
+    @Query("UPDATE devices SET name = COALESCE(:name, name), brand = COALESCE(:brand, brand), version = version + 1 "
+            + "WHERE id = :id AND state <> 'IN_USE' RETURNING *")
+    Mono<DeviceRow> updateNameAndBrandIfNotInUse(Long id, String name, String brand);
+
+    @Query("UPDATE devices SET state = :to, version = version + 1 WHERE id = :id AND state = :from RETURNING *")
+    Mono<DeviceRow> transitionState(Long id, String from, String to);
+
+    @Query("SELECT nextval('devices_seq')")
+    Mono<Long> nextId();
+}
@@ -0,0 +1,200 @@
+package com.example.assessment.reactive.service;
+
+import com.example.assessment.exception.DeviceInUseException;
+import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.reactive.entity.DeviceRow;
+import com.example.assessment.reactive.repository.ReactiveDeviceRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+// Reactive counterpart of DeviceService with the same rules: name and brand can't change and the device can't be
+// deleted while it is IN_USE, checkout/checkin are compare-and-set on the state column, and concurrent full updates
+// fail on @Version.
+@Service
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDeviceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveDeviceService.class);
+
+    private final ReactiveDeviceRepository deviceRepository;
+
+    public Mono<DeviceDTO> createDevice(DeviceDTO deviceDTO) {
+        logger.info("Creating device with name: {}", deviceDTO.getName());
+        DeviceRow row = mapToRow(deviceDTO);
+        row.setCreationTime(LocalDateTime.now());
+        // one nextval per insert; each value is the top of a block of 50 that Hibernate won't hand out
+        return deviceRepository.nextId()
+                .flatMap(id -> {
+                    row.setId(id);
+                    return deviceRepository.save(row);
+                })
+                .doOnNext(saved -> logger.info("Device created successfully with id: {}", saved.getId()))
+                .map(this::mapToDto);
+    }
+
+    public Mono<DevicePage<DeviceDTO>> getAllDevices(Pageable pageable) {
+        logger.debug("Fetching paged devices: {}", pageable);
+        return streamAllDevices(pageable)
+                .collectList()
+                .zipWith(deviceRepository.count())
+                .map(pageAndTotal -> DevicePage.of(new PageImpl<>(pageAndTotal.getT1(), pageable, pageAndTotal.getT2())));
+    }
+
+    public Flux<DeviceDTO> streamAllDevices(Pageable pageable) {
+        return deviceRepository.findAllBy(pageable).map(this::mapToDto);
+    }
+
+    public Mono<DeviceDTO> getDeviceById(Long id) {
+        logger.debug("Fetching device with id: {}", id);
+        return findExisting(id).map(this::mapToDto);
+    }
+
+    public Mono<DeviceDTO> updateDevice(Long id, DeviceDTO deviceDTO) {
+        logger.info("Updating device with id: {}", id);
+        return findExisting(id)
+                .flatMap(existing -> {
+                    if (deviceDTO.getName() != null && existing.getState() == DeviceState.IN_USE) {
+                        logger.warn("Attempted to update name of in-use device with id: {}", id);
+                        return Mono.error(new DeviceInUseException("Cannot update name when device is in use"));
+                    }
+                    if (deviceDTO.getBrand() != null && existing.getState() == DeviceState.IN_USE) {
+                        logger.warn("Attempted to update brand of in-use device with id: {}", id);
+                        return Mono.error(new DeviceInUseException("Cannot update brand when device is in use"));
+                    }
+                    existing.setName(deviceDTO.getName());
+                    existing.setBrand(deviceDTO.getBrand());
+                    // a PUT without a state keeps the current one, as in DeviceService
+                    if (deviceDTO.getState() != null) {
+                        existing.setState(deviceDTO.getState());
+                    }
+                    // creationTime not updated
+                    return deviceRepository.save(existing);
+                })
+                .doOnNext(saved -> logger.info("Device updated successfully with id: {}", id))
+                .map(this::mapToDto);
+    }
+
+    // Only the non-null fields of deviceDTO are applied.
+    public Mono<DeviceDTO> partialUpdateDevice(Long id, DeviceDTO deviceDTO) {
+        logger.info("Partially updating device with id: {}", id);
+        if (deviceDTO.getState() == null && (deviceDTO.getName() != null || deviceDTO.getBrand() != null)) {
+            return deviceRepository.updateNameAndBrandIfNotInUse(id, deviceDTO.getName(), deviceDTO.getBrand())
+                    // nothing matched, the read tells a missing device apart from one in use
+                    .switchIfEmpty(Mono.defer(() -> findExisting(id).flatMap(existing -> applyPatch(existing, deviceDTO))))
+                    .doOnNext(saved -> logger.info("Device partially updated successfully with id: {}", id))
+                    .map(this::mapToDto);
+        }
+        return findExisting(id)
+                .flatMap(existing -> applyPatch(existing, deviceDTO))
+                .doOnNext(saved -> logger.info("Device partially updated successfully with id: {}", id))
+                .map(this::mapToDto);
+    }
+
+    public Mono<DeviceDTO> checkOutDevice(Long id) {
+        return transitionState(id, DeviceState.AVAILABLE, DeviceState.IN_USE);
+    }
+
+    public Mono<DeviceDTO> checkInDevice(Long id) {
+        return transitionState(id, DeviceState.IN_USE, DeviceState.AVAILABLE);
+    }
+
+    public Mono<Void> deleteDevice(Long id) {
+        logger.info("Deleting device with id: {}", id);
+        return findExisting(id)
+                .flatMap(existing -> {
+                    if (existing.getState() == DeviceState.IN_USE) {
+                        logger.warn("Attempted to delete in-use device with id: {}", id);
+                        return Mono.error(new DeviceInUseException("Cannot delete device in use"));
+                    }
+                    return deviceRepository.deleteById(id);
+                })
+                .doOnSuccess(ignored -> logger.info("Device deleted successfully with id: {}", id));
+    }
+
+    public Flux<DeviceDTO> getDevicesByBrand(String brand) {
+        logger.debug("Fetching devices by brand: {}", brand);
+        return deviceRepository.findByBrand(brand).map(this::mapToDto);
+    }
+
+    public Flux<DeviceDTO> getDevicesByState(DeviceState state) {
+        logger.debug("Fetching devices by state: {}", state);
+        return deviceRepository.findByState(state).map(this::mapToDto);
+    }
+
+    private Mono<DeviceRow> applyPatch(DeviceRow existing, DeviceDTO deviceDTO) {
+        boolean renames = deviceDTO.getName() != null || deviceDTO.getBrand() != null;
+        if (renames && existing.getState() == DeviceState.IN_USE) {
+            logger.warn("Attempted to update {} of in-use device with id: {}",
+                    deviceDTO.getName() != null ? "name" : "brand", existing.getId());
+            return Mono.error(new DeviceInUseException("Cannot update " + (deviceDTO.getName() != null ? "name" : "brand")
+                    + " when device is in use"));
+        }
+        if (deviceDTO.getName() != null) {
+            existing.setName(deviceDTO.getName());
+        }
+        if (deviceDTO.getBrand() != null) {
+            existing.setBrand(deviceDTO.getBrand());
+        }
+        if (deviceDTO.getState() != null) {
+            existing.setState(deviceDTO.getState());
+        }
+        return deviceRepository.save(existing);
+    }
+
+    private Mono<DeviceDTO> transitionState(Long id, DeviceState from, DeviceState to) {
+        logger.debug("Moving device with id: {} from {} to {}", id, from, to);
+        return deviceRepository.transitionState(id, from.name(), to.name())
+                .switchIfEmpty(Mono.defer(() -> deviceRepository.existsById(id)
+                        .flatMap(exists -> {
+                            if (!exists) {
+                                logger.warn("Device not found with id: {} for state transition", id);
+                                return Mono.error(new DeviceNotFoundException("Device not found with id: " + id));
+                            }
+                            logger.debug("Device with id: {} is not {}, cannot move it to {}", id, from, to);
+                            return Mono.error(new DeviceStateConflictException("Device with id: " + id + " is not " + from));
+                        })))
+                .map(this::mapToDto);
+    }
+
+    private Mono<DeviceRow> findExisting(Long id) {
+        return deviceRepository.findById(id)
+                .switchIfEmpty(Mono.defer(() -> {
+                    logger.warn("Device not found with id: {}", id);
+                    return Mono.error(new DeviceNotFoundException("Device not found with id: " + id));
+                }));
+    }
+
+    private DeviceDTO mapToDto(DeviceRow row) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(row.getId());
+        dto.setName(row.getName());
+        dto.setBrand(row.getBrand());
+        dto.setState(row.getState());
+        dto.setCreationTime(row.getCreationTime());
+        dto.setVersion(row.getVersion());
+        return dto;
+    }
+
+    private DeviceRow mapToRow(DeviceDTO deviceDTO) {
+        DeviceRow row = new DeviceRow();
+        row.setName(deviceDTO.getName());
+        row.setBrand(deviceDTO.getBrand());
+        row.setState(deviceDTO.getState());
+        row.setCreationTime(deviceDTO.getCreationTime());
+        return row;
+    }
+}
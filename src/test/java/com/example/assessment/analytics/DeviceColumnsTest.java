@@ -0,0 +1,214 @@
+package com.example.assessment.analytics;
+
+import com.example.assessment.exception.InvalidAnalyticsQueryException;
+import com.example.assessment.model.AnalyticsDimension;
+import com.example.assessment.model.AnalyticsInterval;
+import com.example.assessment.model.DeviceAnalytics;
+import com.example.assessment.model.DeviceAnalyticsQuery;
+import com.example.assessment.model.DeviceState;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceColumnsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 15, 12, 0);
+
+    // added out of id order on purpose
+    private final DeviceColumns columns = new DeviceColumns.Builder()
+            .add(3, row("Galaxy S24", "Samsung", DeviceState.IN_USE, LocalDateTime.of(2026, 2, 10, 8, 0)))
+            .add(1, row("iPhone 15", "Apple", DeviceState.AVAILABLE, LocalDateTime.of(2026, 1, 5, 9, 30)))
+            .add(2, row("iPhone 16", "Apple", DeviceState.IN_USE, LocalDateTime.of(2026, 3, 1, 0, 0)))
+            .add(4, row("Pixel 8", "Google", DeviceState.INACTIVE, LocalDateTime.of(2026, 3, 14, 23, 0)))
+            .add(5, row("Galaxy Tab", "Samsung", DeviceState.AVAILABLE, null))
+            .build();
+
+    @Test
+    void aggregate_shouldCountByBrandAndStateInKeyOrder() {
+        DeviceColumns.Counts counts = aggregate(columns, query(AnalyticsDimension.BRAND, AnalyticsDimension.STATE), List.of());
+
+        assertEquals(5, counts.total());
+        assertEquals(List.of(
+                key("brand", "Apple", "state", DeviceState.AVAILABLE),
+                key("brand", "Apple", "state", DeviceState.IN_USE),
+                key("brand", "Google", "state", DeviceState.INACTIVE),
+                key("brand", "Samsung", "state", DeviceState.AVAILABLE),
+                key("brand", "Samsung", "state", DeviceState.IN_USE)), keys(counts));
+    }
+
+    @Test
+    void aggregate_shouldApplyEveryFilter() {
+        DeviceAnalyticsQuery query = query(AnalyticsDimension.STATE);
+        query.setBrand(List.of("Apple", "Samsung"));
+        query.setNamePrefix("iPhone");
+        query.setCreatedFrom(LocalDateTime.of(2026, 2, 1, 0, 0));
+
+        DeviceColumns.Counts counts = aggregate(columns, query, List.of());
+
+        assertEquals(List.of(key("state", DeviceState.IN_USE)), keys(counts));
+        assertEquals(1, counts.total());
+
+        query.setNamePrefix(null);
+        query.setCreatedFrom(null);
+        query.setCreatedTo(LocalDateTime.of(2026, 3, 1, 0, 0));
+        query.setState(List.of(DeviceState.IN_USE, DeviceState.INACTIVE));
+        // the upper bound is exclusive, devices without a creation time are outside any range
+        assertEquals(Map.of(key("state", DeviceState.IN_USE), 1L), countsByKey(aggregate(columns, query, List.of())));
+    }
+
+    @Test
+    void aggregate_shouldBucketByCalendarIntervalAndPutMissingTimesLast() {
+        DeviceAnalyticsQuery query = query(AnalyticsDimension.CREATED);
+
+        assertEquals(List.of(
+                key("created", LocalDateTime.of(2026, 1, 1, 0, 0)),
+                key("created", LocalDateTime.of(2026, 2, 1, 0, 0)),
+                key("created", LocalDateTime.of(2026, 3, 1, 0, 0)),
+                key("created", null)), keys(aggregate(columns, query, List.of())));
+
+        query.setInterval(AnalyticsInterval.WEEK);
+        // weeks start on Monday: 2026-02-23 is one, 2026-03-01 a Sunday
+        assertEquals(key("created", LocalDateTime.of(2026, 2, 23, 0, 0)), keys(aggregate(columns, query, List.of())).get(2));
+        assertEquals(Map.of(key("created", LocalDateTime.of(2026, 1, 1, 0, 0)), 4L, key("created", null), 1L),
+                countsByKey(aggregate(columns, query(AnalyticsDimension.CREATED, AnalyticsInterval.YEAR), List.of())));
+    }
+
+    @Test
+    void aggregate_shouldCountAgeInWholeIntervals() {
+        DeviceColumns.Counts counts = aggregate(columns, query(AnalyticsDimension.AGE, AnalyticsInterval.MONTH), List.of());
+
+        // 0 to 29 days, 30 to 59, 60 to 89 and no creation time
+        assertEquals(Map.of(key("age", 0), 2L, key("age", 1), 1L, key("age", 2), 1L, key("age", null), 1L), countsByKey(counts));
+    }
+
+    @Test
+    void aggregate_shouldCountExtraRowsInsteadOfHiddenOnes() {
+        columns.hide(4);
+        columns.hide(42);
+        List<DeviceColumns.Row> extra = List.of(
+                row("Pixel 8", "Google", DeviceState.AVAILABLE, LocalDateTime.of(2026, 3, 14, 23, 0)),
+                row("Nokia 3310", "Nokia", DeviceState.AVAILABLE, NOW));
+
+        DeviceColumns.Counts counts = aggregate(columns, query(AnalyticsDimension.BRAND), extra);
+
+        assertEquals(6, counts.total());
+        assertEquals(List.of(key("brand", "Apple"), key("brand", "Google"), key("brand", "Nokia"), key("brand", "Samsung")),
+                keys(counts));
+        assertEquals(Map.of(key("state", DeviceState.AVAILABLE), 4L, key("state", DeviceState.IN_USE), 2L),
+                countsByKey(aggregate(columns, query(AnalyticsDimension.STATE), extra)));
+    }
+
+    @Test
+    void aggregate_shouldMatchARowAtATimeCountInParallel() {
+        String[] brands = {"Apple", "Samsung", "Google", "Lenovo", null};
+        SplittableRandom random = new SplittableRandom(7);
+        DeviceColumns.Builder builder = new DeviceColumns.Builder();
+        Map<Map<String, Object>, Long> expected = new HashMap<>();
+        for (long id = 1; id <= 300_000; id++) {
+            String brand = brands[random.nextInt(brands.length)];
+            DeviceState state = DeviceState.values()[random.nextInt(DeviceState.values().length)];
+            LocalDateTime created = NOW.minusHours(random.nextInt(24 * 365 * 3));
+            builder.add(id, row("Device " + id, brand, state, created));
+            if (state != DeviceState.INACTIVE) {
+                expected.merge(key("brand", brand, "created", LocalDateTime.of(created.getYear(), 1, 1, 0, 0)), 1L, Long::sum);
+            }
+        }
+        DeviceAnalyticsQuery query = query(AnalyticsDimension.BRAND, AnalyticsDimension.CREATED);
+        query.setInterval(AnalyticsInterval.YEAR);
+        query.setState(List.of(DeviceState.AVAILABLE, DeviceState.IN_USE));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DeviceColumns.Counts counts = builder.build().aggregate(query, List.of(), NOW, executor, 4);
+            assertEquals(expected, countsByKey(counts));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void aggregate_shouldRejectBadGroupBys() {
+        assertThrows(InvalidAnalyticsQueryException.class, () -> aggregate(columns, new DeviceAnalyticsQuery(), List.of()));
+        assertThrows(InvalidAnalyticsQueryException.class,
+                () -> aggregate(columns, query(AnalyticsDimension.STATE, AnalyticsDimension.STATE), List.of()));
+
+        DeviceColumns.Builder builder = new DeviceColumns.Builder();
+        for (long id = 1; id <= 2000; id++) {
+            builder.add(id, row("Device " + id, "Brand " + id, DeviceState.AVAILABLE, NOW.minusDays(id)));
+        }
+        // 2000 brands by 2000 days
+        assertThrows(InvalidAnalyticsQueryException.class, () -> aggregate(builder.build(),
+                query(AnalyticsDimension.BRAND, AnalyticsDimension.CREATED, AnalyticsInterval.DAY), List.of()));
+    }
+
+    @Test
+    void emptyColumns_shouldCountOnlyExtraRows() {
+        assertEquals(0, aggregate(DeviceColumns.EMPTY, query(AnalyticsDimension.CREATED), List.of()).total());
+        assertEquals(List.of(key("age", 0)), keys(aggregate(DeviceColumns.EMPTY, query(AnalyticsDimension.AGE),
+                List.of(row("Pixel 9", "Google", DeviceState.AVAILABLE, NOW.minusDays(1))))));
+    }
+
+    @Test
+    void builder_shouldRejectTheSameIdTwice() {
+        DeviceColumns.Builder builder = new DeviceColumns.Builder()
+                .add(1, row("Pixel 8", "Google", DeviceState.AVAILABLE, NOW))
+                .add(1, row("Pixel 9", "Google", DeviceState.AVAILABLE, NOW));
+
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    private static DeviceColumns.Counts aggregate(DeviceColumns columns, DeviceAnalyticsQuery query, List<DeviceColumns.Row> extra) {
+        return columns.aggregate(query, extra, NOW, Runnable::run, 1);
+    }
+
+    private static DeviceAnalyticsQuery query(AnalyticsDimension... groupBy) {
+        DeviceAnalyticsQuery query = new DeviceAnalyticsQuery();
+        query.setGroupBy(new ArrayList<>(Arrays.asList(groupBy)));
+        return query;
+    }
+
+    private static DeviceAnalyticsQuery query(AnalyticsDimension dimension, AnalyticsInterval interval) {
+        DeviceAnalyticsQuery query = query(dimension);
+        query.setInterval(interval);
+        return query;
+    }
+
+    private static DeviceAnalyticsQuery query(AnalyticsDimension first, AnalyticsDimension second, AnalyticsInterval interval) {
+        DeviceAnalyticsQuery query = query(first, second);
+        query.setInterval(interval);
+        return query;
+    }
+
+    private static DeviceColumns.Row row(String name, String brand, DeviceState state, LocalDateTime creationTime) {
+        return new DeviceColumns.Row(name, brand, state, creationTime);
+    }
+
+    // Map.of doesn't take nulls
+    private static Map<String, Object> key(Object... namesAndValues) {
+        Map<String, Object> key = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            key.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return key;
+    }
+
+    private static List<Map<String, Object>> keys(DeviceColumns.Counts counts) {
+        return counts.groups().stream().map(DeviceAnalytics.Group::getKey).toList();
+    }
+
+    private static Map<Map<String, Object>, Long> countsByKey(DeviceColumns.Counts counts) {
+        return counts.groups().stream().collect(Collectors.toMap(DeviceAnalytics.Group::getKey, DeviceAnalytics.Group::getCount));
+    }
+}
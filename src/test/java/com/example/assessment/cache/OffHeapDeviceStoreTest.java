@@ -0,0 +1,134 @@
+package com.example.assessment.cache;
+
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapDeviceStoreTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final OffHeapDeviceStore store = new OffHeapDeviceStore(4, Duration.ofMinutes(5), nanos::get);
+
+    @Test
+    void get_shouldReturnWhatWasPut() {
+        DeviceDTO device = device(7L, "Galaxy S24 Ultra – 512 GB", 3L);
+        device.setCreationTime(LocalDateTime.of(2026, 3, 1, 9, 30, 15, 123_456_000));
+
+        store.put(device, () -> true);
+
+        assertEquals(device, store.get(7L));
+        assertNotSame(store.get(7L), store.get(7L));
+        assertEquals(3L, store.version(7L));
+        assertNull(store.get(8L));
+    }
+
+    @Test
+    void get_shouldKeepMissingValuesMissing() {
+        DeviceDTO device = new DeviceDTO();
+        device.setId(1L);
+
+        store.put(device, () -> true);
+
+        assertEquals(device, store.get(1L));
+        assertNull(store.version(1L));
+    }
+
+    @Test
+    void put_shouldKeepTheNewerVersion() {
+        store.put(device(1L, "Newer", 3L), () -> true);
+
+        assertFalse(store.put(device(1L, "Older", 2L), () -> true));
+        assertTrue(store.put(device(1L, "Same", 3L), () -> true));
+        assertFalse(store.put(device(1L, "Newest", 4L), () -> false));
+
+        assertEquals("Same", store.get(1L).getName());
+    }
+
+    @Test
+    void put_shouldEvictTheFirstDeviceNotReadSinceTheHandPassed() {
+        for (long id = 1; id <= 4; id++) {
+            store.put(device(id, "Device " + id, 0L), () -> true);
+        }
+        store.get(1L);
+        store.get(3L);
+
+        store.put(device(5L, "Device 5", 0L), () -> true);
+        store.put(device(6L, "Device 6", 0L), () -> true);
+
+        assertNotNull(store.get(1L));
+        assertNull(store.get(2L));
+        assertNotNull(store.get(3L));
+        assertNull(store.get(4L));
+        assertEquals(4, store.size());
+        assertEquals(2, store.evictions());
+    }
+
+    @Test
+    void get_shouldMissAfterTheTtl() {
+        store.put(device(1L, "Pixel 8", 0L), () -> true);
+        nanos.addAndGet(Duration.ofMinutes(5).toNanos() - 1);
+        assertNotNull(store.get(1L));
+
+        nanos.incrementAndGet();
+
+        assertNull(store.get(1L));
+        assertNull(store.version(1L));
+        // an expired device doesn't hold back an older version
+        assertTrue(store.put(device(1L, "Pixel 7", -1L), () -> true));
+    }
+
+    @Test
+    void remove_shouldForgetTheDevice() {
+        store.put(device(1L, "Pixel 8", 0L), () -> true);
+
+        store.remove(1L);
+        store.remove(2L);
+
+        assertNull(store.get(1L));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void store_shouldMatchAMapThroughPutsRenamesAndRemoves() {
+        OffHeapDeviceStore large = new OffHeapDeviceStore(1000, Duration.ofMinutes(5), nanos::get);
+        Map<Long, DeviceDTO> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 200_000; i++) {
+            // ids collide in the table, names of every length wear out the slab
+            long id = random.nextInt(1000) * 4096L;
+            if (random.nextInt(4) == 0) {
+                large.remove(id);
+                expected.remove(id);
+            } else {
+                DeviceDTO device = device(id, "x".repeat(random.nextInt(40)), (long) i);
+                large.put(device, () -> true);
+                expected.put(id, device);
+            }
+        }
+
+        assertEquals(expected.size(), large.size());
+        assertEquals(0, large.evictions());
+        for (long id = 0; id < 1000; id++) {
+            assertEquals(expected.get(id * 4096), large.get(id * 4096));
+        }
+    }
+
+    private static DeviceDTO device(Long id, String name, Long version) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setBrand("Samsung");
+        dto.setState(DeviceState.IN_USE);
+        dto.setVersion(version);
+        return dto;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.assessment.config;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class JpaConfigTest {
+
+    private final HibernateJpaDialect dialect = dialect();
+
+    @Test
+    void rowMovedToAnotherPartition_shouldBeAnOptimisticLockFailure() {
+        SQLException moved = new SQLException("ERROR: tuple to be locked was already moved to another partition due to concurrent update", "40001");
+
+        DataAccessException translated = dialect.translateExceptionIfPossible(
+                new LockAcquisitionException("could not execute statement", moved, "UPDATE devices SET state = ? WHERE id = ? AND state = ?"));
+
+        assertInstanceOf(OptimisticLockingFailureException.class, translated);
+    }
+
+    @Test
+    void otherErrors_shouldKeepHibernatesTranslation() {
+        SQLException duplicate = new SQLException("ERROR: duplicate key value violates unique constraint", "23505");
+
+        DataAccessException translated = dialect.translateExceptionIfPossible(
+                new ConstraintViolationException("could not execute statement", duplicate, "INSERT INTO devices", "devices_pkey"));
+
+        assertInstanceOf(DataIntegrityViolationException.class, translated);
+    }
+
+    private static HibernateJpaDialect dialect() {
+        HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
+        JpaConfig.serializationFailureTranslation().postProcessAfterInitialization(adapter, "jpaVendorAdapter");
+        return adapter.getJpaDialect();
+    }
+}
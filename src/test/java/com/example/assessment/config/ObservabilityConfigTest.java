@@ -0,0 +1,109 @@
+package com.example.assessment.config;
+
+import com.example.assessment.cache.DeviceCache;
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.exception.DeviceInUseException;
+import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.service.DeviceService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ObservabilityConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeviceRepository deviceRepository = mock(DeviceRepository.class);
+    private DeviceService deviceService;
+
+    @BeforeEach
+    void setUp() {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+                .observationHandler(new ObservabilityConfig().deviceServiceFailureMetrics(meterRegistry));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("observationRegistry", observationRegistry);
+
+        DeviceCache deviceCache = new DeviceCache(true, 100, Duration.ofMinutes(5), DeviceCache.Store.HEAP, meterRegistry);
+        ProxyFactory proxyFactory = new ProxyFactory(new DeviceService(deviceRepository, deviceCache, mock(ApplicationEventPublisher.class)));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(ObservabilityConfig.deviceServiceObservationAdvisor(beanFactory.getBeanProvider(ObservationRegistry.class)));
+        deviceService = (DeviceService) proxyFactory.getProxy();
+    }
+
+    @Test
+    void serviceCall_shouldBeTimedPerMethod() {
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(entity(DeviceState.AVAILABLE)));
+
+        deviceService.getDeviceById(1L);
+        deviceService.getDeviceById(1L);
+
+        Timer timer = meterRegistry.get("device.service").tag("method", "getDeviceById").tag("error", "none").timer();
+        assertEquals(2, timer.count());
+        assertNull(meterRegistry.find("device.service").tag("method", "loadDevice").timer());
+    }
+
+    @Test
+    void failedCall_shouldBeCountedByReason() {
+        when(deviceRepository.findById(1L)).thenReturn(Optional.empty());
+        when(deviceRepository.findById(2L)).thenReturn(Optional.of(entity(DeviceState.IN_USE)));
+        DeviceDTO rename = new DeviceDTO();
+        rename.setName("Renamed");
+
+        assertThrows(DeviceNotFoundException.class, () -> deviceService.getDeviceById(1L));
+        assertThrows(DeviceInUseException.class, () -> deviceService.updateDevice(2L, rename));
+
+        assertEquals(1, failures("not_found"));
+        assertEquals(1, failures("in_use"));
+        assertEquals(0, failures("optimistic_lock"));
+        assertEquals(1, meterRegistry.get("device.service").tag("method", "getDeviceById")
+                .tag("error", "DeviceNotFoundException").timer().count());
+    }
+
+    @Test
+    void optimisticLockFailure_shouldBeCounted() {
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(entity(DeviceState.AVAILABLE)));
+        when(deviceRepository.saveAndFlush(any(DeviceEntity.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(DeviceEntity.class, 1L));
+        DeviceDTO update = new DeviceDTO();
+        update.setState(DeviceState.INACTIVE);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> deviceService.updateDevice(1L, update));
+
+        assertEquals(1, failures("optimistic_lock"));
+    }
+
+    private double failures(String reason) {
+        return meterRegistry.get("device.service.failures").tag("reason", reason).counter().count();
+    }
+
+    private static DeviceEntity entity(DeviceState state) {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(1L);
+        entity.setName("Device");
+        entity.setBrand("Brand");
+        entity.setState(state);
+        entity.setVersion(0L);
+        return entity;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.assessment.controller;
+
+import com.example.assessment.exception.InvalidAnalyticsQueryException;
+import com.example.assessment.model.AnalyticsDimension;
+import com.example.assessment.model.AnalyticsInterval;
+import com.example.assessment.model.DeviceAnalytics;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.service.DeviceAnalyticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = DeviceAnalyticsController.class, properties = "device.analytics.enabled=true")
+class DeviceAnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DeviceAnalyticsService deviceAnalyticsService;
+
+    @Test
+    void getAnalytics_shouldBindTheQueryAndReturnTheGroups() throws Exception {
+        when(deviceAnalyticsService.analyze(argThat(query -> query.getGroupBy().equals(List.of(AnalyticsDimension.BRAND, AnalyticsDimension.CREATED))
+                && query.getInterval() == AnalyticsInterval.YEAR
+                && query.getState().equals(List.of(DeviceState.AVAILABLE))
+                && query.getCreatedFrom().equals(LocalDateTime.of(2025, 1, 1, 0, 0)))))
+                .thenReturn(new DeviceAnalytics(List.of(AnalyticsDimension.BRAND, AnalyticsDimension.CREATED), AnalyticsInterval.YEAR, 3,
+                        List.of(new DeviceAnalytics.Group(Map.of("brand", "Apple", "created", LocalDateTime.of(2025, 1, 1, 0, 0)), 3)),
+                        LocalDateTime.of(2026, 3, 1, 12, 0)));
+
+        mockMvc.perform(get("/api/v1/devices/analytics")
+                        .param("groupBy", "BRAND,CREATED")
+                        .param("interval", "YEAR")
+                        .param("state", "AVAILABLE")
+                        .param("createdFrom", "2025-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.groups[0].key.brand").value("Apple"))
+                .andExpect(jsonPath("$.groups[0].count").value(3));
+    }
+
+    @Test
+    void getAnalytics_shouldRejectInvalidQueries() throws Exception {
+        when(deviceAnalyticsService.analyze(any())).thenThrow(new InvalidAnalyticsQueryException("groupBy lists a dimension twice"));
+
+        mockMvc.perform(get("/api/v1/devices/analytics").param("groupBy", "STATE,STATE"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("groupBy lists a dimension twice"));
+    }
+}
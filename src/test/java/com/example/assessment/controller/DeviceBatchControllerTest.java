@@ -0,0 +1,108 @@
+package com.example.assessment.controller;
+
+import com.example.assessment.exception.InvalidBatchOperationException;
+import com.example.assessment.model.BatchOperationType;
+import com.example.assessment.model.DeviceBatchItemResult;
+import com.example.assessment.model.DeviceBatchOperation;
+import com.example.assessment.model.DeviceBatchResponse;
+import com.example.assessment.service.DeviceBatchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DeviceBatchController.class)
+class DeviceBatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DeviceBatchService deviceBatchService;
+
+    @Test
+    void applyBatch_shouldReturnPerItemResults() throws Exception {
+        DeviceBatchItemResult created = new DeviceBatchItemResult(0, BatchOperationType.CREATE, 201, 1L, null);
+        DeviceBatchItemResult rejected = new DeviceBatchItemResult(1, BatchOperationType.DELETE, 400, 2L, "Cannot delete device in use");
+        when(deviceBatchService.applyAll(anyList())).thenReturn(new DeviceBatchResponse(2, 1, 1, List.of(created, rejected)));
+
+        mockMvc.perform(post("/api/v1/devices:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"op\":\"CREATE\",\"name\":\"Phone\",\"brand\":\"Brand\",\"state\":\"AVAILABLE\"},{\"op\":\"DELETE\",\"id\":2}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].id").value(1))
+                .andExpect(jsonPath("$.results[1].error").value("Cannot delete device in use"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyBatchStream_shouldWriteOneResultPerLine() throws Exception {
+        when(deviceBatchService.apply(any(Iterator.class), any(Consumer.class))).thenAnswer(invocation -> {
+            Iterator<?> operations = invocation.getArgument(0);
+            Consumer<List<DeviceBatchItemResult>> sink = invocation.getArgument(1);
+            long index = 0;
+            while (operations.hasNext()) {
+                operations.next();
+                sink.accept(List.of(new DeviceBatchItemResult(index++, BatchOperationType.DELETE, 204, index, null)));
+            }
+            return index;
+        });
+
+        mockMvc.perform(post("/api/v1/devices:batch")
+                        .contentType(DeviceBatchController.NDJSON)
+                        .content("{\"op\":\"DELETE\",\"id\":1}\n{\"op\":\"DELETE\",\"id\":2}\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"index\":0,\"op\":\"DELETE\",\"status\":204,\"id\":1}\n"
+                        + "{\"index\":1,\"op\":\"DELETE\",\"status\":204,\"id\":2}\n"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyBatchStream_shouldReadPastALineThatIsNotAnOperation() throws Exception {
+        when(deviceBatchService.apply(any(Iterator.class), any(Consumer.class))).thenAnswer(invocation -> {
+            Iterator<DeviceBatchOperation> operations = invocation.getArgument(0);
+            Consumer<List<DeviceBatchItemResult>> sink = invocation.getArgument(1);
+            List<DeviceBatchItemResult> results = new ArrayList<>();
+            long index = 0;
+            while (operations.hasNext()) {
+                try {
+                    DeviceBatchOperation op = operations.next();
+                    results.add(new DeviceBatchItemResult(index, op.getOp(), 204, op.getId(), null));
+                } catch (InvalidBatchOperationException e) {
+                    results.add(new DeviceBatchItemResult(index, null, 400, null, e.getMessage()));
+                }
+                index++;
+            }
+            sink.accept(results);
+            return index;
+        });
+
+        mockMvc.perform(post("/api/v1/devices:batch")
+                        .contentType(DeviceBatchController.NDJSON)
+                        .content("{\"op\":\"DELETE\",\"id\":1}\n\n{\"op\":\"DELETE\",\n{\"op\":\"NOPE\"}\n{\"op\":\"DELETE\",\"id\":2}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("{\"index\":0,\"op\":\"DELETE\",\"status\":204,\"id\":1}\n"
+                        + "{\"index\":1,\"status\":400,\"error\":\"Line 3 is not a valid operation: ")))
+                .andExpect(content().string(containsString("{\"index\":2,\"status\":400,\"error\":\"Line 4 is not a valid operation: ")))
+                .andExpect(content().string(endsWith("{\"index\":3,\"op\":\"DELETE\",\"status\":204,\"id\":2}\n")));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.assessment.controller;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.exception.ChangesExpiredException;
+import com.example.assessment.model.DeviceChange;
+import com.example.assessment.model.DeviceChangeBatch;
+import com.example.assessment.model.DeviceResponse;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.service.DeviceChangeFeed;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DeviceChangesController.class)
+class DeviceChangesControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DeviceChangeFeed deviceChangeFeed;
+
+    @Test
+    void pollChanges_shouldReturnCurrentSequenceWithoutAfter() throws Exception {
+        when(deviceChangeFeed.latestSequence()).thenReturn(42L);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/devices/changes").accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes").isEmpty())
+                .andExpect(jsonPath("$.lastSequence").value(42));
+    }
+
+    @Test
+    void pollChanges_shouldWaitForChangesAfterSequence() throws Exception {
+        when(deviceChangeFeed.awaitAfter(eq(41L), eq(50), eq(Duration.ofSeconds(5))))
+                .thenReturn(new DeviceChangeBatch(List.of(change(42L)), 42L));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/devices/changes")
+                        .param("after", "41").param("limit", "50").param("timeout", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].sequence").value(42))
+                .andExpect(jsonPath("$.changes[0].type").value("UPDATED"))
+                .andExpect(jsonPath("$.changes[0].device.state").value("IN_USE"))
+                .andExpect(jsonPath("$.lastSequence").value(42));
+    }
+
+    @Test
+    void pollChanges_shouldBoundLimitAndTimeout() throws Exception {
+        when(deviceChangeFeed.awaitAfter(anyLong(), anyInt(), any())).thenReturn(new DeviceChangeBatch(List.of(), 1L));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/devices/changes")
+                        .param("after", "1").param("limit", "100000").param("timeout", "3600"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        verify(deviceChangeFeed).awaitAfter(1L, 1000, Duration.ofSeconds(60));
+    }
+
+    @Test
+    void pollChanges_shouldReturn410WhenChangesExpired() throws Exception {
+        when(deviceChangeFeed.awaitAfter(anyLong(), anyInt(), any()))
+                .thenThrow(new ChangesExpiredException("Changes after sequence 1 are no longer available"));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/devices/changes").param("after", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.message").value("Changes after sequence 1 are no longer available"));
+    }
+
+    @Test
+    void streamChanges_shouldResumeFromLastEventIdAndSendReset() throws Exception {
+        when(deviceChangeFeed.awaitAfter(eq(41L), anyInt(), any()))
+                .thenReturn(new DeviceChangeBatch(List.of(change(42L)), 42L));
+        when(deviceChangeFeed.awaitAfter(eq(42L), anyInt(), any()))
+                .thenThrow(new ChangesExpiredException("Changes after sequence 42 are no longer available"));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/devices/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "41"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("id:42\nevent:UPDATED\ndata:{\"sequence\":42")))
+                .andExpect(content().string(containsString("event:reset\n")));
+    }
+
+    private static DeviceChange change(long sequence) {
+        DeviceResponse device = new DeviceResponse();
+        device.setId(1L);
+        device.setName("Phone");
+        device.setBrand("Apple");
+        device.setState(DeviceState.IN_USE);
+        return new DeviceChange(sequence, DeviceChangedEvent.Type.UPDATED, 1L, 3L, device, LocalDateTime.now());
+    }
+}
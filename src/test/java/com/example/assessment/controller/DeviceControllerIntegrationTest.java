@@ -5,6 +5,7 @@ import com.example.assessment.entity.DeviceEntity;
 import com.example.assessment.model.DeviceDTO;
 import com.example.assessment.model.DeviceState;
 import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.service.DeviceSearchService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
@@ -23,7 +25,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 @Import(TestcontainersConfiguration.class)
 @TestPropertySource(properties = {
-    "spring.jpa.hibernate.ddl-auto=create-drop"
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    // cached contexts stay alive, their relays would drain the outbox DeviceOutboxIntegrationTest checks
+    "device.outbox.relay.enabled=false"
 })
 class DeviceControllerIntegrationTest {
 
@@ -36,6 +40,9 @@ class DeviceControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private DeviceSearchService deviceSearchService;
+
     @BeforeEach
     void setUp() {
         deviceRepository.deleteAll();
@@ -132,6 +139,23 @@ class DeviceControllerIntegrationTest {
                 .andExpect(jsonPath("$.state").value("IN_USE"));
     }
 
+    @Test
+    void updateDevice_withoutState_shouldKeepTheCurrentState() throws Exception {
+        var entity = new DeviceEntity();
+        entity.setName("Old Device");
+        entity.setBrand("Old Brand");
+        entity.setState(DeviceState.INACTIVE);
+        entity.setCreationTime(java.time.LocalDateTime.now());
+        entity = deviceRepository.save(entity);
+
+        mockMvc.perform(put("/api/v1/devices/" + entity.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed Device\",\"brand\":\"Old Brand\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed Device"))
+                .andExpect(jsonPath("$.state").value("INACTIVE"));
+    }
+
     @Test
     void deleteDevice_shouldReturnNoContent() throws Exception {
         var entity = new DeviceEntity();
@@ -169,4 +193,80 @@ class DeviceControllerIntegrationTest {
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].brand").value("Brand A"));
     }
+
+    @Test
+    void searchDevices_shouldFindIndexedAndNewlyWrittenDevices() throws Exception {
+        // saved past the service, so only the rebuild sees it
+        DeviceEntity indexed = new DeviceEntity();
+        indexed.setName("Quasarphone Mini");
+        indexed.setBrand("Nebula");
+        indexed.setState(DeviceState.AVAILABLE);
+        indexed.setCreationTime(java.time.LocalDateTime.now());
+        indexed = deviceRepository.save(indexed);
+        deviceSearchService.rebuild();
+
+        DeviceDTO deviceDTO = new DeviceDTO();
+        deviceDTO.setName("Quasarphone");
+        deviceDTO.setBrand("Nebula");
+        deviceDTO.setState(DeviceState.AVAILABLE);
+        String created = mockMvc.perform(post("/api/v1/devices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deviceDTO)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long createdId = objectMapper.readTree(created).get("id").asLong();
+
+        // both match quasarphone exactly and start with neb, so they come by id
+        mockMvc.perform(get("/api/v1/devices/search").param("q", "quasarphone neb"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(indexed.getId()))
+                .andExpect(jsonPath("$.content[1].id").value(createdId));
+        mockMvc.perform(get("/api/v1/devices/search").param("q", "Qasarphone mini"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("Quasarphone Mini"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        mockMvc.perform(delete("/api/v1/devices/" + indexed.getId()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/v1/devices/search").param("q", "quasar"))
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(createdId));
+    }
+
+    @Test
+    void conditionalRequests_shouldFollowTheVersion() throws Exception {
+        var entity = new DeviceEntity();
+        entity.setName("Tagged");
+        entity.setBrand("Brand");
+        entity.setState(DeviceState.AVAILABLE);
+        entity.setCreationTime(java.time.LocalDateTime.now());
+        entity = deviceRepository.save(entity);
+        String uri = "/api/v1/devices/" + entity.getId();
+
+        mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch(uri).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        // the rename above moved the device on, the old tag no longer matches
+        mockMvc.perform(patch(uri).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Lost update\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete(uri).header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed"))
+                .andExpect(jsonPath("$.version").value(1));
+
+        mockMvc.perform(delete(uri).header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isNoContent());
+    }
 }
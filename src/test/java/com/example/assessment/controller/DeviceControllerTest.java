@@ -2,26 +2,46 @@ package com.example.assessment.controller;
 
 import com.example.assessment.exception.DeviceInUseException;
 import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.exception.DeviceVersionMismatchException;
 import com.example.assessment.model.*;
+import com.example.assessment.service.DeviceExportService;
+import com.example.assessment.service.DeviceSearchService;
 import com.example.assessment.service.DeviceService;
+import com.example.assessment.service.DeviceStatsService;
+import com.example.assessment.web.DeviceProtobufHttpMessageConverter;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -34,6 +54,15 @@ class DeviceControllerTest {
     @MockitoBean
     private DeviceService deviceService;
 
+    @MockitoBean
+    private DeviceExportService deviceExportService;
+
+    @MockitoBean
+    private DeviceStatsService deviceStatsService;
+
+    @MockitoBean
+    private DeviceSearchService deviceSearchService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -85,6 +114,80 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.status").value(404));
     }
 
+    @Test
+    void filterDevices_shouldBindFilterParameters() throws Exception {
+        DeviceDTO d1 = new DeviceDTO();
+        d1.setId(1L);
+        d1.setName("Pixel 8");
+        d1.setBrand("Google");
+        d1.setState(DeviceState.IN_USE);
+
+        when(deviceService.filterDevices(any(DeviceFilter.class), any(), eq(true)))
+                .thenReturn(new DevicePage<>(List.of(d1), 0, 20, false, 1L));
+
+        mockMvc.perform(get("/api/v1/devices/filter")
+                        .param("brand", "Google")
+                        .param("state", "IN_USE")
+                        .param("namePrefix", "Pix")
+                        .param("createdFrom", "2024-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Pixel 8"))
+                .andExpect(jsonPath("$.totalElements").value(1));
+
+        verify(deviceService).filterDevices(argThat(f -> "Google".equals(f.getBrand())
+                && f.getState() == DeviceState.IN_USE
+                && "Pix".equals(f.getNamePrefix())
+                && LocalDateTime.of(2024, 1, 1, 0, 0).equals(f.getCreatedFrom())
+                && f.getCreatedTo() == null), any(), eq(true));
+    }
+
+    @Test
+    void filterDevices_shouldReturn400ForInvalidDate() throws Exception {
+        mockMvc.perform(get("/api/v1/devices/filter").param("createdFrom", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getStats_shouldReturnCounters() throws Exception {
+        when(deviceStatsService.getStats()).thenReturn(new DeviceStats(3,
+                Map.of(DeviceState.AVAILABLE, 2L, DeviceState.IN_USE, 1L),
+                Map.of("Apple", 3L),
+                Map.of("Apple", Map.of(DeviceState.AVAILABLE, 2L, DeviceState.IN_USE, 1L)),
+                LocalDateTime.now()));
+
+        mockMvc.perform(get("/api/v1/devices/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byState.AVAILABLE").value(2))
+                .andExpect(jsonPath("$.byBrand.Apple").value(3))
+                .andExpect(jsonPath("$.byBrandAndState.Apple.IN_USE").value(1));
+
+        verify(deviceService, never()).getDevicesByState(any());
+    }
+
+    @Test
+    void searchDevices_shouldReturnRankedPageWithoutTotals() throws Exception {
+        DeviceDTO device = new DeviceDTO();
+        device.setId(7L);
+        device.setName("Galaxy S24");
+        device.setBrand("Samsung");
+        when(deviceSearchService.search(eq("galxy"), argThat(pageable -> pageable.getPageSize() == 5)))
+                .thenReturn(new DevicePage<>(List.of(device), 0, 5, true, null));
+
+        mockMvc.perform(get("/api/v1/devices/search").param("q", "galxy").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.content[0].id").value(7))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void searchDevices_shouldReturn400WithoutQuery() throws Exception {
+        mockMvc.perform(get("/api/v1/devices/search"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getAllDevices_shouldReturnPagedList() throws Exception {
         DeviceDTO d1 = new DeviceDTO();
@@ -96,12 +199,59 @@ class DeviceControllerTest {
         d2.setName("Device 2");
 
         List<DeviceDTO> devices = Arrays.asList(d1, d2);
-        when(deviceService.getAllDevices(any())).thenReturn(new PageImpl<>(devices, PageRequest.of(0, 20), devices.size()));
+        when(deviceService.getAllDevices(any(), eq(true))).thenReturn(new DevicePage<>(devices, 0, 20, false, 2L));
 
         mockMvc.perform(get("/api/v1/devices"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content.length()").value(2))
-                .andExpect(jsonPath("$.content[0].name").value("Device 1"));
+                .andExpect(jsonPath("$.content[0].name").value("Device 1"))
+                .andExpect(jsonPath("$.number").value(0))
+                .andExpect(jsonPath("$.size").value(20))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.totalPages").value(1))
+                .andExpect(jsonPath("$.pageable").doesNotExist());
+    }
+
+    @Test
+    void getAllDevices_shouldLeaveOutTotalsWhenCountIsSkipped() throws Exception {
+        DeviceDTO d1 = new DeviceDTO();
+        d1.setId(1L);
+        when(deviceService.getAllDevices(any(), eq(false))).thenReturn(new DevicePage<>(List.of(d1), 0, 1, true, null));
+
+        mockMvc.perform(get("/api/v1/devices").param("size", "1").param("includeTotal", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.totalPages").doesNotExist());
+    }
+
+    @Test
+    void scrollDevices_shouldReturnContentAndNextCursor() throws Exception {
+        DeviceDTO d1 = new DeviceDTO();
+        d1.setId(1L);
+        d1.setName("Device 1");
+
+        when(deviceService.scrollDevices(eq("abc"), eq(1), any(), eq(false)))
+                .thenReturn(new CursorPage<>(List.of(d1), "next", true, null));
+
+        mockMvc.perform(get("/api/v1/devices/scroll").param("cursor", "abc").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Device 1"))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void exportDevices_shouldStreamRequestedFormat() throws Exception {
+        mockMvc.perform(get("/api/v1/devices/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"devices.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"));
+
+        verify(deviceExportService).exportDevices(eq(ExportFormat.CSV), any());
     }
 
     @Test
@@ -117,7 +267,7 @@ class DeviceControllerTest {
         updatedDevice.setBrand("Updated Brand");
         updatedDevice.setState(DeviceState.IN_USE);
 
-        when(deviceService.updateDevice(eq(1L), any(DeviceDTO.class))).thenReturn(updatedDevice);
+        when(deviceService.updateDevice(eq(1L), any(DeviceDTO.class), isNull())).thenReturn(updatedDevice);
 
         mockMvc.perform(put("/api/v1/devices/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -131,7 +281,7 @@ class DeviceControllerTest {
         UpdateDeviceRequest updateReq = new UpdateDeviceRequest();
         updateReq.setName("Updated Device");
 
-        when(deviceService.updateDevice(eq(1L), any(DeviceDTO.class))).thenThrow(new DeviceInUseException("Cannot update name when device is in use"));
+        when(deviceService.updateDevice(eq(1L), any(DeviceDTO.class), isNull())).thenThrow(new DeviceInUseException("Cannot update name when device is in use"));
 
         mockMvc.perform(put("/api/v1/devices/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -140,9 +290,265 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.status").value(400));
     }
 
+    @Test
+    void partialUpdateDevice_shouldPassOnlyPatchedFieldsWithoutLoadingFirst() throws Exception {
+        DeviceDTO patched = new DeviceDTO();
+        patched.setId(1L);
+        patched.setName("New name");
+        patched.setBrand("Brand");
+        patched.setState(DeviceState.AVAILABLE);
+
+        when(deviceService.partialUpdateDevice(eq(1L), any(DeviceDTO.class), isNull())).thenReturn(patched);
+
+        mockMvc.perform(patch("/api/v1/devices/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"New name\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("New name"))
+                .andExpect(jsonPath("$.brand").value("Brand"));
+
+        verify(deviceService, never()).getDeviceById(any());
+        verify(deviceService).partialUpdateDevice(eq(1L), argThat(changes ->
+                "New name".equals(changes.getName()) && changes.getBrand() == null && changes.getState() == null), isNull());
+    }
+
+    @Test
+    void checkOutDevice_shouldReturnDeviceInUse() throws Exception {
+        DeviceDTO checkedOut = new DeviceDTO();
+        checkedOut.setId(1L);
+        checkedOut.setState(DeviceState.IN_USE);
+
+        when(deviceService.checkOutDevice(1L)).thenReturn(checkedOut);
+
+        mockMvc.perform(post("/api/v1/devices/1/checkout"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("IN_USE"));
+    }
+
+    @Test
+    void checkInDevice_shouldReturn409WhenTransitionLoses() throws Exception {
+        when(deviceService.checkInDevice(1L)).thenThrow(new DeviceStateConflictException("Device with id: 1 is not IN_USE"));
+
+        mockMvc.perform(post("/api/v1/devices/1/checkin"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value(409));
+    }
+
     @Test
     void deleteDevice_shouldReturnNoContent() throws Exception {
         mockMvc.perform(delete("/api/v1/devices/1"))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    void getDevice_shouldReturnVersionAsStrongETag() throws Exception {
+        DeviceDTO deviceDTO = new DeviceDTO();
+        deviceDTO.setId(1L);
+        deviceDTO.setName("Test Device");
+        deviceDTO.setVersion(3L);
+
+        when(deviceService.getDeviceById(1L)).thenReturn(deviceDTO);
+
+        mockMvc.perform(get("/api/v1/devices/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    void getDevice_shouldReturn304FromVersionOnlyLookup() throws Exception {
+        when(deviceService.getDeviceVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/v1/devices/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(deviceService, never()).getDeviceById(any());
+    }
+
+    @Test
+    void getDevice_shouldReturn304ForTagOfAnotherRepresentation() throws Exception {
+        when(deviceService.getDeviceVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/v1/devices/1").header(HttpHeaders.IF_NONE_MATCH, "\"2-gzip\", \"3-cbor-gzip\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-cbor-gzip\""));
+
+        verify(deviceService, never()).getDeviceById(any());
+    }
+
+    @Test
+    void getDevice_shouldReturnDeviceWhenETagIsStale() throws Exception {
+        DeviceDTO deviceDTO = new DeviceDTO();
+        deviceDTO.setId(1L);
+        deviceDTO.setVersion(4L);
+
+        when(deviceService.getDeviceVersion(1L)).thenReturn(4L);
+        when(deviceService.getDeviceById(1L)).thenReturn(deviceDTO);
+
+        mockMvc.perform(get("/api/v1/devices/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.version").value(4));
+    }
+
+    @Test
+    void getAllDevices_shouldReturn304WhenPageIsUnchanged() throws Exception {
+        DeviceDTO d1 = new DeviceDTO();
+        d1.setId(1L);
+        d1.setVersion(2L);
+        when(deviceService.getAllDevices(any(), eq(true))).thenReturn(new DevicePage<>(List.of(d1), 0, 20, false, 1L));
+
+        String etag = mockMvc.perform(get("/api/v1/devices"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        org.junit.jupiter.api.Assertions.assertTrue(etag.startsWith("W/\""));
+        mockMvc.perform(get("/api/v1/devices").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        d1.setVersion(3L);
+        mockMvc.perform(get("/api/v1/devices").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateDevice_shouldPassIfMatchVersionAndReturnNewETag() throws Exception {
+        UpdateDeviceRequest updateReq = new UpdateDeviceRequest();
+        updateReq.setName("Updated Device");
+        updateReq.setState(DeviceState.AVAILABLE);
+
+        DeviceDTO updatedDevice = new DeviceDTO();
+        updatedDevice.setId(1L);
+        updatedDevice.setName("Updated Device");
+        updatedDevice.setVersion(6L);
+
+        when(deviceService.updateDevice(eq(1L), any(DeviceDTO.class), eq(5L))).thenReturn(updatedDevice);
+
+        mockMvc.perform(put("/api/v1/devices/1")
+                        .header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateReq)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""));
+    }
+
+    @Test
+    void deleteDevice_shouldTakeVersionFromSuffixedTag() throws Exception {
+        mockMvc.perform(delete("/api/v1/devices/1").header(HttpHeaders.IF_MATCH, "\"5-smile-zstd\""))
+                .andExpect(status().isNoContent());
+
+        verify(deviceService).deleteDevice(1L, 5L);
+    }
+
+    @Test
+    void partialUpdateDevice_shouldReturn412WhenVersionChanged() throws Exception {
+        when(deviceService.partialUpdateDevice(eq(1L), any(DeviceDTO.class), eq(5L)))
+                .thenThrow(new DeviceVersionMismatchException("Device with id: 1 is at version 6, not 5"));
+
+        mockMvc.perform(patch("/api/v1/devices/1")
+                        .header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"New name\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value("Device with id: 1 is at version 6, not 5"));
+    }
+
+    @Test
+    void deleteDevice_shouldReturn412ForWeakIfMatch() throws Exception {
+        when(deviceService.getDeviceVersion(1L)).thenReturn(5L);
+
+        // If-Match compares strongly, a weak tag never matches
+        mockMvc.perform(delete("/api/v1/devices/1").header(HttpHeaders.IF_MATCH, "W/\"5\""))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(deviceService, never()).deleteDevice(any(), any());
+    }
+
+    @Test
+    void deleteDevice_shouldPickCurrentVersionFromSeveralTags() throws Exception {
+        when(deviceService.getDeviceVersion(1L)).thenReturn(5L);
+
+        mockMvc.perform(delete("/api/v1/devices/1").header(HttpHeaders.IF_MATCH, "\"4\", \"5\""))
+                .andExpect(status().isNoContent());
+
+        verify(deviceService).deleteDevice(1L, 5L);
+    }
+
+    @Test
+    void getDevice_shouldNegotiateSmileAndCbor() throws Exception {
+        DeviceDTO deviceDTO = new DeviceDTO();
+        deviceDTO.setId(1L);
+        deviceDTO.setName("Test Device");
+        deviceDTO.setState(DeviceState.AVAILABLE);
+        deviceDTO.setVersion(3L);
+        when(deviceService.getDeviceById(1L)).thenReturn(deviceDTO);
+
+        byte[] smile = mockMvc.perform(get("/api/v1/devices/1").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-smile\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] cbor = mockMvc.perform(get("/api/v1/devices/1").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-cbor\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode fromSmile = new ObjectMapper(new SmileFactory()).readTree(smile);
+        JsonNode fromCbor = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        assertThat(fromSmile).isEqualTo(fromCbor);
+        assertThat(fromSmile.get("name").asText()).isEqualTo("Test Device");
+        assertThat(fromSmile.get("state").asText()).isEqualTo("AVAILABLE");
+        assertThat(fromSmile.get("version").asLong()).isEqualTo(3L);
+    }
+
+    @Test
+    void getAllDevices_shouldWriteProtobufPage() throws Exception {
+        DeviceDTO d1 = new DeviceDTO();
+        d1.setId(1L);
+        d1.setName("Device 1");
+        d1.setState(DeviceState.IN_USE);
+        when(deviceService.getAllDevices(any(), eq(true))).thenReturn(new DevicePage<>(List.of(d1), 0, 20, true, 41L));
+
+        byte[] body = mockMvc.perform(get("/api/v1/devices").accept(DeviceProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(DeviceProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ProtobufSchema schema = ProtobufSchemaLoader.std
+                .loadNative(new ClassPathResource(DeviceProtobufHttpMessageConverter.SCHEMA_LOCATION).getURL())
+                .forType("DevicePage");
+        JsonNode page = new ProtobufMapper().readerFor(JsonNode.class).with(schema).readValue(body);
+        assertThat(page.get("totalElements").asLong()).isEqualTo(41L);
+        assertThat(page.get("totalPages").asInt()).isEqualTo(3);
+        assertThat(page.get("hasNext").asBoolean()).isTrue();
+        assertThat(page.get("content").get(0).get("name").asText()).isEqualTo("Device 1");
+        // the reader hands enums back as their number
+        assertThat(page.get("content").get(0).get("state").asInt()).isEqualTo(DeviceState.IN_USE.ordinal());
+    }
+
+    @Test
+    void getDevice_shouldStayJsonForWildcardAccept() throws Exception {
+        DeviceDTO deviceDTO = new DeviceDTO();
+        deviceDTO.setId(1L);
+        when(deviceService.getDeviceById(1L)).thenReturn(deviceDTO);
+
+        mockMvc.perform(get("/api/v1/devices/1").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void getStats_shouldReturn406ForProtobuf() throws Exception {
+        when(deviceStatsService.getStats()).thenReturn(new DeviceStats(0, Map.of(), Map.of(), Map.of(), LocalDateTime.now()));
+
+        // device.proto has no message for the stats
+        mockMvc.perform(get("/api/v1/devices/stats").accept(DeviceProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andExpect(status().isNotAcceptable());
+    }
 }
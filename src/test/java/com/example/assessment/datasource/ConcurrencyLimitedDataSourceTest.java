@@ -0,0 +1,108 @@
+package com.example.assessment.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitedDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    private SimpleMeterRegistry registry;
+    private ConcurrencyLimitedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        dataSource = new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(50));
+        dataSource.bindTo(registry);
+    }
+
+    @Test
+    void getConnection_shouldTimeOutWhenAllPermitsAreTaken() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+
+        Connection first = dataSource.getConnection();
+
+        assertEquals(1, dataSource.getActive());
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(1.0, registry.get("device.db.limiter.timeouts").counter().count());
+        verify(target, times(1)).getConnection();
+
+        first.close();
+        verify(connection).close();
+        assertEquals(0, dataSource.getActive());
+    }
+
+    @Test
+    void getConnection_shouldQueueUntilAPermitIsReleased() throws Exception {
+        dataSource = new ConcurrencyLimitedDataSource(target, 1, Duration.ofSeconds(5));
+        dataSource.bindTo(new SimpleMeterRegistry());
+        when(target.getConnection()).thenReturn(connection);
+
+        Connection first = dataSource.getConnection();
+        CompletableFuture<Connection> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (dataSource.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        assertFalse(second.isDone());
+
+        first.close();
+        // closing twice must not hand out a second permit
+        first.close();
+
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+        assertEquals(0, dataSource.getWaiting());
+        assertEquals(1, dataSource.getActive());
+    }
+
+    @Test
+    void getConnection_shouldReleasePermitWhenPoolFails() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool down")).thenReturn(connection);
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+
+        assertEquals(0, dataSource.getActive());
+        assertNotNull(dataSource.getConnection());
+    }
+
+    @Test
+    void connection_shouldHaveTheIdentityOfTheProxy() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+
+        Connection first = dataSource.getConnection();
+        first.close();
+        Connection second = dataSource.getConnection();
+
+        assertEquals(first, first);
+        assertNotEquals(first, second);
+        assertEquals(System.identityHashCode(first), first.hashCode());
+        assertEquals(2, Set.of(first, second).size());
+    }
+}
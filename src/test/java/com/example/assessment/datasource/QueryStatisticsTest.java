@@ -0,0 +1,79 @@
+package com.example.assessment.datasource;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryStatisticsTest {
+
+    @Test
+    void normalize_shouldReplaceLiteralsAndInLists() {
+        assertEquals("select * from devices where brand = ? and id in (?) and name like ?",
+                QueryStatistics.normalize("select *\n  from devices where brand = 'it''s' and id in (1, 2,3) and name like 'a%'"));
+        assertEquals("select d.id from devices d where d.id in (?)",
+                QueryStatistics.normalize("select d.id from devices d where d.id in (?, ?, ?)"));
+    }
+
+    @Test
+    void executions_shouldBeGroupedByNormalizedQuery() {
+        QueryStatistics statistics = new QueryStatistics(Duration.ofHours(1), 10);
+
+        execute(statistics, "select * from devices where id in (1, 2)");
+        execute(statistics, "select * from devices where id in (3)");
+        execute(statistics, "select * from devices where brand = ?");
+
+        List<QueryStatistics.Summary> top = statistics.top(10);
+        assertEquals(2, top.size());
+        QueryStatistics.Summary byId = top.stream()
+                .filter(summary -> summary.query().equals("select * from devices where id in (?)"))
+                .findFirst().orElseThrow();
+        assertEquals(2, byId.count());
+        assertEquals(0, byId.slowCount());
+    }
+
+    @Test
+    void top_shouldOrderByP99_andCountSlowExecutions() throws InterruptedException {
+        QueryStatistics statistics = new QueryStatistics(Duration.ofMillis(10), 10);
+
+        execute(statistics, "select * from devices");
+        statistics.beforeQuery(new ExecutionInfo(), queries("select * from devices where brand = ?"));
+        Thread.sleep(20);
+        statistics.afterQuery(new ExecutionInfo(), queries("select * from devices where brand = ?"));
+
+        List<QueryStatistics.Summary> top = statistics.top(1);
+        assertEquals(1, top.size());
+        assertEquals("select * from devices where brand = ?", top.get(0).query());
+        assertEquals(1, top.get(0).slowCount());
+        assertTrue(top.get(0).p99Millis() >= 20);
+    }
+
+    @Test
+    void newQueries_shouldNotBeTrackedOverTheCap() {
+        QueryStatistics statistics = new QueryStatistics(Duration.ofHours(1), 2);
+
+        execute(statistics, "select a from t");
+        execute(statistics, "select b from t");
+        execute(statistics, "select c from t");
+        execute(statistics, "select a from t");
+
+        assertEquals(List.of("select a from t", "select b from t"),
+                statistics.top(10).stream().map(QueryStatistics.Summary::query).sorted().toList());
+
+        statistics.reset();
+        assertTrue(statistics.top(10).isEmpty());
+    }
+
+    private static void execute(QueryStatistics statistics, String sql) {
+        statistics.beforeQuery(new ExecutionInfo(), queries(sql));
+        statistics.afterQuery(new ExecutionInfo(), queries(sql));
+    }
+
+    private static List<QueryInfo> queries(String sql) {
+        return List.of(new QueryInfo(sql));
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.assessment.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private Connection primaryConnection;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void getConnection_shouldUsePrimaryOutsideReadOnlyTransactions() throws Exception {
+        DataSource replica = mock(DataSource.class);
+        ReplicaRoutingDataSource dataSource = routing(replica);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void getConnection_shouldTakeTurnsOnAvailableReplicasInReadOnlyTransactions() throws Exception {
+        Connection first = replicaConnection(0);
+        Connection second = replicaConnection(0);
+        ReplicaRoutingDataSource dataSource = routing(source(first), source(second));
+        dataSource.checkReplicas();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(first, dataSource.getConnection());
+        assertSame(second, dataSource.getConnection());
+        assertSame(first, dataSource.getConnection());
+        assertEquals(2.0, reads("replica-1", "replica"));
+        assertEquals(1.0, reads("replica-2", "replica"));
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void getConnection_shouldSkipReplicaThatIsTooFarBehind() throws Exception {
+        Connection lagging = replicaConnection(5000);
+        Connection current = replicaConnection(200);
+        ReplicaRoutingDataSource dataSource = routing(source(lagging), source(current));
+        dataSource.checkReplicas();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(current, dataSource.getConnection());
+        assertSame(current, dataSource.getConnection());
+        assertFalse(dataSource.isAvailable(dataSource.getReplicas().get(0)));
+        assertEquals(5000.0, registry.get("device.db.replica.lag").tag("replica", "replica-1").timeGauge().value(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void getConnection_shouldSkipReplicaThatIsNotStreaming() throws Exception {
+        // a standby that lost the primary has replayed everything it received, which isn't being caught up
+        Connection disconnected = replicaConnection(0, false);
+        Connection current = replicaConnection(200);
+        ReplicaRoutingDataSource dataSource = routing(source(disconnected), source(current));
+        dataSource.checkReplicas();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(current, dataSource.getConnection());
+        assertSame(current, dataSource.getConnection());
+        assertTrue(dataSource.getReplicas().get(0).isUp());
+        assertFalse(dataSource.getReplicas().get(0).isStreaming());
+        assertEquals(0.0, registry.get("device.db.replica.available").tag("replica", "replica-1").gauge().value());
+    }
+
+    @Test
+    void getConnection_shouldFailOverWhenReplicaConnectionFails() throws Exception {
+        Connection failing = replicaConnection(0);
+        Connection working = replicaConnection(0);
+        DataSource failingSource = mock(DataSource.class);
+        when(failingSource.getConnection()).thenReturn(failing)
+                .thenThrow(new SQLTransientConnectionException("Connection is not available"));
+        ReplicaRoutingDataSource dataSource = routing(failingSource, source(working));
+        dataSource.checkReplicas();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(working, dataSource.getConnection());
+        assertSame(working, dataSource.getConnection());
+        assertFalse(dataSource.getReplicas().get(0).isUp());
+        assertEquals(1.0, registry.get("device.db.replica.failures").tag("replica", "replica-1").counter().count());
+        // taken out after the failure, not tried again until a check passes
+        verify(failingSource, times(2)).getConnection();
+    }
+
+    @Test
+    void getConnection_shouldUsePrimaryWhenNoReplicaIsAvailable() throws Exception {
+        DataSource down = mock(DataSource.class);
+        when(down.getConnection()).thenThrow(new SQLException("Connection refused"));
+        ReplicaRoutingDataSource dataSource = routing(down);
+        dataSource.checkReplicas();
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertFalse(dataSource.getReplicas().get(0).isUp());
+        assertEquals(1.0, reads("primary", "no_replica"));
+    }
+
+    @Test
+    void getConnection_shouldNotUseReplicaBeforeItsFirstCheck() throws Exception {
+        DataSource replica = mock(DataSource.class);
+        ReplicaRoutingDataSource dataSource = routing(replica);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void getConnection_shouldUsePrimaryWhilePinned() throws Exception {
+        Connection replicaConnection = replicaConnection(0);
+        DataSource replica = source(replicaConnection);
+        ReplicaRoutingDataSource dataSource = routing(replica);
+        dataSource.checkReplicas();
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try (ReadRouting.Pin ignored = ReadRouting.pinToPrimary()) {
+            try (ReadRouting.Pin nested = ReadRouting.pinToPrimary()) {
+                assertSame(primaryConnection, dataSource.getConnection());
+            }
+            assertSame(primaryConnection, dataSource.getConnection());
+        }
+        assertSame(replicaConnection, dataSource.getConnection());
+        assertEquals(2.0, reads("primary", "pinned"));
+    }
+
+    @Test
+    void checkReplicas_shouldBringReplicaBackOnceACheckPasses() throws Exception {
+        Connection connection = replicaConnection(0);
+        DataSource replica = mock(DataSource.class);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused")).thenReturn(connection);
+        ReplicaRoutingDataSource dataSource = routing(replica);
+
+        dataSource.checkReplicas();
+        assertFalse(dataSource.isAvailable(dataSource.getReplicas().get(0)));
+        assertEquals(0.0, registry.get("device.db.replica.available").gauge().value());
+
+        dataSource.checkReplicas();
+        assertTrue(dataSource.isAvailable(dataSource.getReplicas().get(0)));
+        assertEquals(1.0, registry.get("device.db.replica.available").gauge().value());
+    }
+
+    private ReplicaRoutingDataSource routing(DataSource... replicaSources) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaSources.length; i++) {
+            replicas.add(new ReplicaRoutingDataSource.Replica("replica-" + (i + 1), replicaSources[i]));
+        }
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        dataSource.bindTo(registry);
+        return dataSource;
+    }
+
+    private static DataSource source(Connection connection) throws SQLException {
+        DataSource source = mock(DataSource.class);
+        when(source.getConnection()).thenReturn(connection);
+        return source;
+    }
+
+    private static Connection replicaConnection(long lagMillis) throws SQLException {
+        return replicaConnection(lagMillis, true);
+    }
+
+    // a connection whose lag check reports lagMillis and whether the standby is streaming
+    private static Connection replicaConnection(long lagMillis, boolean streaming) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rows = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rows);
+        when(rows.next()).thenReturn(true);
+        when(rows.getLong(1)).thenReturn(lagMillis);
+        when(rows.getBoolean(2)).thenReturn(streaming);
+        return connection;
+    }
+
+    private double reads(String target, String reason) {
+        return registry.get("device.db.reads").tag("target", target).tag("reason", reason).counter().count();
+    }
+}
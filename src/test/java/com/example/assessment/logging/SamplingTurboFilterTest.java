@@ -0,0 +1,70 @@
+package com.example.assessment.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final SamplingTurboFilter filter = new SamplingTurboFilter();
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        filter.setLoggers("sampled, other.sampled");
+        filter.setMaxPerSecond(3);
+        filter.setContext(context);
+        filter.start();
+        context.addTurboFilter(filter);
+        appender.setContext(context);
+        appender.start();
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+    }
+
+    @Test
+    void sampledLogger_shouldBeCappedPerSecond() {
+        Logger logger = context.getLogger("sampled");
+
+        for (int i = 0; i < 10; i++) {
+            logger.warn("line {}", i);
+        }
+
+        // the cap is per second, a window turning over mid-loop lets a few more through
+        assertThat(appender.list).hasSizeBetween(3, 6);
+        assertThat(filter.getDropped("sampled")).isEqualTo(10 - appender.list.size());
+    }
+
+    @Test
+    void errors_andOtherLoggers_shouldAlwaysPass() {
+        for (int i = 0; i < 10; i++) {
+            context.getLogger("sampled").error("failure {}", i);
+            context.getLogger("not.sampled").info("line {}", i);
+        }
+
+        assertThat(appender.list).hasSize(20);
+        assertThat(filter.getDropped("sampled")).isZero();
+    }
+
+    @Test
+    void disabledLevels_andEnabledChecks_shouldNotUseTheBudget() {
+        Logger logger = context.getLogger("other.sampled");
+
+        for (int i = 0; i < 10; i++) {
+            logger.debug("below the level {}", i);
+            logger.isInfoEnabled();
+        }
+        logger.info("first");
+
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly("first");
+        assertThat(filter.getDropped("other.sampled")).isZero();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.assessment.outbox;
+
+import com.example.assessment.config.TestcontainersConfiguration;
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.BatchOperationType;
+import com.example.assessment.model.DeviceBatchOperation;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.service.DeviceBatchService;
+import com.example.assessment.service.DeviceService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+@TestPropertySource(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "device.outbox.sink=memory",
+    "device.outbox.poll-interval=20ms",
+    "device.outbox.batch-size=7"
+})
+class DeviceOutboxIntegrationTest {
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceBatchService deviceBatchService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private InMemoryDeviceEventSink sink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        deviceRepository.deleteAll();
+        awaitMessages(messages -> jdbcTemplate.queryForObject("SELECT count(*) FROM device_outbox", Long.class) == 0);
+        sink.clear();
+    }
+
+    @Test
+    void committedWrites_shouldBeRelayedInOrder() throws Exception {
+        DeviceDTO created = deviceService.createDevice(device("Relayed", DeviceState.AVAILABLE));
+        deviceService.checkOutDevice(created.getId());
+        deviceService.checkInDevice(created.getId());
+        deviceService.deleteDevice(created.getId());
+
+        List<OutboxMessage> messages = awaitMessages(m -> m.size() >= 4);
+
+        assertEquals(List.of(DeviceChangedEvent.Type.CREATED, DeviceChangedEvent.Type.UPDATED,
+                        DeviceChangedEvent.Type.UPDATED, DeviceChangedEvent.Type.DELETED),
+                messages.stream().map(OutboxMessage::getType).toList());
+        assertTrue(messages.stream().allMatch(m -> created.getId().equals(m.getDeviceId())));
+        JsonNode checkout = objectMapper.readTree(messages.get(1).getPayload());
+        assertEquals("AVAILABLE", checkout.get("before").get("state").asText());
+        assertEquals("IN_USE", checkout.get("after").get("state").asText());
+        assertTrue(messages.get(0).getId() < messages.get(3).getId());
+    }
+
+    @Test
+    void rolledBackWrites_shouldNotBeRelayed() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            deviceService.createDevice(device("Rolled back", DeviceState.AVAILABLE));
+            status.setRollbackOnly();
+        });
+        DeviceDTO committed = deviceService.createDevice(device("Committed", DeviceState.AVAILABLE));
+
+        List<OutboxMessage> messages = awaitMessages(m -> m.stream().anyMatch(message -> committed.getId().equals(message.getDeviceId())));
+
+        assertEquals(1, messages.size());
+    }
+
+    @Test
+    void createDevice_shouldCommitTheDeviceAndItsOutboxRowTogether() {
+        // every outbox INSERT fails, rows the relay reads and deletes are untouched
+        jdbcTemplate.execute("ALTER TABLE device_outbox ADD CONSTRAINT reject_inserts CHECK (device_id < 0) NOT VALID");
+        try {
+            assertThrows(DataIntegrityViolationException.class,
+                    () -> deviceService.createDevice(device("Without event", DeviceState.AVAILABLE)));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE device_outbox DROP CONSTRAINT reject_inserts");
+        }
+        assertEquals(0, deviceRepository.count());
+
+        DeviceDTO created = deviceService.createDevice(device("With event", DeviceState.AVAILABLE));
+
+        assertTrue(deviceRepository.existsById(created.getId()));
+        assertEquals(1, awaitMessages(m -> !m.isEmpty()).stream()
+                .filter(message -> created.getId().equals(message.getDeviceId())).count());
+    }
+
+    @Test
+    void bulkWrites_shouldBeRelayedInSeveralBatches() {
+        List<DeviceBatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            DeviceBatchOperation op = new DeviceBatchOperation();
+            op.setOp(BatchOperationType.CREATE);
+            op.setName("Bulk " + i);
+            op.setBrand("Bulk");
+            op.setState(DeviceState.AVAILABLE);
+            operations.add(op);
+        }
+
+        deviceBatchService.applyAll(operations);
+
+        List<OutboxMessage> messages = awaitMessages(m -> m.size() >= 20);
+        assertEquals(20, messages.size());
+        assertEquals(20, messages.stream().map(OutboxMessage::getId).distinct().count());
+    }
+
+    private List<OutboxMessage> awaitMessages(Predicate<List<OutboxMessage>> condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        List<OutboxMessage> messages = sink.messages();
+        while (!condition.test(messages)) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Outbox not relayed in time, sink has " + messages);
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+            messages = sink.messages();
+        }
+        return messages;
+    }
+
+    private static DeviceDTO device(String name, DeviceState state) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setName(name);
+        dto.setBrand("Outbox");
+        dto.setState(state);
+        return dto;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.assessment.outbox;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceOutboxTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void onDeviceChanged_shouldRejectEventsPublishedWithoutTransaction() {
+        DeviceOutbox outbox = new DeviceOutbox(jdbcTemplate, objectMapper);
+        DeviceChangedEvent event = DeviceChangedEvent.created(device(1L, 0L, DeviceState.AVAILABLE));
+
+        assertThrows(IllegalStateException.class, () -> outbox.onDeviceChanged(event));
+
+        // synchronization alone, as with propagation SUPPORTS, has no transaction to join either
+        TransactionSynchronizationManager.initSynchronization();
+        assertThrows(IllegalStateException.class, () -> outbox.onDeviceChanged(event));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void onDeviceChanged_shouldBatchTheTransactionsEventsBeforeCommit() throws Exception {
+        DeviceOutbox outbox = new DeviceOutbox(jdbcTemplate, objectMapper);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        outbox.onDeviceChanged(DeviceChangedEvent.created(device(1L, 0L, DeviceState.AVAILABLE)));
+        outbox.onDeviceChanged(DeviceChangedEvent.updated(device(1L, 0L, DeviceState.AVAILABLE), device(1L, 1L, DeviceState.IN_USE)));
+        outbox.onDeviceChanged(DeviceChangedEvent.deleted(device(2L, 3L, DeviceState.INACTIVE)));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+
+        synchronizations.get(0).beforeCommit(false);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(DeviceOutbox.INSERT), rows.capture());
+        assertEquals(3, rows.getValue().size());
+        assertEquals("DELETED", rows.getValue().get(2)[1]);
+        var payload = objectMapper.readTree((String) rows.getValue().get(1)[2]);
+        assertEquals("UPDATED", payload.get("type").asText());
+        assertEquals(1, payload.get("version").asLong());
+        assertEquals("AVAILABLE", payload.get("before").get("state").asText());
+        assertEquals("IN_USE", payload.get("after").get("state").asText());
+        assertNull(TransactionSynchronizationManager.getResource(outbox));
+    }
+
+    @Test
+    void onDeviceChanged_shouldWriteNothingWhenTheTransactionRollsBack() {
+        DeviceOutbox outbox = new DeviceOutbox(jdbcTemplate, objectMapper);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        outbox.onDeviceChanged(DeviceChangedEvent.created(device(1L, 0L, DeviceState.AVAILABLE)));
+        TransactionSynchronizationManager.getSynchronizations().get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertNull(TransactionSynchronizationManager.getResource(outbox));
+    }
+
+    private static DeviceDTO device(Long id, Long version, DeviceState state) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(id);
+        dto.setName("Device " + id);
+        dto.setBrand("Apple");
+        dto.setState(state);
+        dto.setVersion(version);
+        return dto;
+    }
+}
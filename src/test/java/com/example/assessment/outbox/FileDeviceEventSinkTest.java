@@ -0,0 +1,36 @@
+package com.example.assessment.outbox;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileDeviceEventSinkTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void publish_shouldAppendOneLinePerMessage() throws Exception {
+        Path file = dir.resolve("events/devices.ndjson");
+        FileDeviceEventSink sink = new FileDeviceEventSink(file);
+
+        sink.publish(List.of(message(1, "{\"type\":\"CREATED\"}"), message(2, "{\"type\":\"UPDATED\"}")));
+        sink.publish(List.of(message(3, "{\"type\":\"DELETED\"}")));
+
+        assertEquals(List.of(
+                "{\"id\":1,\"event\":{\"type\":\"CREATED\"}}",
+                "{\"id\":2,\"event\":{\"type\":\"UPDATED\"}}",
+                "{\"id\":3,\"event\":{\"type\":\"DELETED\"}}"), Files.readAllLines(file));
+    }
+
+    private static OutboxMessage message(long id, String payload) {
+        return new OutboxMessage(id, 7L, DeviceChangedEvent.Type.CREATED, payload, Instant.now());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.assessment.repository;
+
+import com.example.assessment.config.TestcontainersConfiguration;
+import com.example.assessment.datasource.QueryPlanCapture;
+import com.example.assessment.datasource.QueryStatistics;
+import com.example.assessment.entity.DeviceEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Keyset pages deep into a table with the migrations' indexes, checked against the plans Postgres picks for them.
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+@TestPropertySource(properties = {
+    // cached contexts stay alive, their relays would drain the outbox DeviceOutboxIntegrationTest checks
+    "device.outbox.relay.enabled=false",
+    // every SELECT is slow enough to get its plan captured
+    "device.sql.slow-query.threshold=0ms",
+    "device.sql.slow-query.explain.interval=0ms"
+})
+class DeviceKeysetIntegrationTest {
+
+    private static final Sort BY_CREATION_TIME = Sort.by("creationTime", "id");
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryStatistics queryStatistics;
+
+    @Autowired
+    private QueryPlanCapture queryPlanCapture;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM devices");
+        // enough rows that reading the table past the page costs more than seeking the index
+        jdbcTemplate.update("INSERT INTO devices (id, name, brand, state, creation_time, version)"
+                + " SELECT nextval('devices_seq'), 'Device ' || g, 'Brand ' || g % 10, 'AVAILABLE',"
+                + " CASE WHEN g % 1000 = 0 THEN NULL ELSE TIMESTAMP '2024-01-01' + g * INTERVAL '1 minute' END, 0"
+                + " FROM generate_series(1, 20000) g");
+        jdbcTemplate.execute("ANALYZE devices");
+        queryStatistics.reset();
+        queryPlanCapture.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM devices");
+    }
+
+    @Test
+    void findAfter_shouldSeekTheIndexOnADeepPage() throws InterruptedException {
+        List<Long> expected = ids("creation_time IS NOT NULL ORDER BY creation_time, id OFFSET 15000 LIMIT 21");
+        DeviceEntity last = deviceRepository.findById(idAt("creation_time IS NOT NULL ORDER BY creation_time, id OFFSET 14999")).orElseThrow();
+
+        List<DeviceEntity> page = deviceRepository.findAfter(keys(last.getCreationTime(), last.getId()), BY_CREATION_TIME, 21);
+
+        assertEquals(expected, page.stream().map(DeviceEntity::getId).toList());
+        String plan = planOf("order by de1_0.creation_time");
+        assertTrue(plan.contains("Index Cond: (creation_time >="), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    @Test
+    void findAfter_shouldContinueWithTheNullsAfterTheLastValue() {
+        Long lastWithTime = idAt("creation_time IS NOT NULL ORDER BY creation_time DESC, id DESC");
+        DeviceEntity last = deviceRepository.findById(lastWithTime).orElseThrow();
+
+        List<DeviceEntity> page = deviceRepository.findAfter(keys(last.getCreationTime(), last.getId()), BY_CREATION_TIME, 5);
+
+        assertEquals(ids("creation_time IS NULL ORDER BY id LIMIT 5"), page.stream().map(DeviceEntity::getId).toList());
+    }
+
+    @Test
+    void findAfter_shouldSeekPastTheIdAmongTheNulls() {
+        List<Long> nulls = ids("creation_time IS NULL ORDER BY id");
+
+        List<DeviceEntity> page = deviceRepository.findAfter(keys(null, nulls.get(9)), BY_CREATION_TIME, 100);
+
+        assertEquals(nulls.subList(10, nulls.size()), page.stream().map(DeviceEntity::getId).toList());
+    }
+
+    private static Map<String, Object> keys(LocalDateTime creationTime, Long id) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("creationTime", creationTime);
+        keys.put("id", id);
+        return keys;
+    }
+
+    private List<Long> ids(String condition) {
+        return jdbcTemplate.queryForList("SELECT id FROM devices WHERE " + condition, Long.class);
+    }
+
+    private Long idAt(String condition) {
+        return jdbcTemplate.queryForObject("SELECT id FROM devices WHERE " + condition + " LIMIT 1", Long.class);
+    }
+
+    // the plan captured in the background for the only SELECT whose SQL contains fragment
+    private String planOf(String fragment) throws InterruptedException {
+        String query = queryStatistics.top(100).stream()
+                .map(QueryStatistics.Summary::query)
+                .filter(sql -> sql.contains(fragment))
+                .findFirst()
+                .orElseThrow();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            QueryPlanCapture.QueryPlan plan = queryPlanCapture.planFor(query);
+            if (plan != null) {
+                assertNull(plan.error(), plan.error());
+                return plan.plan();
+            }
+            Thread.sleep(100);
+        }
+        return fail("No plan captured for " + query);
+    }
+}
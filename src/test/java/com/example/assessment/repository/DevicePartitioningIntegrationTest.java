@@ -0,0 +1,116 @@
+package com.example.assessment.repository;
+
+import com.example.assessment.config.TestcontainersConfiguration;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.service.DeviceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs on the schema the migrations create (no ddl-auto=create-drop), with devices partitioned by state (the opt-in V4).
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+@TestPropertySource(properties = {
+    "spring.flyway.locations=classpath:db/migration,classpath:db/partitioning",
+    // cached contexts stay alive, their relays would drain the outbox DeviceOutboxIntegrationTest checks
+    "device.outbox.relay.enabled=false"
+})
+class DevicePartitioningIntegrationTest {
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        deviceRepository.deleteAll();
+    }
+
+    @Test
+    void stateChanges_shouldMoveTheRowToThePartitionsOfTheNewState() {
+        DeviceDTO created = deviceService.createDevice(device(DeviceState.AVAILABLE));
+        assertTrue(partitionOf(created.getId()).startsWith("devices_available_"));
+
+        DeviceDTO checkedOut = deviceService.checkOutDevice(created.getId());
+        assertTrue(partitionOf(created.getId()).startsWith("devices_in_use_"));
+
+        // the entity update carries the state it loaded in its WHERE clause, not the one it writes
+        DeviceDTO update = device(DeviceState.INACTIVE);
+        update.setName(null);
+        update.setBrand(null);
+        DeviceDTO updated = deviceService.updateDevice(created.getId(), update, checkedOut.getVersion());
+        assertEquals(checkedOut.getVersion() + 1, updated.getVersion());
+        assertTrue(partitionOf(created.getId()).startsWith("devices_inactive_"));
+
+        deviceService.deleteDevice(created.getId(), updated.getVersion());
+        assertFalse(deviceRepository.existsById(created.getId()));
+    }
+
+    @Test
+    void transitions_shouldStillBeCompareAndSet() {
+        DeviceDTO created = deviceService.createDevice(device(DeviceState.AVAILABLE));
+
+        deviceService.checkOutDevice(created.getId());
+
+        assertThrows(DeviceStateConflictException.class, () -> deviceService.checkOutDevice(created.getId()));
+        assertEquals(1, deviceService.getDevicesByState(DeviceState.IN_USE).size());
+    }
+
+    @Test
+    void stateFilter_shouldOnlyReadThatStatesPartitions() {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN SELECT * FROM devices WHERE state = 'IN_USE'", String.class);
+
+        assertTrue(plan.stream().anyMatch(line -> line.contains("devices_in_use_")));
+        assertTrue(plan.stream().noneMatch(line -> line.contains("devices_available_") || line.contains("devices_inactive_")));
+    }
+
+    @Test
+    void ids_shouldStayUniqueAcrossPartitions() {
+        DeviceDTO created = deviceService.createDevice(device(DeviceState.AVAILABLE));
+        deviceService.checkOutDevice(created.getId());
+
+        // the same id in another state's partition
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update("INSERT INTO devices (id, name, brand, state, "
+                + "creation_time, version) VALUES (?, 'Copy', 'Brand', 'AVAILABLE', now(), 0)", created.getId()));
+        assertEquals(List.of(created.getId()), jdbcTemplate.queryForList("SELECT id FROM device_ids", Long.class));
+
+        deviceRepository.deleteById(created.getId());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM device_ids", Integer.class));
+    }
+
+    @Test
+    void indexes_shouldIncludeTheOnesForStateAndCheckedOutDevices() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'devices'", String.class);
+
+        assertTrue(indexes.containsAll(List.of("idx_devices_in_use_brand", "idx_devices_state_creation_time")), indexes.toString());
+    }
+
+    private String partitionOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM devices WHERE id = ?", String.class, id);
+    }
+
+    private static DeviceDTO device(DeviceState state) {
+        DeviceDTO device = new DeviceDTO();
+        device.setName("Partitioned Device");
+        device.setBrand("Brand");
+        device.setState(state);
+        return device;
+    }
+}
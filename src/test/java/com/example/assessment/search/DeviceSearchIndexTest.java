@@ -0,0 +1,126 @@
+package com.example.assessment.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceSearchIndexTest {
+
+    private final DeviceSearchIndex index = new DeviceSearchIndex.Builder()
+            .add(1, "iPhone 15 Pro", "Apple")
+            .add(2, "Galaxy S24 Ultra", "Samsung")
+            .add(3, "Galaxy Tab S9", "Samsung")
+            .add(4, "Pixel 8", "Google")
+            .add(5, "Galaxy Buds", "Samsung")
+            .add(6, "Sam's spare laptop", "Lenovo")
+            .build();
+
+    @Test
+    void tokenize_shouldSplitLowerCaseAndDropAccents() {
+        assertEquals(List.of("galaxy", "s24", "ultra", "samsung"), SearchTokens.tokenize("Galaxy S24-Ultra", "SAMSUNG"));
+        assertEquals(List.of("cafe", "creme"), SearchTokens.tokenize("Café  crème, café"));
+        assertEquals(List.of(), SearchTokens.tokenize("  -- "));
+    }
+
+    @Test
+    void search_shouldMatchWordPrefixesInNameAndBrand() {
+        // sam is one typo away
+        assertEquals(List.of(2L, 3L, 5L, 6L), ids(index.search(List.of("sams"), 10)));
+        assertEquals(List.of(1L), ids(index.search(List.of("iph"), 10)));
+        assertEquals(List.of(4L), ids(index.search(List.of("goo"), 10)));
+    }
+
+    @Test
+    void search_shouldRequireEveryToken() {
+        assertEquals(List.of(2L), ids(index.search(List.of("galaxy", "ultra"), 10)));
+        assertEquals(List.of(), ids(index.search(List.of("galaxy", "apple"), 10)));
+    }
+
+    @Test
+    void search_shouldForgiveTyposInWords() {
+        // a swap and a missing letter
+        assertEquals(List.of(2L, 3L, 5L), ids(index.search(List.of("samsnug"), 10)));
+        assertEquals(List.of(2L, 3L, 5L), ids(index.search(List.of("galxy"), 10)));
+        assertEquals(List.of(1L), ids(index.search(List.of("iphne"), 10)));
+        // not in numbers or in short tokens
+        assertEquals(List.of(), ids(index.search(List.of("16"), 10)));
+        assertEquals(List.of(), ids(index.search(List.of("s25"), 10)));
+    }
+
+    @Test
+    void search_shouldRankExactBeforePrefixBeforeTypos() {
+        DeviceSearchIndex.Builder builder = new DeviceSearchIndex.Builder()
+                .add(1, "Tablet", "Acme")
+                .add(2, "Tab", "Acme")
+                .add(3, "Table lamp", "Acme");
+        List<DeviceSearchIndex.Hit> hits = builder.build().search(List.of("tabl"), 10);
+
+        // tabl is a prefix of tablet and table, one typo away from tab
+        assertEquals(List.of(1L, 3L, 2L), ids(hits));
+        assertEquals(SearchTokens.PREFIX, hits.get(0).score());
+        assertEquals(SearchTokens.FUZZY, hits.get(2).score());
+
+        assertEquals(List.of(2L, 1L, 3L), ids(new DeviceSearchIndex.Builder()
+                .add(1, "Tablet", "Acme")
+                .add(2, "Tab", "Acme")
+                .add(3, "Table", "Acme")
+                .build().search(List.of("tab"), 10)));
+    }
+
+    @Test
+    void search_shouldKeepTheBestWithinTheLimit() {
+        DeviceSearchIndex.Builder builder = new DeviceSearchIndex.Builder();
+        for (int id = 1; id <= 1000; id++) {
+            builder.add(id, id % 100 == 0 ? "Galaxy" : "Galaxies", "Samsung");
+        }
+        DeviceSearchIndex large = builder.build();
+
+        assertEquals(List.of(100L, 200L, 300L), ids(large.search(List.of("galaxy"), 3)));
+        assertEquals(List.of(1L, 2L, 3L), ids(large.search(List.of("samsung"), 3)));
+        assertEquals(List.of(100L, 200L, 300L, 400L, 500L, 600L, 700L, 800L, 900L, 1000L, 1L, 2L),
+                ids(large.search(List.of("galaxy", "sams"), 12)));
+    }
+
+    @Test
+    void search_shouldMergePrefixesOfManyTerms() {
+        DeviceSearchIndex.Builder builder = new DeviceSearchIndex.Builder();
+        for (int id = 1; id <= 200; id++) {
+            builder.add(id, "Scanner " + (id * 7 % 200), id % 2 == 0 ? "Zebra" : "Honeywell");
+        }
+        DeviceSearchIndex scanners = builder.build();
+
+        // the numbers are 0-199 once each: 1, 10-19 and 100-199 start with 1, the even ones are the Zebras'
+        List<DeviceSearchIndex.Hit> hits = scanners.search(List.of("1", "zebra"), 200);
+        assertEquals(55, hits.size());
+        // 14, 112 and 126
+        assertEquals(List.of(2L, 16L, 18L), ids(hits.subList(0, 3)));
+        assertEquals(List.of(2L, 16L), ids(scanners.search(List.of("scan", "1", "zeb"), 2)));
+    }
+
+    @Test
+    void hide_shouldLeaveTheDeviceOut() {
+        index.hide(3);
+        index.hide(42);
+
+        assertEquals(List.of(2L, 5L), ids(index.search(List.of("galaxy"), 10)));
+    }
+
+    @Test
+    void builder_shouldRejectIdsOutOfOrder() {
+        DeviceSearchIndex.Builder builder = new DeviceSearchIndex.Builder().add(2, "Pixel", "Google");
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(1, "Pixel", "Google"));
+    }
+
+    @Test
+    void emptyIndex_shouldFindNothing() {
+        assertEquals(List.of(), DeviceSearchIndex.EMPTY.search(List.of("pixel"), 10));
+        assertEquals(2, new DeviceSearchIndex.Builder().add(1, null, "Google").add(2, "", null).build().size());
+    }
+
+    private static List<Long> ids(List<DeviceSearchIndex.Hit> hits) {
+        return hits.stream().map(DeviceSearchIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.assessment.service;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.AnalyticsDimension;
+import com.example.assessment.model.DeviceAnalytics;
+import com.example.assessment.model.DeviceAnalyticsQuery;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.repository.DeviceSnapshotRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceAnalyticsServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 1, 10, 9, 0);
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DeviceAnalyticsService deviceAnalyticsService;
+
+    @BeforeEach
+    void setUp() {
+        deviceAnalyticsService = new DeviceAnalyticsService(deviceRepository, transactionManager, 2, 100);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @AfterEach
+    void tearDown() {
+        deviceAnalyticsService.stopScans();
+    }
+
+    @Test
+    void analyze_shouldCountTheSnapshot() {
+        when(deviceRepository.streamSnapshotRowsBy()).thenReturn(Stream.of(
+                new DeviceSnapshotRow(1L, "Pixel 7", "Google", DeviceState.AVAILABLE, CREATED),
+                new DeviceSnapshotRow(2L, "Pixel 8", "Google", DeviceState.IN_USE, CREATED),
+                new DeviceSnapshotRow(3L, "iPhone 16", "Apple", DeviceState.IN_USE, CREATED)));
+        deviceAnalyticsService.rebuild();
+
+        DeviceAnalytics analytics = deviceAnalyticsService.analyze(query(AnalyticsDimension.BRAND));
+
+        assertEquals(3, analytics.getTotal());
+        assertEquals(Map.of("Apple", 1L, "Google", 2L), counts(analytics, "brand"));
+        assertNotNull(analytics.getSnapshotAt());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void onDeviceChanged_shouldCountChangesBeforeTheNextRebuild() {
+        when(deviceRepository.streamSnapshotRowsBy()).thenReturn(Stream.of(
+                new DeviceSnapshotRow(1L, "Pixel 7", "Google", DeviceState.AVAILABLE, CREATED),
+                new DeviceSnapshotRow(2L, "Pixel 8", "Google", DeviceState.AVAILABLE, CREATED)));
+        deviceAnalyticsService.rebuild();
+
+        deviceAnalyticsService.onDeviceChanged(DeviceChangedEvent.created(device(3L, DeviceState.AVAILABLE, 0L)));
+        deviceAnalyticsService.onDeviceChanged(DeviceChangedEvent.updated(device(1L, DeviceState.AVAILABLE, 0L), device(1L, DeviceState.IN_USE, 1L)));
+        deviceAnalyticsService.onDeviceChanged(DeviceChangedEvent.deleted(device(2L, DeviceState.AVAILABLE, 0L)));
+
+        assertEquals(Map.of(DeviceState.AVAILABLE, 1L, DeviceState.IN_USE, 1L),
+                counts(deviceAnalyticsService.analyze(query(AnalyticsDimension.STATE)), "state"));
+    }
+
+    @Test
+    void onDeviceChanged_shouldKeepTheNewestVersion() {
+        deviceAnalyticsService.onDeviceChanged(DeviceChangedEvent.updated(device(1L, DeviceState.AVAILABLE, 0L), device(1L, DeviceState.INACTIVE, 2L)));
+        // an older update whose listener ran late
+        deviceAnalyticsService.onDeviceChanged(DeviceChangedEvent.updated(device(1L, DeviceState.AVAILABLE, 0L), device(1L, DeviceState.IN_USE, 1L)));
+
+        assertEquals(Map.of(DeviceState.INACTIVE, 1L), counts(deviceAnalyticsService.analyze(query(AnalyticsDimension.STATE)), "state"));
+    }
+
+    @Test
+    void onDeviceChanged_shouldReadTheSnapshotEarlyPastMaxChanges() {
+        deviceAnalyticsService.stopScans();
+        deviceAnalyticsService = new DeviceAnalyticsService(deviceRepository, transactionManager, 2, 1);
+        when(deviceRepository.streamSnapshotRowsBy())
+                .thenReturn(Stream.of(new DeviceSnapshotRow(1L, "Pixel 1", "Google", DeviceState.AVAILABLE, CREATED)))
+                .thenReturn(Stream.of(new DeviceSnapshotRow(1L, "Pixel 1", "Google", DeviceState.AVAILABLE, CREATED),
+                        new DeviceSnapshotRow(2L, "Pixel 2", "Google", DeviceState.AVAILABLE, CREATED),
+                        new DeviceSnapshotRow(3L, "Pixel 3", "Google", DeviceState.AVAILABLE, CREATED)));
+        deviceAnalyticsService.rebuild();
+
+        deviceAnalyticsService.onDeviceChanged(DeviceChangedEvent.created(device(2L, DeviceState.AVAILABLE, 0L)));
+        verify(deviceRepository, after(100).times(1)).streamSnapshotRowsBy();
+        deviceAnalyticsService.onDeviceChanged(DeviceChangedEvent.created(device(3L, DeviceState.AVAILABLE, 0L)));
+
+        verify(deviceRepository, timeout(5000).times(2)).streamSnapshotRowsBy();
+        verify(transactionManager, timeout(5000).times(2)).commit(any());
+    }
+
+    @Test
+    void rebuild_shouldKeepTheSnapshotWhenTheQueryFails() {
+        when(deviceRepository.streamSnapshotRowsBy())
+                .thenReturn(Stream.of(new DeviceSnapshotRow(1L, "Pixel 8", "Google", DeviceState.AVAILABLE, CREATED)))
+                .thenThrow(new IllegalStateException("down"));
+        deviceAnalyticsService.rebuild();
+
+        deviceAnalyticsService.rebuild();
+
+        assertEquals(1, deviceAnalyticsService.analyze(query(AnalyticsDimension.BRAND)).getTotal());
+        verify(transactionManager).rollback(any());
+    }
+
+    private static DeviceAnalyticsQuery query(AnalyticsDimension dimension) {
+        DeviceAnalyticsQuery query = new DeviceAnalyticsQuery();
+        query.setGroupBy(List.of(dimension));
+        return query;
+    }
+
+    private static Map<Object, Long> counts(DeviceAnalytics analytics, String dimension) {
+        return analytics.getGroups().stream()
+                .collect(Collectors.toMap(group -> group.getKey().get(dimension), DeviceAnalytics.Group::getCount));
+    }
+
+    private static DeviceDTO device(Long id, DeviceState state, Long version) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(id);
+        dto.setName("Pixel " + id);
+        dto.setBrand("Google");
+        dto.setState(state);
+        dto.setCreationTime(CREATED);
+        dto.setVersion(version);
+        return dto;
+    }
+}
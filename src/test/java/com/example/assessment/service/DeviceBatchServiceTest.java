@@ -0,0 +1,179 @@
+package com.example.assessment.service;
+
+import com.example.assessment.cache.DeviceCache;
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.exception.InvalidBatchOperationException;
+import com.example.assessment.model.BatchOperationType;
+import com.example.assessment.model.DeviceBatchItemResult;
+import com.example.assessment.model.DeviceBatchOperation;
+import com.example.assessment.model.DeviceBatchResponse;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceBatchServiceTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DeviceBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        batchService = new DeviceBatchService(deviceRepository,
+                new DeviceCache(true, 100, Duration.ofMinutes(5), DeviceCache.Store.HEAP, new SimpleMeterRegistry()), eventPublisher, transactionManager, 2);
+    }
+
+    @Test
+    void applyAll_shouldReportPerItemResultsAndKeepInUseRules() {
+        DeviceEntity inUse = entity(1L, DeviceState.IN_USE);
+        DeviceEntity available = entity(2L, DeviceState.AVAILABLE);
+        when(deviceRepository.findAllById(any())).thenReturn(List.of(inUse, available));
+        when(deviceRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<DeviceEntity> created = invocation.getArgument(0);
+            created.forEach(e -> e.setId(10L));
+            return created;
+        });
+
+        DeviceBatchResponse response = batchService.applyAll(List.of(
+                operation(BatchOperationType.CREATE, null, "Phone", "Brand"),
+                operation(BatchOperationType.UPDATE, 1L, "Renamed", null),
+                operation(BatchOperationType.DELETE, 1L, null, null),
+                operation(BatchOperationType.DELETE, 2L, null, null)));
+
+        assertEquals(4, response.getTotal());
+        assertEquals(2, response.getSucceeded());
+        List<DeviceBatchItemResult> results = response.getResults();
+        assertEquals(201, results.get(0).getStatus());
+        assertEquals(10L, results.get(0).getId());
+        assertEquals(400, results.get(1).getStatus());
+        assertEquals(400, results.get(2).getStatus());
+        assertEquals(204, results.get(3).getStatus());
+        assertEquals(3, results.get(3).getIndex());
+        assertEquals("In Use", inUse.getName());
+        verify(deviceRepository).deleteAll(List.of(available));
+        // one created, one deleted; rejected items don't publish anything
+        verify(eventPublisher, times(2)).publishEvent(any(DeviceChangedEvent.class));
+    }
+
+    @Test
+    void applyAll_shouldRejectInvalidOperationsWithoutTouchingOthers() {
+        when(deviceRepository.findAllById(any())).thenReturn(List.of());
+        when(deviceRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DeviceBatchResponse response = batchService.applyAll(List.of(
+                operation(BatchOperationType.CREATE, null, null, "Brand"),
+                operation(BatchOperationType.UPDATE, 99L, "Name", null),
+                operation(null, 1L, null, null)));
+
+        assertEquals(0, response.getSucceeded());
+        assertEquals(400, response.getResults().get(0).getStatus());
+        assertEquals(404, response.getResults().get(1).getStatus());
+        assertEquals(400, response.getResults().get(2).getStatus());
+    }
+
+    @Test
+    void apply_shouldFailWholeChunkWhenDatabaseRejectsIt() {
+        when(deviceRepository.findAllById(any())).thenReturn(List.of());
+        when(deviceRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("boom"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        List<List<DeviceBatchItemResult>> chunks = new ArrayList<>();
+
+        long applied = batchService.apply(List.of(
+                operation(BatchOperationType.CREATE, null, "A", "Brand"),
+                operation(BatchOperationType.CREATE, null, "B", "Brand"),
+                operation(BatchOperationType.CREATE, null, "C", "Brand")).iterator(), chunks::add);
+
+        assertEquals(3, applied);
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).stream().allMatch(r -> r.getStatus() == 500 && r.getId() == null));
+        assertEquals(201, chunks.get(1).get(0).getStatus());
+        assertEquals(2, chunks.get(1).get(0).getIndex());
+    }
+
+    @Test
+    void apply_shouldReportUnreadableOperationInPlaceAndApplyTheRest() {
+        when(deviceRepository.findAllById(any())).thenReturn(List.of());
+        when(deviceRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Iterator<DeviceBatchOperation> valid = List.of(
+                operation(BatchOperationType.CREATE, null, "A", "Brand"),
+                operation(BatchOperationType.CREATE, null, "C", "Brand")).iterator();
+        // the second operation can't be read, as a malformed NDJSON line
+        Iterator<DeviceBatchOperation> operations = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < 3;
+            }
+
+            @Override
+            public DeviceBatchOperation next() {
+                if (next++ == 1) {
+                    throw new InvalidBatchOperationException("Line 2 is not a valid operation");
+                }
+                return valid.next();
+            }
+        };
+        List<List<DeviceBatchItemResult>> chunks = new ArrayList<>();
+
+        long applied = batchService.apply(operations, chunks::add);
+
+        assertEquals(3, applied);
+        assertEquals(2, chunks.size());
+        assertEquals(201, chunks.get(0).get(0).getStatus());
+        assertEquals(400, chunks.get(0).get(1).getStatus());
+        assertEquals(1, chunks.get(0).get(1).getIndex());
+        assertEquals("Line 2 is not a valid operation", chunks.get(0).get(1).getError());
+        assertEquals(201, chunks.get(1).get(0).getStatus());
+        verify(deviceRepository, times(2)).saveAll(anyList());
+    }
+
+    private DeviceBatchOperation operation(BatchOperationType type, Long id, String name, String brand) {
+        DeviceBatchOperation op = new DeviceBatchOperation();
+        op.setOp(type);
+        op.setId(id);
+        op.setName(name);
+        op.setBrand(brand);
+        if (type == BatchOperationType.CREATE) {
+            op.setState(DeviceState.AVAILABLE);
+        }
+        return op;
+    }
+
+    private DeviceEntity entity(Long id, DeviceState state) {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(id);
+        entity.setName("In Use");
+        entity.setBrand("Brand");
+        entity.setState(state);
+        return entity;
+    }
+}
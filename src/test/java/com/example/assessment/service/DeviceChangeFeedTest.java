@@ -0,0 +1,97 @@
+package com.example.assessment.service;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.exception.ChangesExpiredException;
+import com.example.assessment.model.DeviceChangeBatch;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceChangeFeedTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DeviceChangeFeed feed = new DeviceChangeFeed(3, registry);
+
+    @Test
+    void awaitAfter_shouldReturnChangesInSequenceOrder() throws Exception {
+        long start = feed.latestSequence();
+        feed.onDeviceChanged(DeviceChangedEvent.created(device(1L, 0L, DeviceState.AVAILABLE)));
+        feed.onDeviceChanged(DeviceChangedEvent.updated(device(1L, 0L, DeviceState.AVAILABLE), device(1L, 1L, DeviceState.IN_USE)));
+        feed.onDeviceChanged(DeviceChangedEvent.deleted(device(2L, 4L, DeviceState.INACTIVE)));
+
+        DeviceChangeBatch batch = feed.awaitAfter(start, 2, Duration.ZERO);
+
+        assertEquals(2, batch.getChanges().size());
+        assertEquals(start + 1, batch.getChanges().get(0).getSequence());
+        assertEquals(DeviceChangedEvent.Type.CREATED, batch.getChanges().get(0).getType());
+        assertEquals(DeviceState.IN_USE, batch.getChanges().get(1).getDevice().getState());
+        assertEquals(1L, batch.getChanges().get(1).getVersion());
+        assertEquals(start + 2, batch.getLastSequence());
+
+        DeviceChangeBatch rest = feed.awaitAfter(batch.getLastSequence(), 10, Duration.ZERO);
+        assertEquals(1, rest.getChanges().size());
+        // deletes carry the device as it was
+        assertEquals(2L, rest.getChanges().get(0).getId());
+        assertEquals(DeviceState.INACTIVE, rest.getChanges().get(0).getDevice().getState());
+    }
+
+    @Test
+    void awaitAfter_shouldReturnEmptyBatchWhenNothingHappens() throws Exception {
+        long start = feed.latestSequence();
+
+        DeviceChangeBatch batch = feed.awaitAfter(start, 10, Duration.ofMillis(20));
+
+        assertTrue(batch.getChanges().isEmpty());
+        assertEquals(start, batch.getLastSequence());
+    }
+
+    @Test
+    void awaitAfter_shouldWakeUpOnNextChange() throws Exception {
+        long start = feed.latestSequence();
+        CompletableFuture<DeviceChangeBatch> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return feed.awaitAfter(start, 10, Duration.ofSeconds(10));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (registry.get("device.changes.waiting").gauge().value() == 0) {
+            Thread.onSpinWait();
+        }
+
+        feed.onDeviceChanged(DeviceChangedEvent.created(device(1L, 0L, DeviceState.AVAILABLE)));
+
+        assertEquals(1, waiting.get(5, TimeUnit.SECONDS).getChanges().size());
+    }
+
+    @Test
+    void awaitAfter_shouldRejectSequencesNoLongerRetained() {
+        long start = feed.latestSequence();
+        for (long i = 0; i < 4; i++) {
+            feed.onDeviceChanged(DeviceChangedEvent.created(device(i, 0L, DeviceState.AVAILABLE)));
+        }
+
+        // the buffer holds 3, so the first change after start is gone
+        assertThrows(ChangesExpiredException.class, () -> feed.awaitAfter(start, 10, Duration.ZERO));
+        assertDoesNotThrow(() -> feed.awaitAfter(start + 1, 10, Duration.ZERO));
+        // positions ahead of the feed come from another run
+        assertThrows(ChangesExpiredException.class, () -> feed.awaitAfter(start + 10, 10, Duration.ZERO));
+    }
+
+    private static DeviceDTO device(Long id, Long version, DeviceState state) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(id);
+        dto.setName("Device " + id);
+        dto.setBrand("Apple");
+        dto.setState(state);
+        dto.setVersion(version);
+        return dto;
+    }
+}
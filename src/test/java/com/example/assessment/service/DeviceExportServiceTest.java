@@ -0,0 +1,79 @@
+package com.example.assessment.service;
+
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.model.ExportFormat;
+import com.example.assessment.repository.DeviceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceExportServiceTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private DeviceExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new DeviceExportService(deviceRepository, entityManager, new ObjectMapper());
+    }
+
+    @Test
+    void exportDevices_shouldWriteOneJsonObjectPerLine() throws Exception {
+        when(deviceRepository.streamAllBy()).thenReturn(Stream.of(device(1L, "Phone"), device(2L, "Tablet")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportDevices(ExportFormat.NDJSON, out);
+
+        assertEquals(2, count);
+        assertEquals("""
+                {"id":1,"name":"Phone","brand":"Brand","state":"AVAILABLE","creationTime":"2025-10-24T10:00:00"}
+                {"id":2,"name":"Tablet","brand":"Brand","state":"AVAILABLE","creationTime":"2025-10-24T10:00:00"}
+                """, out.toString(StandardCharsets.UTF_8));
+        verify(entityManager, times(2)).detach(any());
+    }
+
+    @Test
+    void exportDevices_shouldQuoteCsvFieldsWhenNeeded() throws Exception {
+        when(deviceRepository.streamAllBy()).thenReturn(Stream.of(device(1L, "Phone, \"mini\"")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportDevices(ExportFormat.CSV, out);
+
+        assertEquals("""
+                id,name,brand,state,creationTime
+                1,"Phone, ""mini\"\"",Brand,AVAILABLE,2025-10-24T10:00:00
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    private DeviceEntity device(Long id, String name) {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(id);
+        entity.setName(name);
+        entity.setBrand("Brand");
+        entity.setState(DeviceState.AVAILABLE);
+        entity.setCreationTime(LocalDateTime.of(2025, 10, 24, 10, 0));
+        return entity;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.assessment.service;
+
+import com.example.assessment.entity.DeviceEntity;
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DevicePage;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DeviceRepository;
+import com.example.assessment.repository.DeviceSearchText;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceSearchServiceTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DeviceSearchService deviceSearchService;
+
+    @BeforeEach
+    void setUp() {
+        deviceSearchService = new DeviceSearchService(deviceRepository, transactionManager, 5, 100);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        // findAllById hands back whatever is asked for, in no particular order
+        lenient().when(deviceRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<DeviceEntity> entities = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                entities.add(0, entity(id));
+            }
+            return entities;
+        });
+    }
+
+    @Test
+    void search_shouldRankFromTheRebuiltIndexAndLoadThePage() {
+        when(deviceRepository.streamSearchTextBy()).thenReturn(Stream.of(
+                new DeviceSearchText(1L, "Galaxies", "Samsung"),
+                new DeviceSearchText(2L, "Galaxy S24", "Samsung"),
+                new DeviceSearchText(3L, "Pixel 8", "Google")));
+        deviceSearchService.rebuild();
+
+        DevicePage<DeviceDTO> page = deviceSearchService.search("GALAXY", PageRequest.of(0, 20));
+
+        assertEquals(List.of(2L, 1L), ids(page));
+        assertFalse(page.isHasNext());
+        assertNull(page.getTotalElements());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void onDeviceChanged_shouldFindChangesBeforeTheNextRebuild() {
+        when(deviceRepository.streamSearchTextBy()).thenReturn(Stream.of(
+                new DeviceSearchText(1L, "Pixel 7", "Google"),
+                new DeviceSearchText(2L, "Pixel 8", "Google")));
+        deviceSearchService.rebuild();
+
+        deviceSearchService.onDeviceChanged(DeviceChangedEvent.created(device(3L, "Pixel 9", 0L)));
+        deviceSearchService.onDeviceChanged(DeviceChangedEvent.updated(device(1L, "Pixel 7", 0L), device(1L, "Nexus 5", 1L)));
+        deviceSearchService.onDeviceChanged(DeviceChangedEvent.deleted(device(2L, "Pixel 8", 0L)));
+
+        assertEquals(List.of(3L), ids(deviceSearchService.search("pixel", PageRequest.of(0, 20))));
+        assertEquals(List.of(1L), ids(deviceSearchService.search("nexus", PageRequest.of(0, 20))));
+    }
+
+    @Test
+    void onDeviceChanged_shouldKeepTheNewestVersion() {
+        deviceSearchService.onDeviceChanged(DeviceChangedEvent.updated(device(1L, "Pixel 7", 0L), device(1L, "Pixel 8", 2L)));
+        // an older update whose listener ran late
+        deviceSearchService.onDeviceChanged(DeviceChangedEvent.updated(device(1L, "Pixel 6", 0L), device(1L, "Pixel 7", 1L)));
+
+        assertEquals(List.of(1L), ids(deviceSearchService.search("pixel 8", PageRequest.of(0, 20))));
+        assertEquals(List.of(), ids(deviceSearchService.search("pixel 7", PageRequest.of(0, 20))));
+    }
+
+    @Test
+    void onDeviceChanged_shouldRebuildEarlyPastMaxChanges() {
+        deviceSearchService = new DeviceSearchService(deviceRepository, transactionManager, 5, 1);
+        when(deviceRepository.streamSearchTextBy())
+                .thenReturn(Stream.of(new DeviceSearchText(1L, "Pixel 7", "Google")))
+                .thenReturn(Stream.of(new DeviceSearchText(1L, "Pixel 7", "Google"),
+                        new DeviceSearchText(2L, "Pixel 8", "Google"),
+                        new DeviceSearchText(3L, "Pixel 9", "Google")));
+        deviceSearchService.rebuild();
+
+        deviceSearchService.onDeviceChanged(DeviceChangedEvent.created(device(2L, "Pixel 8", 0L)));
+        verify(deviceRepository, after(100).times(1)).streamSearchTextBy();
+        deviceSearchService.onDeviceChanged(DeviceChangedEvent.created(device(3L, "Pixel 9", 0L)));
+
+        verify(deviceRepository, timeout(5000).times(2)).streamSearchTextBy();
+        verify(transactionManager, timeout(5000).times(2)).commit(any());
+    }
+
+    @Test
+    void search_shouldStopPagingAtMaxResults() {
+        List<DeviceSearchText> devices = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            devices.add(new DeviceSearchText(id, "Pixel " + id, "Google"));
+        }
+        when(deviceRepository.streamSearchTextBy()).thenReturn(devices.stream());
+        deviceSearchService.rebuild();
+
+        DevicePage<DeviceDTO> first = deviceSearchService.search("pixel", PageRequest.of(0, 3));
+        DevicePage<DeviceDTO> second = deviceSearchService.search("pixel", PageRequest.of(1, 3));
+        DevicePage<DeviceDTO> beyond = deviceSearchService.search("pixel", PageRequest.of(2, 3));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(first));
+        assertTrue(first.isHasNext());
+        assertEquals(List.of(4L, 5L), ids(second));
+        assertFalse(second.isHasNext());
+        assertEquals(List.of(), ids(beyond));
+    }
+
+    @Test
+    void search_shouldNotQueryTheDatabaseWithoutMatches() {
+        DevicePage<DeviceDTO> page = deviceSearchService.search(" -- ", PageRequest.of(0, 20));
+
+        assertEquals(List.of(), page.getContent());
+        verifyNoInteractions(deviceRepository);
+    }
+
+    @Test
+    void rebuild_shouldKeepTheIndexWhenTheQueryFails() {
+        when(deviceRepository.streamSearchTextBy())
+                .thenReturn(Stream.of(new DeviceSearchText(1L, "Pixel 8", "Google")))
+                .thenThrow(new IllegalStateException("down"));
+        deviceSearchService.rebuild();
+
+        deviceSearchService.rebuild();
+
+        assertEquals(List.of(1L), ids(deviceSearchService.search("pixel", PageRequest.of(0, 20))));
+        verify(transactionManager).rollback(any());
+    }
+
+    private static List<Long> ids(DevicePage<DeviceDTO> page) {
+        return page.getContent().stream().map(DeviceDTO::getId).toList();
+    }
+
+    private static DeviceDTO device(Long id, String name, Long version) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setBrand("Google");
+        dto.setState(DeviceState.AVAILABLE);
+        dto.setVersion(version);
+        return dto;
+    }
+
+    private static DeviceEntity entity(Long id) {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(id);
+        entity.setName("Device " + id);
+        entity.setState(DeviceState.AVAILABLE);
+        return entity;
+    }
+}
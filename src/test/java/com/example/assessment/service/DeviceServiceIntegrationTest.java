@@ -2,7 +2,9 @@ package com.example.assessment.service;
 
 import com.example.assessment.config.TestcontainersConfiguration;
 import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.model.CursorPage;
 import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceFilter;
 import com.example.assessment.entity.DeviceEntity;
 import com.example.assessment.model.DeviceState;
 import com.example.assessment.repository.DeviceRepository;
@@ -11,14 +13,23 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.TestPropertySource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @Import(TestcontainersConfiguration.class)
 @TestPropertySource(properties = {
-    "spring.jpa.hibernate.ddl-auto=create-drop"
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    // cached contexts stay alive, their relays would drain the outbox DeviceOutboxIntegrationTest checks
+    "device.outbox.relay.enabled=false"
 })
 class DeviceServiceIntegrationTest {
 
@@ -28,6 +39,9 @@ class DeviceServiceIntegrationTest {
     @Autowired
     private DeviceRepository deviceRepository;
 
+    @Autowired
+    private DeviceStatsService deviceStatsService;
+
     @BeforeEach
     void setUp() {
         deviceRepository.deleteAll();
@@ -135,4 +149,83 @@ class DeviceServiceIntegrationTest {
         assertEquals(1, result.size());
         assertEquals("Brand A", result.get(0).getBrand());
     }
+
+    @Test
+    void filterDevices_shouldCombineCriteria() {
+        for (String[] values : new String[][]{
+                {"Galaxy S24", "Samsung", "IN_USE"},
+                {"Galaxy Tab", "Samsung", "AVAILABLE"},
+                {"Galaxy_Old", "Samsung", "IN_USE"},
+                {"Pixel 8", "Google", "IN_USE"}}) {
+            DeviceDTO device = new DeviceDTO();
+            device.setName(values[0]);
+            device.setBrand(values[1]);
+            device.setState(DeviceState.valueOf(values[2]));
+            deviceService.createDevice(device);
+        }
+
+        DeviceFilter filter = new DeviceFilter();
+        filter.setBrand("Samsung");
+        filter.setState(DeviceState.IN_USE);
+        filter.setNamePrefix("Galaxy ");
+
+        var result = deviceService.filterDevices(filter, PageRequest.of(0, 10));
+
+        assertEquals(1L, result.getTotalElements());
+        assertEquals("Galaxy S24", result.getContent().get(0).getName());
+
+        // '_' is matched literally, not as a LIKE wildcard
+        filter.setState(null);
+        filter.setNamePrefix("Galaxy_");
+        result = deviceService.filterDevices(filter, PageRequest.of(0, 10));
+
+        assertEquals(1L, result.getTotalElements());
+        assertEquals("Galaxy_Old", result.getContent().get(0).getName());
+    }
+
+    @Test
+    void getStats_shouldFollowCommittedWrites() {
+        deviceStatsService.reconcile();
+
+        DeviceDTO device = new DeviceDTO();
+        device.setName("Counted");
+        device.setBrand("Stats Brand");
+        device.setState(DeviceState.AVAILABLE);
+        DeviceDTO created = deviceService.createDevice(device);
+        deviceService.checkOutDevice(created.getId());
+
+        var stats = deviceStatsService.getStats();
+        assertEquals(1, stats.getTotal());
+        assertEquals(1L, stats.getByBrandAndState().get("Stats Brand").get(DeviceState.IN_USE));
+
+        // a change made behind the service's back is picked up by the next reconciliation
+        deviceRepository.deleteAll();
+        deviceStatsService.reconcile();
+        assertEquals(0, deviceStatsService.getStats().getTotal());
+    }
+
+    @Test
+    void scrollDevices_shouldVisitDevicesWithoutANameOnce() {
+        List<Long> ids = new ArrayList<>();
+        for (String name : Arrays.asList("Delta", null, "Alpha", null, "Charlie", null, "Bravo")) {
+            DeviceDTO device = new DeviceDTO();
+            device.setName(name);
+            device.setBrand("Scroll Brand");
+            device.setState(DeviceState.AVAILABLE);
+            ids.add(deviceService.createDevice(device).getId());
+        }
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<Long> seen = new ArrayList<>();
+            String cursor = null;
+            do {
+                CursorPage<DeviceDTO> page = deviceService.scrollDevices(cursor, 2, Sort.by(direction, "name"), false);
+                page.getContent().forEach(device -> seen.add(device.getId()));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            assertEquals(ids.size(), seen.size(), direction.name());
+            assertEquals(new HashSet<>(ids), new HashSet<>(seen), direction.name());
+        }
+    }
 }
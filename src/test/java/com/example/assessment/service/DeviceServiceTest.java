@@ -1,22 +1,48 @@
 package com.example.assessment.service;
 
+import com.example.assessment.cache.DeviceCache;
+import com.example.assessment.event.DeviceChangedEvent;
 import com.example.assessment.exception.DeviceInUseException;
 import com.example.assessment.exception.DeviceNotFoundException;
+import com.example.assessment.exception.DeviceStateConflictException;
+import com.example.assessment.exception.DeviceVersionMismatchException;
+import com.example.assessment.exception.InvalidCursorException;
+import com.example.assessment.model.CursorPage;
 import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceFilter;
+import com.example.assessment.model.DevicePage;
 import com.example.assessment.entity.DeviceEntity;
 import com.example.assessment.model.DeviceState;
+import com.example.assessment.repository.DevicePatchResult;
 import com.example.assessment.repository.DeviceRepository;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +51,12 @@ class DeviceServiceTest {
     @Mock
     private DeviceRepository deviceRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private DeviceCache deviceCache = new DeviceCache(true, 100, Duration.ofMinutes(5), DeviceCache.Store.HEAP, new SimpleMeterRegistry());
+
     @InjectMocks
     private DeviceService deviceService;
 
@@ -52,6 +84,51 @@ class DeviceServiceTest {
         verify(deviceRepository, times(1)).save(any(DeviceEntity.class));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void filterDevices_shouldQueryWithSpecificationAndMapPage() {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(7L);
+        entity.setName("Pixel");
+        entity.setBrand("Google");
+        entity.setState(DeviceState.IN_USE);
+        entity.setCreationTime(LocalDateTime.now());
+
+        DeviceFilter filter = new DeviceFilter();
+        filter.setBrand("Google");
+        filter.setState(DeviceState.IN_USE);
+        PageRequest pageable = PageRequest.of(0, 10);
+
+        when(deviceRepository.findAll(any(Specification.class), eq(pageable)))
+                .thenReturn(new PageImpl<>(List.of(entity), pageable, 1));
+
+        DevicePage<DeviceDTO> result = deviceService.filterDevices(filter, pageable);
+
+        assertEquals(1L, result.getTotalElements());
+        assertEquals(7L, result.getContent().get(0).getId());
+        assertEquals("Google", result.getContent().get(0).getBrand());
+    }
+
+    @Test
+    void getAllDevices_shouldUseSliceQueryWithoutTotal() {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(3L);
+        entity.setName("Pixel");
+        PageRequest pageable = PageRequest.of(1, 1);
+
+        when(deviceRepository.findSliceBy(pageable)).thenReturn(new SliceImpl<>(List.of(entity), pageable, true));
+
+        DevicePage<DeviceDTO> result = deviceService.getAllDevices(pageable, false);
+
+        assertEquals(3L, result.getContent().get(0).getId());
+        assertEquals(1, result.getNumber());
+        assertTrue(result.isHasNext());
+        assertNull(result.getTotalElements());
+        assertNull(result.getTotalPages());
+        verify(deviceRepository, never()).findAll(any(PageRequest.class));
+        verify(deviceRepository, never()).count();
+    }
+
     @Test
     void getDeviceById_shouldReturnDevice() {
         DeviceEntity entity = new DeviceEntity();
@@ -67,6 +144,81 @@ class DeviceServiceTest {
         assertEquals(1L, result.getId());
     }
 
+    @Test
+    void getDeviceById_shouldServeRepeatedReadsFromCache() {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(1L);
+        entity.setName("Test Device");
+        entity.setVersion(0L);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(entity));
+
+        DeviceDTO first = deviceService.getDeviceById(1L);
+        first.setName("mutated by caller");
+        DeviceDTO second = deviceService.getDeviceById(1L);
+
+        assertEquals("Test Device", second.getName());
+        verify(deviceRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getDeviceById_shouldServeRepeatedReadsFromOffHeapCache() {
+        DeviceService offHeapService = new DeviceService(deviceRepository,
+                new DeviceCache(true, 100, Duration.ofMinutes(5), DeviceCache.Store.OFF_HEAP, new SimpleMeterRegistry()), eventPublisher);
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(1L);
+        entity.setName("Test Device");
+        entity.setBrand("Test Brand");
+        entity.setState(DeviceState.IN_USE);
+        entity.setCreationTime(LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000));
+        entity.setVersion(0L);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(entity));
+
+        DeviceDTO first = offHeapService.getDeviceById(1L);
+        first.setName("mutated by caller");
+        DeviceDTO second = offHeapService.getDeviceById(1L);
+
+        assertEquals("Test Device", second.getName());
+        assertEquals(entity.getCreationTime(), second.getCreationTime());
+        assertEquals(0L, offHeapService.getDeviceVersion(1L));
+        verify(deviceRepository, times(1)).findById(1L);
+        verify(deviceRepository, never()).findVersionById(1L);
+    }
+
+    @Test
+    void deleteDevice_shouldEvictCachedDevice() {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(1L);
+        entity.setState(DeviceState.AVAILABLE);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(entity));
+        deviceService.getDeviceById(1L);
+
+        deviceService.deleteDevice(1L);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(DeviceNotFoundException.class, () -> deviceService.getDeviceById(1L));
+    }
+
+    @Test
+    void updateDevice_shouldNotReplaceCachedDeviceWithOlderVersion() {
+        DeviceDTO newer = new DeviceDTO();
+        newer.setId(1L);
+        newer.setName("Newer");
+        newer.setVersion(3L);
+        DeviceDTO older = new DeviceDTO();
+        older.setId(1L);
+        older.setName("Older");
+        older.setVersion(2L);
+
+        deviceCache.put(newer);
+        deviceCache.put(older);
+
+        assertEquals("Newer", deviceService.getDeviceById(1L).getName());
+        verify(deviceRepository, never()).findById(1L);
+    }
+
     @Test
     void getDeviceById_shouldThrowExceptionWhenNotFound() {
         when(deviceRepository.findById(1L)).thenReturn(Optional.empty());
@@ -89,13 +241,34 @@ class DeviceServiceTest {
         existing.setCreationTime(LocalDateTime.now());
 
         when(deviceRepository.findById(1L)).thenReturn(Optional.of(existing));
-        when(deviceRepository.save(any(DeviceEntity.class))).thenReturn(existing);
+        when(deviceRepository.saveAndFlush(any(DeviceEntity.class))).thenReturn(existing);
 
         DeviceDTO result = deviceService.updateDevice(1L, deviceDTO);
 
         assertNotNull(result);
         assertEquals("Updated Device", result.getName());
-        verify(deviceRepository, times(1)).save(existing);
+        verify(deviceRepository, times(1)).saveAndFlush(existing);
+    }
+
+    @Test
+    void updateDevice_shouldKeepStateWhenRequestHasNone() {
+        DeviceDTO deviceDTO = new DeviceDTO();
+        deviceDTO.setName("Updated Device");
+        deviceDTO.setBrand("Updated Brand");
+
+        DeviceEntity existing = new DeviceEntity();
+        existing.setId(1L);
+        existing.setName("Old Device");
+        existing.setBrand("Old Brand");
+        existing.setState(DeviceState.INACTIVE);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(deviceRepository.saveAndFlush(existing)).thenReturn(existing);
+
+        DeviceDTO result = deviceService.updateDevice(1L, deviceDTO);
+
+        assertEquals("Updated Brand", result.getBrand());
+        assertEquals(DeviceState.INACTIVE, result.getState());
     }
 
     @Test
@@ -112,6 +285,158 @@ class DeviceServiceTest {
         assertThrows(DeviceInUseException.class, () -> deviceService.updateDevice(1L, deviceDTO));
     }
 
+    @Test
+    void partialUpdateDevice_shouldRenameWithSingleConditionalUpdate() {
+        DeviceDTO changes = new DeviceDTO();
+        changes.setName("Renamed");
+
+        DevicePatchResult patched = new SpelAwareProxyProjectionFactory().createProjection(DevicePatchResult.class, Map.of(
+                "id", 1L, "name", "Renamed", "brand", "Brand", "state", DeviceState.AVAILABLE, "version", 2L,
+                "previousName", "Old", "previousBrand", "Brand"));
+
+        when(deviceRepository.updateNameAndBrandIfNotInUse(1L, "Renamed", null, -1L)).thenReturn(Optional.of(patched));
+
+        DeviceDTO result = deviceService.partialUpdateDevice(1L, changes);
+
+        assertEquals("Renamed", result.getName());
+        assertEquals(2L, result.getVersion());
+        verify(deviceRepository, never()).findById(any());
+        verify(deviceRepository, never()).saveAndFlush(any());
+
+        ArgumentCaptor<DeviceChangedEvent> event = ArgumentCaptor.forClass(DeviceChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("Old", event.getValue().getBefore().getName());
+        assertEquals(1L, event.getValue().getBefore().getVersion());
+        assertEquals("Renamed", event.getValue().getAfter().getName());
+    }
+
+    @Test
+    void partialUpdateDevice_shouldReportInUseWhenConditionalUpdateMatchesNothing() {
+        DeviceDTO changes = new DeviceDTO();
+        changes.setBrand("Other");
+
+        DeviceEntity existing = new DeviceEntity();
+        existing.setId(1L);
+        existing.setState(DeviceState.IN_USE);
+
+        when(deviceRepository.updateNameAndBrandIfNotInUse(1L, null, "Other", -1L)).thenReturn(Optional.empty());
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(existing));
+
+        assertThrows(DeviceInUseException.class, () -> deviceService.partialUpdateDevice(1L, changes));
+    }
+
+    @Test
+    void partialUpdateDevice_shouldAllowStateChangeOfInUseDevice() {
+        DeviceDTO changes = new DeviceDTO();
+        changes.setState(DeviceState.AVAILABLE);
+
+        DeviceEntity existing = new DeviceEntity();
+        existing.setId(1L);
+        existing.setName("Device");
+        existing.setState(DeviceState.IN_USE);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(deviceRepository.saveAndFlush(existing)).thenReturn(existing);
+
+        DeviceDTO result = deviceService.partialUpdateDevice(1L, changes);
+
+        assertEquals(DeviceState.AVAILABLE, result.getState());
+        assertEquals("Device", result.getName());
+        verify(deviceRepository, never()).updateNameAndBrandIfNotInUse(any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void partialUpdateDevice_shouldReportVersionMismatchWhenConditionalUpdateMatchesNothing() {
+        DeviceDTO changes = new DeviceDTO();
+        changes.setName("Renamed");
+
+        DeviceEntity existing = new DeviceEntity();
+        existing.setId(1L);
+        existing.setState(DeviceState.AVAILABLE);
+        existing.setVersion(6L);
+
+        when(deviceRepository.updateNameAndBrandIfNotInUse(1L, "Renamed", null, 5L)).thenReturn(Optional.empty());
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(existing));
+
+        assertThrows(DeviceVersionMismatchException.class, () -> deviceService.partialUpdateDevice(1L, changes, 5L));
+        verify(deviceRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void updateDevice_shouldRejectStaleExpectedVersion() {
+        DeviceDTO deviceDTO = new DeviceDTO();
+        deviceDTO.setState(DeviceState.AVAILABLE);
+
+        DeviceEntity existing = new DeviceEntity();
+        existing.setId(1L);
+        existing.setState(DeviceState.AVAILABLE);
+        existing.setVersion(2L);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(existing));
+
+        assertThrows(DeviceVersionMismatchException.class, () -> deviceService.updateDevice(1L, deviceDTO, 1L));
+        verify(deviceRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void getDeviceVersion_shouldPreferCacheOverVersionQuery() {
+        DeviceDTO cached = new DeviceDTO();
+        cached.setId(1L);
+        cached.setVersion(4L);
+        deviceCache.put(cached);
+
+        assertEquals(4L, deviceService.getDeviceVersion(1L));
+        verify(deviceRepository, never()).findVersionById(any());
+
+        when(deviceRepository.findVersionById(2L)).thenReturn(Optional.of(7L));
+        assertEquals(7L, deviceService.getDeviceVersion(2L));
+        when(deviceRepository.findVersionById(3L)).thenReturn(Optional.empty());
+        assertThrows(DeviceNotFoundException.class, () -> deviceService.getDeviceVersion(3L));
+    }
+
+    @Test
+    void checkOutDevice_shouldMoveAvailableDeviceToInUse() {
+        DeviceEntity checkedOut = new DeviceEntity();
+        checkedOut.setId(1L);
+        checkedOut.setState(DeviceState.IN_USE);
+        checkedOut.setVersion(1L);
+
+        when(deviceRepository.transitionState(1L, "AVAILABLE", "IN_USE")).thenReturn(Optional.of(checkedOut));
+
+        DeviceDTO result = deviceService.checkOutDevice(1L);
+
+        assertEquals(DeviceState.IN_USE, result.getState());
+        verify(deviceRepository, never()).existsById(any());
+        verify(eventPublisher).publishEvent(argThat((DeviceChangedEvent e) ->
+                e.getBefore().getState() == DeviceState.AVAILABLE && e.getAfter().getState() == DeviceState.IN_USE));
+    }
+
+    @Test
+    void checkInDevice_shouldThrowConflictWhenDeviceNotInUse() {
+        when(deviceRepository.transitionState(1L, "IN_USE", "AVAILABLE")).thenReturn(Optional.empty());
+        when(deviceRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(DeviceStateConflictException.class, () -> deviceService.checkInDevice(1L));
+    }
+
+    @Test
+    void checkInDevice_shouldThrowConflictWhenConcurrentTransitionMovedTheRow() {
+        when(deviceRepository.transitionState(1L, "IN_USE", "AVAILABLE"))
+                .thenThrow(new OptimisticLockingFailureException("tuple to be locked was already moved to another partition"));
+
+        assertThrows(DeviceStateConflictException.class, () -> deviceService.checkInDevice(1L));
+        verify(deviceRepository, never()).existsById(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void checkOutDevice_shouldThrowNotFoundWhenDeviceMissing() {
+        when(deviceRepository.transitionState(1L, "AVAILABLE", "IN_USE")).thenReturn(Optional.empty());
+        when(deviceRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(DeviceNotFoundException.class, () -> deviceService.checkOutDevice(1L));
+    }
+
     @Test
     void deleteDevice_shouldDeleteWhenNotInUse() {
         DeviceEntity entity = new DeviceEntity();
@@ -125,6 +450,19 @@ class DeviceServiceTest {
         verify(deviceRepository, times(1)).deleteById(1L);
     }
 
+    @Test
+    void deleteDevice_shouldRejectStaleExpectedVersion() {
+        DeviceEntity entity = new DeviceEntity();
+        entity.setId(1L);
+        entity.setState(DeviceState.AVAILABLE);
+        entity.setVersion(3L);
+
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(entity));
+
+        assertThrows(DeviceVersionMismatchException.class, () -> deviceService.deleteDevice(1L, 2L));
+        verify(deviceRepository, never()).deleteById(any());
+    }
+
     @Test
     void deleteDevice_shouldThrowExceptionWhenInUse() {
         DeviceEntity entity = new DeviceEntity();
@@ -135,4 +473,66 @@ class DeviceServiceTest {
 
         assertThrows(DeviceInUseException.class, () -> deviceService.deleteDevice(1L));
     }
+
+    @Test
+    void scrollDevices_shouldReturnCursorThatResumesAfterLastRow() {
+        DeviceEntity first = new DeviceEntity();
+        first.setId(7L);
+        first.setName("Alpha");
+        DeviceEntity second = new DeviceEntity();
+        second.setId(3L);
+        second.setName("Beta");
+        DeviceEntity third = new DeviceEntity();
+        third.setId(5L);
+        third.setName("Gamma");
+        Sort keysetSort = Sort.by("name").and(Sort.by("id"));
+
+        when(deviceRepository.findAfter(isNull(), eq(keysetSort), eq(3))).thenReturn(List.of(first, second, third));
+
+        CursorPage<DeviceDTO> page = deviceService.scrollDevices(null, 2, Sort.by("name"), false);
+
+        assertEquals(2, page.getContent().size());
+        assertTrue(page.isHasNext());
+        assertNull(page.getTotalElements());
+        verify(deviceRepository, never()).count();
+
+        assertEquals(Map.of("name", "Beta", "id", 3L), DeviceCursorCodec.decode(page.getNextCursor(), keysetSort));
+    }
+
+    @Test
+    void scrollDevices_shouldKeepNullKeysInCursor() {
+        DeviceEntity unnamed = new DeviceEntity();
+        unnamed.setId(4L);
+        DeviceEntity next = new DeviceEntity();
+        next.setId(9L);
+        Sort keysetSort = Sort.by("name").and(Sort.by("id"));
+
+        when(deviceRepository.findAfter(isNull(), eq(keysetSort), eq(2))).thenReturn(List.of(unnamed, next));
+
+        CursorPage<DeviceDTO> page = deviceService.scrollDevices(null, 1, Sort.by("name"), false);
+        Map<String, Object> keys = DeviceCursorCodec.decode(page.getNextCursor(), keysetSort);
+
+        assertTrue(keys.containsKey("name"));
+        assertNull(keys.get("name"));
+        assertEquals(4L, keys.get("id"));
+
+        when(deviceRepository.findAfter(eq(keys), eq(keysetSort), eq(2))).thenReturn(List.of(next));
+        CursorPage<DeviceDTO> resumed = deviceService.scrollDevices(page.getNextCursor(), 1, Sort.by("name"), false);
+        assertEquals(9L, resumed.getContent().get(0).getId());
+        assertFalse(resumed.isHasNext());
+    }
+
+    @Test
+    void scrollDevices_shouldRejectCursorIssuedForAnotherSort() {
+        String cursor = DeviceCursorCodec.encode(Map.of("name", "Beta", "id", 3L), Sort.by("name").and(Sort.by("id")));
+
+        assertThrows(InvalidCursorException.class,
+                () -> deviceService.scrollDevices(cursor, 2, Sort.by(Sort.Direction.DESC, "name"), false));
+    }
+
+    @Test
+    void scrollDevices_shouldRejectUnsupportedSortProperty() {
+        assertThrows(InvalidCursorException.class,
+                () -> deviceService.scrollDevices(null, 2, Sort.by("version"), false));
+    }
 }
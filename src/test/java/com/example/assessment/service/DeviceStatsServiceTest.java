@@ -0,0 +1,166 @@
+package com.example.assessment.service;
+
+import com.example.assessment.event.DeviceChangedEvent;
+import com.example.assessment.model.DeviceDTO;
+import com.example.assessment.model.DeviceState;
+import com.example.assessment.model.DeviceStats;
+import com.example.assessment.repository.BrandStateCount;
+import com.example.assessment.repository.DeviceCountRow;
+import com.example.assessment.repository.DeviceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceStatsServiceTest {
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DeviceStatsService deviceStatsService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void onDeviceChanged_shouldMoveDeviceBetweenCounters() {
+        DeviceDTO available = device("Apple", DeviceState.AVAILABLE);
+        DeviceDTO inUse = device("Apple", DeviceState.IN_USE);
+        DeviceDTO other = device("Google", DeviceState.AVAILABLE);
+
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(available));
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(other));
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.updated(available, inUse));
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.deleted(other));
+
+        DeviceStats stats = deviceStatsService.getStats();
+
+        assertEquals(1, stats.getTotal());
+        assertEquals(Map.of(DeviceState.IN_USE, 1L), stats.getByState());
+        assertEquals(Map.of("Apple", 1L), stats.getByBrand());
+        assertEquals(Map.of("Apple", Map.of(DeviceState.IN_USE, 1L)), stats.getByBrandAndState());
+        verifyNoInteractions(deviceRepository);
+    }
+
+    @Test
+    void reconcile_shouldReplaceCountersWithDatabaseCounts() {
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(device("Stale", DeviceState.AVAILABLE)));
+        when(deviceRepository.countByBrandAndState()).thenReturn(List.of(
+                count("Apple", DeviceState.AVAILABLE, 5),
+                count("Apple", DeviceState.INACTIVE, 2),
+                count("Google", DeviceState.IN_USE, 1)));
+
+        deviceStatsService.reconcile();
+        DeviceStats stats = deviceStatsService.getStats();
+
+        assertEquals(8, stats.getTotal());
+        assertEquals(7L, stats.getByBrand().get("Apple"));
+        assertEquals(5L, stats.getByState().get(DeviceState.AVAILABLE));
+        assertFalse(stats.getByBrand().containsKey("Stale"));
+        assertNotNull(stats.getReconciledAt());
+    }
+
+    @Test
+    void reconcile_shouldKeepCountersWhenQueryFails() {
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(device("Apple", DeviceState.AVAILABLE)));
+        when(deviceRepository.countByBrandAndState()).thenThrow(new IllegalStateException("down"));
+
+        deviceStatsService.reconcile();
+
+        assertEquals(1, deviceStatsService.getStats().getTotal());
+        assertNull(deviceStatsService.getStats().getReconciledAt());
+    }
+
+    @Test
+    void reconcile_shouldNotCountWritesTheSnapshotAlreadyHas() {
+        // committed before the GROUP BY read its snapshot, the listener runs while it's still counting
+        when(deviceRepository.countByBrandAndState()).thenAnswer(invocation -> {
+            deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(device(2L, "Apple", DeviceState.AVAILABLE, 0L)));
+            deviceStatsService.onDeviceChanged(DeviceChangedEvent.updated(
+                    device(1L, "Apple", DeviceState.AVAILABLE, 0L), device(1L, "Apple", DeviceState.IN_USE, 1L)));
+            return List.of(count("Apple", DeviceState.AVAILABLE, 1), count("Apple", DeviceState.IN_USE, 1));
+        });
+        when(deviceRepository.findCountRowsByIdIn(anyCollection())).thenReturn(List.of(
+                new DeviceCountRow(1L, "Apple", DeviceState.IN_USE, 1L),
+                new DeviceCountRow(2L, "Apple", DeviceState.AVAILABLE, 0L)));
+
+        deviceStatsService.reconcile();
+        DeviceStats stats = deviceStatsService.getStats();
+
+        assertEquals(2, stats.getTotal());
+        assertEquals(Map.of("Apple", Map.of(DeviceState.AVAILABLE, 1L, DeviceState.IN_USE, 1L)), stats.getByBrandAndState());
+    }
+
+    @Test
+    void reconcile_shouldApplyWritesTheSnapshotDoesNotHave() {
+        // committed after the GROUP BY read its snapshot
+        when(deviceRepository.countByBrandAndState()).thenAnswer(invocation -> {
+            deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(device(3L, "Google", DeviceState.AVAILABLE, 0L)));
+            deviceStatsService.onDeviceChanged(DeviceChangedEvent.updated(
+                    device(1L, "Apple", DeviceState.AVAILABLE, 0L), device(1L, "Apple", DeviceState.IN_USE, 1L)));
+            deviceStatsService.onDeviceChanged(DeviceChangedEvent.deleted(device(2L, "Apple", DeviceState.AVAILABLE, 0L)));
+            return List.of(count("Apple", DeviceState.AVAILABLE, 2));
+        });
+        when(deviceRepository.findCountRowsByIdIn(anyCollection())).thenReturn(List.of(
+                new DeviceCountRow(1L, "Apple", DeviceState.AVAILABLE, 0L),
+                new DeviceCountRow(2L, "Apple", DeviceState.AVAILABLE, 0L)));
+
+        deviceStatsService.reconcile();
+        DeviceStats stats = deviceStatsService.getStats();
+
+        assertEquals(2, stats.getTotal());
+        assertEquals(Map.of("Apple", Map.of(DeviceState.IN_USE, 1L), "Google", Map.of(DeviceState.AVAILABLE, 1L)),
+                stats.getByBrandAndState());
+    }
+
+    @Test
+    void getStats_shouldBeSharedUntilTheNextChange() {
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(device("Apple", DeviceState.AVAILABLE)));
+        DeviceStats stats = deviceStatsService.getStats();
+
+        assertSame(stats, deviceStatsService.getStats());
+        assertThrows(UnsupportedOperationException.class, () -> stats.getByBrand().put("Google", 1L));
+        deviceStatsService.onDeviceChanged(DeviceChangedEvent.created(device("Google", DeviceState.AVAILABLE)));
+        assertEquals(2, deviceStatsService.getStats().getTotal());
+        assertEquals(1, stats.getTotal());
+    }
+
+    private static DeviceDTO device(String brand, DeviceState state) {
+        return device(1L, brand, state, null);
+    }
+
+    private static DeviceDTO device(Long id, String brand, DeviceState state, Long version) {
+        DeviceDTO dto = new DeviceDTO();
+        dto.setId(id);
+        dto.setName("Device");
+        dto.setBrand(brand);
+        dto.setState(state);
+        dto.setVersion(version);
+        return dto;
+    }
+
+    private static BrandStateCount count(String brand, DeviceState state, long count) {
+        return new SpelAwareProxyProjectionFactory().createProjection(BrandStateCount.class,
+                Map.of("brand", brand, "state", state, "count", count));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.assessment.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotWithChangesTest {
+
+    private final AtomicInteger earlyReads = new AtomicInteger();
+    // the snapshot here is just the ids hidden in it
+    private SnapshotWithChanges<Set<Long>, String> snapshots;
+
+    @BeforeEach
+    void setUp() {
+        snapshots = new SnapshotWithChanges<>(ConcurrentHashMap.newKeySet(), Set::add, 3, earlyReads::incrementAndGet);
+    }
+
+    @Test
+    void apply_shouldHideTheDeviceAndKeepItsNewestVersion() {
+        snapshots.apply(1L, 2, "Pixel 8");
+        // an older update whose listener ran late
+        snapshots.apply(1L, 1, "Pixel 7");
+        snapshots.apply(2L, 0, "Nexus 5");
+        snapshots.apply(2L, Long.MAX_VALUE, null);
+
+        assertEquals(Set.of(1L, 2L), snapshots.current().snapshot());
+        assertEquals(Map.of(1L, "Pixel 8"), snapshots.current().changes());
+    }
+
+    @Test
+    void changes_shouldOnlyBeCopiedAgainAfterAChange() {
+        snapshots.apply(1L, 0, "Pixel 8");
+        Map<Long, String> changes = snapshots.current().changes();
+
+        assertSame(changes, snapshots.current().changes());
+        snapshots.apply(2L, 0, "Pixel 9");
+        assertEquals(Map.of(1L, "Pixel 8", 2L, "Pixel 9"), snapshots.current().changes());
+    }
+
+    @Test
+    void read_shouldKeepOnlyTheChangesCommittedWhileReading() {
+        snapshots.apply(1L, 0, "Pixel 8");
+
+        Set<Long> read = snapshots.read(() -> {
+            snapshots.apply(2L, 0, "Pixel 9");
+            return ConcurrentHashMap.newKeySet();
+        });
+        snapshots.apply(3L, 0, "Pixel 10");
+
+        assertSame(read, snapshots.current().snapshot());
+        assertEquals(Set.of(2L, 3L), read);
+        assertEquals(Map.of(2L, "Pixel 9", 3L, "Pixel 10"), snapshots.current().changes());
+        assertNotNull(snapshots.current().readAt());
+    }
+
+    @Test
+    void read_shouldKeepTheSnapshotAndItsChangesWhenItFails() {
+        Set<Long> before = snapshots.current().snapshot();
+        snapshots.apply(1L, 0, "Pixel 8");
+
+        assertThrows(IllegalStateException.class, () -> snapshots.read(() -> {
+            throw new IllegalStateException("down");
+        }));
+
+        assertSame(before, snapshots.current().snapshot());
+        assertEquals(Map.of(1L, "Pixel 8"), snapshots.current().changes());
+        assertNotNull(snapshots.read(ConcurrentHashMap::newKeySet));
+    }
+
+    @Test
+    void read_shouldBeSkippedWhileAnotherOneRuns() {
+        Set<Long> read = snapshots.read(() -> {
+            assertNull(CompletableFuture.supplyAsync(() -> snapshots.read(ConcurrentHashMap::newKeySet)).join());
+            return ConcurrentHashMap.newKeySet();
+        });
+
+        assertSame(read, snapshots.current().snapshot());
+    }
+
+    @Test
+    void apply_shouldAskForOneEarlyReadPastMaxChanges() {
+        for (long id = 1; id <= 5; id++) {
+            snapshots.apply(id, 0, "Pixel " + id);
+        }
+        assertEquals(1, earlyReads.get());
+
+        snapshots.read(ConcurrentHashMap::newKeySet);
+        for (long id = 1; id <= 3; id++) {
+            snapshots.apply(id, 1, "Pixel " + id);
+        }
+        assertEquals(1, earlyReads.get());
+        snapshots.apply(4L, 1, "Pixel 4");
+        assertEquals(2, earlyReads.get());
+    }
+}
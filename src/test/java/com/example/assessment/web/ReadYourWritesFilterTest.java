@@ -0,0 +1,67 @@
+package com.example.assessment.web;
+
+import com.example.assessment.datasource.ReadRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(3));
+
+    @Test
+    void write_shouldRunPinnedAndSetCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean pinned = new AtomicBoolean();
+        long before = System.currentTimeMillis();
+
+        filter.doFilter(new MockHttpServletRequest("PATCH", "/api/v1/devices/1"), response, recordPinned(pinned));
+
+        assertThat(pinned).isTrue();
+        assertThat(ReadRouting.isPinnedToPrimary()).isFalse();
+        String cookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertThat(cookie).startsWith(ReadYourWritesFilter.COOKIE + "=").contains("Max-Age=3", "HttpOnly", "SameSite=Lax");
+        long until = Long.parseLong(cookie.substring(cookie.indexOf('=') + 1, cookie.indexOf(';')));
+        assertThat(until).isBetween(before + 3000, System.currentTimeMillis() + 3000);
+    }
+
+    @Test
+    void readWithinWindow_shouldRunPinned() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/devices/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() + 3000)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        filter.doFilter(request, response, recordPinned(pinned));
+
+        assertThat(pinned).isTrue();
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+
+    @Test
+    void readAfterWindowOrWithoutCookie_shouldNotBePinned() throws Exception {
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/api/v1/devices");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() - 1)));
+        MockHttpServletRequest garbled = new MockHttpServletRequest("GET", "/api/v1/devices");
+        garbled.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, "soon"));
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{
+                expired, garbled, new MockHttpServletRequest("GET", "/api/v1/devices")}) {
+            filter.doFilter(request, new MockHttpServletResponse(), recordPinned(pinned));
+            assertThat(pinned).isFalse();
+        }
+    }
+
+    private static FilterChain recordPinned(AtomicBoolean pinned) {
+        return (request, response) -> pinned.set(ReadRouting.isPinnedToPrimary());
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.assessment.web;
+
+import com.github.luben.zstd.ZstdInputStream;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ResponseCompressionFilterTest {
+
+    private final ResponseCompressionFilter filter = new ResponseCompressionFilter(1024,
+            List.of(MediaType.APPLICATION_JSON_VALUE, "text/csv"), 3);
+
+    @Test
+    void negotiate_shouldPreferZstdAndHonourQValues() {
+        assertThat(ResponseCompressionFilter.negotiate("gzip, deflate, br, zstd")).isEqualTo("zstd");
+        assertThat(ResponseCompressionFilter.negotiate("gzip")).isEqualTo("gzip");
+        assertThat(ResponseCompressionFilter.negotiate("zstd;q=0, gzip")).isEqualTo("gzip");
+        assertThat(ResponseCompressionFilter.negotiate("gzip;q=0.8, zstd;q=0.5")).isEqualTo("gzip");
+        assertThat(ResponseCompressionFilter.negotiate("*")).isEqualTo("zstd");
+        assertThat(ResponseCompressionFilter.negotiate("br, identity")).isNull();
+        assertThat(ResponseCompressionFilter.negotiate(null)).isNull();
+    }
+
+    @Test
+    void smallResponse_shouldGoOutUncompressedWithContentLength() throws Exception {
+        byte[] body = json(100);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("gzip, zstd"), response, write(MediaType.APPLICATION_JSON_VALUE, body));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentLength()).isEqualTo(body.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    void largeResponse_shouldBeGzipped() throws Exception {
+        byte[] body = json(5000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("gzip"), response, write(MediaType.APPLICATION_JSON_VALUE, body));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.containsHeader(HttpHeaders.CONTENT_LENGTH)).isFalse();
+        assertThat(response.getContentAsByteArray().length).isLessThan(body.length);
+        assertThat(decode(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())))).isEqualTo(body);
+    }
+
+    @Test
+    void largeResponse_shouldBeZstdCompressedWhenAccepted() throws Exception {
+        byte[] body = json(5000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("gzip, deflate, br, zstd"), response, write(MediaType.APPLICATION_JSON_VALUE, body));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+        assertThat(decode(new ZstdInputStream(new ByteArrayInputStream(response.getContentAsByteArray())))).isEqualTo(body);
+    }
+
+    @Test
+    void compressedResponse_shouldSuffixStrongETagWithTheCoding() throws Exception {
+        MockHttpServletResponse compressed = new MockHttpServletResponse();
+        filter.doFilter(request("gzip"), compressed, write(MediaType.APPLICATION_JSON_VALUE, json(5000), "\"7\""));
+        MockHttpServletResponse weak = new MockHttpServletResponse();
+        filter.doFilter(request("zstd"), weak, write(MediaType.APPLICATION_JSON_VALUE, json(5000), "W/\"7\""));
+        MockHttpServletResponse small = new MockHttpServletResponse();
+        filter.doFilter(request("gzip"), small, write(MediaType.APPLICATION_JSON_VALUE, json(100), "\"7\""));
+
+        assertThat(compressed.getHeader(HttpHeaders.ETAG)).isEqualTo("\"7-gzip\"");
+        assertThat(weak.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"7\"");
+        assertThat(small.getHeader(HttpHeaders.ETAG)).isEqualTo("\"7\"");
+    }
+
+    @Test
+    void largeResponse_shouldPassThroughForOtherContentTypes() throws Exception {
+        byte[] body = json(5000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("gzip"), response, write(MediaType.IMAGE_PNG_VALUE, body));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    void largeResponse_shouldPassThroughWithoutAcceptEncoding() throws Exception {
+        byte[] body = json(5000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request(null), response, write(MediaType.APPLICATION_JSON_VALUE, body));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    void flush_shouldWriteThroughWhileAsync() throws Exception {
+        MockHttpServletRequest request = request("gzip");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] event = "data:{\"id\":1}\n\n".getBytes(StandardCharsets.UTF_8);
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.startAsync();
+            res.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+            res.getOutputStream().write(event);
+            res.flushBuffer();
+        });
+
+        // an SSE event can't wait for the threshold
+        assertThat(response.getContentAsByteArray()).isEqualTo(event);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    void failure_shouldEndTheCompressedFrame() throws Exception {
+        byte[] body = json(5000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = write(MediaType.APPLICATION_JSON_VALUE, body);
+
+        assertThatThrownBy(() -> filter.doFilter(request("zstd"), response, (req, res) -> {
+            chain.doFilter(req, res);
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // a complete frame means the compressor was closed, and its native context freed with it
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+        assertThat(decode(new ZstdInputStream(new ByteArrayInputStream(response.getContentAsByteArray())))).isEqualTo(body);
+    }
+
+    @Test
+    void failure_shouldDropTheHeldBackBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = write(MediaType.APPLICATION_JSON_VALUE, json(100));
+
+        assertThatThrownBy(() -> filter.doFilter(request("gzip"), response, (req, res) -> {
+            chain.doFilter(req, res);
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(response.isCommitted()).isFalse();
+    }
+
+    @Test
+    void asyncError_shouldEndTheCompressedFrame() throws Exception {
+        MockHttpServletRequest request = request("gzip");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] body = json(5000);
+        FilterChain chain = write(MediaType.APPLICATION_JSON_VALUE, body);
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.startAsync();
+            chain.doFilter(req, res);
+        });
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        }
+
+        assertThat(decode(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())))).isEqualTo(body);
+    }
+
+    @Test
+    void setWriteListener_shouldSkipCompressionAndDelegate() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        List<WriteListener> listeners = new ArrayList<>();
+        HttpServletResponse nonBlocking = new HttpServletResponseWrapper(response) {
+            @Override
+            public ServletOutputStream getOutputStream() throws IOException {
+                ServletOutputStream out = super.getOutputStream();
+                return new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        listeners.add(writeListener);
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                    }
+                };
+            }
+        };
+        byte[] body = json(5000);
+        WriteListener listener = mock(WriteListener.class);
+
+        filter.doFilter(request("gzip"), nonBlocking, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getOutputStream().setWriteListener(listener);
+            res.getOutputStream().write(body);
+        });
+
+        assertThat(listeners).containsExactly(listener);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(body);
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/devices");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    // writes in small chunks, as the message converters do
+    private static FilterChain write(String contentType, byte[] body) {
+        return write(contentType, body, null);
+    }
+
+    private static FilterChain write(String contentType, byte[] body, String eTag) {
+        return (request, response) -> {
+            response.setContentType(contentType);
+            if (eTag != null) {
+                ((HttpServletResponse) response).setHeader(HttpHeaders.ETAG, eTag);
+            }
+            for (int offset = 0; offset < body.length; offset += 100) {
+                response.getOutputStream().write(body, offset, Math.min(100, body.length - offset));
+            }
+        };
+    }
+
+    private static byte[] json(int length) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < length - 1; i++) {
+            json.append("{\"id\":").append(i).append(",\"brand\":\"Acme\"},");
+        }
+        json.setLength(length - 1);
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] decode(InputStream in) throws Exception {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}